@@ -0,0 +1,11 @@
+package com.increff.pos.commons.exception;
+
+/**
+ * A bounded work queue rejected the request; the client should retry later.
+ */
+public class QueueFullException extends ApiException {
+
+    public QueueFullException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,39 @@
+package com.increff.pos.model.data;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Hibernate Statistics since startup (or the last reset). Hit ratios are 0 when nothing was looked up.
+ */
+@Getter
+@AllArgsConstructor
+public class HibernateStatsData {
+
+    private final boolean enabled;
+    private final long sessionOpenCount;
+    private final long transactionCount;
+    private final long prepareStatementCount;
+    private final long queryExecutionCount;
+    private final long queryExecutionMaxTimeMillis;
+    private final String queryExecutionMaxTimeQuery;
+
+    private final long entityLoadCount;
+    private final long entityFetchCount;
+    private final long entityInsertCount;
+    private final long entityUpdateCount;
+    private final long entityDeleteCount;
+    private final long collectionLoadCount;
+    private final long collectionFetchCount;
+    private final long flushCount;
+    private final long optimisticFailureCount;
+
+    private final long secondLevelCacheHitCount;
+    private final long secondLevelCacheMissCount;
+    private final long secondLevelCachePutCount;
+    private final double secondLevelCacheHitRatio;
+    private final long queryCacheHitCount;
+    private final long queryCacheMissCount;
+    private final long queryCachePutCount;
+    private final double queryCacheHitRatio;
+}
@@ -0,0 +1,22 @@
+package com.increff.pos.model.data;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * The MySQL server's global prepared statement counters since server start, which include every
+ * client of the server and not just this application. They are null when they cannot be read.
+ * The pool settings are those of this application's primary pool.
+ */
+@Getter
+@AllArgsConstructor
+public class MysqlStatementCountersData {
+
+    private final boolean poolPreparedStatements;
+    private final int maxOpenPreparedStatements;
+    private final Long serverPrepares;
+    private final Long serverExecutes;
+    private final Long serverPreparedStatementCount;
+    // Server-wide share of executions that reused an already prepared statement
+    private final Double serverReuseRatio;
+}
@@ -0,0 +1,21 @@
+package com.increff.pos.model.data;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Counters of the asynchronous order submission queue.
+ */
+@Getter
+@AllArgsConstructor
+public class OrderQueueStatsData {
+
+    private final int depth;
+    private final int capacity;
+    private final long submitted;
+    private final long rejected;
+    private final long placed;
+    private final long failed;
+    private final double avgQueueMillis;
+    private final double maxQueueMillis;
+}
@@ -0,0 +1,22 @@
+package com.increff.pos.model.data;
+
+import com.increff.pos.model.enums.OrderSubmissionStatus;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.ZonedDateTime;
+
+/**
+ * State of an order submitted through POST /orders/async. orderId is set once it is PLACED,
+ * error once it has FAILED.
+ */
+@Getter
+@Setter
+public class OrderSubmissionData {
+
+    private String token;
+    private OrderSubmissionStatus status;
+    private ZonedDateTime submittedAt;
+    private Integer orderId;
+    private String error;
+}
@@ -12,5 +12,7 @@ public class PaginationData<T> {
     private List<T> content;
     private Integer totalPages;
     private Long totalElements;
+    // Opaque token for the next page in cursor mode; null when there is nothing more to fetch
+    private String nextCursor;
 
 }
@@ -0,0 +1,35 @@
+package com.increff.pos.model.data;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * Connection pool metrics for one pool (primary or replica). Times are in milliseconds.
+ */
+@Getter
+@AllArgsConstructor
+public class PoolStatsData {
+
+    private final String name;
+    private final int active;
+    private final int idle;
+    private final int maxTotal;
+    private final int waiting;
+
+    private final long borrowCount;
+    private final double meanBorrowWaitMillis;
+    private final double maxBorrowWaitMillis;
+    private final Map<String, Long> borrowWaitHistogram;
+    private final long borrowWaitAlertMillis;
+    private final long borrowWaitAlerts;
+    private final boolean alerting;
+
+    private final long createdCount;
+    private final long destroyedCount;
+    private final long meanActiveTimeMillis;
+    private final long maxConnectionAgeMillis;
+    private final long maxConnectionLifetimeMillis;
+    private final int suspectedAbandoned;
+}
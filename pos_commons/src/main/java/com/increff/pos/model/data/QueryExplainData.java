@@ -0,0 +1,20 @@
+package com.increff.pos.model.data;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * EXPLAIN output for the last slow sample of a statement fingerprint.
+ */
+@Getter
+@AllArgsConstructor
+public class QueryExplainData {
+
+    private final String id;
+    private final String sql;
+    private final List<String> binds;
+    private final List<Map<String, Object>> plan;
+}
@@ -0,0 +1,21 @@
+package com.increff.pos.model.data;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Aggregated timings for one normalised SQL statement. p99Millis is a power-of-two bucket estimate.
+ */
+@Getter
+@AllArgsConstructor
+public class QueryStatsData {
+
+    private final String id;
+    private final String fingerprint;
+    private final long count;
+    private final double totalMillis;
+    private final double meanMillis;
+    private final double p99Millis;
+    private final double maxMillis;
+    private final long slowCount;
+}
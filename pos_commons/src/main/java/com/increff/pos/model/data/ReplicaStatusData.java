@@ -0,0 +1,17 @@
+package com.increff.pos.model.data;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Read-replica routing status. lagSeconds is null when there is no replica or its lag is unknown.
+ */
+@Getter
+@AllArgsConstructor
+public class ReplicaStatusData {
+
+    private final boolean replicaEnabled;
+    private final Long lagSeconds;
+    private final long primaryLookups;
+    private final long replicaLookups;
+}
@@ -0,0 +1,26 @@
+package com.increff.pos.model.data;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Hibernate work per request type ("METHOD /mapped/path"), summed over all requests of that type.
+ */
+@Getter
+@AllArgsConstructor
+public class RequestStatsData {
+
+    private final String requestType;
+    private final long count;
+    private final long statements;
+    private final double meanStatements;
+    private final long maxStatements;
+    private final long entitiesLoaded;
+    private final double meanEntitiesLoaded;
+    private final long maxEntitiesLoaded;
+    private final long flushes;
+    private final long flushedEntities;
+    private final long dirtyChecks;
+    private final long secondLevelCacheHits;
+    private final long secondLevelCacheMisses;
+}
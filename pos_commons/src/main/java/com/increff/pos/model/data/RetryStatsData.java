@@ -0,0 +1,18 @@
+package com.increff.pos.model.data;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Optimistic-lock retry counters for one @RetryOnOptimisticLock method.
+ */
+@Getter
+@AllArgsConstructor
+public class RetryStatsData {
+
+    private final String method;
+    private final long invocations;
+    private final long retries;
+    private final long recovered;
+    private final long exhausted;
+}
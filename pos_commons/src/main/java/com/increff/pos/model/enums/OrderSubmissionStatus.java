@@ -0,0 +1,10 @@
+package com.increff.pos.model.enums;
+
+public enum OrderSubmissionStatus {
+
+    QUEUED,
+    PROCESSING,
+    PLACED,
+    FAILED
+
+}
@@ -2,9 +2,12 @@ package com.increff.pos.api;
 
 import com.increff.pos.commons.exception.ApiException;
 import com.increff.pos.dao.ClientDao;
+import com.increff.pos.dao.ProductListingDao;
 import com.increff.pos.entity.Client;
 import com.increff.pos.model.result.PaginatedResult;
+import com.increff.pos.shard.ShardTemplate;
 import com.increff.pos.utils.ClientUtil;
+import com.increff.pos.utils.CursorUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -19,6 +22,12 @@ public class ClientApi extends AbstractApi{
     @Autowired
     private ClientDao clientDao;
 
+    @Autowired
+    private ProductListingDao productListingDao;
+
+    @Autowired
+    private ShardTemplate shardTemplate;
+
     public Client insert(Client client) throws ApiException {
         checkNull(client,"Client object cannot be null");
         checkNotNull(client.getId(), "Cannot insert with a pre-existing ID. ID must be null.");
@@ -27,9 +36,12 @@ public class ClientApi extends AbstractApi{
         checkNotNull(existingClient,"Client already exists");
 
         clientDao.insert(client);
+        // Every shard joins its products to clients
+        shardTemplate.afterCommitOnOtherShards(() -> clientDao.upsertCopy(client));
         return client;
     }
 
+    @Transactional(readOnly = true, rollbackFor = ApiException.class)
     public Client getCheckById(Integer id) throws ApiException{
         checkNull(id,"Id cannot be null");
 
@@ -39,18 +51,21 @@ public class ClientApi extends AbstractApi{
         return existingClient;
     }
 
+    @Transactional(readOnly = true, rollbackFor = ApiException.class)
     public Client getById(Integer id) throws ApiException {
         checkNull(id,"Id cannot be null");
 
         return clientDao.selectById(id);
     }
 
+    @Transactional(readOnly = true, rollbackFor = ApiException.class)
     public List<Client> getByIds(List<Integer> ids) throws ApiException{
         checkNull(ids,"Ids cannot be null");
 
         return clientDao.selectByIds(ids);
     }
 
+    @Transactional(readOnly = true, rollbackFor = ApiException.class)
     public Client getCheckByName(String clientName) throws ApiException{
         checkNull(clientName,"Client name cannot be null");
 
@@ -60,19 +75,27 @@ public class ClientApi extends AbstractApi{
         return existingClient;
     }
 
+    @Transactional(readOnly = true, rollbackFor = ApiException.class)
     public Client getByName(String clientName) throws ApiException{
         checkNull(clientName,"Client name cannot be null");
 
         return clientDao.selectByName(clientName);
     }
 
+    @Transactional(readOnly = true, rollbackFor = ApiException.class)
     public List<Client> getByNames(List<String> clientNames) throws ApiException{
         checkNull(clientNames,"Client names cannot be null");
 
         return clientDao.selectByNames(clientNames);
     }
 
+    @Transactional(readOnly = true, rollbackFor = ApiException.class)
     public PaginatedResult<Client> getFilteredClients(String clientName, Pageable pageable) throws ApiException {
+        return getFilteredClients(clientName, null, pageable);
+    }
+
+    @Transactional(readOnly = true, rollbackFor = ApiException.class)
+    public PaginatedResult<Client> getFilteredClients(String clientName, Integer afterId, Pageable pageable) throws ApiException {
         checkNull(pageable, "Pageable object cannot be null");
 
         Long totalElements = clientDao.countWithFilters(clientName);
@@ -81,11 +104,12 @@ public class ClientApi extends AbstractApi{
             return ClientUtil.createEmptyResult();
         }
 
-        List<Client> results = clientDao.selectWithFilters(clientName, pageable);
+        List<Client> results = clientDao.selectWithFilters(clientName, afterId, pageable);
 
         PaginatedResult<Client> paginatedResult = new PaginatedResult<>();
         paginatedResult.setResults(results);
         paginatedResult.setTotalElements(totalElements);
+        paginatedResult.setNextCursor(CursorUtil.nextCursor(results, pageable.getPageSize(), Client::getId));
 
         if (pageable.getPageSize() > 0) {
             paginatedResult.setTotalPages((int) Math.ceil((double) totalElements / pageable.getPageSize()));
@@ -109,7 +133,23 @@ public class ClientApi extends AbstractApi{
         existingClient.setClientName(client.getClientName());
 
         clientDao.update(existingClient);
+        // Product listings carry the client name
+        productListingDao.updateClientName(id, existingClient.getClientName());
+        shardTemplate.afterCommitOnOtherShards(() -> {
+            clientDao.upsertCopy(existingClient);
+            productListingDao.updateClientName(id, existingClient.getClientName());
+        });
         return existingClient;
     }
 
+    /**
+     * Copies every client to the other shards, e.g. after adding a shard or a failed copy.
+     * @return the number of clients copied.
+     */
+    public int copyClientsToShards() {
+        List<Client> clients = clientDao.selectAll();
+        shardTemplate.onOtherShards(() -> clients.forEach(clientDao::upsertCopy));
+        return clients.size();
+    }
+
 }
\ No newline at end of file
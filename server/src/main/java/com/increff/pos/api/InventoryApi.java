@@ -2,21 +2,31 @@ package com.increff.pos.api;
 
 import com.increff.pos.commons.exception.ApiException;
 import com.increff.pos.dao.InventoryDao;
+import com.increff.pos.dao.ProductListingDao;
 import com.increff.pos.entity.Inventory;
 import com.increff.pos.entity.Product;
 import com.increff.pos.model.data.FailedInventoryUploadRow;
 import com.increff.pos.model.data.InventoryUploadRow;
 import com.increff.pos.model.result.InventoryReportResult;
 import com.increff.pos.model.result.InventoryUploadResult;
+import com.increff.pos.retry.RetryOnOptimisticLock;
+import com.increff.pos.shard.ShardContext;
+import com.increff.pos.shard.ShardTemplate;
 import com.increff.pos.utils.InventoryUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
@@ -26,6 +36,16 @@ public class InventoryApi extends AbstractApi{
     @Autowired
     private InventoryDao inventoryDao;
 
+    // Every quantity change below is copied into the product listing read model in the same transaction
+    @Autowired
+    private ProductListingDao productListingDao;
+
+    // Orders live on home but a product's stock lives on its client's shard. A quantity change for a
+    // product on another shard commits there in a transaction of its own and is undone there if the
+    // caller's transaction rolls back; a crash in between leaves that shard short, never oversold.
+    @Autowired
+    private ShardTemplate shardTemplate;
+
     public Inventory insert(Inventory inventory) throws ApiException{
         checkNull(inventory,"Inventory cannot be null");
 
@@ -33,13 +53,16 @@ public class InventoryApi extends AbstractApi{
         checkNotNull(existingInventory,"inventory already exists");
 
         inventoryDao.insert(inventory);
+        productListingDao.refreshQuantities(Collections.singletonList(inventory.getProductId()));
         return inventory;
     }
 
+    @Transactional(readOnly = true, rollbackFor = ApiException.class)
     public List<Inventory> getByProductIds(List<Integer> ids){
         return inventoryDao.selectByProductIds(ids);
     }
 
+    @Transactional(readOnly = true, rollbackFor = ApiException.class)
     public List<Inventory> getCheckByProductIds(List<Integer> productIds) throws ApiException{
         checkNull(productIds, "Product IDs list cannot be null");
         
@@ -63,6 +86,7 @@ public class InventoryApi extends AbstractApi{
         return inventories;
     }
 
+    @Transactional(readOnly = true, rollbackFor = ApiException.class)
     public Inventory getCheckByProductId(Integer id) throws ApiException{
         checkNull(id,"Id cannot be null");
 
@@ -71,6 +95,7 @@ public class InventoryApi extends AbstractApi{
         return existingInventory;
     }
 
+    @Transactional(readOnly = true, rollbackFor = ApiException.class)
     public Inventory getCheckById(Integer id) throws ApiException{
         checkNull(id,"Id cannot be null");
 
@@ -79,13 +104,23 @@ public class InventoryApi extends AbstractApi{
         return existingInventory;
     }
 
+    @Transactional(readOnly = true, rollbackFor = ApiException.class)
     public List<Inventory> getAll(){
         return inventoryDao.selectAll();
     }
 
+    /**
+     * Streams every inventory row, of every shard, to the consumer; rows are detached and are not updated on commit.
+     */
+    @Transactional(readOnly = true, rollbackFor = ApiException.class)
+    public void forEachInventory(Consumer<Inventory> consumer) {
+        inventoryDao.streamAllShards(consumer);
+    }
+
     public InventoryUploadResult upload(List<InventoryUploadRow> candidateRows, Map<String, Product> productMap) {
 
         List<Inventory> inventoriesToUpdate = new ArrayList<>();
+        Map<Integer, InventoryUploadRow> rowByProductId = new HashMap<>();
         List<FailedInventoryUploadRow> failedRows = new ArrayList<>();
 
         // --- Pre-processing Pass to Find In-File Duplicates ---
@@ -96,6 +131,7 @@ public class InventoryApi extends AbstractApi{
             try {
                 Inventory inventory = InventoryUtil.validateAndConvert(row, productMap, duplicateBarcodesInFile);
                 inventoriesToUpdate.add(inventory);
+                rowByProductId.put(inventory.getProductId(), row);
             } catch (ApiException e) {
                 FailedInventoryUploadRow fail = new FailedInventoryUploadRow();
                 fail.setRow(row);
@@ -106,7 +142,18 @@ public class InventoryApi extends AbstractApi{
 
         // --- High-Performance Bulk Update ---
         if (!inventoriesToUpdate.isEmpty()) {
-            inventoryDao.bulkUpdate(inventoriesToUpdate);
+            List<Integer> unmatchedProductIds = inventoryDao.bulkUpdate(inventoriesToUpdate);
+            if (!unmatchedProductIds.isEmpty()) {
+                Set<Integer> unmatched = new HashSet<>(unmatchedProductIds);
+                inventoriesToUpdate.removeIf(inventory -> unmatched.contains(inventory.getProductId()));
+                for (Integer productId : unmatched) {
+                    FailedInventoryUploadRow fail = new FailedInventoryUploadRow();
+                    fail.setRow(rowByProductId.get(productId));
+                    fail.setErrorMessage("Inventory doesn't exist for this product");
+                    failedRows.add(fail);
+                }
+            }
+            productListingDao.refreshQuantities(rowByProductId.keySet());
         }
 
         InventoryUploadResult result = new InventoryUploadResult();
@@ -115,7 +162,7 @@ public class InventoryApi extends AbstractApi{
         return result;
     }
 
-    public void initializeInventory(List<Product> newProducts) throws ApiException {
+    public void initializeInventory(List<Product> newProducts) {
         // 1. Convert the list of Product entities into a list of Inventory entities.
         List<Inventory> newInventories = newProducts.stream()
                 .map(product -> {
@@ -127,17 +174,25 @@ public class InventoryApi extends AbstractApi{
                 .collect(Collectors.toList());
 
         // 2. Use the highly efficient, generic bulk-insert method from the DAO.
+        // Listing rows already default to 0, so they need no refresh here.
         if (!newInventories.isEmpty()) {
-            inventoryDao.insertAll(newInventories);
+            inventoryDao.bulkInsert(newInventories);
         }
     }
 
+    @Transactional(readOnly = true, rollbackFor = ApiException.class)
     public List<Inventory> getLowStockItems(Integer threshold) throws ApiException {
         checkNull(threshold,"Threshold cannot be null");
 
         return inventoryDao.selectLowStockItems(threshold);
     }
 
+    @Transactional(readOnly = true, rollbackFor = ApiException.class)
+    public void forEachInventoryReportRow(Consumer<InventoryReportResult> consumer) {
+        inventoryDao.streamInventoryReportData(consumer);
+    }
+
+    @Transactional(readOnly = true, rollbackFor = ApiException.class)
     public List<InventoryReportResult> getInventoryReportData() {
         return inventoryDao.findInventoryReportData();
     }
@@ -149,18 +204,112 @@ public class InventoryApi extends AbstractApi{
         existingInventory.setQuantity(inventory.getQuantity());
 
         inventoryDao.update(existingInventory);
+        productListingDao.refreshQuantities(Collections.singletonList(existingInventory.getProductId()));
     }
 
-    public void bulkUpdateInventories(List<Inventory> inventories) throws ApiException {
+    /**
+     * @return the product ids that have no inventory row and were therefore not updated.
+     */
+    public List<Integer> bulkUpdateInventories(List<Inventory> inventories) throws ApiException {
         checkNull(inventories, "Inventories list cannot be null");
         
         if (inventories.isEmpty()) {
-            return;
+            return new ArrayList<>();
         }
         
-        inventoryDao.bulkUpdate(inventories);
+        List<Integer> unmatchedProductIds = inventoryDao.bulkUpdate(inventories);
+        productListingDao.refreshQuantities(inventories.stream().map(Inventory::getProductId).collect(Collectors.toSet()));
+        return unmatchedProductIds;
+    }
+
+    /**
+     * Subtracts ordered quantities without reading inventory first.
+     * Expects one entry per product; callers sum the quantities of repeated products.
+     * @return the product ids that did not have enough stock (nothing is applied for those).
+     */
+    public List<Integer> decrementQuantities(Map<Integer, Integer> quantityByProductId) throws ApiException {
+        checkNull(quantityByProductId, "Quantities map cannot be null");
+
+        for (Map.Entry<Integer, Integer> entry : quantityByProductId.entrySet()) {
+            checkNull(entry.getKey(), "Product Id cannot be null");
+            checkNull(entry.getValue(), "Quantity cannot be null");
+            if (entry.getValue() < 0) {
+                throw new ApiException("Quantity cannot be negative for product with id " + entry.getKey());
+            }
+        }
+
+        List<Integer> shortProductIds = new ArrayList<>();
+        for (Map.Entry<String, Map<Integer, Integer>> shard : splitByShard(quantityByProductId).entrySet()) {
+            Map<Integer, Integer> quantities = shard.getValue();
+            if (shard.getKey().equals(ShardContext.current())) {
+                shortProductIds.addAll(decrementHere(quantities));
+                continue;
+            }
+            List<Integer> shardShortProductIds = shardTemplate.onShard(shard.getKey(), () -> decrementHere(quantities));
+            Map<Integer, Integer> taken = new HashMap<>(quantities);
+            shardShortProductIds.forEach(taken::remove);
+            shardTemplate.afterRollbackOn(shard.getKey(), () -> incrementHere(taken));
+            shortProductIds.addAll(shardShortProductIds);
+        }
+        return shortProductIds;
+    }
+
+    /**
+     * Adds quantities back to stock (e.g. items of cancelled orders) without reading inventory first.
+     * Expects one entry per product; callers sum the quantities of repeated products.
+     */
+    public void incrementQuantities(Map<Integer, Integer> quantityByProductId) throws ApiException {
+        checkNull(quantityByProductId, "Quantities map cannot be null");
+
+        for (Map.Entry<Integer, Integer> entry : quantityByProductId.entrySet()) {
+            checkNull(entry.getKey(), "Product Id cannot be null");
+            checkNull(entry.getValue(), "Quantity cannot be null");
+            if (entry.getValue() < 0) {
+                throw new ApiException("Quantity cannot be negative for product with id " + entry.getKey());
+            }
+        }
+
+        List<Integer> missingProductIds = new ArrayList<>();
+        for (Map.Entry<String, Map<Integer, Integer>> shard : splitByShard(quantityByProductId).entrySet()) {
+            Map<Integer, Integer> quantities = shard.getValue();
+            if (shard.getKey().equals(ShardContext.current())) {
+                missingProductIds.addAll(incrementHere(quantities));
+                continue;
+            }
+            // Rows found on another shard exist there, so nothing is missing
+            shardTemplate.onShard(shard.getKey(), () -> incrementHere(quantities));
+            shardTemplate.afterRollbackOn(shard.getKey(), () -> {
+                if (!decrementHere(quantities).isEmpty()) {
+                    throw new IllegalStateException("Returned stock was sold again before it could be taken back");
+                }
+            });
+        }
+        if (!missingProductIds.isEmpty()) {
+            throw new ApiException("Inventory doesn't exist for product with id " + missingProductIds.get(0));
+        }
     }
 
+    /**
+     * Current quantity per product, with the inventory rows locked until the transaction ends. Rows on
+     * another shard are read in a transaction of their own there and are not held locked;
+     * decrementQuantities still never takes more than they have.
+     */
+    public Map<Integer, Integer> getQuantitiesForUpdate(Collection<Integer> productIds) throws ApiException {
+        checkNull(productIds, "Product IDs cannot be null");
+
+        Map<Integer, Integer> quantities = new HashMap<>();
+        for (Map.Entry<String, List<Integer>> shard : inventoryDao.groupProductIdsByShard(productIds).entrySet()) {
+            List<Integer> shardProductIds = shard.getValue();
+            if (shard.getKey().equals(ShardContext.current())) {
+                quantities.putAll(inventoryDao.selectQuantitiesForUpdate(shardProductIds));
+            } else {
+                quantities.putAll(shardTemplate.onShard(shard.getKey(), () -> inventoryDao.selectQuantitiesForUpdate(shardProductIds)));
+            }
+        }
+        return quantities;
+    }
+
+    @RetryOnOptimisticLock
     public Inventory updateById(Integer id,Inventory inventory) throws ApiException{
         checkNull(id,"Id cannot be null");
         checkNull(inventory,"Inventory cannot be null");
@@ -171,6 +320,7 @@ public class InventoryApi extends AbstractApi{
         existingInventory.setQuantity(inventory.getQuantity());
 
         inventoryDao.update(existingInventory);
+        productListingDao.refreshQuantities(Collections.singletonList(existingInventory.getProductId()));
         return existingInventory;
     }
 
@@ -181,6 +331,7 @@ public class InventoryApi extends AbstractApi{
         checkNull(existingInventory,"Inventory doesn't exist");
 
         inventoryDao.deleteById(id);
+        productListingDao.refreshQuantities(Collections.singletonList(existingInventory.getProductId()));
     }
 
     public void updateQuantityByProductId(Integer productId, Integer oldQuantity, Integer newQuantity) throws ApiException{
@@ -188,6 +339,19 @@ public class InventoryApi extends AbstractApi{
         checkNull(oldQuantity,"Old quantity cannot be null");
         checkNull(newQuantity,"New Quantity cannot be null");
 
+        List<Integer> productIdsHere = inventoryDao.groupProductIdsByShard(Collections.singletonList(productId)).get(ShardContext.current());
+        if (!productIdsHere.contains(productId)) {
+            // Stock on another shard is changed relatively, the same way an order's stock is
+            int taken = newQuantity - oldQuantity;
+            if (taken > 0 && !decrementQuantities(Collections.singletonMap(productId, taken)).isEmpty()) {
+                throw new ApiException("Not enough stock is available for product with id " + productId);
+            }
+            if (taken < 0) {
+                incrementQuantities(Collections.singletonMap(productId, -taken));
+            }
+            return;
+        }
+
         Inventory inventory = getCheckByProductId(productId);
         Integer quantityAddOn = oldQuantity-newQuantity;
         if(inventory.getQuantity() + quantityAddOn < 0){
@@ -198,8 +362,10 @@ public class InventoryApi extends AbstractApi{
         inventory.setQuantity(updatedQuantity);
 
         inventoryDao.update(inventory);
+        productListingDao.refreshQuantities(Collections.singletonList(productId));
     }
 
+    @RetryOnOptimisticLock
     public Inventory updateByProductId(Integer productId, Inventory inventoryPojo) throws ApiException{
         checkNull(productId,"Product id cannot be null");
         checkNull(inventoryPojo,"Inventory pojo cannot be null");
@@ -210,9 +376,40 @@ public class InventoryApi extends AbstractApi{
         exisitingInventory.setQuantity(inventoryPojo.getQuantity());
 
         inventoryDao.update(exisitingInventory);
+        productListingDao.refreshQuantities(Collections.singletonList(productId));
         return exisitingInventory;
     }
 
+    // Quantities by the shard holding the product's inventory row, the caller's shard first
+    private Map<String, Map<Integer, Integer>> splitByShard(Map<Integer, Integer> quantityByProductId) {
+        Map<String, Map<Integer, Integer>> quantitiesByShard = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Integer>> shard : inventoryDao.groupProductIdsByShard(quantityByProductId.keySet()).entrySet()) {
+            Map<Integer, Integer> quantities = new HashMap<>();
+            shard.getValue().forEach(productId -> quantities.put(productId, quantityByProductId.get(productId)));
+            quantitiesByShard.put(shard.getKey(), quantities);
+        }
+        return quantitiesByShard;
+    }
+
+    // Applies the decrement on the shard the caller is bound to; returns the product ids that were short
+    private List<Integer> decrementHere(Map<Integer, Integer> quantityByProductId) {
+        List<Integer> shortProductIds = inventoryDao.decrementQuantities(quantityByProductId);
+        Set<Integer> decrementedProductIds = new HashSet<>(quantityByProductId.keySet());
+        shortProductIds.forEach(decrementedProductIds::remove);
+        productListingDao.refreshQuantities(decrementedProductIds);
+        return shortProductIds;
+    }
+
+    // Applies the increment on the shard the caller is bound to; returns the product ids without inventory
+    private List<Integer> incrementHere(Map<Integer, Integer> quantityByProductId) {
+        List<Integer> missingProductIds = inventoryDao.incrementQuantities(quantityByProductId);
+        if (missingProductIds.isEmpty()) {
+            productListingDao.refreshQuantities(quantityByProductId.keySet());
+        }
+        return missingProductIds;
+    }
+
+    @Transactional(readOnly = true, rollbackFor = ApiException.class)
     public List<Inventory> getByIds(List<Integer> Ids) throws ApiException{
         checkNull(Ids,"Ids cannot be null");
 
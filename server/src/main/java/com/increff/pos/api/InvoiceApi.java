@@ -33,6 +33,7 @@ public class InvoiceApi extends AbstractApi {
         return invoice;
     }
 
+    @Transactional(readOnly = true, rollbackFor = ApiException.class)
     public Invoice getCheckByOrderId(Integer orderId) throws ApiException {
         checkNull(orderId, "Order ID cannot be null");
 
@@ -51,6 +52,7 @@ public class InvoiceApi extends AbstractApi {
         }
     }
 
+    @Transactional(readOnly = true, rollbackFor = ApiException.class)
     public byte[] getInvoicePdfBytes(Integer orderId) throws ApiException {
         Invoice invoice = getCheckByOrderId(orderId);
         if (invoice == null) {
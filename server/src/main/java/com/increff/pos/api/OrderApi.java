@@ -27,10 +27,12 @@ public class OrderApi extends AbstractApi{
         return order;
     }
 
+    @Transactional(readOnly = true, rollbackFor = ApiException.class)
     public List<Order> getAll(){
         return orderDao.selectAll();
     }
 
+    @Transactional(readOnly = true, rollbackFor = ApiException.class)
     public Order getCheckById(Integer id) throws ApiException{
         checkNull(id,"Id cannot null");
 
@@ -40,6 +42,23 @@ public class OrderApi extends AbstractApi{
         return existingOrder;
     }
 
+    /**
+     * Same as getCheckById, but also finds orders moved to archived_orders. An archived order is a
+     * detached copy, so use this for reads only.
+     */
+    @Transactional(readOnly = true, rollbackFor = ApiException.class)
+    public Order getCheckByIdIncludingArchive(Integer id) throws ApiException{
+        checkNull(id,"Id cannot null");
+
+        Order existingOrder = orderDao.selectById(id);
+        if (existingOrder == null) {
+            existingOrder = orderDao.selectArchivedById(id);
+        }
+        checkNull(existingOrder,"Order "+id + " doesn't exist");
+
+        return existingOrder;
+    }
+
     public Order updateInvoicePathById(Integer id, String filePath) throws ApiException{
         checkNull(id,"Id cannot be null");
         checkNull(filePath,"File Path cannot be null");
@@ -75,6 +94,33 @@ public class OrderApi extends AbstractApi{
         return existingOrder;
     }
 
+    /**
+     * Cancels those of the given orders that are still CREATED; others are left as they are.
+     * @return the ids of the orders that were cancelled.
+     */
+    public List<Integer> cancelByIds(List<Integer> ids) throws ApiException {
+        checkNull(ids, "Order ids cannot be null");
+
+        List<Integer> cancellableIds = orderDao.selectCancellableIds(ids);
+        orderDao.cancelByIds(cancellableIds);
+        return cancellableIds;
+    }
+
+    /**
+     * Cancels up to batchSize orders still CREATED that were created before the cutoff.
+     * @return the ids of the orders that were cancelled.
+     */
+    public List<Integer> cancelAbandoned(ZonedDateTime cutoff, int batchSize) throws ApiException {
+        checkNull(cutoff, "Cutoff cannot be null");
+        if (batchSize <= 0) {
+            throw new ApiException("Batch size must be positive");
+        }
+
+        List<Integer> abandonedIds = orderDao.selectAbandonedIds(cutoff, batchSize);
+        orderDao.cancelByIds(abandonedIds);
+        return abandonedIds;
+    }
+
     public Order updateInvoiceOrder(Integer id) throws ApiException {
         Order order = getCheckById(id);
 
@@ -86,6 +132,14 @@ public class OrderApi extends AbstractApi{
         return order;
     }
 
+    public void updateTotalAmountById(Integer orderId, Double totalAmount) throws ApiException {
+        checkNull(totalAmount, "Total amount cannot be null");
+
+        Order existingOrder = getCheckById(orderId);
+        existingOrder.setTotalAmount(totalAmount);
+        orderDao.update(existingOrder);
+    }
+
     public void updateAmountById(Integer orderId,Double oldSP,Double newSP) throws ApiException{
         checkNull(orderId,"Order id cannot be null");
         checkNull(oldSP,"Old SP can't be null");
@@ -108,16 +162,23 @@ public class OrderApi extends AbstractApi{
         orderDao.deleteById(id);
     }
 
+    @Transactional(readOnly = true, rollbackFor = ApiException.class)
     public List<Order> getByFilters(Integer id, ZonedDateTime startDate, ZonedDateTime endDate, OrderStatus status, Pageable pageable) throws ApiException{
+        return getByFilters(id, startDate, endDate, status, null, pageable);
+    }
+
+    @Transactional(readOnly = true, rollbackFor = ApiException.class)
+    public List<Order> getByFilters(Integer id, ZonedDateTime startDate, ZonedDateTime endDate, OrderStatus status, Integer afterId, Pageable pageable) throws ApiException{
         checkNull(pageable,"Pageable cannot be null");
 
         if (startDate != null && endDate != null && startDate.isAfter(endDate)) {
             throw new ApiException("Start date cannot be after end date.");
         }
 
-        return orderDao.findWithFilters(id, startDate,endDate,status,pageable);
+        return orderDao.findWithFilters(id, startDate,endDate,status,afterId,pageable);
     }
 
+    @Transactional(readOnly = true, rollbackFor = ApiException.class)
     public Long countWithFilters(Integer id, ZonedDateTime startDate, ZonedDateTime endDate, OrderStatus status) throws ApiException {
         if (startDate != null && endDate != null && startDate.isAfter(endDate)) {
             throw new ApiException("Start date cannot be after end date.");
@@ -126,6 +187,7 @@ public class OrderApi extends AbstractApi{
         return orderDao.countWithFilters(id,startDate, endDate, status);
     }
 
+    @Transactional(readOnly = true, rollbackFor = ApiException.class)
     public List<Order> getAllByDateRange(ZonedDateTime start, ZonedDateTime end) throws ApiException {
         checkNull(start, "Start date cannot be null");
         checkNull(end, "End date cannot be null");
@@ -0,0 +1,40 @@
+package com.increff.pos.api;
+
+import com.increff.pos.commons.exception.ApiException;
+import com.increff.pos.dao.OrderArchiveDao;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+
+@Service
+@Transactional(rollbackFor = ApiException.class)
+public class OrderArchiveApi extends AbstractApi {
+
+    @Autowired
+    private OrderArchiveDao orderArchiveDao;
+
+    public boolean isEnabled() {
+        return orderArchiveDao.isEnabled();
+    }
+
+    public ZonedDateTime getCutoff() {
+        return orderArchiveDao.getCutoff();
+    }
+
+    /**
+     * Archives up to batchSize finished orders created before the cutoff, in its own transaction.
+     * @return the number of orders archived; less than batchSize means nothing is left to archive.
+     */
+    public int archiveBatch(ZonedDateTime cutoff, int batchSize) throws ApiException {
+        checkNull(cutoff, "Cutoff cannot be null");
+        if (batchSize <= 0) {
+            throw new ApiException("Batch size must be positive");
+        }
+
+        List<Integer> orderIds = orderArchiveDao.selectArchivableOrderIds(cutoff, batchSize);
+        return orderArchiveDao.archiveOrders(orderIds);
+    }
+}
@@ -23,10 +23,12 @@ public class OrderItemApi extends AbstractApi{
     @Autowired
     private OrderItemDao orderItemDao;
 
+    @Transactional(readOnly = true, rollbackFor = ApiException.class)
     public List<OrderItem> getAll(){
         return orderItemDao.selectAll();
     }
 
+    @Transactional(readOnly = true, rollbackFor = ApiException.class)
     public List<OrderItem> getByOrderIds(List<Integer> orderIds) throws ApiException{
         checkNull(orderIds, "order Ids cannot be null");
 
@@ -37,12 +39,14 @@ public class OrderItemApi extends AbstractApi{
         return orderItemDao.selectByOrderIds(orderIds);
     }
 
+    @Transactional(readOnly = true, rollbackFor = ApiException.class)
     public List<OrderItem> getAllByOrderId(Integer orderId) throws ApiException{
         checkNull(orderId,"Order id cannot be null");
 
         return orderItemDao.selectByOrderId(orderId);
     }
 
+    @Transactional(readOnly = true, rollbackFor = ApiException.class)
     public OrderItem getCheckById(Integer id) throws ApiException{
         checkNull(id,"Id cannot be null");
 
@@ -73,15 +77,18 @@ public class OrderItemApi extends AbstractApi{
     }
 
 
+    @Transactional(readOnly = true, rollbackFor = ApiException.class)
     public List<ProductQuantityResult> getAllTimeTopSellingProducts(Integer limit) {
         Pageable pageable = (limit != null) ? PageRequest.of(0, limit) : Pageable.unpaged();
         return orderItemDao.findAllTimeTopSellingProducts(pageable, OrderStatus.INVOICED);
     }
 
+    @Transactional(readOnly = true, rollbackFor = ApiException.class)
     public ZonedDateTime getFirstOrderDate() {
         return orderItemDao.findFirstOrderDate(OrderStatus.INVOICED);
     }
 
+    @Transactional(readOnly = true, rollbackFor = ApiException.class)
     public List<ProductQuantityResult> getTopSellingProducts(ZonedDateTime start, ZonedDateTime end, Integer limit) throws ApiException {
         checkNull(start, "Start date cannot be null");
         checkNull(end, "End date cannot be null");
@@ -94,6 +101,7 @@ public class OrderItemApi extends AbstractApi{
         return orderItemDao.findTopSellingProducts(start, end, pageable, OrderStatus.INVOICED);
     }
 
+    @Transactional(readOnly = true, rollbackFor = ApiException.class)
     public List<SalesOverTimeResult> getSalesByDate(ZonedDateTime start, ZonedDateTime end) throws ApiException {
         checkNull(start, "Start date cannot be null");
         checkNull(end, "End date cannot be null");
@@ -122,6 +130,14 @@ public class OrderItemApi extends AbstractApi{
         return existingOrderItem;
     }
 
+    /**
+     * Deletes order items loaded in the current transaction.
+     */
+    public void deleteAll(List<OrderItem> orderItems) throws ApiException {
+        checkNull(orderItems, "Order items list cannot be null");
+        orderItemDao.deleteAll(orderItems);
+    }
+
     public void deleteById(Integer id) throws ApiException{
         checkNull(id,"Id cannot be null");
 
@@ -2,12 +2,15 @@ package com.increff.pos.api;
 
 import com.increff.pos.commons.exception.ApiException;
 import com.increff.pos.dao.ProductDao;
+import com.increff.pos.dao.ProductListingDao;
 import com.increff.pos.entity.Client;
 import com.increff.pos.entity.Product;
 import com.increff.pos.model.data.FailedUploadRow;
 import com.increff.pos.model.data.ProductUploadRow;
 import com.increff.pos.model.result.PaginatedResult;
+import com.increff.pos.model.result.ProductListingResult;
 import com.increff.pos.model.result.ProductUploadResult;
+import com.increff.pos.utils.CursorUtil;
 import com.increff.pos.utils.ProductUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Pageable;
@@ -15,6 +18,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
@@ -24,6 +28,8 @@ public class ProductApi extends AbstractApi {
     @Autowired
     private ProductDao productDao;
 
+    @Autowired
+    private ProductListingDao productListingDao;
 
     public Product insert(Product product) throws ApiException {
         checkNull(product, "Product object cannot be null");
@@ -32,48 +38,59 @@ public class ProductApi extends AbstractApi {
         checkNotNull(existingProduct, "Product already exists");
 
         productDao.insert(product);
+        productListingDao.refresh(Collections.singletonList(product.getId()));
         return product;
     }
 
-    public PaginatedResult<Product> getFilteredProducts(
-            String searchTerm, String clientName, String category, Double minMrp, Double maxMrp, Pageable pageable)
-            throws ApiException {
+    /**
+     * Single-query listing path, served from the product_listings read model (no joins). When
+     * includeTotal is false the count query is skipped and totalElements/totalPages are left null;
+     * callers page with nextCursor instead.
+     */
+    @Transactional(readOnly = true, rollbackFor = ApiException.class)
+    public PaginatedResult<ProductListingResult> getFilteredProductListing(
+            String searchTerm, String clientName, String category, Double minMrp, Double maxMrp,
+            Integer afterId, Pageable pageable, boolean includeTotal) throws ApiException {
 
         checkNull(pageable, "Pageable object cannot be null");
 
-        Long totalElements = productDao.countWithFilters(searchTerm, clientName, category, minMrp, maxMrp);
+        PaginatedResult<ProductListingResult> paginatedResult = new PaginatedResult<>();
 
-        if (totalElements == 0) {
-            return ProductUtil.createEmptyResult();
+        if (includeTotal) {
+            Long totalElements = productListingDao.countWithFilters(searchTerm, clientName, category, minMrp, maxMrp);
+            if (totalElements == 0) {
+                return ProductUtil.createEmptyResult();
+            }
+            paginatedResult.setTotalElements(totalElements);
+            if (pageable.getPageSize() > 0) {
+                paginatedResult.setTotalPages((int) Math.ceil((double) totalElements / pageable.getPageSize()));
+            } else {
+                paginatedResult.setTotalPages(1);
+            }
         }
 
-        List<Product> results = productDao.selectWithFilters(searchTerm, clientName, category, minMrp, maxMrp, pageable);
-
-        PaginatedResult<Product> paginatedResult = new PaginatedResult<>();
+        List<ProductListingResult> results = productListingDao.selectWithFilters(searchTerm, clientName, category, minMrp, maxMrp, afterId, pageable);
         paginatedResult.setResults(results);
-        paginatedResult.setTotalElements(totalElements);
-
-        if (pageable.getPageSize() > 0) {
-            paginatedResult.setTotalPages((int) Math.ceil((double) totalElements / pageable.getPageSize()));
-        } else {
-            paginatedResult.setTotalPages(1);
-        }
+        paginatedResult.setNextCursor(CursorUtil.nextCursor(results, pageable.getPageSize(), ProductListingResult::getId));
 
         return paginatedResult;
     }
 
+    @Transactional(readOnly = true, rollbackFor = ApiException.class)
     public Product getById(Integer id) throws ApiException {
         checkNull(id, "Id cannot be null");
 
         return productDao.selectById(id);
     }
 
+    @Transactional(readOnly = true, rollbackFor = ApiException.class)
     public List<Product> getByIds(List<Integer> ids) throws ApiException{
         checkNull(ids,"Ids cannot be null");
 
         return productDao.selectByIds(ids);
     }
 
+    @Transactional(readOnly = true, rollbackFor = ApiException.class)
     public List<Product> getCheckByIds(List<Integer> productIds) throws ApiException {
         checkNull(productIds, "Product IDs list cannot be null");
         
@@ -88,24 +105,31 @@ public class ProductApi extends AbstractApi {
                 .map(Product::getId)
                 .collect(Collectors.toSet());
         
-        for (Integer productId : productIds) {
-            if (!foundProductIds.contains(productId)) {
-                throw new ApiException("Product doesn't exist with id " + productId);
-            }
+        List<Integer> missingProductIds = productIds.stream()
+                .filter(productId -> !foundProductIds.contains(productId))
+                .collect(Collectors.toList());
+        if (!missingProductIds.isEmpty()) {
+            throw new ApiException("Product doesn't exist with id " + missingProductIds.get(0));
         }
         
         return products;
     }
 
+    @Transactional(readOnly = true, rollbackFor = ApiException.class)
     public Product getCheckById(Integer id) throws ApiException {
         checkNull(id, "Id cannot be null");
 
+        // Orders on home hold products of every shard
         Product existingProduct = productDao.selectById(id);
+        if (existingProduct == null) {
+            existingProduct = productDao.selectByIdOnOtherShards(id);
+        }
         checkNull(existingProduct, "Product " + id + " doesn't exist");
 
         return existingProduct;
     }
 
+    @Transactional(readOnly = true, rollbackFor = ApiException.class)
     public Product getCheckByBarcode(String barcode) throws ApiException {
         checkNull(barcode, "Barcode cannot be null");
 
@@ -115,12 +139,24 @@ public class ProductApi extends AbstractApi {
         return existingProduct;
     }
 
+    @Transactional(readOnly = true, rollbackFor = ApiException.class)
+    public ProductListingResult getCheckListingByBarcode(String barcode) throws ApiException {
+        checkNull(barcode, "Barcode cannot be null");
+
+        ProductListingResult listing = productListingDao.selectByBarcode(barcode);
+        checkNull(listing, "Product with barcode " + barcode + " doesn't exist");
+
+        return listing;
+    }
+
+    @Transactional(readOnly = true, rollbackFor = ApiException.class)
     public Product getByBarcode(String barcode) throws ApiException {
         checkNull(barcode, "Barcode cannot be null");
 
         return productDao.selectByBarcode(barcode);
     }
 
+    @Transactional(readOnly = true, rollbackFor = ApiException.class)
     public List<Product> getByBarcodes(List<String> barcodes) throws ApiException{
         checkNull(barcodes,"Barcodes cannot be null");
 
@@ -150,10 +186,16 @@ public class ProductApi extends AbstractApi {
         existingProduct.setImageUrl(product.getImageUrl());
 
         productDao.update(existingProduct);
+        productListingDao.refresh(Collections.singletonList(id));
         return existingProduct;
     }
 
-    public ProductUploadResult upload(List<ProductUploadRow> candidateRows, Map<String, Client> clientMap, Set<String> existingBarcodesInDb) {
+    /**
+     * @param onChunkInserted receives every inserted chunk of products (ids assigned), in the same transaction;
+     *                        the chunk's listing rows are written after it, so they pick up what it wrote
+     */
+    public ProductUploadResult upload(List<ProductUploadRow> candidateRows, Map<String, Client> clientMap, Set<String> existingBarcodesInDb,
+                                      Consumer<List<Product>> onChunkInserted) {
 
         List<Product> productsToInsert = new ArrayList<>();
         List<FailedUploadRow> failedRows = new ArrayList<>();
@@ -186,7 +228,10 @@ public class ProductApi extends AbstractApi {
 
         // --- Step 3: High-Performance Bulk Insert ---
         if (!productsToInsert.isEmpty()) {
-            productDao.insertAll(productsToInsert);
+            productDao.bulkIngest(productsToInsert, chunk -> {
+                onChunkInserted.accept(chunk);
+                productListingDao.refresh(chunk.stream().map(Product::getId).collect(Collectors.toList()));
+            });
         }
 
         ProductUploadResult result = new ProductUploadResult();
@@ -201,5 +246,23 @@ public class ProductApi extends AbstractApi {
         Product existingProduct = productDao.selectById(id);
         checkNull(existingProduct, "Product " + id + " doesn't exist");
         productDao.deleteById(id);
+        productListingDao.deleteByProductIds(Collections.singletonList(id));
+    }
+
+    /**
+     * Rebuilds the product_listings read model from products, clients and inventory.
+     * @return the number of listing rows written.
+     */
+    public int rebuildListings() {
+        return productListingDao.rebuild();
+    }
+
+    /**
+     * Builds the read model once on a database that predates it; a no-op afterwards.
+     */
+    public void rebuildListingsIfMissing() {
+        if (productListingDao.needsRebuild()) {
+            productListingDao.rebuild();
+        }
     }
 }
\ No newline at end of file
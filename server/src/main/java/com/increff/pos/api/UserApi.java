@@ -36,6 +36,7 @@ public class UserApi extends AbstractApi{
         return user;
     }
 
+    @Transactional(readOnly = true, rollbackFor = ApiException.class)
     public User getCheckByEmail(String email) throws ApiException {
         checkNull(email,"Email cannot be null");
 
@@ -1,17 +1,39 @@
 package com.increff.pos.config;
 
-import org.apache.commons.dbcp2.BasicDataSource;
+import com.increff.pos.datasource.InstrumentedDataSource;
+import com.increff.pos.datasource.QueryStatsDataSource;
+import com.increff.pos.datasource.QueryStatsRegistry;
+import com.increff.pos.datasource.ReadWriteRoutingDataSource;
+import com.increff.pos.shard.MetadataCaptureIntegrator;
+import com.increff.pos.shard.ShardInitializer;
+import com.increff.pos.shard.ShardMap;
+import com.increff.pos.shard.ShardRoutingDataSource;
+import com.increff.pos.shard.ShardTemplate;
+import com.increff.pos.stats.RequestStatisticsInterceptor;
+import com.increff.pos.stats.RequestStatisticsListener;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
 import org.springframework.orm.jpa.JpaTransactionManager;
 import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
 import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 
 import javax.persistence.EntityManagerFactory;
 import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 @Configuration
@@ -28,27 +50,161 @@ public class DbConfig {
     @Value("${hibernate.show_sql}") private String hibernateShowSql;
     @Value("${hibernate.hbm2ddl.auto}") private String hibernateHbm2ddl;
     @Value("${hibernate.physical_naming_strategy}") private String hibernateNamingStrategy;
+    @Value("${hibernate.jdbc.batch_size:50}") private String hibernateBatchSize;
+    @Value("${hibernate.order_inserts:true}") private String hibernateOrderInserts;
+    @Value("${hibernate.order_updates:true}") private String hibernateOrderUpdates;
+    @Value("${hibernate.generate_statistics:false}") private boolean hibernateGenerateStatistics;
 
+    @Value("${db.pool.initial_size:5}") private int poolInitialSize;
+    @Value("${db.pool.max_total:10}") private int poolMaxTotal;
+    @Value("${db.pool.max_wait_ms:10000}") private long poolMaxWaitMillis;
+    @Value("${db.pool.borrow_wait_alert_ms:200}") private long poolBorrowWaitAlertMillis;
+    @Value("${db.pool.max_conn_lifetime_ms:1800000}") private long poolMaxConnLifetimeMillis;
+    @Value("${db.pool.remove_abandoned:false}") private boolean poolRemoveAbandoned;
+    @Value("${db.pool.abandoned_timeout_s:300}") private int poolAbandonedTimeoutSeconds;
+    @Value("${db.pool.prepared_statements:true}") private boolean poolPreparedStatements;
+    @Value("${db.pool.max_open_prepared_statements:100}") private int poolMaxOpenPreparedStatements;
+    @Value("${db.pool.connection_properties:useServerPrepStmts=true;useLocalSessionState=true}") private String poolConnectionProperties;
+
+    @Value("${db.slow_query.threshold_ms:500}") private long slowQueryThresholdMillis;
+
+    // Read replica; leave db.replica.url empty to run everything against the primary
+    @Value("${db.replica.url:}") private String replicaUrl;
+    @Value("${db.replica.username:${db.username}}") private String replicaUsername;
+    @Value("${db.replica.password:${db.password}}") private String replicaPassword;
+    @Value("${db.replica.pool.initial_size:5}") private int replicaPoolInitialSize;
+    @Value("${db.replica.pool.max_total:10}") private int replicaPoolMaxTotal;
+
+    // Extra shards for client catalogues, configured per name as db.shard.<name>.*; empty keeps everything on home
+    @Value("${db.shards:}") private String shardNames;
+    @Value("${db.shards.id_block_size:100000000}") private long shardIdBlockSize;
+
+    @Autowired
+    private Environment environment;
+
+    @Bean(name = "routingDataSource")
+    public ReadWriteRoutingDataSource getRoutingDataSource() {
+        InstrumentedDataSource primary = createPool("primary", dbUrl, dbUsername, dbPassword, poolInitialSize, poolMaxTotal);
+        InstrumentedDataSource replica = null;
+        if (!replicaUrl.trim().isEmpty()) {
+            replica = createPool("replica", replicaUrl, replicaUsername, replicaPassword, replicaPoolInitialSize, replicaPoolMaxTotal);
+            replica.setDefaultReadOnly(true);
+        }
+        return new ReadWriteRoutingDataSource(primary, replica);
+    }
+
+    @Bean(name = "shardMap")
+    public ShardMap getShardMap() {
+        List<String> shards = new ArrayList<>();
+        shards.add(ShardMap.HOME);
+        Map<Integer, String> shardByClientId = new HashMap<>();
+        for (String shard : splitList(shardNames)) {
+            shards.add(shard);
+            for (String clientId : splitList(environment.getProperty("db.shard." + shard + ".clients", ""))) {
+                shardByClientId.put(Integer.valueOf(clientId), shard);
+            }
+        }
+        return new ShardMap(shards, shardByClientId);
+    }
+
+    // Home is the primary/replica pair above; every other shard gets its own pool (no replica)
+    @Bean(name = "shardRoutingDataSource")
+    public ShardRoutingDataSource getShardRoutingDataSource(ReadWriteRoutingDataSource routingDataSource, ShardMap shardMap) {
+        Map<String, DataSource> shards = new LinkedHashMap<>();
+        shards.put(ShardMap.HOME, routingDataSource);
+        for (String shard : shardMap.getShards()) {
+            if (ShardMap.HOME.equals(shard)) {
+                continue;
+            }
+            String prefix = "db.shard." + shard + ".";
+            InstrumentedDataSource pool = createPool("shard-" + shard,
+                    environment.getRequiredProperty(prefix + "url"),
+                    environment.getProperty(prefix + "username", dbUsername),
+                    environment.getProperty(prefix + "password", dbPassword),
+                    environment.getProperty(prefix + "pool.initial_size", Integer.class, poolInitialSize),
+                    environment.getProperty(prefix + "pool.max_total", Integer.class, poolMaxTotal));
+            shards.put(shard, new ReadWriteRoutingDataSource(pool, null));
+        }
+        return new ShardRoutingDataSource(shards);
+    }
+
+    @Bean(name = "shardTemplate")
+    public ShardTemplate getShardTemplate(ShardMap shardMap, PlatformTransactionManager transactionManager) {
+        return new ShardTemplate(shardMap, transactionManager);
+    }
+
+    @Bean(name = "metadataCaptureIntegrator")
+    public MetadataCaptureIntegrator getMetadataCaptureIntegrator() {
+        return new MetadataCaptureIntegrator();
+    }
+
+    @Bean(name = "shardInitializer")
+    public ShardInitializer getShardInitializer(EntityManagerFactory emf, MetadataCaptureIntegrator metadataCaptureIntegrator,
+                                                ShardRoutingDataSource shardRoutingDataSource, ShardMap shardMap) {
+        return new ShardInitializer(emf, metadataCaptureIntegrator, shardRoutingDataSource, shardMap,
+                hibernateHbm2ddl, shardIdBlockSize);
+    }
+
+    @Bean(name = "queryStatsRegistry")
+    public QueryStatsRegistry getQueryStatsRegistry() {
+        return new QueryStatsRegistry(slowQueryThresholdMillis);
+    }
+
+    // Lazy proxy so the routing decisions are made on first use, after the shard is bound and the
+    // transaction is marked read-only
+    @Primary
     @Bean(name = "dataSource")
-    public DataSource getDataSource() {
-        BasicDataSource dataSource = new BasicDataSource();
+    public DataSource getDataSource(ShardRoutingDataSource shardRoutingDataSource, QueryStatsRegistry queryStatsRegistry) {
+        return new LazyConnectionDataSourceProxy(new QueryStatsDataSource(shardRoutingDataSource, queryStatsRegistry));
+    }
+
+    private static List<String> splitList(String value) {
+        List<String> items = new ArrayList<>();
+        for (String item : value.split(",")) {
+            if (!item.trim().isEmpty()) {
+                items.add(item.trim());
+            }
+        }
+        return items;
+    }
+
+    private InstrumentedDataSource createPool(String name, String url, String username, String password, int initialSize, int maxTotal) {
+        InstrumentedDataSource dataSource = new InstrumentedDataSource(name, poolBorrowWaitAlertMillis);
         dataSource.setDriverClassName(dbDriver);
-        dataSource.setUrl(dbUrl);
-        dataSource.setUsername(dbUsername);
-        dataSource.setPassword(dbPassword);
-        dataSource.setInitialSize(5);
-        dataSource.setMaxTotal(10);
+        dataSource.setUrl(url);
+        dataSource.setUsername(username);
+        dataSource.setPassword(password);
+        dataSource.setInitialSize(initialSize);
+        dataSource.setMaxTotal(maxTotal);
+        dataSource.setMaxWaitMillis(poolMaxWaitMillis);
+        dataSource.setMaxConnLifetimeMillis(poolMaxConnLifetimeMillis);
+
+        // Client-side statement cache lives in DBCP; useServerPrepStmts makes MySQL keep the parsed plan
+        dataSource.setPoolPreparedStatements(poolPreparedStatements);
+        dataSource.setMaxOpenPreparedStatements(poolMaxOpenPreparedStatements);
+        dataSource.setConnectionProperties(poolConnectionProperties);
+
+        // Abandoned connections are always reported on /ops/pools; removing them is opt-in because a
+        // long streamed report legitimately holds its connection past the timeout
+        dataSource.setRemoveAbandonedTimeout(poolAbandonedTimeoutSeconds);
+        dataSource.setRemoveAbandonedOnMaintenance(poolRemoveAbandoned);
+        dataSource.setLogAbandoned(poolRemoveAbandoned);
+        dataSource.setTimeBetweenEvictionRunsMillis(30_000);
         return dataSource;
     }
 
     // EntityManagerFactory Bean (JPA/Hibernate Core)
     @Bean(name = "entityManagerFactory")
-    public LocalContainerEntityManagerFactoryBean getEntityManagerFactory(DataSource dataSource) {
+    public LocalContainerEntityManagerFactoryBean getEntityManagerFactory(DataSource dataSource,
+                                                                          MetadataCaptureIntegrator metadataCaptureIntegrator) {
         LocalContainerEntityManagerFactoryBean emf = new LocalContainerEntityManagerFactoryBean();
         emf.setDataSource(dataSource);
         emf.setPackagesToScan("com.increff.pos.entity");
         emf.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
         emf.setJpaProperties(getHibernateProperties());
+        // One factory for all shards (same schema); ShardInitializer reuses its metadata for the shard schemas
+        IntegratorProvider integratorProvider = () -> Collections.singletonList(metadataCaptureIntegrator);
+        emf.getJpaPropertyMap().put("hibernate.integrator_provider", integratorProvider);
         return emf;
     }
 
@@ -64,6 +220,21 @@ public class DbConfig {
         properties.setProperty("hibernate.show_sql", hibernateShowSql);
         properties.setProperty("hibernate.hbm2ddl.auto", hibernateHbm2ddl);
         properties.setProperty("hibernate.physical_naming_strategy", hibernateNamingStrategy);
+        // JDBC batching only kicks in because ids come from pooled sequences instead of IDENTITY
+        properties.setProperty("hibernate.jdbc.batch_size", hibernateBatchSize);
+        properties.setProperty("hibernate.order_inserts", hibernateOrderInserts);
+        properties.setProperty("hibernate.order_updates", hibernateOrderUpdates);
+        properties.setProperty("hibernate.jdbc.batch_versioned_data", "true");
+        // IN lists are padded to the next power of two so list sizes share query plans (see AbstractDao.multiGet)
+        properties.setProperty("hibernate.query.in_clause_parameter_padding", "true");
+        // Statistics (see /ops/hibernate) also attribute loads, flushes and statements to each request
+        properties.setProperty("hibernate.generate_statistics", String.valueOf(hibernateGenerateStatistics));
+        if (hibernateGenerateStatistics) {
+            properties.setProperty("hibernate.session.events.auto", RequestStatisticsListener.class.getName());
+            properties.setProperty("hibernate.session_factory.interceptor", RequestStatisticsInterceptor.class.getName());
+            // Per-session metrics are aggregated per request instead of logged on every session close
+            properties.setProperty("hibernate.session.events.log", "false");
+        }
         return properties;
     }
 }
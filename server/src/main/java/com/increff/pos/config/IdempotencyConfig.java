@@ -0,0 +1,50 @@
+package com.increff.pos.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.increff.pos.idempotency.IdempotencyInterceptor;
+import com.increff.pos.idempotency.IdempotencyStore;
+import com.increff.pos.idempotency.Idempotent;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+
+@Configuration
+public class IdempotencyConfig {
+
+    @Value("${idempotency.max_entries:10000}")
+    private int maxEntries;
+
+    @Value("${idempotency.ttl_minutes:60}")
+    private long ttlMinutes;
+
+    @Value("${idempotency.wait_ms:30000}")
+    private long waitMs;
+
+    @Bean
+    public IdempotencyStore idempotencyStore() {
+        return new IdempotencyStore(maxEntries, ttlMinutes * 60_000L, waitMs);
+    }
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public IdempotencyInterceptor idempotencyInterceptor(IdempotencyStore idempotencyStore, ObjectMapper objectMapper) {
+        return new IdempotencyInterceptor(idempotencyStore, objectMapper);
+    }
+
+    // Outside the transaction interceptor, so a duplicate never waits while holding a connection.
+    // Shares the retry advisor's precedence; @Idempotent only goes on Dto methods, which are never retried.
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public DefaultPointcutAdvisor idempotencyAdvisor(IdempotencyInterceptor idempotencyInterceptor) {
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(
+                AnnotationMatchingPointcut.forMethodAnnotation(Idempotent.class),
+                idempotencyInterceptor);
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return advisor;
+    }
+}
@@ -0,0 +1,33 @@
+package com.increff.pos.config;
+
+import com.increff.pos.retry.OptimisticLockRetryInterceptor;
+import com.increff.pos.retry.RetryOnOptimisticLock;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+
+@Configuration
+public class RetryConfig {
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public OptimisticLockRetryInterceptor optimisticLockRetryInterceptor() {
+        return new OptimisticLockRetryInterceptor();
+    }
+
+    // Infrastructure role so the auto-proxy creator registered by @EnableTransactionManagement applies it.
+    // Highest precedence puts it outside the transaction interceptor: each attempt gets a new transaction.
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public DefaultPointcutAdvisor optimisticLockRetryAdvisor(OptimisticLockRetryInterceptor optimisticLockRetryInterceptor) {
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(
+                AnnotationMatchingPointcut.forMethodAnnotation(RetryOnOptimisticLock.class),
+                optimisticLockRetryInterceptor);
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return advisor;
+    }
+}
@@ -66,6 +66,7 @@ public class SecurityConfig {
                         .antMatchers(HttpMethod.GET, "/report/sales").hasRole("SUPERVISOR")
                         .antMatchers(HttpMethod.GET, "/report/inventory").hasRole("SUPERVISOR")
                         .antMatchers(HttpMethod.GET, "/report/summary").hasAnyRole("OPERATOR", "SUPERVISOR")
+                        .antMatchers("/ops/**").hasRole("SUPERVISOR")
 
                         // --- Rule 3: Secure All Other Endpoints ---
                         .anyRequest().authenticated()
@@ -122,7 +123,7 @@ public class SecurityConfig {
 
         // --- Required for stateful (session) security ---
         configuration.setAllowCredentials(true);
-        configuration.setAllowedHeaders(Arrays.asList("Authorization", "Content-Type", "X-Requested-With"));
+        configuration.setAllowedHeaders(Arrays.asList("Authorization", "Content-Type", "X-Requested-With", "Idempotency-Key", "X-Terminal-Id"));
         configuration.setExposedHeaders(Arrays.asList("Authorization", "Content-Type"));
         configuration.setMaxAge(3600L); // Cache preflight requests for 1 hour
 
@@ -0,0 +1,32 @@
+package com.increff.pos.config;
+
+import com.increff.pos.shard.ShardKeyPointcut;
+import com.increff.pos.shard.ShardLocator;
+import com.increff.pos.shard.ShardMap;
+import com.increff.pos.shard.ShardRoutingInterceptor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+
+@Configuration
+public class ShardConfig {
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public ShardRoutingInterceptor shardRoutingInterceptor(ShardMap shardMap, ObjectProvider<ShardLocator> shardLocator) {
+        return new ShardRoutingInterceptor(shardMap, shardLocator);
+    }
+
+    // Inside the retry advisor, outside the transaction interceptor: the shard must be bound before a connection is fetched
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public DefaultPointcutAdvisor shardRoutingAdvisor(ShardRoutingInterceptor shardRoutingInterceptor) {
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(new ShardKeyPointcut(), shardRoutingInterceptor);
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        return advisor;
+    }
+}
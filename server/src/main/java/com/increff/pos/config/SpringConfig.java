@@ -3,6 +3,8 @@ package com.increff.pos.config;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.increff.pos.stats.RequestStatisticsHandlerInterceptor;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
@@ -11,19 +13,25 @@ import org.springframework.context.annotation.PropertySource;
 import org.springframework.http.converter.ByteArrayHttpMessageConverter;
 import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 import java.util.List;
 
 @Configuration
 @EnableWebMvc
+@EnableScheduling
 @ComponentScan(basePackages = { "com.increff.pos" })
 @Import({DbConfig.class, SecurityConfig.class, SwaggerConfig.class})
 @PropertySource("classpath:ai.properties")
 public class SpringConfig implements WebMvcConfigurer {
 
+    @Autowired
+    private RequestStatisticsHandlerInterceptor requestStatisticsHandlerInterceptor;
+
     @Bean
     public RestTemplate restTemplate() {
         return new RestTemplate();
@@ -44,5 +52,10 @@ public class SpringConfig implements WebMvcConfigurer {
         converters.add(jsonConverter);
         converters.add(new ByteArrayHttpMessageConverter());
     }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(requestStatisticsHandlerInterceptor);
+    }
 }
 
@@ -26,9 +26,10 @@ public class ClientController {
     public PaginationData<ClientData> getFilteredClients(
             @RequestParam(required = false)String clientName,
             @RequestParam(defaultValue = "10")Integer size,
-            @RequestParam(defaultValue = "0")Integer page
+            @RequestParam(defaultValue = "0")Integer page,
+            @RequestParam(required = false)String cursor
     ) throws ApiException{
-        return clientDto.getFilteredClients(clientName,page,size);
+        return clientDto.getFilteredClients(clientName,page,size,cursor);
     }
 
     @RequestMapping(value = "/{id}", method = RequestMethod.GET)
@@ -8,6 +8,7 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import com.increff.pos.commons.exception.FormValidationException;
+import com.increff.pos.commons.exception.QueueFullException;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -21,6 +22,15 @@ public class ControllerAdvice {
         return ex.getErrors();
     }
 
+    @ExceptionHandler(QueueFullException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public Map<String,String> handleQueueFullException(QueueFullException e) {
+        Map<String,String> error = new HashMap<>();
+        error.put("message",e.getMessage());
+
+        return error;
+    }
+
     @ExceptionHandler(ApiException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public Map<String,String> handleApiException(ApiException e) {
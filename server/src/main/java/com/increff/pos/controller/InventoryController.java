@@ -9,6 +9,7 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -20,8 +21,8 @@ public class InventoryController {
     private InventoryDto inventoryDto;
 
     @RequestMapping(method=RequestMethod.GET)
-    public List<InventoryData> getAll(){
-        return inventoryDto.getAll();
+    public ResponseEntity<StreamingResponseBody> getAll() throws ApiException{
+        return inventoryDto.streamAll();
     }
 
     @RequestMapping(value = "/{id}", method = RequestMethod.GET)
@@ -0,0 +1,99 @@
+package com.increff.pos.controller;
+
+import com.increff.pos.commons.exception.ApiException;
+import com.increff.pos.dto.OpsDto;
+import com.increff.pos.model.data.HibernateStatsData;
+import com.increff.pos.model.data.OrderQueueStatsData;
+import com.increff.pos.model.data.PoolStatsData;
+import com.increff.pos.model.data.QueryExplainData;
+import com.increff.pos.model.data.QueryStatsData;
+import com.increff.pos.model.data.ReplicaStatusData;
+import com.increff.pos.model.data.RequestStatsData;
+import com.increff.pos.model.data.RetryStatsData;
+import com.increff.pos.model.data.MysqlStatementCountersData;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/ops")
+public class OpsController {
+
+    @Autowired
+    private OpsDto opsDto;
+
+    @RequestMapping(value = "/retries", method = RequestMethod.GET)
+    public List<RetryStatsData> getRetryStats() {
+        return opsDto.getRetryStats();
+    }
+
+    @RequestMapping(value = "/replica", method = RequestMethod.GET)
+    public ReplicaStatusData getReplicaStatus() {
+        return opsDto.getReplicaStatus();
+    }
+
+    @RequestMapping(value = "/pools", method = RequestMethod.GET)
+    public List<PoolStatsData> getPoolStats() {
+        return opsDto.getPoolStats();
+    }
+
+    @RequestMapping(value = "/order-queue", method = RequestMethod.GET)
+    public OrderQueueStatsData getOrderQueueStats() {
+        return opsDto.getOrderQueueStats();
+    }
+
+    // Server-global MySQL counters, not this application's statement cache
+    @RequestMapping(value = "/mysql-statement-counters", method = RequestMethod.GET)
+    public MysqlStatementCountersData getMysqlStatementCounters() {
+        return opsDto.getMysqlStatementCounters();
+    }
+
+    @RequestMapping(value = "/queries", method = RequestMethod.GET)
+    public List<QueryStatsData> getQueryStats(
+            @RequestParam(defaultValue = "20") Integer limit,
+            @RequestParam(defaultValue = "total") String sortBy) throws ApiException {
+        return opsDto.getQueryStats(limit, sortBy);
+    }
+
+    @RequestMapping(value = "/queries", method = RequestMethod.DELETE)
+    public void resetQueryStats() {
+        opsDto.resetQueryStats();
+    }
+
+    @RequestMapping(value = "/queries/{id}/explain", method = RequestMethod.GET)
+    public QueryExplainData explainQuery(@PathVariable String id) throws ApiException {
+        return opsDto.explainQuery(id);
+    }
+
+    @RequestMapping(value = "/hibernate", method = RequestMethod.GET)
+    public HibernateStatsData getHibernateStats() {
+        return opsDto.getHibernateStats();
+    }
+
+    @RequestMapping(value = "/hibernate/requests", method = RequestMethod.GET)
+    public List<RequestStatsData> getRequestStats(
+            @RequestParam(defaultValue = "20") Integer limit,
+            @RequestParam(defaultValue = "statements") String sortBy) throws ApiException {
+        return opsDto.getRequestStats(limit, sortBy);
+    }
+
+    @RequestMapping(value = "/hibernate", method = RequestMethod.DELETE)
+    public void resetHibernateStats() {
+        opsDto.resetHibernateStats();
+    }
+
+    @RequestMapping(value = "/product-listings/rebuild", method = RequestMethod.POST)
+    public Integer rebuildProductListings() {
+        return opsDto.rebuildProductListings();
+    }
+
+    @RequestMapping(value = "/shards/clients/sync", method = RequestMethod.POST)
+    public Integer copyClientsToShards() {
+        return opsDto.copyClientsToShards();
+    }
+}
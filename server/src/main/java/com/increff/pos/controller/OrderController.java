@@ -3,15 +3,19 @@ package com.increff.pos.controller;
 import com.increff.pos.commons.exception.ApiException;
 import com.increff.pos.dto.OrderDto;
 import com.increff.pos.model.data.OrderData;
+import com.increff.pos.model.data.OrderSubmissionData;
 import com.increff.pos.model.data.PaginationData;
 import com.increff.pos.model.enums.OrderStatus;
 import com.increff.pos.model.form.OrderForm;
 import com.increff.pos.model.form.OrderUpdateForm;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 
+import java.security.Principal;
 import java.time.ZonedDateTime;
+import java.util.List;
 
 @RestController
 @RequestMapping("/orders")
@@ -25,6 +29,22 @@ public class OrderController {
         return orderDto.add(orderForm);
     }
 
+    // Orders of one terminal are placed in order; without X-Terminal-Id the user is the terminal
+    @RequestMapping(value = "/async", method = RequestMethod.POST)
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public OrderSubmissionData submit(@RequestBody OrderForm orderForm,
+                                      @RequestHeader(value = "X-Terminal-Id", required = false) String terminalId,
+                                      Principal principal) throws ApiException {
+        String user = principal == null ? null : principal.getName();
+        return orderDto.submit(orderForm, user, terminalId != null ? terminalId : user);
+    }
+
+    // Only the user who submitted the order can poll it
+    @RequestMapping(value = "/async/{token}", method = RequestMethod.GET)
+    public OrderSubmissionData getSubmission(@PathVariable(value = "token") String token, Principal principal) throws ApiException {
+        return orderDto.getSubmission(token, principal == null ? null : principal.getName());
+    }
+
     @RequestMapping(method = RequestMethod.GET)
     public PaginationData<OrderData> getFilteredOrders(
             @RequestParam(required = false) Integer id,
@@ -32,9 +52,16 @@ public class OrderController {
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) ZonedDateTime endDate,
             @RequestParam(required = false) OrderStatus status,
             @RequestParam(defaultValue = "0") Integer page,
-            @RequestParam(defaultValue = "10") Integer size
+            @RequestParam(defaultValue = "10") Integer size,
+            @RequestParam(required = false) String cursor
     ) throws ApiException {
-        return orderDto.getFilteredOrders(id, startDate, endDate, status, page, size);
+        return orderDto.getFilteredOrders(id, startDate, endDate, status, page, size, cursor);
+    }
+
+    // Orders no longer CREATED are skipped; the response lists the ids that were cancelled
+    @RequestMapping(value = "/cancel", method = RequestMethod.POST)
+    public List<Integer> cancelByIds(@RequestBody List<Integer> orderIds) throws ApiException {
+        return orderDto.cancelByIds(orderIds);
     }
 
     @RequestMapping(value="/{orderId}",method = RequestMethod.GET)
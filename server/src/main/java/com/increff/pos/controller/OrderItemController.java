@@ -27,6 +27,12 @@ public class OrderItemController {
         return orderItemDto.getByOrderId(orderId);
     }
 
+    // Full desired item list, one line per product; lines not listed are removed
+    @RequestMapping(value="/{orderId}/items", method = RequestMethod.PUT)
+    public List<OrderItemData> replaceItems(@PathVariable(value="orderId")Integer orderId, @RequestBody List<OrderItemForm> forms) throws ApiException{
+        return orderItemDto.replaceItems(orderId,forms);
+    }
+
     @RequestMapping(value="/{orderId}/items/{itemId}",method = RequestMethod.PUT)
     public OrderItemData updateByOrderId(@PathVariable(value = "orderId")Integer orderId, @PathVariable(value="itemId")Integer itemId, @RequestBody OrderItemUpdateForm form) throws ApiException{
         return orderItemDto.updateById(orderId,itemId,form);
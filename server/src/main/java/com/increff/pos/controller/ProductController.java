@@ -31,9 +31,11 @@ public class ProductController {
             @RequestParam(required = false) Double minMrp,
             @RequestParam(required = false) Double maxMrp,
             @RequestParam(defaultValue = "10")Integer size,
-            @RequestParam(defaultValue = "0")Integer page
+            @RequestParam(defaultValue = "0")Integer page,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "true") Boolean includeTotal
     ) throws ApiException{
-        return productDto.getFilteredProducts(searchTerm,clientName,category,minMrp,maxMrp,size,page);
+        return productDto.getFilteredProducts(searchTerm,clientName,category,minMrp,maxMrp,size,page,cursor,includeTotal);
     }
 
     @RequestMapping(value="/barcode/{barcode}", method = RequestMethod.GET)
@@ -10,6 +10,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.ZonedDateTime;
 
@@ -35,8 +36,8 @@ public class ReportController {
     }
 
     @RequestMapping(value = "/inventory", method = RequestMethod.GET, produces = "text/tab-separated-values")
-    public ResponseEntity<byte[]> getInventoryReport() throws ApiException {
-        return reportDto.getInventoryReport();
+    public ResponseEntity<StreamingResponseBody> getInventoryReport() throws ApiException {
+        return reportDto.streamInventoryReport();
     }
 
 }
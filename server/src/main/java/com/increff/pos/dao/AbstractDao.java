@@ -1,19 +1,36 @@
 package com.increff.pos.dao;
 
+import com.increff.pos.shard.ShardContext;
+import com.increff.pos.shard.ShardMap;
+import org.hibernate.CacheMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.query.Query;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
-import javax.persistence.criteria.CriteriaBuilder;
-import javax.persistence.criteria.CriteriaQuery;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceUnitUtil;
 import javax.persistence.TypedQuery;
 import java.lang.reflect.ParameterizedType;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 
 //Generic Functions for All Dao Classes
@@ -33,14 +50,38 @@ public abstract class  AbstractDao<T> {
     @PersistenceContext
     protected EntityManager em;
 
+    // Matches hibernate.jdbc.batch_size so each flush sends exactly one JDBC batch
+    @Value("${hibernate.jdbc.batch_size:50}")
+    protected int batchSize = 50;
+
+    // Integer.MIN_VALUE makes MySQL Connector/J stream rows one at a time instead of buffering the result set
+    @Value("${db.stream.fetch_size:-2147483648}")
+    protected int streamFetchSize = Integer.MIN_VALUE;
+
+    // Streamed rows are detached every N rows so the persistence context does not grow with the table
+    @Value("${db.stream.clear_interval:1000}")
+    protected int streamClearInterval = 1000;
+
+    // Upper bound of keys bound into one IN list by multiGet
+    @Value("${db.multiget.chunk_size:512}")
+    protected int multiGetChunkSize = 512;
+
+    @Autowired(required = false)
+    private MultiGetExecutor multiGetExecutor;
+
+    @Autowired(required = false)
+    private BulkInsertEngine bulkInsertEngine;
+
+    @Autowired(required = false)
+    private ShardMap shardMap;
+
+
     public void insert(T pojo){
         em.persist(pojo);
     }
 
     @Transactional
     public void insertAll(List<T> pojos) {
-        // Define the size of each batch for optimal performance.
-        final int batchSize = 50;
         int i = 0;
 
         for (T pojo : pojos) {
@@ -60,18 +101,80 @@ public abstract class  AbstractDao<T> {
         // However, the transaction commit at the end of the method will handle this automatically.
     }
 
+    /**
+     * Uploads-sized insert that skips the persistence context; ids are assigned on the objects.
+     * See BulkInsertEngine.
+     */
+    @Transactional
+    public void bulkInsert(List<T> pojos) {
+        bulkInsertEngine.insert(clazz, pojos);
+    }
+
+    /**
+     * Chunked bulkInsert that hands each inserted chunk to afterChunk (e.g. to write dependent rows).
+     */
+    @Transactional
+    public void bulkIngest(List<T> pojos, Consumer<List<T>> afterChunk) {
+        bulkInsertEngine.ingest(clazz, pojos, afterChunk);
+    }
+
     public T selectById(Integer id){
         return em.find(clazz,id);
     }
 
     public List<T> selectByIds(List<Integer> ids) {
-        if (ids == null || ids.isEmpty()) {
-            return new ArrayList<>();
-        }
+        return new ArrayList<>(selectMapByIds(ids).values());
+    }
+
+    public Map<Integer, T> selectMapByIds(Collection<Integer> ids) {
         String selectQuery = "select p from " + clazz.getName() + " p where id in :ids";
-        TypedQuery<T> query = em.createQuery(selectQuery, clazz);
-        query.setParameter("ids", ids);
-        return query.getResultList();
+        PersistenceUnitUtil unitUtil = em.getEntityManagerFactory().getPersistenceUnitUtil();
+        return multiGet(selectQuery, "ids", ids, clazz, pojo -> (Integer) unitUtil.getIdentifier(pojo));
+    }
+
+    /**
+     * Runs an IN-list query in chunks of at most multiGetChunkSize distinct keys and merges the rows
+     * into a map keyed by keyExtractor. Together with hibernate.query.in_clause_parameter_padding this
+     * keeps the number of distinct statements (and query plan cache entries) to a handful of
+     * power-of-two list sizes, however many keys an upload brings.
+     */
+    protected <K, R> Map<K, R> multiGet(String jpql, String paramName, Collection<K> keys, Class<R> resultClass,
+                                        Function<R, K> keyExtractor) {
+        Map<K, R> results = new LinkedHashMap<>();
+        if (keys == null || keys.isEmpty()) {
+            return results;
+        }
+        for (List<K> chunk : chunk(keys)) {
+            TypedQuery<R> query = em.createQuery(jpql, resultClass);
+            query.setParameter(paramName, chunk);
+            query.getResultList().forEach(row -> results.put(keyExtractor.apply(row), row));
+        }
+        return results;
+    }
+
+    protected <K> List<List<K>> chunk(Collection<K> keys) {
+        // Padding rounds each list up to the next power of two, so a power-of-two chunk never grows
+        int chunkSize = Integer.highestOneBit(Math.max(1, multiGetChunkSize));
+        List<K> distinctKeys = new ArrayList<>(new LinkedHashSet<>(keys));
+        List<List<K>> chunks = new ArrayList<>();
+        for (int from = 0; from < distinctKeys.size(); from += chunkSize) {
+            chunks.add(distinctKeys.subList(from, Math.min(from + chunkSize, distinctKeys.size())));
+        }
+        return chunks;
+    }
+
+    private static <R> List<R> getShardResult(Future<List<R>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a shard read", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
     }
 
     public List<T> selectAll(){
@@ -80,11 +183,27 @@ public abstract class  AbstractDao<T> {
         return query.getResultList();
     }
 
+    /**
+     * Streams every row of the table, in id order, to the consumer without materialising the table.
+     * See {@link #stream(String, Class, Map, Consumer)} for the constraints on the consumer.
+     */
+    public void streamAll(Consumer<T> consumer) {
+        String selectQuery = "select p from " + clazz.getName() + " p order by p.id";
+        stream(selectQuery, clazz, null, consumer);
+    }
+
     public void deleteById(Integer id){
         T obj = selectById(id);
         em.remove(obj);
     }
 
+    // Managed entities only; the DELETEs are JDBC-batched at flush
+    public void deleteAll(List<T> pojos) {
+        for (T pojo : pojos) {
+            em.remove(pojo);
+        }
+    }
+
     public void update(T obj){
         em.merge(obj);
     }
@@ -122,15 +241,82 @@ public abstract class  AbstractDao<T> {
     }
 
     /**
-     * Executes a pre-built CriteriaQuery that returns a list of results (of type R).
-     * Handles pagination.
-     * @param criteriaQuery The CriteriaQuery object built by the concrete DAO.
-     * @param pageable      The Pageable object for pagination/sorting (can be null or unpaged).
-     * @param <R>           The type of the result list elements.
-     * @return A list of results.
+     * Runs a JPQL query as a forward-only scroll and hands each row to the consumer.
+     * Rows are read read-only with the configured fetch size, and the persistence context is
+     * cleared every {@code streamClearInterval} rows, so memory stays flat regardless of table size.
+     * Pending changes are flushed first because the periodic clear would otherwise discard them.
+     * The consumer must not run other queries on this EntityManager while the scroll is open, and must
+     * not keep references to streamed entities expecting them to stay managed.
+     * @param jpql        The JPQL query string.
+     * @param resultClazz The class type of each row.
+     * @param params      Named parameters (can be null).
+     * @param consumer    Callback invoked once per row.
+     */
+    protected <R> void stream(String jpql, Class<R> resultClazz, Map<String, Object> params, Consumer<R> consumer) {
+        stream(em, jpql, resultClazz, params, consumer);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <R> void stream(EntityManager entityManager, String jpql, Class<R> resultClazz, Map<String, Object> params, Consumer<R> consumer) {
+        entityManager.flush();
+
+        TypedQuery<R> typedQuery = entityManager.createQuery(jpql, resultClazz);
+        setParameters(typedQuery, params);
+        Query<R> query = typedQuery.unwrap(Query.class);
+        query.setFetchSize(streamFetchSize);
+        query.setReadOnly(true);
+        query.setCacheMode(CacheMode.IGNORE);
+
+        int rows = 0;
+        try (ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY)) {
+            while (results.next()) {
+                consumer.accept((R) results.get(0));
+                if (++rows % streamClearInterval == 0) {
+                    entityManager.clear();
+                }
+            }
+        }
+        entityManager.clear();
+    }
+
+    /**
+     * {@link #stream(String, Class, Map, Consumer)} over every shard, one shard after the other: rows
+     * come in query order within a shard, not across shards.
      */
-    protected <R> List<R> executeCriteriaQueryList(CriteriaQuery<R> criteriaQuery, Pageable pageable) {
-        TypedQuery<R> query = em.createQuery(criteriaQuery);
+    protected <R> void streamAllShards(String jpql, Class<R> resultClazz, Map<String, Object> params, Consumer<R> consumer) {
+        for (String shard : getShards()) {
+            onShard(shard, shardEm -> {
+                stream(shardEm, jpql, resultClazz, params, consumer);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Builds the query for a filter shape. A shape always renders the same JPQL, so repeated calls
+     * hit Hibernate's plan cache on that string and only bind parameters.
+     * @param shape       The filters present in this call, with their bind values.
+     * @param resultClazz The class type of each row.
+     */
+    protected <R> TypedQuery<R> buildShapeQuery(QueryShape shape, Class<R> resultClazz) {
+        return buildShapeQuery(em, shape, resultClazz);
+    }
+
+    /**
+     * Same as above, on another EntityManager (e.g. the one {@link #onShard} hands out).
+     */
+    protected <R> TypedQuery<R> buildShapeQuery(EntityManager entityManager, QueryShape shape, Class<R> resultClazz) {
+        TypedQuery<R> query = entityManager.createQuery(shape.render(), resultClazz);
+        setParameters(query, shape.getParams());
+        return query;
+    }
+
+    /**
+     * Executes a filter shape that returns a list of results, applying offset pagination.
+     * @param pageable The Pageable object for pagination (can be null or unpaged).
+     */
+    protected <R> List<R> executeShapeQueryList(QueryShape shape, Class<R> resultClazz, Pageable pageable) {
+        TypedQuery<R> query = buildShapeQuery(shape, resultClazz);
 
         // Apply pagination if specified
         if (pageable != null && pageable.isPaged()) {
@@ -142,18 +328,146 @@ public abstract class  AbstractDao<T> {
     }
 
     /**
-     * Executes a pre-built CriteriaQuery that returns a single result (e.g., a COUNT).
-     * @param criteriaQuery The CriteriaQuery object built by the concrete DAO.
-     * @param <R>           The type of the single result.
-     * @return The single result.
+     * Executes a filter shape in cursor (keyset) mode.
+     * Only the page size is applied; the position comes from the keyset condition, so no rows are skipped.
+     * @param shape    The filter shape, already restricted by {@link #keysetCondition}.
+     * @param pageable The Pageable object carrying the page size (can be null or unpaged).
+     */
+    protected <R> List<R> executeKeysetShapeQueryList(QueryShape shape, Class<R> resultClazz, Pageable pageable) {
+        TypedQuery<R> query = buildShapeQuery(shape, resultClazz);
+
+        if (pageable != null && pageable.isPaged()) {
+            query.setMaxResults(pageable.getPageSize());
+        }
+
+        return query.getResultList();
+    }
+
+    /**
+     * Executes a filter shape that returns a single result (e.g., a COUNT).
      */
-    protected <R> R executeCriteriaQuerySingleResult(CriteriaQuery<R> criteriaQuery) {
-        TypedQuery<R> query = em.createQuery(criteriaQuery);
-        return query.getSingleResult();
+    protected <R> R executeShapeQuerySingleResult(QueryShape shape, Class<R> resultClazz) {
+        return buildShapeQuery(shape, resultClazz).getSingleResult();
     }
 
-    protected CriteriaBuilder getCriteriaBuilder() {
-        return this.em.getCriteriaBuilder();
+    /**
+     * Keyset condition for cursor paging on the primary key, bound to {@code :afterId}: `id > :afterId`
+     * when paging ascending, `id < :afterId` when descending. This is an indexed range scan on the PK
+     * instead of an OFFSET that reads and throws away every earlier row.
+     * @param alias            The JPQL alias of the paged entity.
+     * @param pageable         The Pageable whose sort on "id" decides the direction.
+     * @param defaultDirection The direction the DAO sorts by when the Pageable is unsorted.
+     */
+    protected static String keysetCondition(String alias, Pageable pageable, Sort.Direction defaultDirection) {
+        Sort.Direction direction = defaultDirection;
+        if (pageable != null && pageable.getSort().isSorted()) {
+            Sort.Order idOrder = pageable.getSort().getOrderFor("id");
+            if (idOrder != null) {
+                direction = idOrder.getDirection();
+            }
+        }
+        return alias + (direction.isDescending() ? ".id < :afterId" : ".id > :afterId");
+    }
+
+    /**
+     * ORDER BY clause for the Pageable's sort. Sort properties are spliced into the JPQL, so only the
+     * given fields are allowed; anything else is ignored.
+     * @param defaultOrder Used when the Pageable is unsorted or has no allowed field, e.g. "c.id ASC".
+     */
+    protected static String buildOrderBy(String alias, Pageable pageable, Set<String> sortFields, String defaultOrder) {
+        List<String> orders = new ArrayList<>();
+        if (pageable != null) {
+            pageable.getSort().forEach(order -> {
+                if (sortFields.contains(order.getProperty())) {
+                    orders.add(alias + "." + order.getProperty() + (order.isAscending() ? " ASC" : " DESC"));
+                }
+            });
+        }
+        if (orders.isEmpty()) {
+            orders.add(defaultOrder);
+        }
+        return "ORDER BY " + String.join(", ", orders);
+    }
+
+    public Class<T> getEntityClass() {
+        return clazz;
+    }
+
+    /**
+     * The shard holding the row with this id: the caller's shard if it has it, else the first other
+     * shard that does. Falls back to the caller's shard when no shard has the row.
+     */
+    public String selectShardOf(Integer id) {
+        String current = ShardContext.current();
+        if (id == null || !isSharded()) {
+            return current;
+        }
+        List<String> shards = new ArrayList<>(getShards());
+        shards.remove(current);
+        shards.add(0, current);
+        for (String shard : shards) {
+            if (onShard(shard, shardEm -> shardEm.find(clazz, id) != null)) {
+                return shard;
+            }
+        }
+        return current;
+    }
+
+    protected boolean isSharded() {
+        return shardMap != null && shardMap.isSharded();
+    }
+
+    protected List<String> getShards() {
+        return shardMap == null ? Collections.singletonList(ShardMap.HOME) : shardMap.getShards();
+    }
+
+    protected String shardOf(Integer clientId) {
+        return shardMap == null ? ShardMap.HOME : shardMap.shardOf(clientId);
+    }
+
+    /**
+     * Runs the work against one shard. On the shard the caller is bound to it uses the current
+     * EntityManager (and transaction); on any other shard it gets its own EntityManager, outside the
+     * transaction, so only use that for reads.
+     */
+    protected <R> R onShard(String shard, Function<EntityManager, R> work) {
+        if (shard.equals(ShardContext.current())) {
+            return work.apply(em);
+        }
+        return ShardContext.callOn(shard, () -> {
+            EntityManager shardEm = em.getEntityManagerFactory().createEntityManager();
+            try {
+                return work.apply(shardEm);
+            } finally {
+                shardEm.close();
+            }
+        });
+    }
+
+    /**
+     * Runs the same read on every shard and concatenates the results in shard order. The other
+     * shards are queried in parallel on the MultiGetExecutor pool while the caller's own shard runs here.
+     * Callers re-sort or merge-page the result when they need a global order.
+     */
+    protected <R> List<R> scatterGather(Function<EntityManager, List<R>> work) {
+        List<String> shards = getShards();
+        if (shards.size() == 1) {
+            return work.apply(em);
+        }
+
+        String current = ShardContext.current();
+        Map<String, Future<List<R>>> futures = new LinkedHashMap<>();
+        for (String shard : shards) {
+            if (!shard.equals(current) && multiGetExecutor != null) {
+                futures.put(shard, multiGetExecutor.submit(() -> onShard(shard, work)));
+            }
+        }
+        List<R> results = new ArrayList<>();
+        for (String shard : shards) {
+            Future<List<R>> future = futures.get(shard);
+            results.addAll(future != null ? getShardResult(future) : onShard(shard, work));
+        }
+        return results;
     }
 
     private <Q> void setParameters(TypedQuery<Q> query, Map<String, Object> params) {
@@ -0,0 +1,159 @@
+package com.increff.pos.dao;
+
+import com.increff.pos.entity.BaseEntity;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.type.Type;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.Serializable;
+import java.sql.PreparedStatement;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * INSERT path for uploads that bypasses the persistence context. Ids come from the entity's own
+ * pooled sequence (so callers get them back on the objects), rows are bound through Hibernate's
+ * column types and sent as JDBC batches, which the driver rewrites into multi-row INSERTs
+ * (rewriteBatchedStatements). Nothing is persisted, snapshotted or kept in the first-level cache.
+ *
+ * Lifecycle callbacks do not run on this path: createdAt/updatedAt and the initial version are set
+ * here, which covers everything BaseEntity relies on.
+ */
+@Component
+public class BulkInsertEngine {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Rows per executeBatch, and per chunk for ingest()
+    @Value("${db.bulk.chunk_size:1000}")
+    private int chunkSize = 1000;
+
+    // Commit each ingest() chunk on its own: bounded undo log and lock time on very large files, but a
+    // failure leaves the earlier chunks committed
+    @Value("${db.bulk.commit_per_chunk:false}")
+    private boolean commitPerChunk;
+
+    private final Map<Class<?>, String> insertSqlByClass = new ConcurrentHashMap<>();
+
+    /**
+     * Inserts all rows in the current transaction and assigns their ids.
+     */
+    public <T> void insert(Class<T> clazz, List<T> entities) {
+        if (entities == null || entities.isEmpty()) {
+            return;
+        }
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        AbstractEntityPersister persister = getPersister(session.getFactory(), clazz);
+        assignIdsAndDefaults(session, persister, entities);
+
+        String sql = insertSqlByClass.computeIfAbsent(clazz, key -> buildInsertSql(persister));
+        boolean[] insertable = persister.getPropertyInsertability();
+        Type[] types = persister.getPropertyTypes();
+        session.doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                int pending = 0;
+                for (T entity : entities) {
+                    Object[] values = persister.getPropertyValues(entity);
+                    int index = 1;
+                    for (int i = 0; i < values.length; i++) {
+                        if (insertable[i]) {
+                            types[i].nullSafeSet(statement, values[i], index, session);
+                            index += types[i].getColumnSpan(session.getFactory());
+                        }
+                    }
+                    persister.getIdentifierType().nullSafeSet(statement, persister.getIdentifier(entity, session), index, session);
+                    statement.addBatch();
+
+                    if (++pending == chunkSize) {
+                        statement.executeBatch();
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    statement.executeBatch();
+                }
+            }
+        });
+    }
+
+    /**
+     * Inserts rows chunk by chunk and hands every inserted chunk (ids assigned) to afterChunk, so
+     * dependent rows can be written in the same pass. With db.bulk.commit_per_chunk each chunk,
+     * including afterChunk, commits in its own transaction.
+     */
+    public <T> void ingest(Class<T> clazz, List<T> entities, Consumer<List<T>> afterChunk) {
+        if (entities == null || entities.isEmpty()) {
+            return;
+        }
+        TransactionTemplate chunkTransaction = new TransactionTemplate(transactionManager);
+        chunkTransaction.setPropagationBehavior(commitPerChunk
+                ? TransactionDefinition.PROPAGATION_REQUIRES_NEW
+                : TransactionDefinition.PROPAGATION_REQUIRED);
+
+        for (int from = 0; from < entities.size(); from += chunkSize) {
+            List<T> chunk = new ArrayList<>(entities.subList(from, Math.min(from + chunkSize, entities.size())));
+            chunkTransaction.executeWithoutResult(status -> {
+                insert(clazz, chunk);
+                afterChunk.accept(chunk);
+            });
+        }
+    }
+
+    private static <T> void assignIdsAndDefaults(SessionImplementor session, AbstractEntityPersister persister, List<T> entities) {
+        IdentifierGenerator generator = persister.getIdentifierGenerator();
+        ZonedDateTime now = ZonedDateTime.now();
+        for (T entity : entities) {
+            if (entity instanceof BaseEntity) {
+                BaseEntity baseEntity = (BaseEntity) entity;
+                baseEntity.setCreatedAt(now);
+                baseEntity.setUpdatedAt(now);
+                baseEntity.setVersion(0);
+            }
+            Serializable id = generator.generate(session, entity);
+            persister.setIdentifier(entity, id, session);
+        }
+    }
+
+    private static AbstractEntityPersister getPersister(SessionFactoryImplementor factory, Class<?> clazz) {
+        return (AbstractEntityPersister) factory.getMetamodel().entityPersister(clazz);
+    }
+
+    private static String buildInsertSql(AbstractEntityPersister persister) {
+        List<String> columns = new ArrayList<>();
+        boolean[] insertable = persister.getPropertyInsertability();
+        for (int i = 0; i < insertable.length; i++) {
+            if (insertable[i]) {
+                for (String column : persister.getPropertyColumnNames(i)) {
+                    columns.add(column);
+                }
+            }
+        }
+        for (String column : persister.getIdentifierColumnNames()) {
+            columns.add(column);
+        }
+
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 0; i < columns.size(); i++) {
+            placeholders.append(i == 0 ? "?" : ", ?");
+        }
+        return "INSERT INTO " + persister.getTableName() + " (" + String.join(", ", columns) + ") VALUES (" + placeholders + ")";
+    }
+}
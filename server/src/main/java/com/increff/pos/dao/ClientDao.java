@@ -2,15 +2,16 @@ package com.increff.pos.dao;
 
 import com.increff.pos.entity.Client;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.TypedQuery;
-import javax.persistence.criteria.CriteriaBuilder;
-import javax.persistence.criteria.CriteriaQuery;
-import javax.persistence.criteria.Root;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.ArrayList;
-import javax.persistence.criteria.Predicate;
+import java.util.Set;
 
 @Repository
 public class ClientDao extends AbstractDao<Client>{
@@ -19,6 +20,14 @@ public class ClientDao extends AbstractDao<Client>{
     private static final String SELECT_BY_NAME = "select p from Client p where clientName=:clientName";
     // Uses idx_client_name index for IN clause
     private static final String SELECT_BY_NAMES = "select c from Client c where clientName in :names";
+    private static final String SELECT_CLIENTS = "SELECT c FROM Client c";
+    private static final String COUNT_CLIENTS = "SELECT COUNT(c) FROM Client c";
+    private static final Set<String> SORT_FIELDS = new HashSet<>(Arrays.asList("id", "clientName"));
+    // Copies keep the id and version of the home row, so the shards can join products to clients
+    private static final String UPDATE_COPY =
+            "UPDATE clients SET clientName = ?, updatedAt = ?, version = ? WHERE id = ?";
+    private static final String INSERT_COPY =
+            "INSERT INTO clients (id, clientName, createdAt, updatedAt, version) VALUES (?, ?, ?, ?, ?)";
 
     public Client selectByName(String clientName) {
         TypedQuery<Client> query = getQuery(SELECT_BY_NAME);
@@ -28,48 +37,56 @@ public class ClientDao extends AbstractDao<Client>{
     }
 
     public List<Client> selectByNames(List<String> names) {
-        TypedQuery<Client> query = getQuery(SELECT_BY_NAMES);
-        query.setParameter("names", names);
-        return query.getResultList();
+        return new ArrayList<>(multiGet(SELECT_BY_NAMES, "names", names, Client.class, Client::getClientName).values());
     }
 
     public List<Client> selectWithFilters(String clientName, Pageable pageable) {
-        CriteriaBuilder cb = getCriteriaBuilder();
-        CriteriaQuery<Client> cq = cb.createQuery(Client.class);
-        Root<Client> clientRoot = cq.from(Client.class);
+        return selectWithFilters(clientName, null, pageable);
+    }
 
-        List<Predicate> predicates = buildPredicates(cb, clientRoot, clientName);
-        cq.where(predicates.toArray(new Predicate[0]));
-        if (pageable.getSort().isSorted()) {
-            pageable.getSort().forEach(order -> {
-                if (order.isAscending()) {
-                    cq.orderBy(cb.asc(clientRoot.get(order.getProperty())));
-                } else {
-                    cq.orderBy(cb.desc(clientRoot.get(order.getProperty())));
-                }
-            });
-        } else {
-            cq.orderBy(cb.asc(clientRoot.get("id")));
+    public List<Client> selectWithFilters(String clientName, Integer afterId, Pageable pageable) {
+        QueryShape shape = buildShape(SELECT_CLIENTS, clientName);
+        // Cursor mode: seek past the previous page on the PK instead of using an offset
+        if (afterId != null) {
+            shape.where(keysetCondition("c", pageable, Sort.Direction.ASC), "afterId", afterId);
         }
+        shape.orderBy(buildOrderBy("c", pageable, SORT_FIELDS, "c.id ASC"));
 
-        return executeCriteriaQueryList(cq, pageable);
+        if (afterId != null) {
+            return executeKeysetShapeQueryList(shape, Client.class, pageable);
+        }
+        return executeShapeQueryList(shape, Client.class, pageable);
     }
 
-    public Long countWithFilters(String clientName) {
-        CriteriaBuilder cb = getCriteriaBuilder();
-        CriteriaQuery<Long> cq = cb.createQuery(Long.class);
-        Root<Client> clientRoot = cq.from(Client.class);
-
-        List<Predicate> predicates = buildPredicates(cb, clientRoot, clientName);
-        cq.where(predicates.toArray(new Predicate[0]));
-
-        cq.select(cb.count(clientRoot));
+    /**
+     * Writes this client, as it is on home, into the shard the caller is bound to. Clients are the
+     * only table every shard holds a full copy of; run through ShardTemplate.
+     */
+    public void upsertCopy(Client client) {
+        Timestamp updatedAt = Timestamp.from(client.getUpdatedAt().toInstant());
+        int updated = em.createNativeQuery(UPDATE_COPY)
+                .setParameter(1, client.getClientName())
+                .setParameter(2, updatedAt)
+                .setParameter(3, client.getVersion())
+                .setParameter(4, client.getId())
+                .executeUpdate();
+        if (updated == 0) {
+            em.createNativeQuery(INSERT_COPY)
+                    .setParameter(1, client.getId())
+                    .setParameter(2, client.getClientName())
+                    .setParameter(3, Timestamp.from(client.getCreatedAt().toInstant()))
+                    .setParameter(4, updatedAt)
+                    .setParameter(5, client.getVersion())
+                    .executeUpdate();
+        }
+    }
 
-        return executeCriteriaQuerySingleResult(cq);
+    public Long countWithFilters(String clientName) {
+        return executeShapeQuerySingleResult(buildShape(COUNT_CLIENTS, clientName), Long.class);
     }
 
-    private List<Predicate> buildPredicates(CriteriaBuilder cb, Root<Client> root, String clientName) {
-        List<Predicate> predicates = new ArrayList<>();
+    private QueryShape buildShape(String select, String clientName) {
+        QueryShape shape = new QueryShape(select);
 
         // Key-based search: uses prefix matching on indexed clientName column
         // clientName is stored lowercase in DB, so no LOWER() needed - uses idx_client_name index
@@ -77,10 +94,10 @@ public class ClientDao extends AbstractDao<Client>{
             clientName = clientName.trim().toLowerCase();
             if (!clientName.isEmpty()) {
                 String prefixPattern = clientName + "%";  // Prefix match for index usage
-                predicates.add(cb.like(root.get("clientName"), prefixPattern));
+                shape.where("c.clientName LIKE :clientName", "clientName", prefixPattern);
             }
         }
 
-        return predicates;
+        return shape;
     }
 }
@@ -2,20 +2,54 @@ package com.increff.pos.dao;
 
 import com.increff.pos.entity.Inventory;
 import com.increff.pos.model.result.InventoryReportResult;
+import com.increff.pos.shard.ShardContext;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.jdbc.Work;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.LockModeType;
 import javax.persistence.TypedQuery;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Repository
 public class InventoryDao extends AbstractDao<Inventory> {
     private static final String SELECT_BY_PRODUCT_ID = "select p from Inventory p where productId = :productId";
     private static final String SELECT_BY_PRODUCT_IDS = "select p from Inventory p where productId in :productIds";
+    private static final String SELECT_PRODUCT_IDS = "SELECT i.productId FROM Inventory i WHERE i.productId IN :productIds";
+    // Locks in productId order, so concurrent groups cannot deadlock on each other's rows
+    private static final String SELECT_FOR_UPDATE =
+            "SELECT i FROM Inventory i WHERE i.productId IN :productIds ORDER BY i.productId";
+    private static final String SELECT_ALL = "SELECT i FROM Inventory i ORDER BY i.id";
     private static final String SELECT_LOW_STOCK = "SELECT i FROM Inventory i WHERE i.quantity < :threshold ORDER BY i.quantity ASC";
+    // Conditional relative decrement: the row only changes if enough stock is left, so concurrent
+    // checkouts on the same SKU cannot overwrite each other. version/updatedAt are bumped by hand
+    // because this bypasses the entity lifecycle.
+    private static final String DECREMENT_QUANTITY =
+            "UPDATE inventory SET quantity = quantity - ?, version = version + 1, updatedAt = ? " +
+                    "WHERE productId = ? AND quantity >= ?";
+    // Relative increment for restocks: concurrent checkouts of the same SKU are not overwritten
+    private static final String INCREMENT_QUANTITY =
+            "UPDATE inventory SET quantity = quantity + ?, version = version + 1, updatedAt = ? WHERE productId = ?";
+    // Plain ANSI UPDATE, so the same statement runs on MySQL and on an H2 test database
+    private static final String SET_QUANTITY =
+            "UPDATE inventory SET quantity = ?, version = version + 1, updatedAt = ? WHERE productId = ?";
+    // Rows per executeBatch; keeps the driver-side batch bounded on very large uploads
+    private static final int BULK_UPDATE_BATCH_ROWS = 1000;
     private static final String FIND_INVENTORY_REPORT_DATA =
             "SELECT NEW com.increff.pos.model.result.InventoryReportResult(" +
                     "   p.id, p.name, p.barcode, p.category, p.mrp, i.quantity" +
@@ -23,8 +57,26 @@ public class InventoryDao extends AbstractDao<Inventory> {
                     "FROM Inventory i JOIN Product p ON i.productId = p.id " +
                     "ORDER BY p.name ASC";
 
+    // Covers every shard; the per-shard lists are re-sorted into one name order
     public List<InventoryReportResult> findInventoryReportData() {
-        return getCustomResultList(FIND_INVENTORY_REPORT_DATA, InventoryReportResult.class, null); // No parameters
+        if (!isSharded()) {
+            return getCustomResultList(FIND_INVENTORY_REPORT_DATA, InventoryReportResult.class, null); // No parameters
+        }
+        List<InventoryReportResult> results = scatterGather(shardEm ->
+                shardEm.createQuery(FIND_INVENTORY_REPORT_DATA, InventoryReportResult.class).getResultList());
+        results.sort(Comparator.comparing(InventoryReportResult::getProductName, Comparator.nullsFirst(Comparator.naturalOrder())));
+        return results;
+    }
+
+    // Streaming counterpart of findInventoryReportData, for catalogues too large to hold in memory.
+    // With shards the rows come shard by shard, each shard in name order.
+    public void streamInventoryReportData(Consumer<InventoryReportResult> consumer) {
+        streamAllShards(FIND_INVENTORY_REPORT_DATA, InventoryReportResult.class, null, consumer);
+    }
+
+    // streamAll over every shard: rows come shard by shard, each shard in id order
+    public void streamAllShards(Consumer<Inventory> consumer) {
+        streamAllShards(SELECT_ALL, Inventory.class, null, consumer);
     }
 
     public Inventory selectByProductId(Integer productId) {
@@ -34,9 +86,69 @@ public class InventoryDao extends AbstractDao<Inventory> {
     }
 
     public List<Inventory> selectByProductIds(List<Integer> productIds) {
-        TypedQuery<Inventory> query = getQuery(SELECT_BY_PRODUCT_IDS);
-        query.setParameter("productIds", productIds);
-        return query.getResultList();
+        return new ArrayList<>(selectMapByProductIds(productIds).values());
+    }
+
+    public Map<Integer, Inventory> selectMapByProductIds(Collection<Integer> productIds) {
+        return multiGet(SELECT_BY_PRODUCT_IDS, "productIds", productIds, Inventory.class, Inventory::getProductId);
+    }
+
+    /**
+     * Product ids grouped by the shard holding their inventory row, the caller's shard first. Ids no
+     * shard has stay with the caller's shard, whose writes report them as missing. Without shards
+     * every id is on the caller's shard and nothing is queried.
+     */
+    public Map<String, List<Integer>> groupProductIdsByShard(Collection<Integer> productIds) {
+        String current = ShardContext.current();
+        Map<String, List<Integer>> productIdsByShard = new LinkedHashMap<>();
+        List<Integer> here = new ArrayList<>(new LinkedHashSet<>(productIds));
+        productIdsByShard.put(current, here);
+        if (!isSharded() || here.isEmpty()) {
+            return productIdsByShard;
+        }
+
+        Set<Integer> notHere = new LinkedHashSet<>(here);
+        notHere.removeAll(selectProductIdsOn(current, here));
+        for (String shard : getShards()) {
+            if (shard.equals(current) || notHere.isEmpty()) {
+                continue;
+            }
+            List<Integer> found = selectProductIdsOn(shard, notHere);
+            if (!found.isEmpty()) {
+                productIdsByShard.put(shard, found);
+                here.removeAll(found);
+                notHere.removeAll(found);
+            }
+        }
+        return productIdsByShard;
+    }
+
+    private List<Integer> selectProductIdsOn(String shard, Collection<Integer> productIds) {
+        List<List<Integer>> chunks = chunk(productIds);
+        return onShard(shard, shardEm -> {
+            List<Integer> found = new ArrayList<>();
+            for (List<Integer> chunk : chunks) {
+                found.addAll(shardEm.createQuery(SELECT_PRODUCT_IDS, Integer.class).setParameter("productIds", chunk).getResultList());
+            }
+            return found;
+        });
+    }
+
+    /**
+     * Reads and locks (SELECT ... FOR UPDATE) the inventory rows of these products until the
+     * transaction ends. Products without an inventory row are missing from the map.
+     */
+    public Map<Integer, Integer> selectQuantitiesForUpdate(Collection<Integer> productIds) {
+        Map<Integer, Integer> quantities = new HashMap<>();
+        if (productIds == null || productIds.isEmpty()) {
+            return quantities;
+        }
+        List<Inventory> inventories = em.createQuery(SELECT_FOR_UPDATE, Inventory.class)
+                .setParameter("productIds", new ArrayList<>(productIds))
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+        inventories.forEach(inventory -> quantities.put(inventory.getProductId(), inventory.getQuantity()));
+        return quantities;
     }
 
     public List<Inventory> selectLowStockItems(Integer threshold) {
@@ -45,40 +157,145 @@ public class InventoryDao extends AbstractDao<Inventory> {
         return query.getResultList();
     }
 
+    /**
+     * Atomically subtracts the given quantities, one conditional UPDATE per product sent as a
+     * single JDBC batch, in productId order so concurrent checkouts and restocks lock rows in the
+     * same order. No inventory row is read or loaded into the persistence context.
+     * @param quantityByProductId quantity to subtract, keyed by product id (one entry per product).
+     * @return the product ids that were not decremented, either because stock was short or the row does not exist.
+     */
+    @Transactional
+    public List<Integer> decrementQuantities(Map<Integer, Integer> quantityByProductId) {
+        List<Integer> shortProductIds = new ArrayList<>();
+        if (quantityByProductId == null || quantityByProductId.isEmpty()) {
+            return shortProductIds;
+        }
+
+        List<Integer> productIds = new ArrayList<>(quantityByProductId.keySet());
+        Collections.sort(productIds);
+        Timestamp now = Timestamp.from(Instant.now());
+        updateWithJdbc(quantityByProductId.keySet(), connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(DECREMENT_QUANTITY)) {
+                for (Integer productId : productIds) {
+                    Integer quantity = quantityByProductId.get(productId);
+                    statement.setInt(1, quantity);
+                    statement.setTimestamp(2, now);
+                    statement.setInt(3, productId);
+                    statement.setInt(4, quantity);
+                    statement.addBatch();
+                }
+
+                int[] updateCounts = statement.executeBatch();
+                for (int i = 0; i < updateCounts.length; i++) {
+                    if (updateCounts[i] == 0) {
+                        shortProductIds.add(productIds.get(i));
+                    }
+                }
+            }
+        });
+        return shortProductIds;
+    }
+
+    /**
+     * Adds the given quantities back, one relative UPDATE per product sent as a single JDBC batch,
+     * in productId order so concurrent restocks lock rows in the same order.
+     * @param quantityByProductId quantity to add, keyed by product id (one entry per product).
+     * @return the product ids that have no inventory row (nothing is written for those).
+     */
     @Transactional
-    public void bulkUpdate(List<Inventory> inventoriesToUpdate) {
-        // --- Step 1: High-Performance Bulk Fetch ---
-        // a. Collect all the product IDs from the list of inventories to be updated.
-        List<Integer> productIds = inventoriesToUpdate.stream()
-                .map(Inventory::getProductId)
-                .collect(Collectors.toList());
-
-        // b. Fetch all existing inventory records from the database in a SINGLE query.
-        List<Inventory> existingInventories = selectByProductIds(productIds);
-
-        // c. Create a map for fast, O(1) lookup of an inventory record by its productId.
-        Map<Integer, Inventory> existingInventoryMap = existingInventories.stream()
-                .collect(Collectors.toMap(Inventory::getProductId, Function.identity()));
-
-        // --- Step 2: In-Memory Update ---
-        // Loop through the list of updates provided by the business layer.
-        for (Inventory updateRequest : inventoriesToUpdate) {
-            // Find the corresponding record that we fetched from the database.
-            Inventory existingInventory = existingInventoryMap.get(updateRequest.getProductId());
-
-            if (existingInventory != null) {
-                // Update the quantity of the existing, managed entity.
-                existingInventory.setQuantity(updateRequest.getQuantity());
+    public List<Integer> incrementQuantities(Map<Integer, Integer> quantityByProductId) {
+        List<Integer> missingProductIds = new ArrayList<>();
+        if (quantityByProductId == null || quantityByProductId.isEmpty()) {
+            return missingProductIds;
+        }
+
+        List<Integer> productIds = new ArrayList<>(quantityByProductId.keySet());
+        Collections.sort(productIds);
+        Timestamp now = Timestamp.from(Instant.now());
+        updateWithJdbc(quantityByProductId.keySet(), connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INCREMENT_QUANTITY)) {
+                for (Integer productId : productIds) {
+                    statement.setInt(1, quantityByProductId.get(productId));
+                    statement.setTimestamp(2, now);
+                    statement.setInt(3, productId);
+                    statement.addBatch();
+                }
+
+                int[] updateCounts = statement.executeBatch();
+                for (int i = 0; i < updateCounts.length; i++) {
+                    if (updateCounts[i] == 0) {
+                        missingProductIds.add(productIds.get(i));
+                    }
+                }
             }
-            // Note: If an inventory record doesn't exist, we silently ignore it,
-            // as the business logic layer is responsible for ensuring data integrity.
-            // A new inventory record is only created when a new Product is created.
+        });
+        return missingProductIds;
+    }
+
+    /**
+     * Overwrites quantities with JDBC batches of plain UPDATEs keyed by productId, without loading or
+     * snapshotting any Inventory. Each matched row gets version + 1 and a fresh updatedAt, exactly as
+     * a Hibernate update would, so concurrent edits still fail their optimistic lock check.
+     * @return the product ids that have no inventory row (nothing is written for those).
+     */
+    @Transactional
+    public List<Integer> bulkUpdate(List<Inventory> inventoriesToUpdate) {
+        List<Integer> unmatchedProductIds = new ArrayList<>();
+        if (inventoriesToUpdate == null || inventoriesToUpdate.isEmpty()) {
+            return unmatchedProductIds;
         }
 
-        // --- Step 3: Automatic Batch Update ---
-        // Because this method is @Transactional, when it completes successfully,
-        // Hibernate's "dirty checking" will automatically detect all the changes
-        // made to the 'existingInventory' objects and will send a single,
-        // efficient batch of UPDATE statements to the database.
+        Set<Integer> productIds = new LinkedHashSet<>();
+        for (Inventory inventory : inventoriesToUpdate) {
+            productIds.add(inventory.getProductId());
+        }
+        Timestamp now = Timestamp.from(Instant.now());
+        updateWithJdbc(productIds, connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(SET_QUANTITY)) {
+                List<Integer> batchProductIds = new ArrayList<>();
+                for (Inventory inventory : inventoriesToUpdate) {
+                    statement.setInt(1, inventory.getQuantity());
+                    statement.setTimestamp(2, now);
+                    statement.setInt(3, inventory.getProductId());
+                    statement.addBatch();
+                    batchProductIds.add(inventory.getProductId());
+
+                    if (batchProductIds.size() == BULK_UPDATE_BATCH_ROWS) {
+                        collectUnmatched(statement.executeBatch(), batchProductIds, unmatchedProductIds);
+                        batchProductIds.clear();
+                    }
+                }
+                if (!batchProductIds.isEmpty()) {
+                    collectUnmatched(statement.executeBatch(), batchProductIds, unmatchedProductIds);
+                }
+            }
+        });
+        return unmatchedProductIds;
+    }
+
+    /**
+     * Runs raw JDBC UPDATEs against the inventory rows of the given products. Pending changes are
+     * flushed first so the UPDATEs see them, and afterwards only the Inventory instances of those
+     * products are evicted, as they are now stale; every other managed entity stays attached.
+     */
+    private void updateWithJdbc(Collection<Integer> productIds, Work work) {
+        em.flush();
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        session.doWork(work);
+
+        for (Map.Entry<Object, EntityEntry> entry : session.getPersistenceContextInternal().reentrantSafeEntityEntries()) {
+            Object entity = entry.getKey();
+            if (entity instanceof Inventory && productIds.contains(((Inventory) entity).getProductId())) {
+                session.evict(entity);
+            }
+        }
+    }
+
+    private static void collectUnmatched(int[] updateCounts, List<Integer> productIds, List<Integer> unmatchedProductIds) {
+        for (int i = 0; i < updateCounts.length; i++) {
+            if (updateCounts[i] == 0) {
+                unmatchedProductIds.add(productIds.get(i));
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,45 @@
+package com.increff.pos.dao;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Small bounded thread pool AbstractDao.scatterGather uses to read the other shards in parallel.
+ * Each task binds its shard and uses its own connection, so keep db.multiget.parallelism well below
+ * the connection pool size.
+ */
+@Component
+public class MultiGetExecutor implements InitializingBean, DisposableBean {
+
+    @Value("${db.multiget.parallelism:4}")
+    private int parallelism = 4;
+
+    private ExecutorService executor;
+
+    @Override
+    public void afterPropertiesSet() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "multiget-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public <V> Future<V> submit(Callable<V> task) {
+        return executor.submit(task);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
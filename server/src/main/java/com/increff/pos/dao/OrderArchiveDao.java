@@ -0,0 +1,99 @@
+package com.increff.pos.dao;
+
+import com.increff.pos.entity.ArchivedOrder;
+import com.increff.pos.model.enums.OrderStatus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import javax.persistence.TypedQuery;
+import java.sql.Timestamp;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Moves finished orders (and their items) from orders/order_items into archived_orders and
+ * archived_order_items, and decides whether a date range can still be served from the hot tables.
+ */
+@Repository
+public class OrderArchiveDao extends AbstractDao<ArchivedOrder> {
+
+    public static final List<OrderStatus> ARCHIVABLE_STATUSES = Arrays.asList(OrderStatus.INVOICED, OrderStatus.CANCELLED);
+
+    private static final String SELECT_ARCHIVABLE_IDS =
+            "SELECT o.id FROM Order o WHERE o.createdAt < :cutoff AND o.orderStatus IN :statuses ORDER BY o.id";
+
+    private static final String COPY_ORDER_ITEMS =
+            "INSERT INTO archived_order_items (id, quantity, sellingPrice, orderId, productId, createdAt, updatedAt, version) " +
+                    "SELECT id, quantity, sellingPrice, orderId, productId, createdAt, updatedAt, version " +
+                    "FROM order_items WHERE orderId IN (:orderIds)";
+    private static final String COPY_ORDERS =
+            "INSERT INTO archived_orders (id, orderStatus, customerName, customerPhone, invoicePath, totalAmount, createdAt, updatedAt, version, archivedAt) " +
+                    "SELECT id, orderStatus, customerName, customerPhone, invoicePath, totalAmount, createdAt, updatedAt, version, :archivedAt " +
+                    "FROM orders WHERE id IN (:orderIds)";
+    private static final String DELETE_ORDER_ITEMS = "DELETE FROM order_items WHERE orderId IN (:orderIds)";
+    private static final String DELETE_ORDERS = "DELETE FROM orders WHERE id IN (:orderIds)";
+
+    @Value("${order.archive.enabled:false}")
+    private boolean enabled;
+
+    // Finished orders older than this many days are moved to the archive tables
+    @Value("${order.archive.after_days:180}")
+    private int archiveAfterDays = 180;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public ZonedDateTime getCutoff() {
+        return ZonedDateTime.now().minusDays(archiveAfterDays);
+    }
+
+    /**
+     * True when a query starting at {@code start} (null meaning unbounded) may need archived rows.
+     * Orders newer than the cutoff are never archived, so such ranges are served from the hot tables only.
+     */
+    public boolean reachesArchive(ZonedDateTime start) {
+        return enabled && (start == null || start.isBefore(getCutoff()));
+    }
+
+    /**
+     * Picks the next batch of orders to archive and row-locks them, so the batch cannot change
+     * between the copy and the delete.
+     */
+    public List<Integer> selectArchivableOrderIds(ZonedDateTime cutoff, int limit) {
+        TypedQuery<Integer> query = em.createQuery(SELECT_ARCHIVABLE_IDS, Integer.class);
+        query.setParameter("cutoff", cutoff);
+        query.setParameter("statuses", ARCHIVABLE_STATUSES);
+        query.setMaxResults(limit);
+        query.setLockMode(LockModeType.PESSIMISTIC_WRITE);
+        return query.getResultList();
+    }
+
+    /**
+     * Copies the orders and their items into the archive tables and deletes them from the hot
+     * tables, all set-based. Runs in the caller's transaction; keep batches small so locks are short.
+     * @return the number of orders archived.
+     */
+    public int archiveOrders(Collection<Integer> orderIds) {
+        if (orderIds == null || orderIds.isEmpty()) {
+            return 0;
+        }
+        em.flush();
+
+        Timestamp archivedAt = Timestamp.from(ZonedDateTime.now().toInstant());
+        em.createNativeQuery(COPY_ORDER_ITEMS).setParameter("orderIds", orderIds).executeUpdate();
+        em.createNativeQuery(COPY_ORDERS)
+                .setParameter("orderIds", orderIds)
+                .setParameter("archivedAt", archivedAt)
+                .executeUpdate();
+        em.createNativeQuery(DELETE_ORDER_ITEMS).setParameter("orderIds", orderIds).executeUpdate();
+        int archived = em.createNativeQuery(DELETE_ORDERS).setParameter("orderIds", orderIds).executeUpdate();
+
+        // Orders and items loaded earlier in this transaction no longer exist in the hot tables
+        em.clear();
+        return archived;
+    }
+}
@@ -1,18 +1,25 @@
 package com.increff.pos.dao;
 
+import com.increff.pos.entity.ArchivedOrder;
 import com.increff.pos.entity.Order;
 import com.increff.pos.model.enums.OrderStatus;
+import com.increff.pos.utils.OrderArchiveUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
 import javax.persistence.TypedQuery;
-import javax.persistence.criteria.CriteriaBuilder;
-import javax.persistence.criteria.CriteriaQuery;
-import javax.persistence.criteria.Predicate;
-import javax.persistence.criteria.Root;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Repository
 public class OrderDao extends AbstractDao<Order> {
@@ -21,76 +28,185 @@ public class OrderDao extends AbstractDao<Order> {
     private static final String SELECT_BY_DATE_RANGE =
             "SELECT o FROM Order o WHERE o.createdAt >= :start AND o.createdAt < :end " +
                     "AND o.orderStatus = :invoicedStatus";
+    private static final String SELECT_ARCHIVED_BY_DATE_RANGE =
+            "SELECT o FROM ArchivedOrder o WHERE o.createdAt >= :start AND o.createdAt < :end " +
+                    "AND o.orderStatus = :invoicedStatus";
+    // Locks in id order, so a bulk cancel and a concurrent invoice cannot deadlock
+    private static final String SELECT_CANCELLABLE_IDS =
+            "SELECT o.id FROM Order o WHERE o.id IN :ids AND o.orderStatus = :createdStatus ORDER BY o.id";
+    private static final String SELECT_ABANDONED_IDS =
+            "SELECT o.id FROM Order o WHERE o.createdAt < :cutoff AND o.orderStatus = :createdStatus ORDER BY o.id";
+    // Bulk JPQL update bypasses the entity lifecycle, so version/updatedAt are bumped by hand
+    private static final String CANCEL_BY_IDS =
+            "UPDATE Order o SET o.orderStatus = :cancelledStatus, o.version = o.version + 1, o.updatedAt = :now " +
+                    "WHERE o.id IN :ids";
+    private static final Set<String> SORT_FIELDS = new HashSet<>(Arrays.asList(
+            "id", "createdAt", "updatedAt", "orderStatus", "customerName", "customerPhone", "totalAmount"));
+
+    @Autowired
+    private OrderArchiveDao orderArchiveDao;
+
+    /**
+     * An order that was moved to archived_orders, as a detached copy; null if there is none.
+     * Archived orders are finished, so the copy is only read, never merged back.
+     */
+    public Order selectArchivedById(Integer id) {
+        if (!orderArchiveDao.isEnabled()) {
+            return null;
+        }
+        ArchivedOrder archivedOrder = em.find(ArchivedOrder.class, id);
+        return archivedOrder == null ? null : OrderArchiveUtil.toOrder(archivedOrder);
+    }
 
     public List<Order> selectAllByDateRange(ZonedDateTime start, ZonedDateTime end) {
         TypedQuery<Order> query = getQuery(SELECT_BY_DATE_RANGE);
         query.setParameter("start", start);
         query.setParameter("end", end);
         query.setParameter("invoicedStatus", OrderStatus.INVOICED);
+        List<Order> orders = query.getResultList();
+
+        if (orderArchiveDao.reachesArchive(start)) {
+            TypedQuery<ArchivedOrder> archiveQuery = em.createQuery(SELECT_ARCHIVED_BY_DATE_RANGE, ArchivedOrder.class);
+            archiveQuery.setParameter("start", start);
+            archiveQuery.setParameter("end", end);
+            archiveQuery.setParameter("invoicedStatus", OrderStatus.INVOICED);
+            archiveQuery.getResultList().forEach(archivedOrder -> orders.add(OrderArchiveUtil.toOrder(archivedOrder)));
+        }
+        return orders;
+    }
+
+    /**
+     * The given orders that are still CREATED, row-locked until the transaction ends.
+     */
+    public List<Integer> selectCancellableIds(Collection<Integer> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        TypedQuery<Integer> query = em.createQuery(SELECT_CANCELLABLE_IDS, Integer.class);
+        query.setParameter("ids", ids);
+        query.setParameter("createdStatus", OrderStatus.CREATED);
+        query.setLockMode(LockModeType.PESSIMISTIC_WRITE);
         return query.getResultList();
     }
 
+    /**
+     * Up to limit orders still CREATED that were created before the cutoff, row-locked until the
+     * transaction ends.
+     */
+    public List<Integer> selectAbandonedIds(ZonedDateTime cutoff, int limit) {
+        TypedQuery<Integer> query = em.createQuery(SELECT_ABANDONED_IDS, Integer.class);
+        query.setParameter("cutoff", cutoff);
+        query.setParameter("createdStatus", OrderStatus.CREATED);
+        query.setMaxResults(limit);
+        query.setLockMode(LockModeType.PESSIMISTIC_WRITE);
+        return query.getResultList();
+    }
+
+    /**
+     * Marks the orders CANCELLED with one UPDATE. Callers lock and pick the ids first.
+     */
+    public int cancelByIds(Collection<Integer> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return 0;
+        }
+        em.flush();
+        int updated = em.createQuery(CANCEL_BY_IDS)
+                .setParameter("cancelledStatus", OrderStatus.CANCELLED)
+                .setParameter("now", ZonedDateTime.now())
+                .setParameter("ids", ids)
+                .executeUpdate();
+        // Any Order already loaded in this transaction is now stale
+        em.clear();
+        return updated;
+    }
+
     public List<Order> findWithFilters(Integer id, ZonedDateTime startDate, ZonedDateTime endDate, OrderStatus status, Pageable pageable) {
-        CriteriaBuilder cb = getCriteriaBuilder();
-        CriteriaQuery<Order> cq = cb.createQuery(Order.class);
-        Root<Order> orderRoot = cq.from(Order.class);
-
-        List<Predicate> predicates = buildPredicates(cb, orderRoot, id, startDate, endDate, status);
-        cq.where(predicates.toArray(new Predicate[0]));
-
-        // Apply sorting
-        if (pageable.getSort().isSorted()) {
-            pageable.getSort().forEach(order -> {
-                if (order.isAscending()) {
-                    cq.orderBy(cb.asc(orderRoot.get(order.getProperty())));
-                } else {
-                    cq.orderBy(cb.desc(orderRoot.get(order.getProperty())));
-                }
-            });
-        } else {
-            cq.orderBy(cb.desc(orderRoot.get("id"))); // Default sort by ID desc
+        return findWithFilters(id, startDate, endDate, status, null, pageable);
+    }
+
+    /**
+     * Hot-table query unless the listing asks for archived orders (see {@link #listingReachesArchive}).
+     * In that case the first offset + size rows are read from both orders and archived_orders and
+     * merged in memory.
+     */
+    public List<Order> findWithFilters(Integer id, ZonedDateTime startDate, ZonedDateTime endDate, OrderStatus status, Integer afterId, Pageable pageable) {
+        if (!listingReachesArchive(id, startDate)) {
+            return findWithFilters(Order.class, id, startDate, endDate, status, afterId, pageable, false);
         }
 
-        // Delegate execution and pagination to AbstractDao helper
-        return executeCriteriaQueryList(cq, pageable);
+        List<Order> hot = findWithFilters(Order.class, id, startDate, endDate, status, afterId, pageable, true);
+        List<Order> archived = findWithFilters(ArchivedOrder.class, id, startDate, endDate, status, afterId, pageable, true)
+                .stream()
+                .map(OrderArchiveUtil::toOrder)
+                .collect(Collectors.toList());
+
+        long skip = (afterId == null && pageable.isPaged()) ? pageable.getOffset() : 0;
+        return OrderArchiveUtil.mergePage(hot, archived, OrderArchiveUtil.orderComparator(pageable.getSort()), skip, pageable);
     }
 
-    public Long countWithFilters(Integer id, ZonedDateTime startDate, ZonedDateTime endDate, OrderStatus status) {
-        CriteriaBuilder cb = getCriteriaBuilder();
-        CriteriaQuery<Long> cq = cb.createQuery(Long.class);
-        Root<Order> orderRoot = cq.from(Order.class);
+    /**
+     * @param fromStart read rows 0 .. offset + size instead of the page itself, for merging with another table
+     */
+    private <E> List<E> findWithFilters(Class<E> entityClass, Integer id, ZonedDateTime startDate, ZonedDateTime endDate,
+                                        OrderStatus status, Integer afterId, Pageable pageable, boolean fromStart) {
+        QueryShape shape = buildShape("SELECT o FROM " + entityClass.getSimpleName() + " o", id, startDate, endDate, status);
+        // Cursor mode: `id < :afterId` walks the PK backwards, so deep pages cost the same as the first
+        if (afterId != null) {
+            shape.where(keysetCondition("o", pageable, Sort.Direction.DESC), "afterId", afterId);
+        }
+        shape.orderBy(buildOrderBy("o", pageable, SORT_FIELDS, "o.id DESC")); // Default sort by ID desc
 
-        // Pass the id to buildPredicates
-        List<Predicate> predicates = buildPredicates(cb, orderRoot, id, startDate, endDate, status);
-        cq.where(predicates.toArray(new Predicate[0]));
+        // Delegate execution and pagination to AbstractDao helper
+        if (afterId != null) {
+            return executeKeysetShapeQueryList(shape, entityClass, pageable);
+        }
+        if (fromStart && pageable.isPaged()) {
+            return executeKeysetShapeQueryList(shape, entityClass, PageRequest.of(0, (int) pageable.getOffset() + pageable.getPageSize(), pageable.getSort()));
+        }
+        return executeShapeQueryList(shape, entityClass, pageable);
+    }
 
-        cq.select(cb.count(orderRoot));
+    public Long countWithFilters(Integer id, ZonedDateTime startDate, ZonedDateTime endDate, OrderStatus status) {
+        Long count = countWithFilters(Order.class, id, startDate, endDate, status);
+        if (listingReachesArchive(id, startDate)) {
+            count += countWithFilters(ArchivedOrder.class, id, startDate, endDate, status);
+        }
+        return count;
+    }
 
+    private Long countWithFilters(Class<?> entityClass, Integer id, ZonedDateTime startDate, ZonedDateTime endDate, OrderStatus status) {
+        QueryShape shape = buildShape("SELECT COUNT(o) FROM " + entityClass.getSimpleName() + " o", id, startDate, endDate, status);
         // Delegate execution to AbstractDao helper
-        return executeCriteriaQuerySingleResult(cq);
+        return executeShapeQuerySingleResult(shape, Long.class);
+    }
+
+    // Listings without a start date (the default GET /orders) show the hot table only; archived orders
+    // are listed for an explicit start before the archive cutoff, or looked up by id
+    private boolean listingReachesArchive(Integer id, ZonedDateTime startDate) {
+        return (id != null && orderArchiveDao.isEnabled()) || (startDate != null && orderArchiveDao.reachesArchive(startDate));
     }
 
-    private List<Predicate> buildPredicates(CriteriaBuilder cb, Root<Order> root, Integer id, ZonedDateTime startDate, ZonedDateTime endDate, OrderStatus status) {
-        List<Predicate> predicates = new ArrayList<>();
+    private QueryShape buildShape(String select, Integer id, ZonedDateTime startDate, ZonedDateTime endDate, OrderStatus status) {
+        QueryShape shape = new QueryShape(select);
 
         // ID filter - uses primary key index (automatic)
         if (id != null) {
-            predicates.add(cb.equal(root.get("id"), id));
+            shape.where("o.id = :id", "id", id);
         }
 
         // Date range filters - uses idx_order_created_at index for efficient range queries
         if (startDate != null) {
-            predicates.add(cb.greaterThanOrEqualTo(root.get("createdAt"), startDate));
+            shape.where("o.createdAt >= :startDate", "startDate", startDate);
         }
         if (endDate != null) {
-            predicates.add(cb.lessThanOrEqualTo(root.get("createdAt"), endDate));
+            shape.where("o.createdAt <= :endDate", "endDate", endDate);
         }
 
         // Status filter - uses idx_order_status index for exact match
         if (status != null) {
-            predicates.add(cb.equal(root.get("orderStatus"), status));
+            shape.where("o.orderStatus = :status", "status", status);
         }
 
-        return predicates;
+        return shape;
     }
-}
\ No newline at end of file
+}
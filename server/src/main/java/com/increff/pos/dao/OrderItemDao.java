@@ -1,18 +1,24 @@
 package com.increff.pos.dao;
 
+import com.increff.pos.entity.ArchivedOrderItem;
 import com.increff.pos.entity.OrderItem;
 import com.increff.pos.model.enums.OrderStatus;
 import com.increff.pos.model.result.ProductQuantityResult;
 import com.increff.pos.model.result.SalesOverTimeResult;
+import com.increff.pos.utils.OrderArchiveUtil;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.NoResultException;
 import javax.persistence.TypedQuery;
 import java.time.ZonedDateTime;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @Repository
 public class OrderItemDao extends AbstractDao<OrderItem> {
@@ -20,6 +26,7 @@ public class OrderItemDao extends AbstractDao<OrderItem> {
     private static final String SELECT_BY_ORDER_ID = "select p from OrderItem p where orderId = :orderId";
     private static final String SELECT_BY_ORDER_ID_AND_PRODUCT_ID  = "select p from OrderItem p where orderId = :orderId and productId = :productId";
     private static final String SELECT_BY_ORDER_IDS = "select p from OrderItem p where orderId in :orderIds";
+    private static final String SELECT_ARCHIVED_BY_ORDER_IDS = "select p from ArchivedOrderItem p where orderId in :orderIds";
     private static final String FIND_TOP_SELLING =
             "SELECT NEW com.increff.pos.model.result.ProductQuantityResult(oi.productId, SUM(oi.quantity), SUM(oi.quantity * oi.sellingPrice)) " +
                     "FROM OrderItem oi JOIN Order o ON oi.orderId = o.id " +
@@ -49,6 +56,9 @@ public class OrderItemDao extends AbstractDao<OrderItem> {
                     "GROUP BY DATE(o.createdAt) " + // Group by DATE()
                     "ORDER BY DATE(o.createdAt) ASC";
 
+    @Autowired
+    private OrderArchiveDao orderArchiveDao;
+
     public List<ProductQuantityResult> findTopSellingProducts(ZonedDateTime start, ZonedDateTime end, Pageable pageable, OrderStatus status) {
         // Create parameter map
         Map<String, Object> params = new HashMap<>();
@@ -56,6 +66,14 @@ public class OrderItemDao extends AbstractDao<OrderItem> {
         params.put("end", end);
         params.put("status", status);
 
+        // Totals span both tables: aggregate each side in full, then merge, sort and page in memory
+        if (orderArchiveDao.reachesArchive(start)) {
+            return OrderArchiveUtil.mergeProductQuantities(
+                    getCustomResultList(FIND_TOP_SELLING, ProductQuantityResult.class, params),
+                    getCustomResultList(archived(FIND_TOP_SELLING), ProductQuantityResult.class, params),
+                    pageable);
+        }
+
         // Build the query using the helper
         TypedQuery<ProductQuantityResult> query = buildQuery(
                 FIND_TOP_SELLING,
@@ -81,13 +99,26 @@ public class OrderItemDao extends AbstractDao<OrderItem> {
         params.put("status", status);
 
         // Use the convenience method for custom result types
-        return getCustomResultList(FIND_SALES_BY_DATE, SalesOverTimeResult.class, params);
+        List<SalesOverTimeResult> sales = getCustomResultList(FIND_SALES_BY_DATE, SalesOverTimeResult.class, params);
+        if (orderArchiveDao.reachesArchive(start)) {
+            return OrderArchiveUtil.mergeSalesByDate(sales,
+                    getCustomResultList(archived(FIND_SALES_BY_DATE), SalesOverTimeResult.class, params));
+        }
+        return sales;
     }
 
+    // Falls back to archived_order_items for an archived order, like selectByOrderIds
     public List<OrderItem> selectByOrderId(Integer orderId) {
         TypedQuery<OrderItem> query = getQuery(SELECT_BY_ORDER_ID);
         query.setParameter("orderId", orderId);
-        return query.getResultList();
+        List<OrderItem> orderItems = query.getResultList();
+
+        if (orderItems.isEmpty() && orderArchiveDao.isEnabled()) {
+            TypedQuery<ArchivedOrderItem> archiveQuery = em.createQuery(SELECT_ARCHIVED_BY_ORDER_IDS, ArchivedOrderItem.class);
+            archiveQuery.setParameter("orderIds", Collections.singletonList(orderId));
+            archiveQuery.getResultList().forEach(archivedItem -> orderItems.add(OrderArchiveUtil.toOrderItem(archivedItem)));
+        }
+        return orderItems;
     }
 
     public OrderItem selectByOrderIdAndProductId(Integer orderId,Integer productId){
@@ -98,16 +129,38 @@ public class OrderItemDao extends AbstractDao<OrderItem> {
         return resultList.isEmpty() ? null : resultList.get(0);
     }
 
+    /**
+     * Items of orders that are no longer in the hot table (the caller got them from an archive-aware
+     * listing) are read from archived_order_items.
+     */
     public List<OrderItem> selectByOrderIds(List<Integer> orderIds) {
         TypedQuery<OrderItem> query = getQuery(SELECT_BY_ORDER_IDS);
         query.setParameter("orderIds", orderIds);
-        return query.getResultList();
+        List<OrderItem> orderItems = query.getResultList();
+
+        if (orderArchiveDao.isEnabled()) {
+            Set<Integer> missingOrderIds = new HashSet<>(orderIds);
+            orderItems.forEach(orderItem -> missingOrderIds.remove(orderItem.getOrderId()));
+            if (!missingOrderIds.isEmpty()) {
+                TypedQuery<ArchivedOrderItem> archiveQuery = em.createQuery(SELECT_ARCHIVED_BY_ORDER_IDS, ArchivedOrderItem.class);
+                archiveQuery.setParameter("orderIds", missingOrderIds);
+                archiveQuery.getResultList().forEach(archivedItem -> orderItems.add(OrderArchiveUtil.toOrderItem(archivedItem)));
+            }
+        }
+        return orderItems;
     }
 
     public List<ProductQuantityResult> findAllTimeTopSellingProducts(Pageable pageable, OrderStatus status) {
         Map<String, Object> params = new HashMap<>();
         params.put("status", status);
 
+        if (orderArchiveDao.reachesArchive(null)) {
+            return OrderArchiveUtil.mergeProductQuantities(
+                    getCustomResultList(FIND_ALL_TIME_TOP_SELLING, ProductQuantityResult.class, params),
+                    getCustomResultList(archived(FIND_ALL_TIME_TOP_SELLING), ProductQuantityResult.class, params),
+                    pageable);
+        }
+
         TypedQuery<ProductQuantityResult> query = buildQuery(FIND_ALL_TIME_TOP_SELLING, ProductQuantityResult.class, params);
 
         if (pageable.isPaged()) {
@@ -119,8 +172,19 @@ public class OrderItemDao extends AbstractDao<OrderItem> {
     }
 
     public ZonedDateTime findFirstOrderDate(OrderStatus status) {
+        ZonedDateTime firstOrderDate = findFirstOrderDate(FIND_FIRST_ORDER_DATE, status);
+        if (orderArchiveDao.reachesArchive(null)) {
+            ZonedDateTime firstArchivedDate = findFirstOrderDate(archived(FIND_FIRST_ORDER_DATE), status);
+            if (firstOrderDate == null || (firstArchivedDate != null && firstArchivedDate.isBefore(firstOrderDate))) {
+                return firstArchivedDate;
+            }
+        }
+        return firstOrderDate;
+    }
+
+    private ZonedDateTime findFirstOrderDate(String jpql, OrderStatus status) {
         try {
-            TypedQuery<ZonedDateTime> query = em.createQuery(FIND_FIRST_ORDER_DATE, ZonedDateTime.class);
+            TypedQuery<ZonedDateTime> query = em.createQuery(jpql, ZonedDateTime.class);
             query.setParameter("status", status);
             return query.getSingleResult();
         } catch (NoResultException e) {
@@ -128,4 +192,11 @@ public class OrderItemDao extends AbstractDao<OrderItem> {
         }
     }
 
+    // The archive tables mirror the hot ones, so the report queries only differ in the entity names
+    private static String archived(String jpql) {
+        return jpql.replace("FROM OrderItem ", "FROM ArchivedOrderItem ")
+                .replace("JOIN Order ", "JOIN ArchivedOrder ")
+                .replace("FROM Order ", "FROM ArchivedOrder ");
+    }
+
 }
\ No newline at end of file
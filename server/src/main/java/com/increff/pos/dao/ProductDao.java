@@ -1,116 +1,100 @@
 package com.increff.pos.dao;
 
-import com.increff.pos.entity.Client;
 import com.increff.pos.entity.Product;
-import org.springframework.data.domain.Pageable;
+import com.increff.pos.shard.ShardContext;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.TypedQuery;
-import javax.persistence.criteria.*;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Repository
 public class ProductDao extends AbstractDao<Product> {
 
     private static final String SELECT_BY_BARCODE = "select p from Product p where barcode = :barcode";
     private static final String SELECT_BY_BARCODES = "select p from Product p where barcode in :barcodes";
+    private static final String SELECT_BY_IDS = "select p from Product p where p.id in :ids";
 
+    // Barcodes are unique across shards, so with shards every shard is searched;
+    // a product found on another shard is detached
     public Product selectByBarcode(String barcode) {
+        if (isSharded()) {
+            return selectMapByBarcodes(Collections.singletonList(barcode)).get(barcode);
+        }
         TypedQuery<Product> query = getQuery(SELECT_BY_BARCODE);
         query.setParameter("barcode", barcode);
         return getFirstRowFromQuery(query);
     }
 
     public List<Product> selectByBarcodes(List<String> barcodes) {
-        TypedQuery<Product> query = getQuery(SELECT_BY_BARCODES);
-        query.setParameter("barcodes", barcodes);
-        return query.getResultList();
+        return new ArrayList<>(selectMapByBarcodes(barcodes).values());
     }
 
-    public List<Product> selectWithFilters(String searchTerm, String clientName, String category, Double minMrp, Double maxMrp, Pageable pageable) {
-        CriteriaBuilder cb = getCriteriaBuilder();
-        CriteriaQuery<Product> cq = cb.createQuery(Product.class);
-        Root<Product> productRoot = cq.from(Product.class);
-
-        Root<Client> clientRoot = cq.from(Client.class);
-
-        cq.select(productRoot);
-
-        List<Predicate> predicates = buildPredicates(cb, productRoot, clientRoot, searchTerm, clientName, category, minMrp, maxMrp);
-
-        predicates.add(cb.equal(productRoot.get("clientId"), clientRoot.get("id")));
-
-        cq.where(predicates.toArray(new Predicate[0]));
-
-        if (pageable.getSort().isSorted()) {
-            pageable.getSort().forEach(order -> {
-                if (order.isAscending()) {
-                    cq.orderBy(cb.asc(productRoot.get(order.getProperty())));
-                } else {
-                    cq.orderBy(cb.desc(productRoot.get(order.getProperty())));
-                }
-            });
-        } else {
-            cq.orderBy(cb.asc(productRoot.get("id")));
+    public Map<String, Product> selectMapByBarcodes(Collection<String> barcodes) {
+        if (!isSharded() || barcodes == null || barcodes.isEmpty()) {
+            return multiGet(SELECT_BY_BARCODES, "barcodes", barcodes, Product.class, Product::getBarcode);
         }
-
-        return executeCriteriaQueryList(cq, pageable);
+        List<List<String>> chunks = chunk(barcodes);
+        Map<String, Product> products = new LinkedHashMap<>();
+        scatterGather(shardEm -> {
+            List<Product> rows = new ArrayList<>();
+            for (List<String> chunk : chunks) {
+                rows.addAll(shardEm.createQuery(SELECT_BY_BARCODES, Product.class).setParameter("barcodes", chunk).getResultList());
+            }
+            return rows;
+        }).forEach(product -> products.put(product.getBarcode(), product));
+        return products;
     }
 
-    public Long countWithFilters(String searchTerm, String clientName, String category, Double minMrp, Double maxMrp) {
-        CriteriaBuilder cb = getCriteriaBuilder();
-        CriteriaQuery<Long> cq = cb.createQuery(Long.class);
-        Root<Product> productRoot = cq.from(Product.class);
-
-        Root<Client> clientRoot = cq.from(Client.class);
-
-        List<Predicate> predicates = buildPredicates(cb, productRoot, clientRoot, searchTerm, clientName, category, minMrp, maxMrp);
-
-        predicates.add(cb.equal(productRoot.get("clientId"), clientRoot.get("id")));
-
-        cq.where(predicates.toArray(new Predicate[0]));
-        cq.select(cb.count(productRoot));
-
-        return executeCriteriaQuerySingleResult(cq);
+    // Ids are unique across shards too (each shard has its own id range), so with shards the ids the
+    // caller's shard does not have are looked up on the others; a product found there is detached
+    @Override
+    public Map<Integer, Product> selectMapByIds(Collection<Integer> ids) {
+        Map<Integer, Product> products = super.selectMapByIds(ids);
+        if (!isSharded() || ids == null) {
+            return products;
+        }
+        Set<Integer> missingIds = new LinkedHashSet<>(ids);
+        missingIds.removeAll(products.keySet());
+        selectOnOtherShards(missingIds).forEach(product -> products.put(product.getId(), product));
+        return products;
     }
 
     /**
-     * Centralized helper method to build the list of filter predicates.
+     * The product with this id on a shard other than the caller's (detached), or null. Always null without shards.
      */
-    private List<Predicate> buildPredicates(
-            CriteriaBuilder cb, Root<Product> productRoot, Root<Client> clientRoot,
-            String searchTerm, String clientName, String category, Double minMrp, Double maxMrp
-    ) {
-        List<Predicate> predicates = new ArrayList<>();
-        if (searchTerm != null && !searchTerm.trim().isEmpty()) {
-            String searchTermLower = searchTerm.trim().toLowerCase();
-            String prefixPattern = searchTermLower + "%";
-            
-            predicates.add(cb.or(
-                    cb.like(productRoot.get("name"), prefixPattern),
-                    cb.like(cb.lower(productRoot.get("barcode")), prefixPattern)
-            ));
-        }
-
-        // Specific clientName filter (clientName is stored lowercase, so no LOWER() needed - uses index)
-        if (clientName != null && !clientName.trim().isEmpty()) {
-            predicates.add(cb.equal(clientRoot.get("clientName"), clientName.trim().toLowerCase())); // Use clientRoot
-        }
-
-        // Specific category filter (category is stored lowercase, so no LOWER() needed - uses idx_product_category)
-        if (category != null && !category.trim().isEmpty()) {
-            predicates.add(cb.equal(productRoot.get("category"), category.trim().toLowerCase()));
+    public Product selectByIdOnOtherShards(Integer id) {
+        if (id == null || !isSharded()) {
+            return null;
         }
+        List<Product> products = selectOnOtherShards(Collections.singletonList(id));
+        return products.isEmpty() ? null : products.get(0);
+    }
 
-        // MRP range filters
-        if (minMrp != null) {
-            predicates.add(cb.greaterThanOrEqualTo(productRoot.get("mrp"), minMrp));
+    private List<Product> selectOnOtherShards(Collection<Integer> ids) {
+        List<Product> found = new ArrayList<>();
+        if (ids.isEmpty()) {
+            return found;
         }
-        if (maxMrp != null) {
-            predicates.add(cb.lessThanOrEqualTo(productRoot.get("mrp"), maxMrp));
+        List<List<Integer>> chunks = chunk(ids);
+        String current = ShardContext.current();
+        for (String shard : getShards()) {
+            if (!shard.equals(current)) {
+                found.addAll(onShard(shard, shardEm -> {
+                    List<Product> rows = new ArrayList<>();
+                    for (List<Integer> chunk : chunks) {
+                        rows.addAll(shardEm.createQuery(SELECT_BY_IDS, Product.class).setParameter("ids", chunk).getResultList());
+                    }
+                    return rows;
+                }));
+            }
         }
-
-        return predicates;
+        return found;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,228 @@
+package com.increff.pos.dao;
+
+import com.increff.pos.entity.ProductListing;
+import com.increff.pos.model.result.ProductListingResult;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps product_listings in step with products, clients and inventory, and serves the product grid
+ * from it. Writes are set-based SQL run in the caller's transaction, so the read model commits or
+ * rolls back together with the change it mirrors.
+ */
+@Repository
+public class ProductListingDao extends AbstractDao<ProductListing> {
+
+    private static final String SELECT_LISTING =
+            "SELECT NEW com.increff.pos.model.result.ProductListingResult(" +
+                    "   l.id, l.barcode, l.name, l.category, l.mrp, l.imageUrl, l.clientId, l.clientName, l.quantity" +
+                    ") FROM ProductListing l";
+    private static final String COUNT_LISTING = "SELECT COUNT(l) FROM ProductListing l";
+    private static final String SELECT_BY_BARCODE = SELECT_LISTING + " WHERE l.barcode = :barcode";
+    private static final Set<String> SORT_FIELDS =
+            new HashSet<>(Arrays.asList("id", "barcode", "name", "category", "mrp", "clientId", "clientName", "quantity"));
+
+    // Plain ANSI SQL, so the same statements run on MySQL and on an H2 test database
+    private static final String COPY_FROM_SOURCE =
+            "INSERT INTO product_listings (id, barcode, name, category, mrp, imageUrl, clientId, clientName, quantity) " +
+                    "SELECT p.id, p.barcode, p.name, p.category, p.mrp, p.imageUrl, p.clientId, c.clientName, COALESCE(i.quantity, 0) " +
+                    "FROM products p JOIN clients c ON c.id = p.clientId " +
+                    "LEFT JOIN inventory i ON i.productId = p.id";
+    private static final String COPY_PRODUCTS = COPY_FROM_SOURCE + " WHERE p.id IN (:productIds)";
+    private static final String DELETE_PRODUCTS = "DELETE FROM product_listings WHERE id IN (:productIds)";
+    private static final String DELETE_ALL = "DELETE FROM product_listings";
+    private static final String REFRESH_QUANTITIES =
+            "UPDATE product_listings SET quantity = COALESCE(" +
+                    "(SELECT i.quantity FROM inventory i WHERE i.productId = product_listings.id), 0) " +
+                    "WHERE id IN (:productIds)";
+    private static final String UPDATE_CLIENT_NAME =
+            "UPDATE product_listings SET clientName = :clientName WHERE clientId = :clientId";
+    private static final String COUNT_SOURCE_PRODUCTS = "SELECT COUNT(p) FROM Product p";
+    private static final String SELECT_CLIENT_ID_BY_NAME = "SELECT c.id FROM Client c WHERE c.clientName = :clientName";
+
+    public List<ProductListingResult> selectWithFilters(String searchTerm, String clientName, String category, Double minMrp, Double maxMrp, Integer afterId, Pageable pageable) {
+        QueryShape shape = buildShape(SELECT_LISTING, searchTerm, clientName, category, minMrp, maxMrp);
+        // Cursor mode: seek past the previous page on the PK instead of using an offset
+        if (afterId != null) {
+            shape.where(keysetCondition("l", pageable, Sort.Direction.ASC), "afterId", afterId);
+        }
+        shape.orderBy(buildOrderBy("l", pageable, SORT_FIELDS, "l.id ASC"));
+
+        if (isSharded()) {
+            return selectOnShards(shape, clientName, afterId != null, pageable);
+        }
+        if (afterId != null) {
+            return executeKeysetShapeQueryList(shape, ProductListingResult.class, pageable);
+        }
+        return executeShapeQueryList(shape, ProductListingResult.class, pageable);
+    }
+
+    public Long countWithFilters(String searchTerm, String clientName, String category, Double minMrp, Double maxMrp) {
+        QueryShape shape = buildShape(COUNT_LISTING, searchTerm, clientName, category, minMrp, maxMrp);
+        if (isSharded() && !hasText(clientName)) {
+            return scatterGather(shardEm -> Collections.singletonList(buildShapeQuery(shardEm, shape, Long.class).getSingleResult()))
+                    .stream().mapToLong(Long::longValue).sum();
+        }
+        if (isSharded()) {
+            return onShard(shardOfClientName(clientName), shardEm -> buildShapeQuery(shardEm, shape, Long.class).getSingleResult());
+        }
+        return executeShapeQuerySingleResult(shape, Long.class);
+    }
+
+    // Barcodes are unique across shards, so the first hit is the only one
+    public ProductListingResult selectByBarcode(String barcode) {
+        List<ProductListingResult> results = scatterGather(shardEm -> shardEm.createQuery(SELECT_BY_BARCODE, ProductListingResult.class)
+                .setParameter("barcode", barcode)
+                .setMaxResults(1)
+                .getResultList());
+        return results.isEmpty() ? null : results.get(0);
+    }
+
+    /**
+     * Rewrites the listing rows of these products from products, clients and inventory. Covers
+     * inserts and product edits alike; ids without a product just lose their row.
+     */
+    public void refresh(Collection<Integer> productIds) {
+        if (productIds == null || productIds.isEmpty()) {
+            return;
+        }
+        // Pending changes must reach the DB before the copy reads it
+        em.flush();
+        for (List<Integer> chunk : chunk(productIds)) {
+            em.createNativeQuery(DELETE_PRODUCTS).setParameter("productIds", chunk).executeUpdate();
+            em.createNativeQuery(COPY_PRODUCTS).setParameter("productIds", chunk).executeUpdate();
+        }
+    }
+
+    /**
+     * Copies the current inventory quantity of these products into their listing rows.
+     */
+    public void refreshQuantities(Collection<Integer> productIds) {
+        if (productIds == null || productIds.isEmpty()) {
+            return;
+        }
+        // Pending changes must reach the DB before the copy reads it
+        em.flush();
+        for (List<Integer> chunk : chunk(productIds)) {
+            em.createNativeQuery(REFRESH_QUANTITIES).setParameter("productIds", chunk).executeUpdate();
+        }
+    }
+
+    public void updateClientName(Integer clientId, String clientName) {
+        em.createNativeQuery(UPDATE_CLIENT_NAME)
+                .setParameter("clientName", clientName)
+                .setParameter("clientId", clientId)
+                .executeUpdate();
+    }
+
+    public void deleteByProductIds(Collection<Integer> productIds) {
+        if (productIds == null || productIds.isEmpty()) {
+            return;
+        }
+        for (List<Integer> chunk : chunk(productIds)) {
+            em.createNativeQuery(DELETE_PRODUCTS).setParameter("productIds", chunk).executeUpdate();
+        }
+    }
+
+    /**
+     * Rebuilds the whole read model from the source tables (first deployment, or after writes that
+     * bypassed the application).
+     * @return the number of listing rows written.
+     */
+    public int rebuild() {
+        em.flush();
+        em.createNativeQuery(DELETE_ALL).executeUpdate();
+        return em.createNativeQuery(COPY_FROM_SOURCE).executeUpdate();
+    }
+
+    /**
+     * True when products exist but the read model has no rows, i.e. it was never built.
+     */
+    public boolean needsRebuild() {
+        Long listings = em.createQuery(COUNT_LISTING, Long.class).getSingleResult();
+        return listings == 0 && em.createQuery(COUNT_SOURCE_PRODUCTS, Long.class).getSingleResult() > 0;
+    }
+
+    /**
+     * A client filter reads the one shard holding that client. Without one every shard returns its
+     * first offset + size rows (size in cursor mode), and the page is cut from their merge on id;
+     * the product grid always sorts on id.
+     */
+    private List<ProductListingResult> selectOnShards(QueryShape shape, String clientName, boolean keyset, Pageable pageable) {
+        boolean paged = pageable != null && pageable.isPaged();
+        int skip = paged && !keyset ? (int) pageable.getOffset() : 0;
+        if (hasText(clientName)) {
+            return onShard(shardOfClientName(clientName), shardEm -> {
+                TypedQuery<ProductListingResult> query = buildShapeQuery(shardEm, shape, ProductListingResult.class);
+                if (paged) {
+                    query.setFirstResult(skip).setMaxResults(pageable.getPageSize());
+                }
+                return query.getResultList();
+            });
+        }
+
+        List<ProductListingResult> merged = scatterGather(shardEm -> {
+            TypedQuery<ProductListingResult> query = buildShapeQuery(shardEm, shape, ProductListingResult.class);
+            if (paged) {
+                query.setMaxResults(skip + pageable.getPageSize());
+            }
+            return query.getResultList();
+        });
+        Comparator<ProductListingResult> byId = Comparator.comparing(ProductListingResult::getId);
+        Sort.Order idOrder = pageable == null ? null : pageable.getSort().getOrderFor("id");
+        merged.sort(idOrder != null && idOrder.isDescending() ? byId.reversed() : byId);
+        if (!paged) {
+            return merged;
+        }
+        return new ArrayList<>(merged.subList(Math.min(skip, merged.size()), Math.min(skip + pageable.getPageSize(), merged.size())));
+    }
+
+    // Clients are copied to every shard (ClientDao.upsertCopy), so the name resolves locally
+    private String shardOfClientName(String clientName) {
+        List<Integer> clientIds = em.createQuery(SELECT_CLIENT_ID_BY_NAME, Integer.class)
+                .setParameter("clientName", clientName.trim().toLowerCase())
+                .setMaxResults(1)
+                .getResultList();
+        return shardOf(clientIds.isEmpty() ? null : clientIds.get(0));
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.trim().isEmpty();
+    }
+
+    /**
+     * Same filters as ProductDao, on the denormalised columns.
+     */
+    private QueryShape buildShape(String select, String searchTerm, String clientName, String category, Double minMrp, Double maxMrp) {
+        QueryShape shape = new QueryShape(select);
+        if (searchTerm != null && !searchTerm.trim().isEmpty()) {
+            String prefixPattern = searchTerm.trim().toLowerCase() + "%";
+            shape.where("(l.name LIKE :searchTerm OR LOWER(l.barcode) LIKE :searchTerm)", "searchTerm", prefixPattern);
+        }
+        // clientName and category are stored lowercase, so no LOWER() needed - uses the indexes
+        if (clientName != null && !clientName.trim().isEmpty()) {
+            shape.where("l.clientName = :clientName", "clientName", clientName.trim().toLowerCase());
+        }
+        if (category != null && !category.trim().isEmpty()) {
+            shape.where("l.category = :category", "category", category.trim().toLowerCase());
+        }
+        if (minMrp != null) {
+            shape.where("l.mrp >= :minMrp", "minMrp", minMrp);
+        }
+        if (maxMrp != null) {
+            shape.where("l.mrp <= :maxMrp", "maxMrp", maxMrp);
+        }
+        return shape;
+    }
+}
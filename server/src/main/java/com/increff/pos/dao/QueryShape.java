@@ -0,0 +1,60 @@
+package com.increff.pos.dao;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A filter query split into its shape (which optional conditions are present, and the ORDER BY)
+ * and its bind values. Rendering is plain string concatenation, and every call with the same shape
+ * renders the same JPQL, so Hibernate's query plan cache (keyed by the JPQL string) reuses the
+ * parsed plan instead of re-translating a Criteria query each time.
+ *
+ * Conditions and ORDER BY clauses must be constants or built from whitelisted property names,
+ * never from request values: they become part of the JPQL and so of the plan cache key.
+ */
+public class QueryShape {
+
+    private final String select;
+    private final List<String> conditions = new ArrayList<>();
+    private final Map<String, Object> params = new HashMap<>();
+    private String orderBy = "";
+
+    public QueryShape(String select) {
+        this.select = select;
+    }
+
+    /**
+     * Adds a condition without parameters (e.g. a join condition).
+     */
+    public QueryShape where(String condition) {
+        conditions.add(condition);
+        return this;
+    }
+
+    public QueryShape where(String condition, String param, Object value) {
+        params.put(param, value);
+        return where(condition);
+    }
+
+    public QueryShape orderBy(String orderBy) {
+        this.orderBy = orderBy;
+        return this;
+    }
+
+    public Map<String, Object> getParams() {
+        return params;
+    }
+
+    public String render() {
+        StringBuilder jpql = new StringBuilder(select);
+        if (!conditions.isEmpty()) {
+            jpql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        if (!orderBy.isEmpty()) {
+            jpql.append(" ").append(orderBy);
+        }
+        return jpql.toString();
+    }
+}
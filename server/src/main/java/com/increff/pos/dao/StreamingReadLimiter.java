@@ -0,0 +1,40 @@
+package com.increff.pos.dao;
+
+import com.increff.pos.commons.exception.QueueFullException;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Caps how many streamed downloads (AbstractDao.stream / streamAllShards) run at once. Each one holds
+ * a pooled connection until the client has read the last row, so without a cap a few slow clients
+ * could take every connection the pool has and stall order placement.
+ */
+@Component
+public class StreamingReadLimiter implements InitializingBean {
+
+    @Value("${db.stream.max_concurrent:2}")
+    private int maxConcurrent = 2;
+
+    private Semaphore permits;
+
+    @Override
+    public void afterPropertiesSet() {
+        permits = new Semaphore(maxConcurrent);
+    }
+
+    /**
+     * Takes a permit without waiting; the caller must release it once the stream is done.
+     */
+    public void acquire() throws QueueFullException {
+        if (!permits.tryAcquire()) {
+            throw new QueueFullException("Too many downloads are in progress; retry shortly");
+        }
+    }
+
+    public void release() {
+        permits.release();
+    }
+}
@@ -0,0 +1,56 @@
+package com.increff.pos.datasource;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-bucket histogram of connection borrow wait times, cheap enough to update on every borrow.
+ */
+public class BorrowWaitHistogram {
+
+    private static final long[] UPPER_BOUNDS_MILLIS = {1, 5, 10, 50, 100, 500, 1000, 5000};
+
+    private final AtomicLongArray buckets = new AtomicLongArray(UPPER_BOUNDS_MILLIS.length + 1);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void record(long waitNanos) {
+        long waitMillis = waitNanos / 1_000_000;
+        int bucket = 0;
+        while (bucket < UPPER_BOUNDS_MILLIS.length && waitMillis > UPPER_BOUNDS_MILLIS[bucket]) {
+            bucket++;
+        }
+        buckets.incrementAndGet(bucket);
+        count.incrementAndGet();
+        totalNanos.addAndGet(waitNanos);
+        maxNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public double getMeanMillis() {
+        long n = count.get();
+        return n == 0 ? 0 : totalNanos.get() / 1_000_000.0 / n;
+    }
+
+    public double getMaxMillis() {
+        return maxNanos.get() / 1_000_000.0;
+    }
+
+    /**
+     * Bucket label ("<=1ms", "<=5ms", ..., ">5000ms") to the number of borrows that fell into it.
+     */
+    public Map<String, Long> getBuckets() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (int i = 0; i < UPPER_BOUNDS_MILLIS.length; i++) {
+            result.put("<=" + UPPER_BOUNDS_MILLIS[i] + "ms", buckets.get(i));
+        }
+        result.put(">" + UPPER_BOUNDS_MILLIS[UPPER_BOUNDS_MILLIS.length - 1] + "ms", buckets.get(UPPER_BOUNDS_MILLIS.length));
+        return result;
+    }
+}
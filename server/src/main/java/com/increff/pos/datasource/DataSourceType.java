@@ -0,0 +1,6 @@
+package com.increff.pos.datasource;
+
+public enum DataSourceType {
+    PRIMARY,
+    REPLICA
+}
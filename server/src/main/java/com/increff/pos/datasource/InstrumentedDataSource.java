@@ -0,0 +1,147 @@
+package com.increff.pos.datasource;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.apache.commons.dbcp2.PoolableConnection;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.commons.pool2.impl.DefaultPooledObjectInfo;
+import org.apache.commons.pool2.impl.GenericObjectPool;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * DBCP pool that records how long callers wait to borrow a connection and warns when a borrow takes
+ * longer than the configured threshold. Everything else is read from the underlying commons-pool.
+ */
+public class InstrumentedDataSource extends BasicDataSource {
+
+    private static final Log LOG = LogFactory.getLog(InstrumentedDataSource.class);
+    private static final long ALERT_LOG_INTERVAL_MILLIS = 60_000;
+
+    private final String poolName;
+    private final long borrowWaitAlertMillis;
+
+    private final BorrowWaitHistogram borrowWaitHistogram = new BorrowWaitHistogram();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicLong borrowWaitAlerts = new AtomicLong();
+    private final AtomicLong lastAlertAt = new AtomicLong();
+    private final AtomicLong lastAlertLoggedAt = new AtomicLong();
+
+    public InstrumentedDataSource(String poolName, long borrowWaitAlertMillis) {
+        this.poolName = poolName;
+        this.borrowWaitAlertMillis = borrowWaitAlertMillis;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        waiting.incrementAndGet();
+        long start = System.nanoTime();
+        try {
+            return super.getConnection();
+        } finally {
+            waiting.decrementAndGet();
+            recordBorrowWait(System.nanoTime() - start);
+        }
+    }
+
+    private void recordBorrowWait(long waitNanos) {
+        borrowWaitHistogram.record(waitNanos);
+        long waitMillis = waitNanos / 1_000_000;
+        if (waitMillis < borrowWaitAlertMillis) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        borrowWaitAlerts.incrementAndGet();
+        lastAlertAt.set(now);
+
+        // Under sustained pressure every borrow crosses the threshold, so only log once a minute
+        long lastLogged = lastAlertLoggedAt.get();
+        if (now - lastLogged >= ALERT_LOG_INTERVAL_MILLIS && lastAlertLoggedAt.compareAndSet(lastLogged, now)) {
+            LOG.warn("Connection pool '" + poolName + "' borrow took " + waitMillis + " ms (threshold "
+                    + borrowWaitAlertMillis + " ms, active " + getNumActive() + "/" + getMaxTotal()
+                    + ", waiting " + waiting.get() + ")");
+        }
+    }
+
+    public String getPoolName() {
+        return poolName;
+    }
+
+    public BorrowWaitHistogram getBorrowWaitHistogram() {
+        return borrowWaitHistogram;
+    }
+
+    public long getBorrowWaitAlertMillis() {
+        return borrowWaitAlertMillis;
+    }
+
+    public long getBorrowWaitAlerts() {
+        return borrowWaitAlerts.get();
+    }
+
+    /**
+     * True when a borrow crossed the alert threshold within the last minute.
+     */
+    public boolean isAlerting() {
+        return System.currentTimeMillis() - lastAlertAt.get() < ALERT_LOG_INTERVAL_MILLIS;
+    }
+
+    public int getWaitingCount() {
+        return waiting.get();
+    }
+
+    public long getCreatedCount() {
+        GenericObjectPool<PoolableConnection> pool = getConnectionPool();
+        return pool == null ? 0 : pool.getCreatedCount();
+    }
+
+    public long getDestroyedCount() {
+        GenericObjectPool<PoolableConnection> pool = getConnectionPool();
+        return pool == null ? 0 : pool.getDestroyedCount();
+    }
+
+    public long getMeanActiveTimeMillis() {
+        GenericObjectPool<PoolableConnection> pool = getConnectionPool();
+        return pool == null ? 0 : pool.getMeanActiveTimeMillis();
+    }
+
+    /**
+     * Age of the oldest physical connection in the pool, in milliseconds.
+     */
+    public long getMaxConnectionAgeMillis() {
+        GenericObjectPool<PoolableConnection> pool = getConnectionPool();
+        if (pool == null) {
+            return 0;
+        }
+        long now = System.currentTimeMillis();
+        long maxAge = 0;
+        for (DefaultPooledObjectInfo info : pool.listAllObjects()) {
+            maxAge = Math.max(maxAge, now - info.getCreateTime());
+        }
+        return maxAge;
+    }
+
+    /**
+     * Connections that have been borrowed for longer than the abandoned timeout. These are removed
+     * by the evictor only when db.pool.remove_abandoned is on; otherwise they are just reported.
+     */
+    public int getSuspectedAbandonedCount() {
+        GenericObjectPool<PoolableConnection> pool = getConnectionPool();
+        if (pool == null) {
+            return 0;
+        }
+        long now = System.currentTimeMillis();
+        long timeoutMillis = getRemoveAbandonedTimeout() * 1000L;
+        int suspected = 0;
+        for (DefaultPooledObjectInfo info : pool.listAllObjects()) {
+            boolean borrowed = info.getLastBorrowTime() > info.getLastReturnTime();
+            if (borrowed && now - info.getLastBorrowTime() > timeoutMillis) {
+                suspected++;
+            }
+        }
+        return suspected;
+    }
+}
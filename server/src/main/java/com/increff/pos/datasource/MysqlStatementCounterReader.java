@@ -0,0 +1,68 @@
+package com.increff.pos.datasource;
+
+import com.increff.pos.model.data.MysqlStatementCountersData;
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads the MySQL server's prepared statement counters (SHOW GLOBAL STATUS). They are server-global
+ * since the server started: every client and every pool of every application on that server adds
+ * to them, so they say nothing about this application's DBCP statement cache on their own. Next to
+ * them are the primary pool's statement cache settings, for reference.
+ */
+@Component
+public class MysqlStatementCounterReader {
+
+    private static final Log LOG = LogFactory.getLog(MysqlStatementCounterReader.class);
+
+    private static final String STATUS_QUERY = "SHOW GLOBAL STATUS WHERE Variable_name IN "
+            + "('Com_stmt_prepare', 'Com_stmt_execute', 'Prepared_stmt_count')";
+
+    @Autowired
+    private ReadWriteRoutingDataSource routingDataSource;
+
+    public MysqlStatementCountersData getCounters() {
+        DataSource primary = routingDataSource.getPrimary();
+        boolean poolPreparedStatements = false;
+        int maxOpenPreparedStatements = 0;
+        if (primary instanceof BasicDataSource) {
+            poolPreparedStatements = ((BasicDataSource) primary).isPoolPreparedStatements();
+            maxOpenPreparedStatements = ((BasicDataSource) primary).getMaxOpenPreparedStatements();
+        }
+
+        Map<String, Long> status = readServerStatus(primary);
+        Long prepares = status.get("Com_stmt_prepare");
+        Long executes = status.get("Com_stmt_execute");
+        Double serverReuseRatio = null;
+        if (prepares != null && executes != null && executes > 0) {
+            serverReuseRatio = Math.max(0, 1 - (double) prepares / executes);
+        }
+        return new MysqlStatementCountersData(poolPreparedStatements, maxOpenPreparedStatements,
+                prepares, executes, status.get("Prepared_stmt_count"), serverReuseRatio);
+    }
+
+    private Map<String, Long> readServerStatus(DataSource dataSource) {
+        Map<String, Long> status = new HashMap<>();
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(STATUS_QUERY)) {
+            while (resultSet.next()) {
+                status.put(resultSet.getString(1), resultSet.getLong(2));
+            }
+        } catch (SQLException e) {
+            LOG.debug("Could not read statement counters from the server", e);
+        }
+        return status;
+    }
+}
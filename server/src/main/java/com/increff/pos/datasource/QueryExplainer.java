@@ -0,0 +1,54 @@
+package com.increff.pos.datasource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Runs EXPLAIN for a captured statement on the primary. EXPLAIN only plans the statement, so this is
+ * safe for DML too. The primary pool is used directly so the EXPLAIN itself is not recorded.
+ */
+@Component
+public class QueryExplainer {
+
+    private static final Pattern EXPLAINABLE = Pattern.compile("^\\s*(select|insert|update|delete|replace)\\b",
+            Pattern.CASE_INSENSITIVE);
+
+    @Autowired
+    private ReadWriteRoutingDataSource routingDataSource;
+
+    public boolean isExplainable(String sql) {
+        return sql != null && EXPLAINABLE.matcher(sql).find();
+    }
+
+    public List<Map<String, Object>> explain(String sql, List<Object> binds) throws SQLException {
+        List<Map<String, Object>> plan = new ArrayList<>();
+        try (Connection connection = routingDataSource.getPrimary().getConnection();
+             PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+            for (int i = 0; i < binds.size(); i++) {
+                statement.setObject(i + 1, binds.get(i));
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                ResultSetMetaData metaData = resultSet.getMetaData();
+                while (resultSet.next()) {
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    for (int column = 1; column <= metaData.getColumnCount(); column++) {
+                        row.put(metaData.getColumnLabel(column), resultSet.getObject(column));
+                    }
+                    plan.add(row);
+                }
+            }
+        }
+        return plan;
+    }
+}
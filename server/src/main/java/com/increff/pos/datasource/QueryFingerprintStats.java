@@ -0,0 +1,101 @@
+package com.increff.pos.datasource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Timings for one statement fingerprint. Latencies are bucketed by powers of two of microseconds,
+ * so the p99 is an upper-bound estimate within a factor of two.
+ */
+public class QueryFingerprintStats {
+
+    private static final int BUCKETS = 40;
+
+    private final String id;
+    private final String fingerprint;
+
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final AtomicLong slowCount = new AtomicLong();
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+    // Last statement over the slow threshold, kept for EXPLAIN on demand
+    private volatile String lastSlowSql;
+    private volatile List<Object> lastSlowBinds;
+
+    public QueryFingerprintStats(String id, String fingerprint) {
+        this.id = id;
+        this.fingerprint = fingerprint;
+    }
+
+    public void record(long elapsedNanos) {
+        count.incrementAndGet();
+        totalNanos.addAndGet(elapsedNanos);
+        maxNanos.accumulateAndGet(elapsedNanos, Math::max);
+        long micros = elapsedNanos / 1_000;
+        buckets.incrementAndGet(Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros)));
+    }
+
+    public void recordSlow(String sql, List<Object> binds) {
+        slowCount.incrementAndGet();
+        lastSlowSql = sql;
+        lastSlowBinds = new ArrayList<>(binds);
+    }
+
+    public double getP99Millis() {
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(total * 0.99);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= target) {
+                // Bucket i holds latencies below 2^i microseconds
+                return Math.min((1L << i) / 1_000.0, getMaxMillis());
+            }
+        }
+        return getMaxMillis();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public double getTotalMillis() {
+        return totalNanos.get() / 1_000_000.0;
+    }
+
+    public double getMeanMillis() {
+        long n = count.get();
+        return n == 0 ? 0 : getTotalMillis() / n;
+    }
+
+    public double getMaxMillis() {
+        return maxNanos.get() / 1_000_000.0;
+    }
+
+    public long getSlowCount() {
+        return slowCount.get();
+    }
+
+    public String getLastSlowSql() {
+        return lastSlowSql;
+    }
+
+    public List<Object> getLastSlowBinds() {
+        return lastSlowBinds;
+    }
+}
@@ -0,0 +1,85 @@
+package com.increff.pos.datasource;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Per-fingerprint statement timings collected by QueryStatsDataSource. Statements slower than the
+ * threshold are logged with their bind values and kept as the fingerprint's EXPLAIN sample.
+ */
+public class QueryStatsRegistry {
+
+    private static final Log LOG = LogFactory.getLog(QueryStatsRegistry.class);
+
+    // Bounds memory if something generates unbounded distinct SQL (e.g. literals in dynamic queries)
+    private static final int MAX_FINGERPRINTS = 2000;
+    private static final String OVERFLOW_FINGERPRINT = "(other statements)";
+    private static final int MAX_BIND_LENGTH = 200;
+
+    private final long slowQueryThresholdMillis;
+    private final Map<String, QueryFingerprintStats> statsByFingerprint = new ConcurrentHashMap<>();
+
+    public QueryStatsRegistry(long slowQueryThresholdMillis) {
+        this.slowQueryThresholdMillis = slowQueryThresholdMillis;
+    }
+
+    public void record(String sql, List<Object> binds, long elapsedNanos) {
+        String fingerprint = SqlFingerprint.of(sql);
+        if (!statsByFingerprint.containsKey(fingerprint) && statsByFingerprint.size() >= MAX_FINGERPRINTS) {
+            fingerprint = OVERFLOW_FINGERPRINT;
+        }
+        QueryFingerprintStats stats = statsByFingerprint.computeIfAbsent(fingerprint,
+                key -> new QueryFingerprintStats(SqlFingerprint.id(key), key));
+        stats.record(elapsedNanos);
+
+        long elapsedMillis = elapsedNanos / 1_000_000;
+        if (elapsedMillis >= slowQueryThresholdMillis) {
+            stats.recordSlow(sql, binds);
+            if (LOG.isWarnEnabled()) {
+                LOG.warn("Slow query [" + stats.getId() + "] took " + elapsedMillis + " ms: " + sql
+                        + " binds=" + formatBinds(binds));
+            }
+        }
+    }
+
+    public List<QueryFingerprintStats> getTop(int limit, Comparator<QueryFingerprintStats> order) {
+        return statsByFingerprint.values().stream()
+                .sorted(order.reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    public QueryFingerprintStats getById(String id) {
+        for (QueryFingerprintStats stats : statsByFingerprint.values()) {
+            if (stats.getId().equals(id)) {
+                return stats;
+            }
+        }
+        return null;
+    }
+
+    public Collection<QueryFingerprintStats> getAll() {
+        return statsByFingerprint.values();
+    }
+
+    public void reset() {
+        statsByFingerprint.clear();
+    }
+
+    public static List<String> formatBinds(List<Object> binds) {
+        List<String> formatted = new ArrayList<>(binds.size());
+        for (Object bind : binds) {
+            String value = String.valueOf(bind);
+            formatted.add(value.length() > MAX_BIND_LENGTH ? value.substring(0, MAX_BIND_LENGTH) + "..." : value);
+        }
+        return formatted;
+    }
+}
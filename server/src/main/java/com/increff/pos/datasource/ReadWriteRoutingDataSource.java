@@ -0,0 +1,71 @@
+package com.increff.pos.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends connections for @Transactional(readOnly = true) work to the replica pool and everything else
+ * to the primary. Without a replica every lookup resolves to the primary.
+ *
+ * The read-only flag is only published after the transaction has begun, so this must sit behind a
+ * LazyConnectionDataSourceProxy; otherwise the connection would be picked before the flag is known.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    private final DataSource primary;
+    private final DataSource replica;
+
+    private final AtomicLong primaryLookups = new AtomicLong();
+    private final AtomicLong replicaLookups = new AtomicLong();
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica) {
+        this.primary = primary;
+        this.replica = replica;
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(DataSourceType.PRIMARY, primary);
+        if (replica != null) {
+            targets.put(DataSourceType.REPLICA, replica);
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (replica != null && TransactionSynchronizationManager.isActualTransactionActive()
+                && TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            replicaLookups.incrementAndGet();
+            return DataSourceType.REPLICA;
+        }
+        primaryLookups.incrementAndGet();
+        return DataSourceType.PRIMARY;
+    }
+
+    public DataSource getPrimary() {
+        return primary;
+    }
+
+    public DataSource getReplica() {
+        return replica;
+    }
+
+    public boolean hasReplica() {
+        return replica != null;
+    }
+
+    public long getPrimaryLookups() {
+        return primaryLookups.get();
+    }
+
+    public long getReplicaLookups() {
+        return replicaLookups.get();
+    }
+}
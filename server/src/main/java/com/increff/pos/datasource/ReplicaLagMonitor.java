@@ -0,0 +1,59 @@
+package com.increff.pos.datasource;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Reads the replication delay reported by the replica itself (Seconds_Behind_Source on MySQL 8.0.22+,
+ * Seconds_Behind_Master before that). Returns null when there is no replica, the replica is not
+ * replicating (e.g. a plain local instance standing in for it) or the lag cannot be read.
+ */
+@Component
+public class ReplicaLagMonitor {
+
+    private static final Log LOG = LogFactory.getLog(ReplicaLagMonitor.class);
+
+    private static final String[] STATUS_QUERIES = {"SHOW REPLICA STATUS", "SHOW SLAVE STATUS"};
+    private static final String[] LAG_COLUMNS = {"Seconds_Behind_Source", "Seconds_Behind_Master"};
+
+    @Autowired
+    private ReadWriteRoutingDataSource routingDataSource;
+
+    public Long getLagSeconds() {
+        if (!routingDataSource.hasReplica()) {
+            return null;
+        }
+        DataSource replica = routingDataSource.getReplica();
+        for (String query : STATUS_QUERIES) {
+            try (Connection connection = replica.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(query)) {
+                return resultSet.next() ? readLag(resultSet) : null;
+            } catch (SQLException e) {
+                // Older servers do not know SHOW REPLICA STATUS, non-MySQL replicas know neither
+                LOG.debug("Could not read replica status with '" + query + "'", e);
+            }
+        }
+        return null;
+    }
+
+    private Long readLag(ResultSet resultSet) throws SQLException {
+        for (String column : LAG_COLUMNS) {
+            try {
+                long lag = resultSet.getLong(column);
+                return resultSet.wasNull() ? null : lag;
+            } catch (SQLException e) {
+                // Column name depends on the server version, try the next one
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,33 @@
+package com.increff.pos.datasource;
+
+import java.util.regex.Pattern;
+
+/**
+ * Normalises SQL so that statements differing only in literals, whitespace or IN-list length share
+ * one fingerprint.
+ */
+public class SqlFingerprint {
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^'\\\\]|\\\\.|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern IN_LIST = Pattern.compile("\\bin\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    public static String of(String sql) {
+        if (sql == null) {
+            return "";
+        }
+        String normalised = sql.toLowerCase();
+        normalised = STRING_LITERAL.matcher(normalised).replaceAll("?");
+        normalised = NUMBER_LITERAL.matcher(normalised).replaceAll("?");
+        normalised = WHITESPACE.matcher(normalised).replaceAll(" ").trim();
+        return IN_LIST.matcher(normalised).replaceAll("in (...)");
+    }
+
+    /**
+     * Short stable id for a fingerprint, used to refer to it from the ops endpoints.
+     */
+    public static String id(String fingerprint) {
+        return String.format("%08x", fingerprint.hashCode());
+    }
+}
@@ -8,6 +8,7 @@ import com.increff.pos.model.data.ClientData;
 import com.increff.pos.model.data.PaginationData;
 import com.increff.pos.model.form.ClientForm;
 import com.increff.pos.model.result.PaginatedResult;
+import com.increff.pos.utils.CursorUtil;
 import com.increff.pos.utils.ValidationUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
@@ -35,9 +36,15 @@ public class ClientDto extends AbstractDto{
     }
 
     public PaginationData<ClientData> getFilteredClients(String clientName, Integer page, Integer size) throws ApiException{
-        Pageable pageable = PageRequest.of(page,size, Sort.by("id").ascending());
+        return getFilteredClients(clientName, page, size, null);
+    }
+
+    public PaginationData<ClientData> getFilteredClients(String clientName, Integer page, Integer size, String cursor) throws ApiException{
+        Integer afterId = CursorUtil.decode(cursor);
+        // In cursor mode the position comes from the cursor, so the page number is ignored
+        Pageable pageable = PageRequest.of(afterId == null ? page : 0, size, Sort.by("id").ascending());
 
-        PaginatedResult<Client> paginatedResult = clientApi.getFilteredClients(clientName,pageable);
+        PaginatedResult<Client> paginatedResult = clientApi.getFilteredClients(clientName,afterId,pageable);
 
         return clientMapper.convert(paginatedResult);
     }
@@ -1,13 +1,20 @@
 package com.increff.pos.dto;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.increff.pos.api.InventoryApi;
 import com.increff.pos.commons.exception.ApiException;
+import com.increff.pos.dao.StreamingReadLimiter;
 import com.increff.pos.entity.Inventory;
+import com.increff.pos.entity.Product;
 import com.increff.pos.flow.InventoryFlow;
 import com.increff.pos.helper.InventoryMapper;
 import com.increff.pos.model.data.InventoryData;
 import com.increff.pos.model.form.InventoryForm;
 import com.increff.pos.model.result.ConversionResult;
+import com.increff.pos.shard.ShardKey;
 import com.increff.pos.utils.ResponseEntityUtil;
 import com.increff.pos.utils.TsvUtil;
 import com.increff.pos.utils.ValidationUtil;
@@ -15,8 +22,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -29,22 +40,62 @@ public class InventoryDto extends AbstractDto{
     @Autowired
     private InventoryFlow inventoryFlow;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @Autowired
     private InventoryMapper inventoryMapper;
 
-    public InventoryData getById(Integer id) throws ApiException{
+    @Autowired
+    private StreamingReadLimiter streamingReadLimiter;
+
+    public InventoryData getById(@ShardKey(locate = Inventory.class) Integer id) throws ApiException{
         Inventory inventoryPojo = inventoryApi.getCheckById(id);
 
         return inventoryMapper.convert(inventoryPojo);
     }
 
     public List<InventoryData> getAll(){
-        List<Inventory> inventoryPojoList = inventoryApi.getAll();
+        // Streamed so only the lightweight InventoryData rows are retained, not managed entities
+        List<InventoryData> inventoryDataList = new ArrayList<>();
+        inventoryApi.forEachInventory(inventory -> inventoryDataList.add(inventoryMapper.convert(inventory)));
+
+        return inventoryDataList;
+    }
 
-        return inventoryMapper.convert(inventoryPojoList);
+    /**
+     * Writes every inventory row as a JSON array straight to the response, keeping memory flat
+     * for very large catalogues. The JSON is the same as getAll() would produce. Holds a connection
+     * until the download ends, so it is rejected while db.stream.max_concurrent others are running.
+     */
+    public ResponseEntity<StreamingResponseBody> streamAll() throws ApiException {
+        ObjectWriter rowWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        streamingReadLimiter.acquire();
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartArray();
+                try {
+                    inventoryApi.forEachInventory(inventory -> {
+                        try {
+                            rowWriter.writeValue(generator, inventoryMapper.convert(inventory));
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                generator.writeEndArray();
+            } finally {
+                streamingReadLimiter.release();
+            }
+        };
+
+        return ResponseEntityUtil.buildJsonStreamResponse(body);
     }
 
-    public InventoryData updateById(Integer id, InventoryForm inventoryForm) throws ApiException{
+    public InventoryData updateById(@ShardKey(locate = Inventory.class) Integer id, InventoryForm inventoryForm) throws ApiException{
         ValidationUtil.validate(inventoryForm);
 
         Inventory inventoryPojo = inventoryMapper.convert(inventoryForm);
@@ -54,7 +105,7 @@ public class InventoryDto extends AbstractDto{
         return inventoryMapper.convert(updatedInventoryPojo);
     }
 
-    public InventoryData updateByProductId(Integer productId,InventoryForm inventoryForm) throws ApiException{
+    public InventoryData updateByProductId(@ShardKey(locate = Product.class) Integer productId,InventoryForm inventoryForm) throws ApiException{
         ValidationUtil.validate(inventoryForm);
 
         Inventory inventoryPojo = inventoryMapper.convert(inventoryForm);
@@ -3,6 +3,7 @@ package com.increff.pos.dto;
 import com.increff.pos.api.InvoiceApi;
 import com.increff.pos.commons.exception.ApiException;
 import com.increff.pos.flow.InvoiceFlow;
+import com.increff.pos.idempotency.Idempotent;
 import com.increff.pos.model.data.InvoiceData;
 import com.increff.pos.model.form.InvoiceForm;
 import com.increff.pos.utils.ResponseEntityUtil;
@@ -33,6 +34,7 @@ public class InvoiceDto extends AbstractDto{
         @Value("${invoice.app.url}")
         private String invoiceAppUrl;
 
+        @Idempotent("invoices")
         @Transactional(rollbackFor = ApiException.class)
         public Map<String, String> generateAndStoreInvoice(Integer orderId) throws ApiException {
             InvoiceForm invoiceForm = invoiceFlow.generateInvoiceForm(orderId);
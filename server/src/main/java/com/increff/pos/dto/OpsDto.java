@@ -0,0 +1,244 @@
+package com.increff.pos.dto;
+
+import com.increff.pos.api.ClientApi;
+import com.increff.pos.api.ProductApi;
+import com.increff.pos.commons.exception.ApiException;
+import com.increff.pos.datasource.BorrowWaitHistogram;
+import com.increff.pos.datasource.InstrumentedDataSource;
+import com.increff.pos.datasource.QueryExplainer;
+import com.increff.pos.datasource.QueryFingerprintStats;
+import com.increff.pos.datasource.QueryStatsRegistry;
+import com.increff.pos.datasource.ReadWriteRoutingDataSource;
+import com.increff.pos.datasource.ReplicaLagMonitor;
+import com.increff.pos.datasource.MysqlStatementCounterReader;
+import com.increff.pos.model.data.HibernateStatsData;
+import com.increff.pos.model.data.OrderQueueStatsData;
+import com.increff.pos.model.data.PoolStatsData;
+import com.increff.pos.model.data.QueryExplainData;
+import com.increff.pos.model.data.QueryStatsData;
+import com.increff.pos.model.data.ReplicaStatusData;
+import com.increff.pos.model.data.RequestStatsData;
+import com.increff.pos.model.data.RetryStatsData;
+import com.increff.pos.model.data.MysqlStatementCountersData;
+import com.increff.pos.retry.OptimisticLockRetryInterceptor;
+import com.increff.pos.retry.RetryStats;
+import com.increff.pos.service.OrderSubmissionQueue;
+import com.increff.pos.shard.ShardContext;
+import com.increff.pos.shard.ShardMap;
+import com.increff.pos.shard.ShardRoutingDataSource;
+import com.increff.pos.stats.RequestStatsRegistry;
+import com.increff.pos.stats.RequestTypeStats;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@Component
+public class OpsDto {
+
+    private static final Map<String, Comparator<QueryFingerprintStats>> QUERY_STATS_ORDERS = new LinkedHashMap<>();
+    private static final Map<String, Comparator<RequestTypeStats>> REQUEST_STATS_ORDERS = new LinkedHashMap<>();
+
+    static {
+        QUERY_STATS_ORDERS.put("total", Comparator.comparingDouble(QueryFingerprintStats::getTotalMillis));
+        QUERY_STATS_ORDERS.put("count", Comparator.comparingLong(QueryFingerprintStats::getCount));
+        QUERY_STATS_ORDERS.put("p99", Comparator.comparingDouble(QueryFingerprintStats::getP99Millis));
+        QUERY_STATS_ORDERS.put("max", Comparator.comparingDouble(QueryFingerprintStats::getMaxMillis));
+
+        REQUEST_STATS_ORDERS.put("statements", Comparator.comparingLong(RequestTypeStats::getStatements));
+        REQUEST_STATS_ORDERS.put("entities", Comparator.comparingLong(RequestTypeStats::getEntitiesLoaded));
+        REQUEST_STATS_ORDERS.put("meanStatements", Comparator.comparingDouble(RequestTypeStats::getMeanStatements));
+        REQUEST_STATS_ORDERS.put("meanEntities", Comparator.comparingDouble(RequestTypeStats::getMeanEntitiesLoaded));
+        REQUEST_STATS_ORDERS.put("flushes", Comparator.comparingLong(RequestTypeStats::getFlushes));
+        REQUEST_STATS_ORDERS.put("count", Comparator.comparingLong(RequestTypeStats::getCount));
+    }
+
+    @Autowired
+    private OptimisticLockRetryInterceptor optimisticLockRetryInterceptor;
+    @Autowired
+    private ReadWriteRoutingDataSource routingDataSource;
+    @Autowired
+    private ReplicaLagMonitor replicaLagMonitor;
+    @Autowired
+    private MysqlStatementCounterReader mysqlStatementCounterReader;
+    @Autowired
+    private QueryStatsRegistry queryStatsRegistry;
+    @Autowired
+    private QueryExplainer queryExplainer;
+    @Autowired
+    private RequestStatsRegistry requestStatsRegistry;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private ProductApi productApi;
+    @Autowired
+    private ClientApi clientApi;
+    @Autowired
+    private ShardRoutingDataSource shardRoutingDataSource;
+    @Autowired
+    private OrderSubmissionQueue orderSubmissionQueue;
+
+    public List<RetryStatsData> getRetryStats() {
+        List<RetryStatsData> retryStats = new ArrayList<>();
+        for (Map.Entry<String, RetryStats> entry : optimisticLockRetryInterceptor.getStats().entrySet()) {
+            RetryStats stats = entry.getValue();
+            retryStats.add(new RetryStatsData(entry.getKey(), stats.getInvocations(), stats.getRetries(),
+                    stats.getRecovered(), stats.getExhausted()));
+        }
+        retryStats.sort(Comparator.comparing(RetryStatsData::getMethod));
+        return retryStats;
+    }
+
+    public ReplicaStatusData getReplicaStatus() {
+        return new ReplicaStatusData(routingDataSource.hasReplica(), replicaLagMonitor.getLagSeconds(),
+                routingDataSource.getPrimaryLookups(), routingDataSource.getReplicaLookups());
+    }
+
+    public List<PoolStatsData> getPoolStats() {
+        List<DataSource> pools = new ArrayList<>(Arrays.asList(routingDataSource.getPrimary(), routingDataSource.getReplica()));
+        for (Map.Entry<String, DataSource> shard : shardRoutingDataSource.getShards().entrySet()) {
+            if (!ShardMap.HOME.equals(shard.getKey()) && shard.getValue() instanceof ReadWriteRoutingDataSource) {
+                pools.add(((ReadWriteRoutingDataSource) shard.getValue()).getPrimary());
+            }
+        }
+
+        List<PoolStatsData> poolStats = new ArrayList<>();
+        for (DataSource dataSource : pools) {
+            if (dataSource instanceof InstrumentedDataSource) {
+                poolStats.add(convert((InstrumentedDataSource) dataSource));
+            }
+        }
+        return poolStats;
+    }
+
+    public OrderQueueStatsData getOrderQueueStats() {
+        return orderSubmissionQueue.getStats();
+    }
+
+    public MysqlStatementCountersData getMysqlStatementCounters() {
+        return mysqlStatementCounterReader.getCounters();
+    }
+
+    public List<QueryStatsData> getQueryStats(Integer limit, String sortBy) throws ApiException {
+        Comparator<QueryFingerprintStats> order = QUERY_STATS_ORDERS.get(sortBy);
+        if (order == null) {
+            throw new ApiException("Invalid sortBy, expected one of " + QUERY_STATS_ORDERS.keySet());
+        }
+        checkLimit(limit);
+        return queryStatsRegistry.getTop(limit, order).stream()
+                .map(stats -> new QueryStatsData(stats.getId(), stats.getFingerprint(), stats.getCount(),
+                        stats.getTotalMillis(), stats.getMeanMillis(), stats.getP99Millis(), stats.getMaxMillis(),
+                        stats.getSlowCount()))
+                .collect(Collectors.toList());
+    }
+
+    public void resetQueryStats() {
+        queryStatsRegistry.reset();
+    }
+
+    public QueryExplainData explainQuery(String id) throws ApiException {
+        QueryFingerprintStats stats = queryStatsRegistry.getById(id);
+        if (stats == null) {
+            throw new ApiException("No statement found with id " + id);
+        }
+        String sql = stats.getLastSlowSql();
+        if (sql == null) {
+            throw new ApiException("Statement " + id + " has not been slow yet, nothing to explain");
+        }
+        if (!queryExplainer.isExplainable(sql)) {
+            throw new ApiException("Statement " + id + " cannot be explained");
+        }
+        try {
+            return new QueryExplainData(id, sql, QueryStatsRegistry.formatBinds(stats.getLastSlowBinds()),
+                    queryExplainer.explain(sql, stats.getLastSlowBinds()));
+        } catch (SQLException e) {
+            throw new ApiException("EXPLAIN failed: " + e.getMessage());
+        }
+    }
+
+    public HibernateStatsData getHibernateStats() {
+        Statistics statistics = getStatistics();
+        return new HibernateStatsData(statistics.isStatisticsEnabled(), statistics.getSessionOpenCount(),
+                statistics.getTransactionCount(), statistics.getPrepareStatementCount(),
+                statistics.getQueryExecutionCount(), statistics.getQueryExecutionMaxTime(),
+                statistics.getQueryExecutionMaxTimeQueryString(),
+                statistics.getEntityLoadCount(), statistics.getEntityFetchCount(), statistics.getEntityInsertCount(),
+                statistics.getEntityUpdateCount(), statistics.getEntityDeleteCount(),
+                statistics.getCollectionLoadCount(), statistics.getCollectionFetchCount(), statistics.getFlushCount(),
+                statistics.getOptimisticFailureCount(),
+                statistics.getSecondLevelCacheHitCount(), statistics.getSecondLevelCacheMissCount(),
+                statistics.getSecondLevelCachePutCount(),
+                ratio(statistics.getSecondLevelCacheHitCount(), statistics.getSecondLevelCacheMissCount()),
+                statistics.getQueryCacheHitCount(), statistics.getQueryCacheMissCount(),
+                statistics.getQueryCachePutCount(),
+                ratio(statistics.getQueryCacheHitCount(), statistics.getQueryCacheMissCount()));
+    }
+
+    public List<RequestStatsData> getRequestStats(Integer limit, String sortBy) throws ApiException {
+        Comparator<RequestTypeStats> order = REQUEST_STATS_ORDERS.get(sortBy);
+        if (order == null) {
+            throw new ApiException("Invalid sortBy, expected one of " + REQUEST_STATS_ORDERS.keySet());
+        }
+        checkLimit(limit);
+        return requestStatsRegistry.getTop(limit, order).stream()
+                .map(stats -> new RequestStatsData(stats.getRequestType(), stats.getCount(), stats.getStatements(),
+                        stats.getMeanStatements(), stats.getMaxStatements(), stats.getEntitiesLoaded(),
+                        stats.getMeanEntitiesLoaded(), stats.getMaxEntitiesLoaded(), stats.getFlushes(),
+                        stats.getFlushedEntities(), stats.getDirtyChecks(), stats.getSecondLevelCacheHits(),
+                        stats.getSecondLevelCacheMisses()))
+                .collect(Collectors.toList());
+    }
+
+    public void resetHibernateStats() {
+        getStatistics().clear();
+        requestStatsRegistry.reset();
+    }
+
+    // Each shard rebuilds its own listings from its own products
+    public Integer rebuildProductListings() {
+        int rows = 0;
+        for (String shard : shardRoutingDataSource.getShards().keySet()) {
+            rows += ShardContext.callOn(shard, productApi::rebuildListings);
+        }
+        return rows;
+    }
+
+    public Integer copyClientsToShards() {
+        return clientApi.copyClientsToShards();
+    }
+
+    private Statistics getStatistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    private static void checkLimit(Integer limit) throws ApiException {
+        if (limit == null || limit < 0) {
+            throw new ApiException("Invalid limit, expected zero or more");
+        }
+    }
+
+    private static double ratio(long hits, long misses) {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    private PoolStatsData convert(InstrumentedDataSource pool) {
+        BorrowWaitHistogram histogram = pool.getBorrowWaitHistogram();
+        return new PoolStatsData(pool.getPoolName(), pool.getNumActive(), pool.getNumIdle(), pool.getMaxTotal(),
+                pool.getWaitingCount(), histogram.getCount(), histogram.getMeanMillis(), histogram.getMaxMillis(),
+                histogram.getBuckets(), pool.getBorrowWaitAlertMillis(), pool.getBorrowWaitAlerts(), pool.isAlerting(),
+                pool.getCreatedCount(), pool.getDestroyedCount(), pool.getMeanActiveTimeMillis(),
+                pool.getMaxConnectionAgeMillis(), pool.getMaxConnLifetimeMillis(), pool.getSuspectedAbandonedCount());
+    }
+}
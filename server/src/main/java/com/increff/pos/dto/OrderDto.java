@@ -8,14 +8,19 @@ import com.increff.pos.entity.OrderItem;
 import com.increff.pos.entity.Product;
 import com.increff.pos.flow.OrderFlow;
 import com.increff.pos.helper.OrderItemMapper;
+import com.increff.pos.idempotency.Idempotent;
 import com.increff.pos.helper.OrderMapper;
 import com.increff.pos.model.data.OrderData;
+import com.increff.pos.model.data.OrderSubmissionData;
 import com.increff.pos.model.data.PaginationData;
 import com.increff.pos.model.enums.OrderStatus;
 import com.increff.pos.model.form.OrderForm;
 import com.increff.pos.model.form.OrderUpdateForm;
 import com.increff.pos.model.result.OrderResult;
 import com.increff.pos.model.result.PaginatedResult;
+import com.increff.pos.service.OrderGroupCommitter;
+import com.increff.pos.service.OrderSubmissionQueue;
+import com.increff.pos.utils.CursorUtil;
 import com.increff.pos.utils.OrderUtil;
 import com.increff.pos.utils.ProductUtil;
 import com.increff.pos.utils.ValidationUtil;
@@ -42,19 +47,26 @@ public class OrderDto extends AbstractDto{
     @Autowired
     private OrderFlow orderFlow;
 
+    @Autowired
+    private OrderGroupCommitter orderGroupCommitter;
+
+    @Autowired
+    private OrderSubmissionQueue orderSubmissionQueue;
+
     @Autowired
     private OrderMapper orderMapper;
 
     @Autowired
     private OrderItemMapper orderItemMapper;
 
+    @Idempotent("orders")
     public OrderData add(OrderForm orderForm) throws ApiException{
         ValidationUtil.validate(orderForm);
         normalize(orderForm, Arrays.asList("customerPhone"));
 
         Order order = orderMapper.convert(orderForm);
         List<OrderItem> orderItems = orderItemMapper.convert(orderForm.getItems());
-        OrderResult orderResult = orderFlow.insert(order,orderItems);
+        OrderResult orderResult = orderGroupCommitter.insert(order,orderItems);
 
         List<Integer> productIds = OrderUtil.getProductIds(orderResult);
         List<Product> products = productApi.getByIds(productIds);
@@ -63,6 +75,25 @@ public class OrderDto extends AbstractDto{
         return orderMapper.convert(orderResult, productMap);
     }
 
+    // Validates now, places later: stock errors only show up in the submission status
+    @Idempotent("order-submissions")
+    public OrderSubmissionData submit(OrderForm orderForm, String owner, String terminal) throws ApiException {
+        ValidationUtil.validate(orderForm);
+        normalize(orderForm, Arrays.asList("customerPhone"));
+
+        Order order = orderMapper.convert(orderForm);
+        List<OrderItem> orderItems = orderItemMapper.convert(orderForm.getItems());
+        return orderSubmissionQueue.submit(owner, terminal, order, orderItems);
+    }
+
+    public OrderSubmissionData getSubmission(String token, String owner) throws ApiException {
+        OrderSubmissionData submission = orderSubmissionQueue.get(token, owner);
+        if (submission == null) {
+            throw new ApiException("Order submission " + token + " not found or expired");
+        }
+        return submission;
+    }
+
     public OrderData updateById(Integer orderId, OrderUpdateForm orderUpdateForm) throws ApiException{
         ValidationUtil.validate(orderUpdateForm);
         normalize(orderUpdateForm, Arrays.asList("customerPhone"));
@@ -78,6 +109,13 @@ public class OrderDto extends AbstractDto{
         return orderMapper.convert(orderResult,productMap);
     }
 
+    public List<Integer> cancelByIds(List<Integer> orderIds) throws ApiException {
+        if (orderIds == null || orderIds.isEmpty()) {
+            throw new ApiException("Order ids cannot be empty");
+        }
+        return orderFlow.cancelByIds(orderIds);
+    }
+
     public OrderData getById(Integer orderId) throws ApiException {
         OrderResult orderResult= orderFlow.getById(orderId);
 
@@ -89,9 +127,15 @@ public class OrderDto extends AbstractDto{
     }
 
     public PaginationData<OrderData> getFilteredOrders(Integer orderId,ZonedDateTime startDate, ZonedDateTime endDate, OrderStatus status, int page, int size) throws ApiException{
-        Pageable pageable = PageRequest.of(page,size, Sort.by("id").descending());
+        return getFilteredOrders(orderId, startDate, endDate, status, page, size, null);
+    }
+
+    public PaginationData<OrderData> getFilteredOrders(Integer orderId,ZonedDateTime startDate, ZonedDateTime endDate, OrderStatus status, int page, int size, String cursor) throws ApiException{
+        Integer afterId = CursorUtil.decode(cursor);
+        // In cursor mode the position comes from the cursor, so the page number is ignored
+        Pageable pageable = PageRequest.of(afterId == null ? page : 0, size, Sort.by("id").descending());
 
-        PaginatedResult<OrderResult> paginatedResult = orderFlow.getByFilters(orderId,startDate,endDate,status,pageable);
+        PaginatedResult<OrderResult> paginatedResult = orderFlow.getByFilters(orderId,startDate,endDate,status,afterId,pageable);
 
         List<Integer> productIds = OrderUtil.getProductIds(paginatedResult);
         List<Product> products = productApi.getByIds(productIds);
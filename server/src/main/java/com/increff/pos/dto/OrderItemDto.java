@@ -70,6 +70,24 @@ public class OrderItemDto extends AbstractDto{
         return orderItemMapper.convert(updatedItem,product);
     }
 
+    public List<OrderItemData> replaceItems(Integer orderId, List<OrderItemForm> orderItemForms) throws ApiException {
+        if (orderItemForms == null) {
+            throw new ApiException("Items list cannot be null");
+        }
+        for (OrderItemForm orderItemForm : orderItemForms) {
+            ValidationUtil.validate(orderItemForm);
+        }
+
+        List<OrderItem> orderItems = orderItemFlow.replaceItems(orderId, orderItemMapper.convert(orderItemForms));
+
+        List<Integer> productIds = orderItems.stream()
+                .map(OrderItem::getProductId)
+                .collect(Collectors.toList());
+
+        Map<Integer,Product> productsMap = ProductUtil.mapById(productApi.getByIds(productIds));
+        return orderItemMapper.convert(orderItems,productsMap);
+    }
+
     public void deleteById(Integer orderId, Integer itemId) throws ApiException {
         orderItemFlow.deleteById(orderId,itemId);
     }
@@ -14,6 +14,10 @@ import com.increff.pos.model.data.ProductData;
 import com.increff.pos.model.form.ProductForm;
 import com.increff.pos.model.result.ConversionResult;
 import com.increff.pos.model.result.PaginatedResult;
+import com.increff.pos.model.result.ProductListingResult;
+import com.increff.pos.model.result.ProductResult;
+import com.increff.pos.shard.ShardKey;
+import com.increff.pos.utils.CursorUtil;
 import com.increff.pos.utils.ResponseEntityUtil;
 import com.increff.pos.utils.ValidationUtil;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -26,9 +30,6 @@ import org.springframework.web.multipart.MultipartFile;
 import com.increff.pos.utils.TsvUtil;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 
 @Component
 public class ProductDto extends AbstractDto{
@@ -48,47 +49,37 @@ public class ProductDto extends AbstractDto{
     @Autowired
     private ProductMapper productMapper;
 
-    public ProductData add(ProductForm productForm) throws ApiException {
+    public ProductData add(@ShardKey ProductForm productForm) throws ApiException {
         ValidationUtil.validate(productForm);
         normalize(productForm,Arrays.asList("barcode"));
 
         Product productPojo = productMapper.convert(productForm);
 
-        Product addedPojo = productFlow.insert(productPojo);
+        ProductResult productResult = productFlow.insert(productPojo);
 
-        Inventory inventory = inventoryApi.getCheckByProductId(addedPojo.getId());
-        Client client = clientApi.getById(addedPojo.getClientId());
-
-        return productMapper.convert(addedPojo,client,inventory);
+        return productMapper.convert(productResult.getProduct(),productResult.getClient(),productResult.getInventory());
     }
 
     public PaginationData<ProductData> getFilteredProducts(String searchTerm, String clientName, String category, Double minMrp, Double maxMrp,Integer size,Integer page) throws ApiException{
-        Pageable pageable = PageRequest.of(page,size, Sort.by("id").ascending());
-
-        PaginatedResult<Product> paginatedResult = productApi.getFilteredProducts(searchTerm,clientName,category,minMrp,maxMrp,pageable);
+        return getFilteredProducts(searchTerm, clientName, category, minMrp, maxMrp, size, page, null);
+    }
 
-        List<Client> clients = clientApi.getByIds(paginatedResult.getResults().stream().map(Product::getClientId).collect(Collectors.toList()));
-        List<Inventory> inventories = inventoryApi.getByProductIds(paginatedResult.getResults().stream().map(Product::getId).collect(Collectors.toList()));
+    public PaginationData<ProductData> getFilteredProducts(String searchTerm, String clientName, String category, Double minMrp, Double maxMrp,Integer size,Integer page,String cursor) throws ApiException{
+        return getFilteredProducts(searchTerm, clientName, category, minMrp, maxMrp, size, page, cursor, true);
+    }
 
-        Map<Integer, Client> clientMap = clients.stream()
-                .collect(Collectors.toMap(
-                        Client::getId,         // Key
-                        Function.identity(),   // Value (the client object itself)
-                        (existing, replacement) -> existing // Handle duplicate keys
-                ));
+    public PaginationData<ProductData> getFilteredProducts(String searchTerm, String clientName, String category, Double minMrp, Double maxMrp,Integer size,Integer page,String cursor,boolean includeTotal) throws ApiException{
+        Integer afterId = CursorUtil.decode(cursor);
+        // In cursor mode the position comes from the cursor, so the page number is ignored
+        Pageable pageable = PageRequest.of(afterId == null ? page : 0, size, Sort.by("id").ascending());
 
-// 2. Convert List<Inventory> to Map<Integer, Inventory> (keyed by Product ID)
-        Map<Integer, Inventory> inventoryMap = inventories.stream()
-                .collect(Collectors.toMap(
-                        Inventory::getProductId, // Key
-                        Function.identity(),     // Value (the inventory object itself)
-                        (existing, replacement) -> existing // Handle duplicate keys
-                ));
+        // Client name and quantity come back in the same query, no follow-up lookups needed
+        PaginatedResult<ProductListingResult> paginatedResult = productApi.getFilteredProductListing(searchTerm,clientName,category,minMrp,maxMrp,afterId,pageable,includeTotal);
 
-        return productMapper.convert(paginatedResult,clientMap,inventoryMap);
+        return productMapper.convert(paginatedResult);
     }
 
-    public ProductData getById(Integer id) throws ApiException{
+    public ProductData getById(@ShardKey(locate = Product.class) Integer id) throws ApiException{
         Product productPojo = productApi.getCheckById(id);
 
         Inventory inventory = inventoryApi.getCheckByProductId(productPojo.getId());
@@ -98,28 +89,24 @@ public class ProductDto extends AbstractDto{
     }
 
     public ProductData getByBarcode(String barcode) throws ApiException{
-        Product productPojo = productApi.getCheckByBarcode(barcode);
+        // One row of the listing read model: client name and quantity included
+        ProductListingResult listing = productApi.getCheckListingByBarcode(barcode);
 
-        Inventory inventory = inventoryApi.getCheckByProductId(productPojo.getId());
-        Client client = clientApi.getById(productPojo.getClientId());
-
-        return productMapper.convert(productPojo,client,inventory);
+        return productMapper.convert(listing);
     }
 
-    public ProductData updateById(Integer id, ProductForm productForm) throws ApiException{
+    // On the shard the product lives on; ProductApi rejects a change of client
+    public ProductData updateById(@ShardKey(locate = Product.class) Integer id, ProductForm productForm) throws ApiException{
         ValidationUtil.validate(productForm);
         normalize(productForm,Arrays.asList("barcode"));
 
         Product productPojo = productMapper.convert(productForm);
-        Product updatedPojo = productApi.updateById(id,productPojo);
-
-        Inventory inventory = inventoryApi.getCheckByProductId(updatedPojo.getId());
-        Client client = clientApi.getById(updatedPojo.getClientId());
+        ProductResult productResult = productFlow.updateById(id,productPojo);
 
-        return productMapper.convert(updatedPojo,client,inventory);
+        return productMapper.convert(productResult.getProduct(),productResult.getClient(),productResult.getInventory());
     }
 
-    public void deleteById(Integer id) throws ApiException{
+    public void deleteById(@ShardKey(locate = Product.class) Integer id) throws ApiException{
         productFlow.deleteById(id);
     }
 
@@ -1,6 +1,7 @@
 package com.increff.pos.dto;
 
 import com.increff.pos.commons.exception.ApiException;
+import com.increff.pos.dao.StreamingReadLimiter;
 import com.increff.pos.flow.ReportFlow;
 import com.increff.pos.model.data.InventoryReportData;
 import com.increff.pos.model.data.SalesReportData;
@@ -10,7 +11,14 @@ import com.increff.pos.utils.TsvUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 
@@ -20,6 +28,9 @@ public class ReportDto {
     @Autowired
     private ReportFlow reportFlow;
 
+    @Autowired
+    private StreamingReadLimiter streamingReadLimiter;
+
     public SummaryData getSummary() throws ApiException {
         return reportFlow.getSummaryData();
     }
@@ -42,4 +53,40 @@ public class ReportDto {
 
         return ResponseEntityUtil.buildTsvResponse(reportBytes, "inventory-report.tsv");
     }
+
+    /**
+     * Same report as getInventoryReport, written to the response while it is read, so neither the
+     * rows nor the TSV are ever held in memory as a whole. Counts against db.stream.max_concurrent.
+     */
+    public ResponseEntity<StreamingResponseBody> streamInventoryReport() throws ApiException {
+        streamingReadLimiter.acquire();
+        StreamingResponseBody body = outputStream -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            try {
+                reportFlow.streamInventoryReport(
+                        summary -> writeUnchecked(() -> TsvUtil.writeInventoryReportHeader(writer, summary)),
+                        item -> writeUnchecked(() -> TsvUtil.writeInventoryReportItem(writer, item)));
+                writer.flush();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                streamingReadLimiter.release();
+            }
+        };
+
+        return ResponseEntityUtil.buildTsvStreamResponse(body, "inventory-report.tsv");
+    }
+
+    private interface TsvWrite {
+        void write() throws IOException;
+    }
+
+    // Streaming callbacks are plain Consumers, so I/O failures travel as unchecked exceptions
+    private static void writeUnchecked(TsvWrite write) {
+        try {
+            write.write();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 }
@@ -0,0 +1,53 @@
+package com.increff.pos.entity;
+
+import com.increff.pos.model.enums.OrderStatus;
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.persistence.*;
+import java.time.ZonedDateTime;
+
+/**
+ * Cold copy of an invoiced or cancelled Order, moved here by the archival job. Rows are written
+ * with INSERT ... SELECT from orders, so ids and timestamps are the original ones.
+ */
+@Entity
+@Getter
+@Setter
+@Table(
+    indexes = {
+        @Index(name = "idx_archived_order_created_at", columnList = "createdAt"),
+        @Index(name = "idx_archived_order_status", columnList = "orderStatus")
+    }
+)
+public class ArchivedOrder {
+
+    @Id
+    private Integer id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private OrderStatus orderStatus;
+
+    private String customerName;
+
+    private String customerPhone;
+
+    private String invoicePath;
+
+    @Column(nullable = false)
+    private Double totalAmount;
+
+    @Column(nullable = false)
+    private ZonedDateTime createdAt;
+
+    @Column(nullable = false)
+    private ZonedDateTime updatedAt;
+
+    @Column(nullable = false)
+    private Integer version;
+
+    @Column(nullable = false)
+    private ZonedDateTime archivedAt;
+
+}
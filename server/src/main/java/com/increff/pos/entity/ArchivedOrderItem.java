@@ -0,0 +1,42 @@
+package com.increff.pos.entity;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.persistence.*;
+import java.time.ZonedDateTime;
+
+/**
+ * Cold copy of an OrderItem whose order was archived.
+ */
+@Entity
+@Getter
+@Setter
+@Table(indexes = @Index(name = "idx_archived_order_item_order_id", columnList = "orderId"))
+public class ArchivedOrderItem {
+
+    @Id
+    private Integer id;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @Column(nullable = false)
+    private Double sellingPrice;
+
+    @Column(nullable = false)
+    private Integer orderId;
+
+    @Column(nullable = false)
+    private Integer productId;
+
+    @Column(nullable = false)
+    private ZonedDateTime createdAt;
+
+    @Column(nullable = false)
+    private ZonedDateTime updatedAt;
+
+    @Column(nullable = false)
+    private Integer version;
+
+}
@@ -15,6 +15,11 @@ import java.time.ZonedDateTime;
 @MappedSuperclass
 public abstract class BaseEntity {
 
+    // Ids are handed out in blocks by the pooled optimizer so that inserts can be JDBC-batched.
+    // Keep this in line with hibernate.jdbc.batch_size. ShardInitializer moves every sequence past the
+    // ids already in its tables at startup, so rows written before the switch from identity ids are safe.
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @CreationTimestamp
     @Column(nullable = false,updatable = false)
     protected ZonedDateTime createdAt;
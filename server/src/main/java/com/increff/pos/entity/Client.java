@@ -17,7 +17,8 @@ import javax.persistence.*;
 public class Client extends BaseEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "client_seq")
+    @SequenceGenerator(name = "client_seq", sequenceName = "client_seq", allocationSize = ID_ALLOCATION_SIZE)
     private Integer id;
 
     @Column(nullable = false)
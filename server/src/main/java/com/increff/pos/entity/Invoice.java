@@ -12,7 +12,8 @@ import javax.persistence.*;
 public class Invoice extends BaseEntity{
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "invoice_seq")
+    @SequenceGenerator(name = "invoice_seq", sequenceName = "invoice_seq", allocationSize = ID_ALLOCATION_SIZE)
     private Integer id;
 
     @Column(nullable = false)
@@ -19,7 +19,8 @@ import javax.persistence.*;
 public class Order extends BaseEntity{
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_seq")
+    @SequenceGenerator(name = "order_seq", sequenceName = "order_seq", allocationSize = ID_ALLOCATION_SIZE)
     private Integer id;
 
     @Enumerated(EnumType.STRING)
@@ -14,7 +14,8 @@ import javax.persistence.*;
 public class OrderItem extends BaseEntity{
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_item_seq")
+    @SequenceGenerator(name = "order_item_seq", sequenceName = "order_item_seq", allocationSize = ID_ALLOCATION_SIZE)
     private Integer id;
 
     @Column(nullable = false)
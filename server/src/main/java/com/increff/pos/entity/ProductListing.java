@@ -0,0 +1,55 @@
+package com.increff.pos.entity;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.persistence.*;
+
+/**
+ * Read model behind the product grid: one row per product with its client name and stock level, so
+ * listing and barcode lookups need no joins. Rows are only written by ProductListingDao (INSERT ...
+ * SELECT from products, clients and inventory) in the same transaction as the change they mirror.
+ */
+@Entity
+@Getter
+@Setter
+@Table(
+    uniqueConstraints = @UniqueConstraint(columnNames = {"barcode"}),
+    indexes = {
+        @Index(name = "idx_product_listing_name", columnList = "name"),
+        @Index(name = "idx_product_listing_category", columnList = "category"),
+        @Index(name = "idx_product_listing_client_name", columnList = "clientName"),
+        @Index(name = "idx_product_listing_client_id", columnList = "clientId"),
+        @Index(name = "idx_product_listing_mrp", columnList = "mrp")
+    }
+)
+public class ProductListing {
+
+    // The product's id, not generated here
+    @Id
+    private Integer id;
+
+    @Column(nullable = false)
+    private String barcode;
+
+    @Column(nullable = false)
+    private String name;
+
+    @Column(nullable = false)
+    private String category;
+
+    @Column(nullable = false)
+    private Double mrp;
+
+    private String imageUrl;
+
+    @Column(nullable = false)
+    private Integer clientId;
+
+    @Column(nullable = false)
+    private String clientName;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+}
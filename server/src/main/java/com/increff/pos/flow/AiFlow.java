@@ -33,7 +33,7 @@ import java.util.*;
 import java.util.stream.Collectors;
 
 @Service
-@Transactional(rollbackFor = ApiException.class)
+@Transactional(readOnly = true, rollbackFor = ApiException.class)
 public class AiFlow {
 
     @Value("${groq.api.key}")
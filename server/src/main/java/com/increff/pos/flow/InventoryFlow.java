@@ -7,6 +7,8 @@ import com.increff.pos.entity.Product;
 import com.increff.pos.model.data.InventoryUploadRow;
 import com.increff.pos.model.result.ConversionResult;
 import com.increff.pos.model.result.InventoryUploadResult;
+import com.increff.pos.shard.ShardContext;
+import com.increff.pos.shard.ShardTemplate;
 import com.increff.pos.utils.InventoryUtil;
 import com.increff.pos.utils.TsvUtil;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -25,6 +27,9 @@ public class InventoryFlow {
     @Autowired
     private ProductApi productApi;
 
+    @Autowired
+    private ShardTemplate shardTemplate;
+
     public byte[] uploadByFile(ConversionResult<String[]> tsvResult) throws ApiException {
         ConversionResult<InventoryUploadRow> conversionResult = InventoryUtil.convertRows(tsvResult);
         List<InventoryUploadRow> candidateRows = conversionResult.getValidRows();
@@ -35,7 +40,22 @@ public class InventoryFlow {
         List<Product> products = productApi.getByBarcodes(new ArrayList<>(barcodesInFile));
         Map<String, Product> productMap = InventoryUtil.mapProductsByBarcode(products);
 
-        InventoryUploadResult uploadResult = inventoryApi.upload(candidateRows, productMap);
+        // Each row is applied on the shard of its product; unknown barcodes fail on the caller's shard
+        Map<String, List<InventoryUploadRow>> rowsByShard = new LinkedHashMap<>();
+        for (InventoryUploadRow row : candidateRows) {
+            Product product = productMap.get(row.getBarcode().trim().toLowerCase());
+            String shard = product == null ? ShardContext.current() : shardTemplate.getShardMap().shardOf(product.getClientId());
+            rowsByShard.computeIfAbsent(shard, key -> new ArrayList<>()).add(row);
+        }
+        InventoryUploadResult uploadResult = new InventoryUploadResult();
+        uploadResult.setSuccessfullyUpdated(new ArrayList<>());
+        uploadResult.setFailedRows(new ArrayList<>());
+        for (Map.Entry<String, List<InventoryUploadRow>> shardRows : rowsByShard.entrySet()) {
+            InventoryUploadResult shardResult = shardTemplate.onShard(shardRows.getKey(),
+                    () -> inventoryApi.upload(shardRows.getValue(), productMap));
+            uploadResult.getSuccessfullyUpdated().addAll(shardResult.getSuccessfullyUpdated());
+            uploadResult.getFailedRows().addAll(shardResult.getFailedRows());
+        }
 
         return TsvUtil.createInventoryUploadReport(uploadResult, candidateRows, initialErrors);
     }
@@ -5,13 +5,15 @@ import com.increff.pos.api.OrderApi;
 import com.increff.pos.api.OrderItemApi;
 import com.increff.pos.api.ProductApi;
 import com.increff.pos.commons.exception.ApiException;
-import com.increff.pos.entity.Inventory;
 import com.increff.pos.entity.Order;
 import com.increff.pos.entity.OrderItem;
 import com.increff.pos.entity.Product;
 import com.increff.pos.model.enums.OrderStatus;
+import com.increff.pos.model.result.OrderGroupResult;
 import com.increff.pos.model.result.OrderResult;
 import com.increff.pos.model.result.PaginatedResult;
+import com.increff.pos.retry.RetryOnOptimisticLock;
+import com.increff.pos.utils.CursorUtil;
 import com.increff.pos.utils.OrderItemUtil;
 import com.increff.pos.utils.OrderUtil;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -21,8 +23,11 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -55,8 +60,63 @@ public class OrderFlow {
         return orderResult;
     }
 
+    /**
+     * Inserts a group of independent orders in one transaction (see OrderGroupCommitter).
+     * An order that fails validation, or does not fit the stock left by the orders ahead of it, gets
+     * its error and writes nothing; the others are inserted. The inventory rows are locked up front,
+     * so the stock taken by the accepted orders is applied in one batched decrement that cannot come up short.
+     * Rows on other shards are not held locked (see InventoryApi.getQuantitiesForUpdate); if their stock
+     * runs short meanwhile the group fails and each order is retried alone.
+     */
+    public List<OrderGroupResult> insertGroup(List<OrderResult> pendingOrders) throws ApiException {
+        // Step 1: One product read and one locked inventory read for the whole group
+        Set<Integer> productIds = new LinkedHashSet<>();
+        for (OrderResult pendingOrder : pendingOrders) {
+            if (pendingOrder.getOrderItems() != null) {
+                pendingOrder.getOrderItems().forEach(orderItem -> productIds.add(orderItem.getProductId()));
+            }
+        }
+        productIds.remove(null);
+        Map<Integer, Product> productMap = productIds.isEmpty() ? new LinkedHashMap<>()
+                : productApi.getByIds(new ArrayList<>(productIds)).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        Map<Integer, Integer> stockLeft = inventoryApi.getQuantitiesForUpdate(productIds);
+
+        // Step 2: Validate and allocate stock in arrival order, as if the orders had come one by one
+        List<OrderGroupResult> results = new ArrayList<>();
+        List<OrderItem> acceptedItems = new ArrayList<>();
+        Map<Integer, Integer> quantityByProductId = new LinkedHashMap<>();
+        for (OrderResult pendingOrder : pendingOrders) {
+            OrderGroupResult result = new OrderGroupResult();
+            result.setOrderResult(pendingOrder);
+            results.add(result);
+            try {
+                Map<Integer, Integer> orderQuantities = validateOrderItems(pendingOrder.getOrderItems(), productMap);
+                allocateStock(orderQuantities, stockLeft, productMap);
+                orderQuantities.forEach((productId, quantity) -> quantityByProductId.merge(productId, quantity, Integer::sum));
+
+                Order order = pendingOrder.getOrder();
+                order.setTotalAmount(OrderItemUtil.calculateTotalAmount(pendingOrder.getOrderItems()));
+                orderApi.insert(order);
+                OrderItemUtil.setOrderId(pendingOrder.getOrderItems(), order.getId());
+                acceptedItems.addAll(pendingOrder.getOrderItems());
+            } catch (ApiException e) {
+                result.setError(e);
+            }
+        }
+
+        // Step 3: Items of all accepted orders in one batched insert, their stock in one batched decrement
+        orderItemApi.insertAll(acceptedItems);
+        List<Integer> shortProductIds = inventoryApi.decrementQuantities(quantityByProductId);
+        if (!shortProductIds.isEmpty()) {
+            throw new ApiException("Stock of product " + shortProductIds.get(0) + " changed while the order group was committing");
+        }
+        return results;
+    }
+
+    @Transactional(readOnly = true, rollbackFor = ApiException.class)
     public OrderResult getById(Integer id) throws ApiException{
-        Order order = orderApi.getCheckById(id);
+        Order order = orderApi.getCheckByIdIncludingArchive(id);
         List<OrderItem> orderItems = orderItemApi.getAllByOrderId(id);
 
         OrderResult orderResult = new OrderResult();
@@ -65,14 +125,13 @@ public class OrderFlow {
         return orderResult;
     }
 
+    @RetryOnOptimisticLock
     public OrderResult updateById(Integer id,Order order)throws ApiException{
         Order updatedOrder = orderApi.updateById(id,order);
         List<OrderItem> orderItems = orderItemApi.getAllByOrderId(id);
 
         if(updatedOrder.getOrderStatus() == OrderStatus.CANCELLED){
-            for(OrderItem orderItem:orderItems){
-                inventoryApi.updateQuantityByProductId(orderItem.getProductId(),orderItem.getQuantity(),0);
-            }
+            restock(orderItems);
         }
 
         OrderResult orderResult = new OrderResult();
@@ -81,8 +140,44 @@ public class OrderFlow {
         return orderResult;
     }
 
+    /**
+     * Cancels those of the given orders that are still CREATED and puts their items back in stock,
+     * all in one transaction. Orders that are invoiced, cancelled or missing are skipped.
+     * @return the ids of the orders that were cancelled.
+     */
+    public List<Integer> cancelByIds(List<Integer> orderIds) throws ApiException {
+        List<Integer> cancelledIds = orderApi.cancelByIds(orderIds);
+        restock(orderItemApi.getByOrderIds(cancelledIds));
+        return cancelledIds;
+    }
+
+    /**
+     * Cancels up to batchSize orders left CREATED since before the cutoff and restocks their items.
+     * @return the number of orders cancelled; less than batchSize means none are left.
+     */
+    public int cancelAbandoned(ZonedDateTime cutoff, int batchSize) throws ApiException {
+        List<Integer> cancelledIds = orderApi.cancelAbandoned(cutoff, batchSize);
+        restock(orderItemApi.getByOrderIds(cancelledIds));
+        return cancelledIds.size();
+    }
+
+    // One relative increment per product, however many lines or orders it appears in
+    private void restock(List<OrderItem> orderItems) throws ApiException {
+        Map<Integer, Integer> quantityByProductId = new LinkedHashMap<>();
+        for (OrderItem orderItem : orderItems) {
+            quantityByProductId.merge(orderItem.getProductId(), orderItem.getQuantity(), Integer::sum);
+        }
+        inventoryApi.incrementQuantities(quantityByProductId);
+    }
+
+    @Transactional(readOnly = true, rollbackFor = ApiException.class)
     public PaginatedResult<OrderResult> getByFilters(Integer id, ZonedDateTime startDate, ZonedDateTime endDate, OrderStatus status, Pageable pageable) throws ApiException {
-        List<Order> ordersOnPage = orderApi.getByFilters(id, startDate, endDate, status, pageable);
+        return getByFilters(id, startDate, endDate, status, null, pageable);
+    }
+
+    @Transactional(readOnly = true, rollbackFor = ApiException.class)
+    public PaginatedResult<OrderResult> getByFilters(Integer id, ZonedDateTime startDate, ZonedDateTime endDate, OrderStatus status, Integer afterId, Pageable pageable) throws ApiException {
+        List<Order> ordersOnPage = orderApi.getByFilters(id, startDate, endDate, status, afterId, pageable);
         Long totalElements = orderApi.countWithFilters(id, startDate, endDate, status);
 
         if (ordersOnPage.isEmpty()) {
@@ -98,6 +193,7 @@ public class OrderFlow {
         PaginatedResult<OrderResult> finalResult = new PaginatedResult<>();
         finalResult.setResults(orderResults);
         finalResult.setTotalElements(totalElements);
+        finalResult.setNextCursor(CursorUtil.nextCursor(ordersOnPage, pageable.getPageSize(), Order::getId));
 
         int pageSize = pageable.getPageSize();
         int totalPages = (pageSize == 0) ? 1 : (int) Math.ceil((double) totalElements / (double) pageSize);
@@ -117,31 +213,38 @@ public class OrderFlow {
                 .distinct()
                 .collect(Collectors.toList());
 
-        // Step 2: Bulk fetch all required inventories and products (2 queries instead of 2N)
-        // getCheckByProductIds() throws ApiException if any productId is missing inventory
-        List<Inventory> inventories = inventoryApi.getCheckByProductIds(productIds);
-        Map<Integer, Inventory> inventoryMap = inventories.stream()
-                .collect(Collectors.toMap(Inventory::getProductId, Function.identity()));
-
+        // Step 2: Bulk fetch all required products (1 query instead of N)
         // getCheckByIds() throws ApiException if any productId is missing product
         List<Product> products = productApi.getCheckByIds(productIds);
         Map<Integer, Product> productMap = products.stream()
                 .collect(Collectors.toMap(Product::getId, Function.identity()));
 
-        // Step 3: Validate all items and prepare inventory updates
-        List<Inventory> inventoriesToUpdate = new ArrayList<>();
-        
+        // Step 3: Validate prices and total up the quantity ordered per product
+        Map<Integer, Integer> quantityByProductId = validateOrderItems(orderItems, productMap);
+
+        // Step 4: Conditionally decrement stock in one batch; no inventory read, no dirty checking.
+        // Throwing rolls back the decrements that did succeed.
+        List<Integer> shortProductIds = inventoryApi.decrementQuantities(quantityByProductId);
+        if (!shortProductIds.isEmpty()) {
+            Product product = productMap.get(shortProductIds.get(0));
+            throw new ApiException("Not enough stock is available for product " + product.getName());
+        }
+
+        // Step 5: Bulk insert order items (1 batched operation)
+        orderItemApi.insertAll(orderItems);
+    }
+
+    // Checks the items against their products and totals up the quantity ordered per product
+    private static Map<Integer, Integer> validateOrderItems(List<OrderItem> orderItems, Map<Integer, Product> productMap) throws ApiException {
+        if (orderItems == null || orderItems.isEmpty()) {
+            throw new ApiException("Order must contain at least one item");
+        }
+
+        Map<Integer, Integer> quantityByProductId = new LinkedHashMap<>();
         for (OrderItem orderItem : orderItems) {
-            Integer productId = orderItem.getProductId();
-            
-            // Inventory and product existence are already validated by getCheckByProductIds() and getCheckByIds()
-            Inventory itemInventory = inventoryMap.get(productId);
-            Product product = productMap.get(productId);
-
-            // Validate stock availability
-            Integer remainingQuantity = itemInventory.getQuantity() - orderItem.getQuantity();
-            if (remainingQuantity < 0) {
-                throw new ApiException("Not enough stock is available for product " + product.getName());
+            Product product = productMap.get(orderItem.getProductId());
+            if (product == null) {
+                throw new ApiException("Product doesn't exist with id " + orderItem.getProductId());
             }
 
             // Validate selling price
@@ -149,17 +252,20 @@ public class OrderFlow {
                 throw new ApiException("Selling price cannot be more than mrp for product " + product.getName());
             }
 
-            // Prepare inventory update
-            Inventory updatedInventory = new Inventory();
-            updatedInventory.setProductId(productId);
-            updatedInventory.setQuantity(remainingQuantity);
-            inventoriesToUpdate.add(updatedInventory);
+            quantityByProductId.merge(orderItem.getProductId(), orderItem.getQuantity(), Integer::sum);
         }
+        return quantityByProductId;
+    }
 
-        // Step 4: Bulk update inventories (1 optimized operation)
-        inventoryApi.bulkUpdateInventories(inventoriesToUpdate);
-
-        // Step 5: Bulk insert order items (1 batched operation)
-        orderItemApi.insertAll(orderItems);
+    // Takes the order's quantities out of stockLeft, all or nothing
+    private static void allocateStock(Map<Integer, Integer> quantityByProductId, Map<Integer, Integer> stockLeft,
+                                      Map<Integer, Product> productMap) throws ApiException {
+        for (Map.Entry<Integer, Integer> entry : quantityByProductId.entrySet()) {
+            Integer available = stockLeft.get(entry.getKey());
+            if (available == null || available < entry.getValue()) {
+                throw new ApiException("Not enough stock is available for product " + productMap.get(entry.getKey()).getName());
+            }
+        }
+        quantityByProductId.forEach((productId, quantity) -> stockLeft.merge(productId, -quantity, Integer::sum));
     }
 }
@@ -9,10 +9,18 @@ import com.increff.pos.entity.Order;
 import com.increff.pos.entity.OrderItem;
 import com.increff.pos.entity.Product;
 import com.increff.pos.model.enums.OrderStatus;
+import com.increff.pos.retry.RetryOnOptimisticLock;
+import com.increff.pos.utils.OrderItemUtil;
+import com.increff.pos.utils.ProductUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 @Component
 @Transactional(rollbackFor = ApiException.class)
 public class OrderItemFlow {
@@ -43,6 +51,7 @@ public class OrderItemFlow {
         return orderItemApi.insert(orderItem);
     }
 
+    @RetryOnOptimisticLock
     public OrderItem update(OrderItem orderItem) throws ApiException{
         checkOrderIsMutable(orderItem.getOrderId());
 
@@ -62,6 +71,7 @@ public class OrderItemFlow {
         return orderItemApi.update(orderItem);
     }
 
+    @RetryOnOptimisticLock
     public void deleteById(Integer orderId,Integer itemId) throws ApiException{
         checkOrderIsMutable(orderId);
         OrderItem orderItem = orderItemApi.getCheckById(itemId);
@@ -72,6 +82,91 @@ public class OrderItemFlow {
         orderItemApi.deleteById(itemId,orderId);
     }
 
+    /**
+     * Replaces the order's items with the given list (one line per product) in one transaction.
+     * The diff against the current items is computed in memory: products are read with one
+     * multi-get, changed lines are updated, new ones batch-inserted, dropped ones batch-deleted,
+     * the total is recomputed once and the stock deltas are applied as two batched statements.
+     * @return the order's items after the edit.
+     */
+    @RetryOnOptimisticLock
+    public List<OrderItem> replaceItems(Integer orderId, List<OrderItem> orderItems) throws ApiException {
+        checkOrderIsMutable(orderId);
+        if (orderItems == null || orderItems.isEmpty()) {
+            throw new ApiException("Order must contain at least one item");
+        }
+
+        Map<Integer, OrderItem> desiredByProductId = new LinkedHashMap<>();
+        for (OrderItem orderItem : orderItems) {
+            if (desiredByProductId.put(orderItem.getProductId(), orderItem) != null) {
+                throw new ApiException("Product " + orderItem.getProductId() + " appears more than once in the order");
+            }
+        }
+        Map<Integer, Product> productMap = ProductUtil.mapById(productApi.getByIds(new ArrayList<>(desiredByProductId.keySet())));
+        for (OrderItem orderItem : orderItems) {
+            Product product = productMap.get(orderItem.getProductId());
+            if (product == null) {
+                throw new ApiException("Product doesn't exist with id " + orderItem.getProductId());
+            }
+            if (orderItem.getSellingPrice() > product.getMrp()) {
+                throw new ApiException("Selling price for product '" + product.getName() + "' cannot be greater than its MRP: " + product.getMrp());
+            }
+        }
+
+        // Positive: more of the product is taken from stock, negative: some is put back
+        Map<Integer, Integer> stockDeltaByProductId = new LinkedHashMap<>();
+        List<OrderItem> updatedItems = new ArrayList<>();
+        List<OrderItem> removedItems = new ArrayList<>();
+        for (OrderItem existingItem : orderItemApi.getAllByOrderId(orderId)) {
+            stockDeltaByProductId.merge(existingItem.getProductId(), -existingItem.getQuantity(), Integer::sum);
+            OrderItem desiredItem = desiredByProductId.remove(existingItem.getProductId());
+            if (desiredItem == null) {
+                removedItems.add(existingItem);
+                continue;
+            }
+            existingItem.setQuantity(desiredItem.getQuantity());
+            existingItem.setSellingPrice(desiredItem.getSellingPrice());
+            updatedItems.add(existingItem);
+        }
+        List<OrderItem> addedItems = new ArrayList<>(desiredByProductId.values());
+        for (OrderItem orderItem : addedItems) {
+            // A retried attempt gets the same objects: ids handed out by the rolled back insert were never written
+            orderItem.setId(null);
+            orderItem.setVersion(null);
+            orderItem.setOrderId(orderId);
+        }
+        for (OrderItem orderItem : orderItems) {
+            stockDeltaByProductId.merge(orderItem.getProductId(), orderItem.getQuantity(), Integer::sum);
+        }
+
+        // Changes to loaded rows first: insertAll may clear the persistence context
+        orderApi.updateTotalAmountById(orderId, OrderItemUtil.calculateTotalAmount(orderItems));
+        orderItemApi.deleteAll(removedItems);
+        orderItemApi.insertAll(addedItems);
+        applyStockDeltas(stockDeltaByProductId, productMap);
+
+        updatedItems.addAll(addedItems);
+        return updatedItems;
+    }
+
+    private void applyStockDeltas(Map<Integer, Integer> stockDeltaByProductId, Map<Integer, Product> productMap) throws ApiException {
+        Map<Integer, Integer> taken = new LinkedHashMap<>();
+        Map<Integer, Integer> returned = new LinkedHashMap<>();
+        stockDeltaByProductId.forEach((productId, delta) -> {
+            if (delta > 0) {
+                taken.put(productId, delta);
+            } else if (delta < 0) {
+                returned.put(productId, -delta);
+            }
+        });
+
+        inventoryApi.incrementQuantities(returned);
+        List<Integer> shortProductIds = inventoryApi.decrementQuantities(taken);
+        if (!shortProductIds.isEmpty()) {
+            throw new ApiException("Not enough stock is available for product " + productMap.get(shortProductIds.get(0)).getName());
+        }
+    }
+
     private void checkOrderIsMutable(Integer orderId) throws ApiException {
         Order order = orderApi.getCheckById(orderId);
         if (order.getOrderStatus() == OrderStatus.INVOICED || order.getOrderStatus() == OrderStatus.CANCELLED) {
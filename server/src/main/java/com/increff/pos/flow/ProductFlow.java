@@ -9,7 +9,10 @@ import com.increff.pos.entity.Inventory;
 import com.increff.pos.entity.Product;
 import com.increff.pos.model.data.ProductUploadRow;
 import com.increff.pos.model.result.ConversionResult;
+import com.increff.pos.model.result.ProductResult;
 import com.increff.pos.model.result.ProductUploadResult;
+import com.increff.pos.shard.ShardContext;
+import com.increff.pos.shard.ShardTemplate;
 import com.increff.pos.utils.ProductUtil;
 import com.increff.pos.utils.TsvUtil;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -31,8 +34,12 @@ public class ProductFlow {
     @Autowired
     private InventoryApi inventoryApi;
 
-    public Product insert(Product product) throws ApiException {
-        clientApi.getCheckById(product.getClientId());
+    @Autowired
+    private ShardTemplate shardTemplate;
+
+    // Returns the client and inventory as well, read in this write transaction (on the primary)
+    public ProductResult insert(Product product) throws ApiException {
+        Client client = clientApi.getCheckById(product.getClientId());
         Product insertedProduct = productApi.insert(product);
 
         Inventory inventory = new Inventory();
@@ -40,7 +47,15 @@ public class ProductFlow {
         inventory.setQuantity(0);
 
         inventoryApi.insert(inventory);
-        return insertedProduct;
+        return toResult(insertedProduct, client, inventory);
+    }
+
+    public ProductResult updateById(Integer id, Product product) throws ApiException {
+        Product updatedProduct = productApi.updateById(id, product);
+
+        Client client = clientApi.getCheckById(updatedProduct.getClientId());
+        Inventory inventory = inventoryApi.getCheckByProductId(updatedProduct.getId());
+        return toResult(updatedProduct, client, inventory);
     }
 
     public void deleteById(Integer id) throws ApiException{
@@ -63,14 +78,41 @@ public class ProductFlow {
         List<Product> products = productApi.getByBarcodes(new ArrayList<>(barcodesInFile));
         Set<String> existingBarcodesInDb = ProductUtil.getBarcodes(products,Product::getBarcode);
 
-        ProductUploadResult uploadResult = productApi.upload(candidateRows, clientMap, existingBarcodesInDb);
-
-        List<Product> newProducts = uploadResult.getSuccessfullyInserted();
-        if (!newProducts.isEmpty()) {
-            inventoryApi.initializeInventory(newProducts);
+        // Each client's products go to its shard; inventory rows are created chunk by chunk right
+        // after their products, from the assigned ids
+        ProductUploadResult uploadResult = new ProductUploadResult();
+        uploadResult.setSuccessfullyInserted(new ArrayList<>());
+        uploadResult.setFailedRows(new ArrayList<>());
+        for (Map.Entry<String, List<ProductUploadRow>> shardRows : groupByShard(candidateRows, clientMap).entrySet()) {
+            ProductUploadResult shardResult = shardTemplate.onShard(shardRows.getKey(), () -> productApi.upload(
+                    shardRows.getValue(), clientMap, existingBarcodesInDb, inventoryApi::initializeInventory));
+            uploadResult.getSuccessfullyInserted().addAll(shardResult.getSuccessfullyInserted());
+            uploadResult.getFailedRows().addAll(shardResult.getFailedRows());
         }
 
         return TsvUtil.createProductUploadReport(uploadResult, candidateRows, initialErrors);
     }
 
+    private static ProductResult toResult(Product product, Client client, Inventory inventory) {
+        ProductResult productResult = new ProductResult();
+        productResult.setProduct(product);
+        productResult.setClient(client);
+        productResult.setInventory(inventory);
+        return productResult;
+    }
+
+    // Rows by the shard of their client; unknown clients stay on the caller's shard and fail there.
+    // A barcode that repeats in the file keeps all its rows in one group, so they are rejected together.
+    private Map<String, List<ProductUploadRow>> groupByShard(List<ProductUploadRow> rows, Map<String, Client> clientMap) {
+        Map<String, List<ProductUploadRow>> rowsByShard = new LinkedHashMap<>();
+        Map<String, String> shardByBarcode = new HashMap<>();
+        for (ProductUploadRow row : rows) {
+            Client client = clientMap.get(row.getClientName().trim().toLowerCase());
+            String shard = shardByBarcode.computeIfAbsent(row.getBarcode().trim().toLowerCase(), barcode -> client == null
+                    ? ShardContext.current() : shardTemplate.getShardMap().shardOf(client.getId()));
+            rowsByShard.computeIfAbsent(shard, key -> new ArrayList<>()).add(row);
+        }
+        return rowsByShard;
+    }
+
 }
@@ -25,9 +25,10 @@ import java.time.ZonedDateTime;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 @Service
-@Transactional(rollbackFor = ApiException.class)
+@Transactional(readOnly = true, rollbackFor = ApiException.class)
 public class ReportFlow {
 
     private static final int LOW_STOCK_THRESHOLD = 10;
@@ -90,6 +91,20 @@ public class ReportFlow {
         return new InventoryReportData(summary, items);
     }
 
+    /**
+     * Streaming variant of getInventoryReport for large catalogues: the summary is computed in a
+     * first streamed pass and handed over before the items are streamed in a second pass. Both
+     * passes run in this transaction, so they read the same data.
+     */
+    public void streamInventoryReport(Consumer<InventoryReportData.InventorySummaryData> summaryConsumer,
+                                      Consumer<InventoryReportData.InventoryItemData> itemConsumer) {
+        ReportUtil.InventorySummaryAccumulator accumulator = new ReportUtil.InventorySummaryAccumulator(LOW_STOCK_THRESHOLD);
+        inventoryApi.forEachInventoryReportRow(result -> accumulator.add(ReportUtil.convert(result, LOW_STOCK_THRESHOLD)));
+        summaryConsumer.accept(accumulator.build());
+
+        inventoryApi.forEachInventoryReportRow(result -> itemConsumer.accept(ReportUtil.convert(result, LOW_STOCK_THRESHOLD)));
+    }
+
     private List<ProductSalesData> getTopSellingProducts(ZonedDateTime start,ZonedDateTime end,Integer threshold) throws ApiException {
         List<ProductQuantityResult> topProductStats = orderItemApi.getTopSellingProducts(start,end, threshold);
 
@@ -7,6 +7,7 @@ import com.increff.pos.model.data.PaginationData;
 import com.increff.pos.model.data.ProductData;
 import com.increff.pos.model.form.ProductForm;
 import com.increff.pos.model.result.PaginatedResult;
+import com.increff.pos.model.result.ProductListingResult;
 import org.mapstruct.Context;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
@@ -28,6 +29,11 @@ public interface ProductMapper {
                                         @Context Map<Integer, Client> clientMap,
                                         @Context Map<Integer, Inventory> inventoryMap);
 
+    @Mapping(source = "results", target = "content")
+    PaginationData<ProductData> convert(PaginatedResult<ProductListingResult> paginatedResult);
+
+    ProductData convert(ProductListingResult productListingResult);
+
     List<ProductData> convert(List<Product> products,
                               @Context Map<Integer, Client> clientMap,
                               @Context Map<Integer, Inventory> inventoryMap);
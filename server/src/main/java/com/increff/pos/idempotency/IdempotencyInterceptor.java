@@ -0,0 +1,81 @@
+package com.increff.pos.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.increff.pos.commons.exception.ApiException;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.servlet.http.HttpServletRequest;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Principal;
+import java.util.Base64;
+
+/**
+ * Applies {@link Idempotent} using the Idempotency-Key header of the current request.
+ * Ordered ahead of the transaction interceptor, so a response is only stored once it has committed.
+ * A key identifies the method, path and arguments (the parsed request body) it was first used with;
+ * reusing it with different ones is rejected instead of replaying the first response.
+ */
+public class IdempotencyInterceptor implements MethodInterceptor {
+
+    public static final String HEADER = "Idempotency-Key";
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyStore store;
+    // Sorted, so equal arguments always serialize to the same bytes
+    private final ObjectMapper argumentMapper;
+
+    public IdempotencyInterceptor(IdempotencyStore store, ObjectMapper objectMapper) {
+        this.store = store;
+        this.argumentMapper = objectMapper.copy()
+                .configure(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true)
+                .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Idempotent idempotent = AnnotatedElementUtils.findMergedAnnotation(invocation.getMethod(), Idempotent.class);
+        HttpServletRequest request = currentRequest();
+        String key = request == null ? null : request.getHeader(HEADER);
+        if (idempotent == null || key == null || key.trim().isEmpty()) {
+            return invocation.proceed();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new ApiException(HEADER + " cannot be longer than " + MAX_KEY_LENGTH + " characters");
+        }
+
+        // Keys are only unique per client, so two users sending the same key never share a response
+        String scopedKey = currentUser(request) + "|" + idempotent.value() + "|" + key.trim();
+        String fingerprint = request.getMethod() + " " + request.getRequestURI()
+                + " (arguments " + hashArguments(invocation.getArguments()) + ")";
+        return store.execute(scopedKey, fingerprint, invocation::proceed);
+    }
+
+    private String hashArguments(Object[] arguments) throws JsonProcessingException, NoSuchAlgorithmException {
+        byte[] json = argumentMapper.writeValueAsString(arguments).getBytes(StandardCharsets.UTF_8);
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest(json);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+    }
+
+    private static HttpServletRequest currentRequest() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes) {
+            return ((ServletRequestAttributes) attributes).getRequest();
+        }
+        return null;
+    }
+
+    private static String currentUser(HttpServletRequest request) {
+        Principal principal = request.getUserPrincipal();
+        return principal == null ? "" : principal.getName();
+    }
+}
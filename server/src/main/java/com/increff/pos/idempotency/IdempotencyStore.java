@@ -0,0 +1,143 @@
+package com.increff.pos.idempotency;
+
+import com.increff.pos.commons.exception.ApiException;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory store of idempotent responses, bounded by entry count and expiring each completed
+ * response ttl after it completed. Calls still in flight are never evicted. Per JVM: behind a load
+ * balancer a retry only hits the store if it lands on the same instance.
+ */
+public class IdempotencyStore {
+
+    /**
+     * The call being made idempotent; may throw whatever the intercepted method throws.
+     */
+    public interface Call {
+        Object proceed() throws Throwable;
+    }
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final long waitMillis;
+
+    // Insertion order, so the oldest responses are the first to expire or be evicted
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    private final AtomicLong replays = new AtomicLong();
+
+    /**
+     * @param maxEntries Upper bound of stored responses.
+     * @param ttlMillis  How long a completed response is replayed.
+     * @param waitMillis How long a duplicate waits for the original before giving up.
+     */
+    public IdempotencyStore(int maxEntries, long ttlMillis, long waitMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.waitMillis = waitMillis;
+    }
+
+    /**
+     * Runs the call once per key and replays its result to every later call with the same key.
+     * @param key         The scoped idempotency key.
+     * @param fingerprint What the key was used for (e.g. "POST /invoices/12"); a key reused for
+     *                    anything else is rejected instead of replaying an unrelated response.
+     */
+    public Object execute(String key, String fingerprint, Call call) throws Throwable {
+        Entry entry;
+        boolean original = false;
+        synchronized (entries) {
+            long now = System.currentTimeMillis();
+            purge(now);
+            entry = entries.get(key);
+            if (entry == null) {
+                entry = new Entry(fingerprint);
+                entries.put(key, entry);
+                original = true;
+            }
+        }
+
+        if (!entry.fingerprint.equals(fingerprint)) {
+            throw new ApiException("Idempotency-Key was already used for " + entry.fingerprint);
+        }
+        if (!original) {
+            replays.incrementAndGet();
+            return await(entry);
+        }
+
+        try {
+            Object result = call.proceed();
+            synchronized (entries) {
+                entry.expiresAt = System.currentTimeMillis() + ttlMillis;
+            }
+            entry.response.complete(result);
+            return result;
+        } catch (Throwable t) {
+            // Forget failures, so the client can retry them with the same key
+            synchronized (entries) {
+                entries.remove(key, entry);
+            }
+            entry.response.completeExceptionally(t);
+            throw t;
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getReplays() {
+        return replays.get();
+    }
+
+    // Drops expired responses, then the oldest completed ones beyond maxEntries
+    private void purge(long now) {
+        int excess = entries.size() - maxEntries + 1;
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.expiresAt == Long.MAX_VALUE) {
+                continue;
+            }
+            if (entry.expiresAt <= now || excess > 0) {
+                iterator.remove();
+                excess--;
+            } else {
+                break;
+            }
+        }
+    }
+
+    private Object await(Entry entry) throws Throwable {
+        try {
+            return entry.response.get(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ApiException("Interrupted while waiting for the original request with this Idempotency-Key");
+        } catch (TimeoutException e) {
+            throw new ApiException("The original request with this Idempotency-Key is still in progress; retry later");
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static class Entry {
+        private final String fingerprint;
+        private final CompletableFuture<Object> response = new CompletableFuture<>();
+        // Set once the response is in; in-flight entries never expire
+        private long expiresAt = Long.MAX_VALUE;
+
+        private Entry(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.increff.pos.idempotency;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Makes the annotated endpoint method honour an Idempotency-Key request header: a repeated key
+ * gets the response of the first call instead of running it again, and a duplicate that arrives
+ * while the first call is still running waits for it. Calls without the header run as usual.
+ *
+ * Only successful responses are kept; a failed call can be retried with the same key. Annotate the
+ * outermost method (a Dto method), so the response is only kept once its transaction has committed.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Idempotent {
+
+    /** Namespace of the keys, so the same key on two endpoints never collides. */
+    String value();
+}
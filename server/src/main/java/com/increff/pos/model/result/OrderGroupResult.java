@@ -0,0 +1,17 @@
+package com.increff.pos.model.result;
+
+import com.increff.pos.commons.exception.ApiException;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Outcome of one order in a group commit: the inserted order, or the error it was rejected with.
+ */
+@Getter
+@Setter
+public class OrderGroupResult {
+
+    private OrderResult orderResult;
+    private ApiException error;
+
+}
@@ -12,5 +12,6 @@ public class PaginatedResult<T> {
     private List<T> results;
     private Integer totalPages;
     private Long totalElements;
+    private String nextCursor;
 
 }
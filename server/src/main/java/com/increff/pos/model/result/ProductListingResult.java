@@ -0,0 +1,22 @@
+package com.increff.pos.model.result;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * One row of the product listing: the product joined with its client name and
+ * stock level, built directly by the DAO constructor expression.
+ */
+@Getter
+@AllArgsConstructor
+public class ProductListingResult {
+    private final Integer id;
+    private final String barcode;
+    private final String name;
+    private final String category;
+    private final Double mrp;
+    private final String imageUrl;
+    private final Integer clientId;
+    private final String clientName;
+    private final Integer quantity;
+}
@@ -0,0 +1,17 @@
+package com.increff.pos.model.result;
+
+import com.increff.pos.entity.Client;
+import com.increff.pos.entity.Inventory;
+import com.increff.pos.entity.Product;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class ProductResult {
+
+    private Product product;
+    private Client client;
+    private Inventory inventory;
+
+}
@@ -0,0 +1,123 @@
+package com.increff.pos.retry;
+
+import com.increff.pos.commons.exception.ApiException;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hibernate.StaleStateException;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.OptimisticLockException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Retries methods annotated with {@link RetryOnOptimisticLock}.
+ * Ordered ahead of the transaction interceptor, so every attempt runs (and commits) in its own transaction.
+ * Each attempt proceeds on a clone of the invocation: proceeding twice on the same one would skip the
+ * interceptors after this one (the transaction interceptor included) from the second attempt on.
+ */
+public class OptimisticLockRetryInterceptor implements MethodInterceptor {
+
+    private static final Log logger = LogFactory.getLog(OptimisticLockRetryInterceptor.class);
+
+    private final Map<String, RetryStats> statsByMethod = new ConcurrentHashMap<>();
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Method method = invocation.getMethod();
+        RetryOnOptimisticLock retry = AnnotatedElementUtils.findMergedAnnotation(method, RetryOnOptimisticLock.class);
+
+        // Joining a caller's transaction: a retry here would reuse the poisoned persistence context
+        if (retry == null || TransactionSynchronizationManager.isActualTransactionActive()
+                || !(invocation instanceof ProxyMethodInvocation)) {
+            return invocation.proceed();
+        }
+
+        String methodName = method.getDeclaringClass().getSimpleName() + "." + method.getName();
+        RetryStats stats = statsByMethod.computeIfAbsent(methodName, key -> new RetryStats());
+        stats.recordInvocation();
+
+        int maxAttempts = Math.max(1, retry.maxAttempts());
+        for (int attempt = 1; ; attempt++) {
+            try {
+                Object result = ((ProxyMethodInvocation) invocation).invocableClone().proceed();
+                if (attempt > 1) {
+                    stats.recordRecovered();
+                }
+                return result;
+            } catch (Throwable t) {
+                if (!isOptimisticLockFailure(t)) {
+                    throw t;
+                }
+                if (attempt >= maxAttempts) {
+                    stats.recordExhausted();
+                    logger.warn(methodName + " still hit an optimistic lock conflict after " + attempt + " attempts");
+                    throw translate(method, t);
+                }
+
+                stats.recordRetry();
+                long backoff = computeBackoff(retry, attempt);
+                if (logger.isDebugEnabled()) {
+                    logger.debug(methodName + " hit an optimistic lock conflict on attempt " + attempt + ", retrying in " + backoff + " ms");
+                }
+                sleep(backoff, t);
+            }
+        }
+    }
+
+    public Map<String, RetryStats> getStats() {
+        return Collections.unmodifiableMap(statsByMethod);
+    }
+
+    static boolean isOptimisticLockFailure(Throwable t) {
+        // Flush-time failures arrive as JPA/Hibernate exceptions, commit-time ones translated by Spring
+        for (Throwable cause = t; cause != null; cause = cause.getCause()) {
+            if (cause instanceof OptimisticLockException
+                    || cause instanceof StaleStateException
+                    || cause instanceof OptimisticLockingFailureException) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    // Exponential backoff with "equal jitter": half fixed, half random, so colliding callers spread out
+    static long computeBackoff(RetryOnOptimisticLock retry, int attempt) {
+        long exponential = retry.backoffMillis() << Math.min(attempt - 1, 20);
+        long capped = Math.max(0, Math.min(exponential, retry.maxBackoffMillis()));
+        long half = capped / 2;
+        return half + ThreadLocalRandom.current().nextLong(half + 1);
+    }
+
+    private static void sleep(long millis, Throwable original) throws Throwable {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw original;
+        }
+    }
+
+    // Give the cashier a readable message instead of a 500 when the method can report one
+    private static Throwable translate(Method method, Throwable t) {
+        if (Arrays.asList(method.getExceptionTypes()).contains(ApiException.class)) {
+            return new ApiException("This record was changed by another user at the same time, please try again");
+        }
+        return t;
+    }
+}
@@ -0,0 +1,31 @@
+package com.increff.pos.retry;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Re-runs the annotated method in a fresh transaction when it fails because another
+ * transaction changed a row it wrote (BaseEntity.version mismatch).
+ *
+ * The method must be safe to run again with the same arguments, i.e. it should load what
+ * it changes instead of persisting caller-supplied new entities. Retries only happen when
+ * the call starts its own transaction; inside an outer transaction the failure propagates
+ * so the outermost annotated method can retry the whole unit of work.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface RetryOnOptimisticLock {
+
+    /** Total attempts, including the first one. */
+    int maxAttempts() default 3;
+
+    /** Backoff before the first retry; doubled for every further retry. */
+    long backoffMillis() default 20;
+
+    /** Upper bound for a single backoff. */
+    long maxBackoffMillis() default 200;
+}
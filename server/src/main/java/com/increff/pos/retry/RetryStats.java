@@ -0,0 +1,46 @@
+package com.increff.pos.retry;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters for a single @RetryOnOptimisticLock method.
+ */
+public class RetryStats {
+
+    private final AtomicLong invocations = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong recovered = new AtomicLong();
+    private final AtomicLong exhausted = new AtomicLong();
+
+    void recordInvocation() {
+        invocations.incrementAndGet();
+    }
+
+    void recordRetry() {
+        retries.incrementAndGet();
+    }
+
+    void recordRecovered() {
+        recovered.incrementAndGet();
+    }
+
+    void recordExhausted() {
+        exhausted.incrementAndGet();
+    }
+
+    public long getInvocations() {
+        return invocations.get();
+    }
+
+    public long getRetries() {
+        return retries.get();
+    }
+
+    public long getRecovered() {
+        return recovered.get();
+    }
+
+    public long getExhausted() {
+        return exhausted.get();
+    }
+}
@@ -0,0 +1,60 @@
+package com.increff.pos.service;
+
+import com.increff.pos.api.OrderArchiveApi;
+import com.increff.pos.commons.exception.ApiException;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Nightly job that moves invoiced and cancelled orders older than order.archive.after_days into the
+ * archive tables. Every batch is its own short transaction, with a pause in between so the job
+ * does not hold locks or saturate replication while the shop is open.
+ */
+@Component
+public class OrderArchiveScheduler {
+
+    private static final Log LOG = LogFactory.getLog(OrderArchiveScheduler.class);
+
+    @Autowired
+    private OrderArchiveApi orderArchiveApi;
+
+    @Value("${order.archive.batch_size:500}")
+    private int batchSize;
+
+    @Value("${order.archive.pause_ms:200}")
+    private long pauseMillis;
+
+    @Value("${order.archive.max_batches_per_run:2000}")
+    private int maxBatchesPerRun;
+
+    @Scheduled(cron = "${order.archive.cron:0 30 2 * * *}")
+    public void archiveOldOrders() {
+        if (!orderArchiveApi.isEnabled()) {
+            return;
+        }
+        ZonedDateTime cutoff = orderArchiveApi.getCutoff();
+        int total = 0;
+        try {
+            for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+                int archived = orderArchiveApi.archiveBatch(cutoff, batchSize);
+                total += archived;
+                if (archived < batchSize) {
+                    break;
+                }
+                Thread.sleep(pauseMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ApiException | RuntimeException e) {
+            LOG.error("Order archival stopped after " + total + " orders", e);
+            return;
+        }
+        LOG.info("Archived " + total + " orders created before " + cutoff);
+    }
+}
@@ -0,0 +1,66 @@
+package com.increff.pos.service;
+
+import com.increff.pos.commons.exception.ApiException;
+import com.increff.pos.flow.OrderFlow;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.ZonedDateTime;
+
+/**
+ * End-of-day job that cancels orders left CREATED for more than order.cleanup.abandoned_after_hours
+ * and puts their items back in stock. Every batch is its own transaction (one status UPDATE and one
+ * batched restock), with a pause in between so checkouts are not starved of the inventory rows.
+ */
+@Component
+public class OrderCleanupScheduler {
+
+    private static final Log LOG = LogFactory.getLog(OrderCleanupScheduler.class);
+
+    @Autowired
+    private OrderFlow orderFlow;
+
+    @Value("${order.cleanup.enabled:false}")
+    private boolean enabled;
+
+    @Value("${order.cleanup.abandoned_after_hours:24}")
+    private long abandonedAfterHours;
+
+    @Value("${order.cleanup.batch_size:200}")
+    private int batchSize;
+
+    @Value("${order.cleanup.pause_ms:200}")
+    private long pauseMillis;
+
+    @Value("${order.cleanup.max_batches_per_run:1000}")
+    private int maxBatchesPerRun;
+
+    @Scheduled(cron = "${order.cleanup.cron:0 0 23 * * *}")
+    public void cancelAbandonedOrders() {
+        if (!enabled) {
+            return;
+        }
+        ZonedDateTime cutoff = ZonedDateTime.now().minusHours(abandonedAfterHours);
+        int total = 0;
+        try {
+            for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+                int cancelled = orderFlow.cancelAbandoned(cutoff, batchSize);
+                total += cancelled;
+                if (cancelled < batchSize) {
+                    break;
+                }
+                Thread.sleep(pauseMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ApiException | RuntimeException e) {
+            LOG.error("Order cleanup stopped after " + total + " orders", e);
+            return;
+        }
+        LOG.info("Cancelled " + total + " orders left CREATED since before " + cutoff);
+    }
+}
@@ -0,0 +1,233 @@
+package com.increff.pos.service;
+
+import com.increff.pos.commons.exception.ApiException;
+import com.increff.pos.entity.Order;
+import com.increff.pos.entity.OrderItem;
+import com.increff.pos.flow.OrderFlow;
+import com.increff.pos.model.result.OrderGroupResult;
+import com.increff.pos.model.result.OrderResult;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Group commit for checkout. With order.group_commit.enabled, orders that arrive within
+ * max_wait_ms of each other (up to max_batch_size) are inserted by one OrderFlow.insertGroup
+ * transaction instead of one transaction each: one product read, one locked inventory read, one
+ * batched decrement and one commit per group. Every caller still gets its own order or error.
+ *
+ * A group that fails as a whole (e.g. a constraint violation, which leaves the JPA transaction
+ * rollback-only) is retried order by order through OrderFlow.insert, so only the failing order fails.
+ * Groups are committed one at a time by a single worker; the next group fills up meanwhile.
+ *
+ * A caller waits at most await_timeout_ms for its group. Anything a group throws beyond the
+ * per-order fallback fails that group's orders, and the worker moves on to the next group.
+ */
+@Component
+public class OrderGroupCommitter implements InitializingBean, DisposableBean {
+
+    private static final Log LOG = LogFactory.getLog(OrderGroupCommitter.class);
+
+    @Autowired
+    private OrderFlow orderFlow;
+
+    @Value("${order.group_commit.enabled:false}")
+    private boolean enabled;
+
+    @Value("${order.group_commit.max_batch_size:32}")
+    private int maxBatchSize = 32;
+
+    @Value("${order.group_commit.max_wait_ms:5}")
+    private long maxWaitMillis = 5;
+
+    @Value("${order.group_commit.await_timeout_ms:30000}")
+    private long awaitTimeoutMillis = 30000;
+
+    private final BlockingQueue<PendingOrder> queue = new LinkedBlockingQueue<>();
+    private final AtomicLong groups = new AtomicLong();
+    private final AtomicLong orders = new AtomicLong();
+    private final AtomicLong fallbackGroups = new AtomicLong();
+    private Thread worker;
+
+    @Override
+    public void afterPropertiesSet() {
+        if (!enabled) {
+            return;
+        }
+        worker = new Thread(this::run, "order-group-commit");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        if (worker != null) {
+            worker.interrupt();
+            worker.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    /**
+     * Inserts the order, in a group with concurrent orders when group commit is enabled, and
+     * returns once its transaction has committed.
+     */
+    public OrderResult insert(Order order, List<OrderItem> orderItems) throws ApiException {
+        if (!enabled) {
+            return orderFlow.insert(order, orderItems);
+        }
+        PendingOrder pendingOrder = new PendingOrder(order, orderItems);
+        queue.add(pendingOrder);
+        try {
+            return pendingOrder.await(awaitTimeoutMillis);
+        } catch (TimeoutException e) {
+            // Still queued: withdrawn, so it is never placed. Otherwise its group is already committing
+            if (queue.remove(pendingOrder)) {
+                throw new ApiException("Order was not placed: timed out waiting for a commit group");
+            }
+            throw new ApiException("Timed out waiting for the order to be placed; check the order list before retrying");
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getGroups() {
+        return groups.get();
+    }
+
+    public long getOrders() {
+        return orders.get();
+    }
+
+    public long getFallbackGroups() {
+        return fallbackGroups.get();
+    }
+
+    private void run() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                List<PendingOrder> group = nextGroup();
+                try {
+                    commit(group);
+                } catch (Throwable t) {
+                    // Must not end the worker: every later order would wait for a group that never commits
+                    LOG.error("Group of " + group.size() + " orders could not be placed", t);
+                    group.forEach(pendingOrder -> pendingOrder.future.completeExceptionally(
+                            new ApiException("Order could not be placed")));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<PendingOrder> abandoned = new ArrayList<>();
+        queue.drainTo(abandoned);
+        abandoned.forEach(pendingOrder -> pendingOrder.future.completeExceptionally(
+                new ApiException("Order was not placed: the server is shutting down")));
+    }
+
+    // Blocks for the first order, then collects until the group is full or max_wait_ms has passed
+    private List<PendingOrder> nextGroup() throws InterruptedException {
+        List<PendingOrder> group = new ArrayList<>(maxBatchSize);
+        group.add(queue.take());
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        while (group.size() < maxBatchSize) {
+            queue.drainTo(group, maxBatchSize - group.size());
+            long remaining = deadline - System.nanoTime();
+            if (group.size() >= maxBatchSize || remaining <= 0) {
+                break;
+            }
+            PendingOrder next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            group.add(next);
+        }
+        return group;
+    }
+
+    private void commit(List<PendingOrder> group) {
+        groups.incrementAndGet();
+        orders.addAndGet(group.size());
+
+        List<OrderResult> pendingOrders = new ArrayList<>(group.size());
+        group.forEach(pendingOrder -> pendingOrders.add(pendingOrder.orderResult));
+        try {
+            List<OrderGroupResult> results = orderFlow.insertGroup(pendingOrders);
+            for (int i = 0; i < group.size(); i++) {
+                OrderGroupResult result = results.get(i);
+                if (result.getError() == null) {
+                    group.get(i).future.complete(result.getOrderResult());
+                } else {
+                    group.get(i).future.completeExceptionally(result.getError());
+                }
+            }
+        } catch (ApiException | RuntimeException e) {
+            fallbackGroups.incrementAndGet();
+            LOG.warn("Group of " + group.size() + " orders failed as a whole; placing them one by one", e);
+            group.forEach(this::commitAlone);
+        }
+    }
+
+    private void commitAlone(PendingOrder pendingOrder) {
+        // Ids handed out in the rolled back group transaction were never written
+        Order order = pendingOrder.orderResult.getOrder();
+        order.setId(null);
+        order.setVersion(null);
+        if (pendingOrder.orderResult.getOrderItems() != null) {
+            for (OrderItem orderItem : pendingOrder.orderResult.getOrderItems()) {
+                orderItem.setId(null);
+                orderItem.setOrderId(null);
+                orderItem.setVersion(null);
+            }
+        }
+        try {
+            pendingOrder.future.complete(orderFlow.insert(order, pendingOrder.orderResult.getOrderItems()));
+        } catch (ApiException | RuntimeException e) {
+            pendingOrder.future.completeExceptionally(e);
+        }
+    }
+
+    private static class PendingOrder {
+
+        private final OrderResult orderResult = new OrderResult();
+        private final CompletableFuture<OrderResult> future = new CompletableFuture<>();
+
+        private PendingOrder(Order order, List<OrderItem> orderItems) {
+            orderResult.setOrder(order);
+            orderResult.setOrderItems(orderItems);
+        }
+
+        // An interrupted caller stops waiting, but its order may still be committed with the group
+        private OrderResult await(long timeoutMillis) throws ApiException, TimeoutException {
+            try {
+                return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ApiException("Interrupted while waiting for the order to be placed");
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof ApiException) {
+                    throw (ApiException) e.getCause();
+                }
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+    }
+}
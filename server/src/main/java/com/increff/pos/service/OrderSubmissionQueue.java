@@ -0,0 +1,238 @@
+package com.increff.pos.service;
+
+import com.increff.pos.commons.exception.ApiException;
+import com.increff.pos.commons.exception.QueueFullException;
+import com.increff.pos.entity.Order;
+import com.increff.pos.entity.OrderItem;
+import com.increff.pos.model.data.OrderQueueStatsData;
+import com.increff.pos.model.data.OrderSubmissionData;
+import com.increff.pos.model.enums.OrderSubmissionStatus;
+import com.increff.pos.model.result.OrderResult;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Asynchronous checkout. A submitted order is queued and placed later by a worker through
+ * OrderGroupCommitter, so it still joins a commit group when group commit is enabled; the caller
+ * gets a token and polls its status. Tokens are random 256-bit values, and a status is only returned
+ * to the user who submitted the order.
+ *
+ * Each terminal is pinned to one of order.async.workers lanes, and every lane has its own bounded
+ * queue drained by a single thread, so orders of one terminal are placed in submission order.
+ * A full lane rejects the submission with a QueueFullException instead of buffering without bound.
+ * Statuses of finished submissions are kept for order.async.status_ttl_minutes.
+ */
+@Component
+public class OrderSubmissionQueue implements InitializingBean, DisposableBean {
+
+    private static final Log LOG = LogFactory.getLog(OrderSubmissionQueue.class);
+    private static final SecureRandom TOKEN_RANDOM = new SecureRandom();
+
+    @Autowired
+    private OrderGroupCommitter orderGroupCommitter;
+
+    @Value("${order.async.workers:4}")
+    private int workers = 4;
+
+    // Per lane
+    @Value("${order.async.queue_capacity:250}")
+    private int queueCapacity = 250;
+
+    @Value("${order.async.status_ttl_minutes:60}")
+    private long statusTtlMinutes = 60;
+
+    private final Map<String, Submission> submissions = new ConcurrentHashMap<>();
+    // Finished submissions in completion order, so expired statuses are purged from the head
+    private final Queue<Submission> finished = new ConcurrentLinkedQueue<>();
+    private final List<BlockingQueue<Submission>> lanes = new ArrayList<>();
+    private final List<Thread> threads = new ArrayList<>();
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong placed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong dequeued = new AtomicLong();
+    private final AtomicLong totalQueueNanos = new AtomicLong();
+    private final AtomicLong maxQueueNanos = new AtomicLong();
+
+    @Override
+    public void afterPropertiesSet() {
+        for (int i = 0; i < Math.max(1, workers); i++) {
+            BlockingQueue<Submission> lane = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+            Thread thread = new Thread(() -> run(lane), "order-submission-" + i);
+            thread.setDaemon(true);
+            lanes.add(lane);
+            threads.add(thread);
+            thread.start();
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        for (Thread thread : threads) {
+            thread.interrupt();
+        }
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    /**
+     * Queues the order and returns its QUEUED status without waiting for it to be placed.
+     * @param owner    The submitting user; only they can poll the status.
+     * @param terminal Orders with the same terminal are placed in the order they were submitted.
+     */
+    public OrderSubmissionData submit(String owner, String terminal, Order order, List<OrderItem> orderItems) throws QueueFullException {
+        purgeExpired();
+        Submission submission = new Submission(owner, order, orderItems);
+        BlockingQueue<Submission> lane = lanes.get(Math.floorMod(String.valueOf(terminal).hashCode(), lanes.size()));
+
+        // Registered first, so a worker that picks it up immediately finds it
+        submissions.put(submission.data.getToken(), submission);
+        if (!lane.offer(submission)) {
+            submissions.remove(submission.data.getToken());
+            rejected.incrementAndGet();
+            throw new QueueFullException("Too many orders are waiting to be placed; retry shortly");
+        }
+        submitted.incrementAndGet();
+        return submission.snapshot();
+    }
+
+    /**
+     * @return The current status, or null if the token is unknown, belongs to another user or its
+     * status has expired.
+     */
+    public OrderSubmissionData get(String token, String owner) {
+        Submission submission = submissions.get(token);
+        // Someone else's token looks the same as an unknown one
+        if (submission == null || !Objects.equals(submission.owner, owner)) {
+            return null;
+        }
+        return submission.snapshot();
+    }
+
+    public OrderQueueStatsData getStats() {
+        int depth = 0;
+        for (BlockingQueue<Submission> lane : lanes) {
+            depth += lane.size();
+        }
+        long count = dequeued.get();
+        return new OrderQueueStatsData(depth, lanes.size() * queueCapacity, submitted.get(), rejected.get(),
+                placed.get(), failed.get(),
+                count == 0 ? 0 : totalQueueNanos.get() / 1_000_000.0 / count,
+                maxQueueNanos.get() / 1_000_000.0);
+    }
+
+    private void run(BlockingQueue<Submission> lane) {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                place(lane.take());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<Submission> abandoned = new ArrayList<>();
+        lane.drainTo(abandoned);
+        abandoned.forEach(submission -> finish(submission, null, "Order was not placed: the server is shutting down"));
+    }
+
+    private void place(Submission submission) {
+        long queueNanos = System.nanoTime() - submission.queuedAtNanos;
+        dequeued.incrementAndGet();
+        totalQueueNanos.addAndGet(queueNanos);
+        maxQueueNanos.accumulateAndGet(queueNanos, Math::max);
+
+        submission.setStatus(OrderSubmissionStatus.PROCESSING);
+        try {
+            OrderResult orderResult = orderGroupCommitter.insert(submission.order, submission.orderItems);
+            finish(submission, orderResult.getOrder().getId(), null);
+        } catch (ApiException e) {
+            finish(submission, null, e.getMessage());
+        } catch (Throwable t) {
+            // Errors included: ending the lane's thread would leave every later order on it QUEUED for good
+            LOG.error("Failed to place queued order " + submission.data.getToken(), t);
+            finish(submission, null, "Order could not be placed");
+        }
+    }
+
+    private void finish(Submission submission, Integer orderId, String error) {
+        synchronized (submission) {
+            submission.data.setOrderId(orderId);
+            submission.data.setError(error);
+            submission.data.setStatus(error == null ? OrderSubmissionStatus.PLACED : OrderSubmissionStatus.FAILED);
+        }
+        (error == null ? placed : failed).incrementAndGet();
+        submission.finishedAtNanos = System.nanoTime();
+        finished.add(submission);
+    }
+
+    private void purgeExpired() {
+        long cutoff = System.nanoTime() - TimeUnit.MINUTES.toNanos(statusTtlMinutes);
+        Submission head;
+        while ((head = finished.peek()) != null && head.finishedAtNanos - cutoff < 0) {
+            if (finished.remove(head)) {
+                submissions.remove(head.data.getToken());
+            }
+        }
+    }
+
+    private static String newToken() {
+        byte[] bytes = new byte[32];
+        TOKEN_RANDOM.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static class Submission {
+
+        private final String owner;
+        private final Order order;
+        private final List<OrderItem> orderItems;
+        private final OrderSubmissionData data = new OrderSubmissionData();
+        private final long queuedAtNanos = System.nanoTime();
+        private volatile long finishedAtNanos;
+
+        private Submission(String owner, Order order, List<OrderItem> orderItems) {
+            this.owner = owner;
+            this.order = order;
+            this.orderItems = orderItems;
+            data.setToken(newToken());
+            data.setStatus(OrderSubmissionStatus.QUEUED);
+            data.setSubmittedAt(ZonedDateTime.now());
+        }
+
+        private synchronized void setStatus(OrderSubmissionStatus status) {
+            data.setStatus(status);
+        }
+
+        // A copy, so callers never see a half-updated status
+        private synchronized OrderSubmissionData snapshot() {
+            OrderSubmissionData copy = new OrderSubmissionData();
+            copy.setToken(data.getToken());
+            copy.setStatus(data.getStatus());
+            copy.setSubmittedAt(data.getSubmittedAt());
+            copy.setOrderId(data.getOrderId());
+            copy.setError(data.getError());
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.increff.pos.service;
+
+import com.increff.pos.api.ProductApi;
+import com.increff.pos.shard.ShardContext;
+import com.increff.pos.shard.ShardMap;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * Builds the product_listings read model on the first start against a database that has products
+ * but no listing rows yet (checked per shard). From then on the APIs keep it in step on every write.
+ */
+@Component
+public class ProductListingInitializer implements ApplicationListener<ContextRefreshedEvent> {
+
+    private static final Log LOG = LogFactory.getLog(ProductListingInitializer.class);
+
+    @Autowired
+    private ProductApi productApi;
+
+    @Autowired
+    private ShardMap shardMap;
+
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        for (String shard : shardMap.getShards()) {
+            try {
+                ShardContext.runOn(shard, productApi::rebuildListingsIfMissing);
+            } catch (RuntimeException e) {
+                LOG.error("Could not build the product listing read model on shard " + shard
+                        + "; rebuild it with POST /ops/product-listings/rebuild", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.increff.pos.shard;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+
+/**
+ * Keeps the mapping metadata Hibernate builds for the single EntityManagerFactory, so
+ * ShardInitializer can run the schema tooling against the shards hbm2ddl does not see.
+ */
+public class MetadataCaptureIntegrator implements Integrator {
+
+    private volatile Metadata metadata;
+
+    @Override
+    public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+        this.metadata = metadata;
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+        this.metadata = null;
+    }
+
+    public Metadata getMetadata() {
+        return metadata;
+    }
+}
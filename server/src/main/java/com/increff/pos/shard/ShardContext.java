@@ -0,0 +1,55 @@
+package com.increff.pos.shard;
+
+import java.util.function.Supplier;
+
+/**
+ * The shard the current thread talks to. ShardRoutingDataSource reads it when a connection is
+ * fetched, so it has to be bound before a transaction issues its first statement.
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    public static String current() {
+        String shard = CURRENT.get();
+        return shard == null ? ShardMap.HOME : shard;
+    }
+
+    /**
+     * Binds the shard and returns the previously bound one, to be handed back to {@link #restore}.
+     */
+    public static String bind(String shard) {
+        String previous = CURRENT.get();
+        CURRENT.set(shard);
+        return previous;
+    }
+
+    public static void restore(String previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    public static <T> T callOn(String shard, Supplier<T> work) {
+        String previous = bind(shard);
+        try {
+            return work.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    public static void runOn(String shard, Runnable work) {
+        String previous = bind(shard);
+        try {
+            work.run();
+        } finally {
+            restore(previous);
+        }
+    }
+}
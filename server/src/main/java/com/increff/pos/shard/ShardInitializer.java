@@ -0,0 +1,212 @@
+package com.increff.pos.shard;
+
+import com.increff.pos.entity.ArchivedOrder;
+import com.increff.pos.entity.ArchivedOrderItem;
+import com.increff.pos.entity.Order;
+import com.increff.pos.entity.OrderItem;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.enhanced.DatabaseStructure;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.TableStructure;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.tool.hbm2ddl.SchemaExport;
+import org.hibernate.tool.hbm2ddl.SchemaUpdate;
+import org.hibernate.tool.schema.TargetType;
+import org.springframework.beans.factory.InitializingBean;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prepares the shards at startup.
+ *
+ * Schema: hbm2ddl only runs against the connection the EntityManagerFactory starts with (home), so
+ * the same action (create/create-drop/update) is applied to every other shard here. With
+ * validate/none the shard schemas are left to migrations, as for home.
+ *
+ * Ids: all shards share one EntityManagerFactory, so each generator's pooled optimizer hands out
+ * blocks read from whichever shard's sequence it happens to hit. Ids stay unique across shards
+ * because shard n's sequences are moved to start at n * idBlockSize (never moved back).
+ *
+ * Every shard, home included and also when unsharded, then has its sequences moved past the largest id
+ * already in the tables they feed. Without that, a sequence table that hbm2ddl creates next to existing
+ * rows (written with the old identity ids) starts at 1, and new inserts collide with those rows.
+ */
+public class ShardInitializer implements InitializingBean {
+
+    private static final Log LOG = LogFactory.getLog(ShardInitializer.class);
+
+    // Archive tables keep the ids of the rows they were copied from, so they count towards that sequence
+    private static final Map<Class<?>, Class<?>> IDS_TAKEN_FROM = new HashMap<>();
+    static {
+        IDS_TAKEN_FROM.put(ArchivedOrder.class, Order.class);
+        IDS_TAKEN_FROM.put(ArchivedOrderItem.class, OrderItem.class);
+    }
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final MetadataCaptureIntegrator metadataCapture;
+    private final ShardRoutingDataSource shardRoutingDataSource;
+    private final ShardMap shardMap;
+    private final String hbm2ddlAuto;
+    private final long idBlockSize;
+
+    public ShardInitializer(EntityManagerFactory entityManagerFactory, MetadataCaptureIntegrator metadataCapture,
+                            ShardRoutingDataSource shardRoutingDataSource, ShardMap shardMap,
+                            String hbm2ddlAuto, long idBlockSize) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.metadataCapture = metadataCapture;
+        this.shardRoutingDataSource = shardRoutingDataSource;
+        this.shardMap = shardMap;
+        this.hbm2ddlAuto = hbm2ddlAuto == null ? "none" : hbm2ddlAuto.trim();
+        this.idBlockSize = idBlockSize;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws SQLException {
+        if (shardMap.isSharded() && shardMap.getShards().size() * idBlockSize > Integer.MAX_VALUE) {
+            throw new IllegalStateException(shardMap.getShards().size() + " shards do not fit into integer ids with "
+                    + "db.shards.id_block_size=" + idBlockSize);
+        }
+
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        Dialect dialect = sessionFactory.getJdbcServices().getDialect();
+        for (Map.Entry<String, DataSource> shard : shardRoutingDataSource.getShards().entrySet()) {
+            // hbm2ddl has already run against home
+            if (!ShardMap.HOME.equals(shard.getKey())) {
+                applySchema(shard.getKey(), shard.getValue(), dialect);
+            }
+            reserveIdRange(shard.getKey(), shard.getValue(), sessionFactory, dialect);
+        }
+    }
+
+    private void applySchema(String shard, DataSource dataSource, Dialect dialect) {
+        boolean create = "create".equals(hbm2ddlAuto) || "create-drop".equals(hbm2ddlAuto);
+        if (!create && !"update".equals(hbm2ddlAuto)) {
+            return;
+        }
+        Metadata metadata = metadataCapture.getMetadata();
+        if (metadata == null) {
+            throw new IllegalStateException("Mapping metadata was not captured; is MetadataCaptureIntegrator registered?");
+        }
+
+        StandardServiceRegistry registry = new StandardServiceRegistryBuilder()
+                .applySetting(AvailableSettings.DATASOURCE, dataSource)
+                .applySetting(AvailableSettings.DIALECT, dialect.getClass().getName())
+                .build();
+        try {
+            EnumSet<TargetType> targets = EnumSet.of(TargetType.DATABASE);
+            if (create) {
+                // create-drop only drops home on shutdown; shards are recreated on the next start
+                new SchemaExport().execute(targets, SchemaExport.Action.BOTH, metadata, registry);
+            } else {
+                new SchemaUpdate().execute(targets, metadata, registry);
+            }
+            LOG.info("Applied hbm2ddl '" + hbm2ddlAuto + "' to shard " + shard);
+        } finally {
+            StandardServiceRegistryBuilder.destroy(registry);
+        }
+    }
+
+    private void reserveIdRange(String shard, DataSource dataSource, SessionFactoryImplementor sessionFactory,
+                                Dialect dialect) throws SQLException {
+        long base = shardMap.indexOf(shard) * idBlockSize;
+        Map<String, List<String[]>> tablesBySequence = getTablesBySequence(sessionFactory);
+        try (Connection connection = dataSource.getConnection()) {
+            for (Map.Entry<String, DatabaseStructure> sequence : getSequences(sessionFactory).entrySet()) {
+                // The pooled optimizer hands out the block that ends at the value it reads
+                long maxId = maxId(connection, tablesBySequence.getOrDefault(sequence.getKey(), Collections.emptyList()));
+                long start = Math.max(base, maxId + sequence.getValue().getIncrementSize());
+                if (sequence.getValue() instanceof TableStructure) {
+                    try (PreparedStatement statement = connection.prepareStatement(
+                            "UPDATE " + sequence.getKey() + " SET next_val = ? WHERE next_val < ?")) {
+                        statement.setLong(1, start);
+                        statement.setLong(2, start);
+                        statement.executeUpdate();
+                    }
+                } else if (nextValue(connection, dialect, sequence.getKey()) < start) {
+                    try (Statement statement = connection.createStatement()) {
+                        statement.execute("ALTER SEQUENCE " + sequence.getKey() + " RESTART WITH " + start);
+                    }
+                }
+            }
+            if (!connection.getAutoCommit()) {
+                connection.commit();
+            }
+        }
+        LOG.info("Shard " + shard + " hands out ids from " + base + " or past its largest id");
+    }
+
+    private static Map<String, DatabaseStructure> getSequences(SessionFactoryImplementor sessionFactory) {
+        Map<String, DatabaseStructure> sequences = new LinkedHashMap<>();
+        for (EntityPersister persister : sessionFactory.getMetamodel().entityPersisters().values()) {
+            IdentifierGenerator generator = persister.getIdentifierGenerator();
+            if (generator instanceof SequenceStyleGenerator) {
+                DatabaseStructure structure = ((SequenceStyleGenerator) generator).getDatabaseStructure();
+                sequences.put(structure.getPhysicalName().render(), structure);
+            }
+        }
+        return sequences;
+    }
+
+    // Table and id column of every table whose ids come from each sequence
+    private static Map<String, List<String[]>> getTablesBySequence(SessionFactoryImplementor sessionFactory) {
+        Map<String, List<String[]>> tables = new HashMap<>();
+        for (EntityPersister persister : sessionFactory.getMetamodel().entityPersisters().values()) {
+            EntityPersister source = persister;
+            Class<?> takenFrom = IDS_TAKEN_FROM.get(persister.getMappedClass());
+            if (takenFrom != null) {
+                source = sessionFactory.getMetamodel().entityPersister(takenFrom);
+            }
+            IdentifierGenerator generator = source.getIdentifierGenerator();
+            if (generator instanceof SequenceStyleGenerator && persister instanceof AbstractEntityPersister) {
+                AbstractEntityPersister table = (AbstractEntityPersister) persister;
+                String sequenceName = ((SequenceStyleGenerator) generator).getDatabaseStructure().getPhysicalName().render();
+                tables.computeIfAbsent(sequenceName, name -> new ArrayList<>())
+                        .add(new String[]{table.getTableName(), table.getIdentifierColumnNames()[0]});
+            }
+        }
+        return tables;
+    }
+
+    private static long maxId(Connection connection, List<String[]> tables) throws SQLException {
+        long maxId = 0;
+        for (String[] tableAndColumn : tables) {
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(
+                         "SELECT MAX(" + tableAndColumn[1] + ") FROM " + tableAndColumn[0])) {
+                resultSet.next();
+                maxId = Math.max(maxId, resultSet.getLong(1));
+            }
+        }
+        return maxId;
+    }
+
+    private static long nextValue(Connection connection, Dialect dialect, String sequenceName) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(dialect.getSequenceNextValString(sequenceName))) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+}
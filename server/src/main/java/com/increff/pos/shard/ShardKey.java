@@ -0,0 +1,30 @@
+package com.increff.pos.shard;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Runs the call on the shard of the client identified by the annotated parameter: either an
+ * Integer client id or an object with a clientId property (e.g. ProductForm).
+ *
+ * With {@link #locate()} set, the parameter is instead the id of a row of that entity, and the call
+ * runs on the shard that holds the row (see ShardLocator). If no shard has it, the call runs on the
+ * caller's shard and fails there with the usual "doesn't exist".
+ *
+ * The shard has to be chosen before any transaction starts, so annotate the outermost
+ * non-transactional entry point (a Dto method), not the Api or Flow it calls. Every transaction the
+ * call starts then runs against that shard.
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ShardKey {
+
+    /**
+     * Entity whose id the parameter is, e.g. Product.class; void.class when it is a client id.
+     */
+    Class<?> locate() default void.class;
+}
@@ -0,0 +1,38 @@
+package com.increff.pos.shard;
+
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+
+/**
+ * Matches methods with a parameter annotated {@link ShardKey}.
+ */
+public class ShardKeyPointcut extends StaticMethodMatcherPointcut {
+
+    @Override
+    public boolean matches(Method method, Class<?> targetClass) {
+        return shardKeyIndex(method) >= 0;
+    }
+
+    static int shardKeyIndex(Method method) {
+        Annotation[][] parameterAnnotations = method.getParameterAnnotations();
+        for (int i = 0; i < parameterAnnotations.length; i++) {
+            for (Annotation annotation : parameterAnnotations[i]) {
+                if (annotation instanceof ShardKey) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    static ShardKey shardKey(Method method, int index) {
+        for (Annotation annotation : method.getParameterAnnotations()[index]) {
+            if (annotation instanceof ShardKey) {
+                return (ShardKey) annotation;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,38 @@
+package com.increff.pos.shard;
+
+import com.increff.pos.dao.AbstractDao;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the shard that holds a row, for entry points that only get an id (GET /products/{id}).
+ * Ids are drawn from one sequence for all shards, so they do not tell the shard; the shards are
+ * probed by primary key instead, the caller's shard first.
+ */
+@Component
+public class ShardLocator {
+
+    private final Map<Class<?>, AbstractDao<?>> daoByEntity = new HashMap<>();
+
+    @Autowired
+    public ShardLocator(List<AbstractDao<?>> daos) {
+        for (AbstractDao<?> dao : daos) {
+            daoByEntity.put(dao.getEntityClass(), dao);
+        }
+    }
+
+    /**
+     * @return The shard holding the row, or the caller's shard if none does.
+     */
+    public String locate(Class<?> entity, Integer id) {
+        AbstractDao<?> dao = daoByEntity.get(entity);
+        if (dao == null) {
+            throw new IllegalArgumentException("No DAO for " + entity.getName());
+        }
+        return dao.selectShardOf(id);
+    }
+}
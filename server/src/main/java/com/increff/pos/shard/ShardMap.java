@@ -0,0 +1,62 @@
+package com.increff.pos.shard;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Which shard holds a client's catalogue (products, inventory, product_listings). Clients that are
+ * not mapped, and everything that is not keyed by a client (users, orders, invoices), live on the
+ * home shard. With no extra shards configured every lookup resolves to the home shard.
+ * Map a client before it gets products: writes go by this mapping, and rows already written on
+ * home are not moved. Orders live on home; the stock they take or return is changed on the shard of
+ * each product (see InventoryApi).
+ */
+public class ShardMap {
+
+    public static final String HOME = "home";
+
+    private final List<String> shards;
+    private final Map<Integer, String> shardByClientId;
+
+    /**
+     * @param shards          Shard names, home first.
+     * @param shardByClientId Client id to shard name, for clients moved off the home shard.
+     */
+    public ShardMap(List<String> shards, Map<Integer, String> shardByClientId) {
+        if (shards.isEmpty() || !HOME.equals(shards.get(0))) {
+            throw new IllegalArgumentException("The first shard must be '" + HOME + "'");
+        }
+        for (Map.Entry<Integer, String> entry : shardByClientId.entrySet()) {
+            if (!shards.contains(entry.getValue())) {
+                throw new IllegalArgumentException("Client " + entry.getKey() + " is mapped to unknown shard " + entry.getValue());
+            }
+        }
+        this.shards = Collections.unmodifiableList(new ArrayList<>(shards));
+        this.shardByClientId = Collections.unmodifiableMap(new HashMap<>(shardByClientId));
+    }
+
+    public String shardOf(Integer clientId) {
+        if (clientId == null) {
+            return HOME;
+        }
+        return shardByClientId.getOrDefault(clientId, HOME);
+    }
+
+    public List<String> getShards() {
+        return shards;
+    }
+
+    /**
+     * Position of the shard in the configuration; home is 0. Each shard hands out ids from its own range.
+     */
+    public int indexOf(String shard) {
+        return shards.indexOf(shard);
+    }
+
+    public boolean isSharded() {
+        return shards.size() > 1;
+    }
+}
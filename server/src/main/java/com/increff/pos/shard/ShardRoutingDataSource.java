@@ -0,0 +1,46 @@
+package com.increff.pos.shard;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Sends each connection to the DataSource of the shard bound in {@link ShardContext}. Every shard
+ * target is itself a ReadWriteRoutingDataSource, so read-only transactions still go to a replica
+ * where the shard has one.
+ *
+ * Like the read/write routing, the shard is only known once the caller has bound it, so this must
+ * sit behind a LazyConnectionDataSourceProxy. An unknown shard fails instead of falling back to home.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    private final Map<String, DataSource> shards;
+
+    /**
+     * @param shards DataSource per shard name, including {@link ShardMap#HOME}.
+     */
+    public ShardRoutingDataSource(Map<String, DataSource> shards) {
+        if (!shards.containsKey(ShardMap.HOME)) {
+            throw new IllegalArgumentException("No DataSource for the '" + ShardMap.HOME + "' shard");
+        }
+        this.shards = Collections.unmodifiableMap(new LinkedHashMap<>(shards));
+
+        setTargetDataSources(new HashMap<>(shards));
+        setDefaultTargetDataSource(shards.get(ShardMap.HOME));
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ShardContext.current();
+    }
+
+    public Map<String, DataSource> getShards() {
+        return shards;
+    }
+}
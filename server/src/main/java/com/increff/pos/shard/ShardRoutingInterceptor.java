@@ -0,0 +1,61 @@
+package com.increff.pos.shard;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Binds the shard of the {@link ShardKey} argument for the duration of the call.
+ * Ordered ahead of the transaction interceptor, so the shard is bound before the
+ * first connection is fetched.
+ */
+public class ShardRoutingInterceptor implements MethodInterceptor {
+
+    private final ShardMap shardMap;
+    // Looked up per call: the locator needs the DAOs, which must not be created this early
+    private final ObjectProvider<ShardLocator> shardLocator;
+
+    public ShardRoutingInterceptor(ShardMap shardMap, ObjectProvider<ShardLocator> shardLocator) {
+        this.shardMap = shardMap;
+        this.shardLocator = shardLocator;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        int index = ShardKeyPointcut.shardKeyIndex(invocation.getMethod());
+        if (!shardMap.isSharded() || index < 0) {
+            return invocation.proceed();
+        }
+
+        ShardKey shardKey = ShardKeyPointcut.shardKey(invocation.getMethod(), index);
+        Object argument = invocation.getArguments()[index];
+        String shard = shardKey.locate() == void.class
+                ? shardMap.shardOf(getClientId(argument))
+                : shardLocator.getObject().locate(shardKey.locate(), (Integer) argument);
+        String current = ShardContext.current();
+        if (shard.equals(current)) {
+            return invocation.proceed();
+        }
+        // The open transaction already holds (or will lazily fetch) a connection to the other shard
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Cannot switch from shard " + current + " to " + shard
+                    + " inside a transaction (" + invocation.getMethod() + ")");
+        }
+
+        String previous = ShardContext.bind(shard);
+        try {
+            return invocation.proceed();
+        } finally {
+            ShardContext.restore(previous);
+        }
+    }
+
+    private static Integer getClientId(Object argument) {
+        if (argument == null || argument instanceof Integer) {
+            return (Integer) argument;
+        }
+        return (Integer) PropertyAccessorFactory.forBeanPropertyAccess(argument).getPropertyValue("clientId");
+    }
+}
@@ -0,0 +1,112 @@
+package com.increff.pos.shard;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Supplier;
+
+/**
+ * Runs work in its own transaction on a given shard, e.g. to copy a row to every shard. The
+ * caller's transaction, if any, is suspended meanwhile; the two do not commit together.
+ */
+public class ShardTemplate {
+
+    private static final Log LOG = LogFactory.getLog(ShardTemplate.class);
+
+    private final ShardMap shardMap;
+    private final TransactionTemplate newTransaction;
+
+    public ShardTemplate(ShardMap shardMap, PlatformTransactionManager transactionManager) {
+        this.shardMap = shardMap;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public <T> T inTransactionOn(String shard, Supplier<T> work) {
+        return ShardContext.callOn(shard, () -> newTransaction.execute(status -> work.get()));
+    }
+
+    /**
+     * Runs the work on the shard: in the caller's transaction if the caller is on that shard, else in
+     * its own transaction there, which commits independently of the caller's.
+     */
+    public <T> T onShard(String shard, Supplier<T> work) {
+        return shard.equals(ShardContext.current()) ? work.get() : inTransactionOn(shard, work);
+    }
+
+    /**
+     * Runs the work once on every shard other than the one the caller is on, each in its own transaction.
+     */
+    public void onOtherShards(Runnable work) {
+        String current = ShardContext.current();
+        for (String shard : shardMap.getShards()) {
+            if (!shard.equals(current)) {
+                inTransactionOn(shard, () -> {
+                    work.run();
+                    return null;
+                });
+            }
+        }
+    }
+
+    /**
+     * Runs {@link #onOtherShards} once the caller's transaction has committed, so a rolled back change
+     * is never copied. A failure is logged and the shards stay behind until the copy is re-run
+     * (POST /ops/shards/clients/sync for clients).
+     */
+    public void afterCommitOnOtherShards(Runnable work) {
+        if (!shardMap.isSharded()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            onOtherShards(work);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    onOtherShards(work);
+                } catch (RuntimeException e) {
+                    LOG.error("Could not copy a committed change to the other shards", e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Runs the undo in its own transaction on the shard if the caller's transaction rolls back, e.g. to
+     * take back a change {@link #onShard} already committed there for it. A failure is logged and the
+     * shard keeps the change.
+     */
+    public void afterRollbackOn(String shard, Runnable undo) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_ROLLED_BACK) {
+                    return;
+                }
+                try {
+                    inTransactionOn(shard, () -> {
+                        undo.run();
+                        return null;
+                    });
+                } catch (RuntimeException e) {
+                    LOG.error("Could not undo a change on shard " + shard + " after the caller rolled back", e);
+                }
+            }
+        });
+    }
+
+    public ShardMap getShardMap() {
+        return shardMap;
+    }
+}
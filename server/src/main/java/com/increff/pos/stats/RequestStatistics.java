@@ -0,0 +1,115 @@
+package com.increff.pos.stats;
+
+/**
+ * Hibernate work done while serving one request. Filled in on the request thread by
+ * RequestStatisticsListener and RequestStatisticsInterceptor; work handed to other threads
+ * (parallel multi-gets, streamed response bodies) is not attributed to the request.
+ */
+public class RequestStatistics {
+
+    private static final ThreadLocal<RequestStatistics> CURRENT = new ThreadLocal<>();
+
+    private long statements;
+    private long batches;
+    private long entitiesLoaded;
+    private long flushes;
+    private long flushedEntities;
+    private long flushedCollections;
+    private long dirtyChecks;
+    private long secondLevelCacheHits;
+    private long secondLevelCacheMisses;
+    private long secondLevelCachePuts;
+
+    public static RequestStatistics start() {
+        RequestStatistics statistics = new RequestStatistics();
+        CURRENT.set(statistics);
+        return statistics;
+    }
+
+    /**
+     * @return the statistics of the request running on this thread, or null outside a tracked request
+     */
+    public static RequestStatistics current() {
+        return CURRENT.get();
+    }
+
+    public static RequestStatistics end() {
+        RequestStatistics statistics = CURRENT.get();
+        CURRENT.remove();
+        return statistics;
+    }
+
+    void recordStatement() {
+        statements++;
+    }
+
+    void recordBatch() {
+        batches++;
+    }
+
+    void recordEntityLoad() {
+        entitiesLoaded++;
+    }
+
+    void recordFlush(int entities, int collections) {
+        flushes++;
+        flushedEntities += entities;
+        flushedCollections += collections;
+    }
+
+    void recordDirtyCheck() {
+        dirtyChecks++;
+    }
+
+    void recordCacheGet(boolean hit) {
+        if (hit) {
+            secondLevelCacheHits++;
+        } else {
+            secondLevelCacheMisses++;
+        }
+    }
+
+    void recordCachePut() {
+        secondLevelCachePuts++;
+    }
+
+    public long getStatements() {
+        return statements;
+    }
+
+    public long getBatches() {
+        return batches;
+    }
+
+    public long getEntitiesLoaded() {
+        return entitiesLoaded;
+    }
+
+    public long getFlushes() {
+        return flushes;
+    }
+
+    public long getFlushedEntities() {
+        return flushedEntities;
+    }
+
+    public long getFlushedCollections() {
+        return flushedCollections;
+    }
+
+    public long getDirtyChecks() {
+        return dirtyChecks;
+    }
+
+    public long getSecondLevelCacheHits() {
+        return secondLevelCacheHits;
+    }
+
+    public long getSecondLevelCacheMisses() {
+        return secondLevelCacheMisses;
+    }
+
+    public long getSecondLevelCachePuts() {
+        return secondLevelCachePuts;
+    }
+}
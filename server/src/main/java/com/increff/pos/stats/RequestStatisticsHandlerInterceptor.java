@@ -0,0 +1,45 @@
+package com.increff.pos.stats;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Opens a RequestStatistics scope around each handler and records it under "METHOD /mapped/path".
+ * Does nothing unless hibernate.generate_statistics is on.
+ */
+@Component
+public class RequestStatisticsHandlerInterceptor implements HandlerInterceptor {
+
+    @Value("${hibernate.generate_statistics:false}")
+    private boolean enabled;
+
+    @Autowired
+    private RequestStatsRegistry requestStatsRegistry;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (enabled) {
+            RequestStatistics.start();
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        RequestStatistics statistics = RequestStatistics.end();
+        if (statistics != null) {
+            requestStatsRegistry.record(requestType(request), statistics);
+        }
+    }
+
+    private static String requestType(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI());
+    }
+}
@@ -0,0 +1,22 @@
+package com.increff.pos.stats;
+
+import org.hibernate.EmptyInterceptor;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+
+/**
+ * Counts entities hydrated for the current request. Session events have no per-entity load
+ * callback, so this is registered as the session-factory interceptor (hibernate.session_factory.interceptor).
+ */
+public class RequestStatisticsInterceptor extends EmptyInterceptor {
+
+    @Override
+    public boolean onLoad(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+        RequestStatistics statistics = RequestStatistics.current();
+        if (statistics != null) {
+            statistics.recordEntityLoad();
+        }
+        return false;
+    }
+}
@@ -0,0 +1,63 @@
+package com.increff.pos.stats;
+
+import org.hibernate.BaseSessionEventListener;
+
+/**
+ * Per-session Hibernate event listener (hibernate.session.events.auto) that adds the session's
+ * statements, flushes, dirty checks and second-level cache traffic to the current request.
+ */
+public class RequestStatisticsListener extends BaseSessionEventListener {
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        RequestStatistics statistics = RequestStatistics.current();
+        if (statistics != null) {
+            statistics.recordStatement();
+        }
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        RequestStatistics statistics = RequestStatistics.current();
+        if (statistics != null) {
+            statistics.recordBatch();
+        }
+    }
+
+    @Override
+    public void flushEnd(int numberOfEntities, int numberOfCollections) {
+        RequestStatistics statistics = RequestStatistics.current();
+        if (statistics != null) {
+            statistics.recordFlush(numberOfEntities, numberOfCollections);
+        }
+    }
+
+    @Override
+    public void partialFlushEnd(int numberOfEntities, int numberOfCollections) {
+        flushEnd(numberOfEntities, numberOfCollections);
+    }
+
+    @Override
+    public void dirtyCalculationEnd(boolean dirty) {
+        RequestStatistics statistics = RequestStatistics.current();
+        if (statistics != null) {
+            statistics.recordDirtyCheck();
+        }
+    }
+
+    @Override
+    public void cacheGetEnd(boolean hit) {
+        RequestStatistics statistics = RequestStatistics.current();
+        if (statistics != null) {
+            statistics.recordCacheGet(hit);
+        }
+    }
+
+    @Override
+    public void cachePutEnd() {
+        RequestStatistics statistics = RequestStatistics.current();
+        if (statistics != null) {
+            statistics.recordCachePut();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.increff.pos.stats;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Per request type Hibernate statistics, fed by RequestStatisticsHandlerInterceptor.
+ */
+@Component
+public class RequestStatsRegistry {
+
+    // Request types are mapped paths, so this only overflows if unmapped URIs are recorded
+    private static final int MAX_REQUEST_TYPES = 500;
+    private static final String OVERFLOW_REQUEST_TYPE = "(other requests)";
+
+    private final Map<String, RequestTypeStats> statsByRequestType = new ConcurrentHashMap<>();
+
+    public void record(String requestType, RequestStatistics request) {
+        if (!statsByRequestType.containsKey(requestType) && statsByRequestType.size() >= MAX_REQUEST_TYPES) {
+            requestType = OVERFLOW_REQUEST_TYPE;
+        }
+        statsByRequestType.computeIfAbsent(requestType, RequestTypeStats::new).record(request);
+    }
+
+    public List<RequestTypeStats> getTop(int limit, Comparator<RequestTypeStats> order) {
+        return statsByRequestType.values().stream()
+                .sorted(order.reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    public void reset() {
+        statsByRequestType.clear();
+    }
+}
@@ -0,0 +1,93 @@
+package com.increff.pos.stats;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hibernate work aggregated over every request of one type (HTTP method + mapped path).
+ */
+public class RequestTypeStats {
+
+    private final String requestType;
+
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong statements = new AtomicLong();
+    private final AtomicLong maxStatements = new AtomicLong();
+    private final AtomicLong entitiesLoaded = new AtomicLong();
+    private final AtomicLong maxEntitiesLoaded = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong flushedEntities = new AtomicLong();
+    private final AtomicLong dirtyChecks = new AtomicLong();
+    private final AtomicLong secondLevelCacheHits = new AtomicLong();
+    private final AtomicLong secondLevelCacheMisses = new AtomicLong();
+
+    public RequestTypeStats(String requestType) {
+        this.requestType = requestType;
+    }
+
+    public void record(RequestStatistics request) {
+        count.incrementAndGet();
+        statements.addAndGet(request.getStatements());
+        maxStatements.accumulateAndGet(request.getStatements(), Math::max);
+        entitiesLoaded.addAndGet(request.getEntitiesLoaded());
+        maxEntitiesLoaded.accumulateAndGet(request.getEntitiesLoaded(), Math::max);
+        flushes.addAndGet(request.getFlushes());
+        flushedEntities.addAndGet(request.getFlushedEntities());
+        dirtyChecks.addAndGet(request.getDirtyChecks());
+        secondLevelCacheHits.addAndGet(request.getSecondLevelCacheHits());
+        secondLevelCacheMisses.addAndGet(request.getSecondLevelCacheMisses());
+    }
+
+    public String getRequestType() {
+        return requestType;
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getStatements() {
+        return statements.get();
+    }
+
+    public double getMeanStatements() {
+        long requests = count.get();
+        return requests == 0 ? 0 : (double) statements.get() / requests;
+    }
+
+    public long getMaxStatements() {
+        return maxStatements.get();
+    }
+
+    public long getEntitiesLoaded() {
+        return entitiesLoaded.get();
+    }
+
+    public double getMeanEntitiesLoaded() {
+        long requests = count.get();
+        return requests == 0 ? 0 : (double) entitiesLoaded.get() / requests;
+    }
+
+    public long getMaxEntitiesLoaded() {
+        return maxEntitiesLoaded.get();
+    }
+
+    public long getFlushes() {
+        return flushes.get();
+    }
+
+    public long getFlushedEntities() {
+        return flushedEntities.get();
+    }
+
+    public long getDirtyChecks() {
+        return dirtyChecks.get();
+    }
+
+    public long getSecondLevelCacheHits() {
+        return secondLevelCacheHits.get();
+    }
+
+    public long getSecondLevelCacheMisses() {
+        return secondLevelCacheMisses.get();
+    }
+}
@@ -0,0 +1,51 @@
+package com.increff.pos.utils;
+
+import com.increff.pos.commons.exception.ApiException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Encodes and decodes the opaque cursors used by keyset (seek) pagination.
+ * A cursor is the last id of the previous page; clients should treat it as an opaque string.
+ */
+public class CursorUtil {
+
+    private static final String PREFIX = "id:";
+
+    public static String encode(Integer lastId) {
+        if (lastId == null) {
+            return null;
+        }
+        byte[] raw = (PREFIX + lastId).getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+    }
+
+    public static Integer decode(String cursor) throws ApiException {
+        if (cursor == null || cursor.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+            if (!raw.startsWith(PREFIX)) {
+                throw new ApiException("Invalid cursor");
+            }
+            return Integer.valueOf(raw.substring(PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new ApiException("Invalid cursor");
+        }
+    }
+
+    /**
+     * Returns the cursor for the page after {@code results}, or null when the page was not full
+     * (i.e. there is nothing left to fetch).
+     */
+    public static <T> String nextCursor(List<T> results, int pageSize, Function<T, Integer> idExtractor) {
+        if (results == null || results.isEmpty() || pageSize <= 0 || results.size() < pageSize) {
+            return null;
+        }
+        return encode(idExtractor.apply(results.get(results.size() - 1)));
+    }
+}
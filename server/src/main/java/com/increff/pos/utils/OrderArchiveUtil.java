@@ -0,0 +1,115 @@
+package com.increff.pos.utils;
+
+import com.increff.pos.entity.ArchivedOrder;
+import com.increff.pos.entity.ArchivedOrderItem;
+import com.increff.pos.entity.Order;
+import com.increff.pos.entity.OrderItem;
+import com.increff.pos.model.result.ProductQuantityResult;
+import com.increff.pos.model.result.SalesOverTimeResult;
+import org.springframework.beans.support.PropertyComparator;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Helpers for serving archived orders through the regular Order/OrderItem read paths.
+ * Converted objects are detached copies and must not be passed to update().
+ */
+public class OrderArchiveUtil {
+
+    public static Order toOrder(ArchivedOrder archivedOrder) {
+        Order order = new Order();
+        order.setId(archivedOrder.getId());
+        order.setOrderStatus(archivedOrder.getOrderStatus());
+        order.setCustomerName(archivedOrder.getCustomerName());
+        order.setCustomerPhone(archivedOrder.getCustomerPhone());
+        order.setInvoicePath(archivedOrder.getInvoicePath());
+        order.setTotalAmount(archivedOrder.getTotalAmount());
+        order.setCreatedAt(archivedOrder.getCreatedAt());
+        order.setUpdatedAt(archivedOrder.getUpdatedAt());
+        order.setVersion(archivedOrder.getVersion());
+        return order;
+    }
+
+    public static OrderItem toOrderItem(ArchivedOrderItem archivedItem) {
+        OrderItem orderItem = new OrderItem();
+        orderItem.setId(archivedItem.getId());
+        orderItem.setQuantity(archivedItem.getQuantity());
+        orderItem.setSellingPrice(archivedItem.getSellingPrice());
+        orderItem.setOrderId(archivedItem.getOrderId());
+        orderItem.setProductId(archivedItem.getProductId());
+        orderItem.setCreatedAt(archivedItem.getCreatedAt());
+        orderItem.setUpdatedAt(archivedItem.getUpdatedAt());
+        orderItem.setVersion(archivedItem.getVersion());
+        return orderItem;
+    }
+
+    /**
+     * Comparator matching the ORDER BY the DAO applies for the given sort (id DESC when unsorted),
+     * with id DESC as the final tie-breaker.
+     */
+    public static Comparator<Order> orderComparator(Sort sort) {
+        Comparator<Order> comparator = null;
+        for (Sort.Order sortOrder : sort) {
+            Comparator<Order> next = new PropertyComparator<>(sortOrder.getProperty(), false, sortOrder.isAscending());
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        Comparator<Order> byIdDesc = Comparator.comparing(Order::getId, Comparator.reverseOrder());
+        return comparator == null ? byIdDesc : comparator.thenComparing(byIdDesc);
+    }
+
+    /**
+     * Merges two result windows that are each sorted by {@code comparator} and returns the requested page.
+     * @param skip rows to skip from the merged result (the page offset, or 0 in cursor mode)
+     */
+    public static List<Order> mergePage(List<Order> hot, List<Order> archived, Comparator<Order> comparator,
+                                        long skip, Pageable pageable) {
+        List<Order> merged = new ArrayList<>(hot.size() + archived.size());
+        merged.addAll(hot);
+        merged.addAll(archived);
+        merged.sort(comparator);
+        if (pageable == null || pageable.isUnpaged()) {
+            return merged;
+        }
+        return merged.stream().skip(skip).limit(pageable.getPageSize()).collect(Collectors.toList());
+    }
+
+    /**
+     * Adds up per-product totals from the hot and archive tables, highest quantity first, then pages.
+     */
+    public static List<ProductQuantityResult> mergeProductQuantities(List<ProductQuantityResult> hot,
+                                                                     List<ProductQuantityResult> archived,
+                                                                     Pageable pageable) {
+        Map<Integer, ProductQuantityResult> byProductId = new LinkedHashMap<>();
+        Stream.concat(hot.stream(), archived.stream()).forEach(result ->
+                byProductId.merge(result.getProductId(), result, (a, b) -> new ProductQuantityResult(a.getProductId(),
+                        a.getTotalQuantity() + b.getTotalQuantity(), a.getTotalRevenue() + b.getTotalRevenue())));
+        List<ProductQuantityResult> merged = new ArrayList<>(byProductId.values());
+        merged.sort(Comparator.comparing(ProductQuantityResult::getTotalQuantity, Comparator.reverseOrder()));
+        if (pageable == null || pageable.isUnpaged()) {
+            return merged;
+        }
+        return merged.stream().skip(pageable.getOffset()).limit(pageable.getPageSize()).collect(Collectors.toList());
+    }
+
+    /**
+     * Adds up per-day revenue from the hot and archive tables, oldest day first.
+     */
+    public static List<SalesOverTimeResult> mergeSalesByDate(List<SalesOverTimeResult> hot, List<SalesOverTimeResult> archived) {
+        Map<Date, Double> revenueByDate = new LinkedHashMap<>();
+        hot.forEach(result -> revenueByDate.merge(result.getDate(), result.getRevenue(), Double::sum));
+        archived.forEach(result -> revenueByDate.merge(result.getDate(), result.getRevenue(), Double::sum));
+        return revenueByDate.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .map(entry -> new SalesOverTimeResult(entry.getKey(), entry.getValue()))
+                .collect(Collectors.toList());
+    }
+}
@@ -39,31 +39,53 @@ public class ReportUtil {
                 .collect(Collectors.toList());
     }
 
+    public static InventoryReportData.InventoryItemData convert(InventoryReportResult reportResult, Integer LOW_STOCK_THRESHOLD) {
+        return buildInventoryItemData(reportResult, LOW_STOCK_THRESHOLD);
+    }
+
     public static InventoryReportData.InventorySummaryData calculateInventorySummary(List<InventoryReportData.InventoryItemData> items, Integer LOW_STOCK_THRESHOLD) {
-        long totalSkus = items.size();
-        long totalQuantity = items.stream()
-                .mapToLong(InventoryReportData.InventoryItemData::getQuantity)
-                .sum();
-        double totalValue = items.stream()
-                .mapToDouble(InventoryReportData.InventoryItemData::getTotalValue)
-                .sum();
-        long outOfStock = items.stream()
-                .filter(item -> item.getQuantity() <= 0)
-                .count();
-        long lowStock = items.stream()
-                .filter(item -> item.getQuantity() > 0 && item.getQuantity() < LOW_STOCK_THRESHOLD)
-                .count();
-
-        totalValue = Math.round(totalValue * 100.0) / 100.0;
-
-        return new InventoryReportData.InventorySummaryData(
-                ZonedDateTime.now(ZoneId.systemDefault()),
-                totalSkus,
-                totalQuantity,
-                totalValue,
-                outOfStock,
-                lowStock
-        );
+        InventorySummaryAccumulator accumulator = new InventorySummaryAccumulator(LOW_STOCK_THRESHOLD);
+        items.forEach(accumulator::add);
+        return accumulator.build();
+    }
+
+    /**
+     * Builds the inventory summary one item at a time, so it can be computed over a streamed report.
+     */
+    public static class InventorySummaryAccumulator {
+
+        private final Integer lowStockThreshold;
+        private long totalSkus;
+        private long totalQuantity;
+        private double totalValue;
+        private long outOfStock;
+        private long lowStock;
+
+        public InventorySummaryAccumulator(Integer lowStockThreshold) {
+            this.lowStockThreshold = lowStockThreshold;
+        }
+
+        public void add(InventoryReportData.InventoryItemData item) {
+            totalSkus++;
+            totalQuantity += item.getQuantity();
+            totalValue += item.getTotalValue();
+            if (item.getQuantity() <= 0) {
+                outOfStock++;
+            } else if (item.getQuantity() < lowStockThreshold) {
+                lowStock++;
+            }
+        }
+
+        public InventoryReportData.InventorySummaryData build() {
+            return new InventoryReportData.InventorySummaryData(
+                    ZonedDateTime.now(ZoneId.systemDefault()),
+                    totalSkus,
+                    totalQuantity,
+                    Math.round(totalValue * 100.0) / 100.0,
+                    outOfStock,
+                    lowStock
+            );
+        }
     }
 
     public static SalesReportData.SalesSummaryData calculateSalesSummary(ZonedDateTime start, ZonedDateTime end, List<Order> orders, List<ProductSalesData> products) {
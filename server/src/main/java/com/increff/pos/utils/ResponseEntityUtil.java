@@ -5,6 +5,7 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 public class ResponseEntityUtil {
 
@@ -39,5 +40,21 @@ public class ResponseEntityUtil {
 
         return new ResponseEntity<>(fileBytes, headers, HttpStatus.OK);
     }
-}
 
+    public static ResponseEntity<StreamingResponseBody> buildTsvStreamResponse(StreamingResponseBody body, String fileName) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("text/tab-separated-values"));
+        headers.setContentDisposition(ContentDisposition.builder("attachment")
+                .filename(fileName)
+                .build());
+
+        // No Content-Length: the body is written while it is being read from the database
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
+    }
+
+    public static ResponseEntity<StreamingResponseBody> buildJsonStreamResponse(StreamingResponseBody body) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
+    }
+}
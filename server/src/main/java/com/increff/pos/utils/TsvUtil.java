@@ -211,17 +211,33 @@ public class TsvUtil {
     }
 
     public static byte[] generateInventoryReportTsv(InventoryReportData data) {
-        StringBuilder tsv = new StringBuilder();
+        StringWriter tsv = new StringWriter();
+        try {
+            writeInventoryReportHeader(tsv, data.getSummary());
+            for (InventoryReportData.InventoryItemData item : data.getItems()) {
+                writeInventoryReportItem(tsv, item);
+            }
+        } catch (IOException e) {
+            // StringWriter does not throw
+            throw new UncheckedIOException(e);
+        }
+
+        return tsv.toString().getBytes(StandardCharsets.UTF_8);
+    }
 
+    /**
+     * Writes the summary section and the item header row; items follow via writeInventoryReportItem.
+     * Split out so the report can be streamed row by row.
+     */
+    public static void writeInventoryReportHeader(Writer tsv, InventoryReportData.InventorySummaryData summary) throws IOException {
         // --- Section 1: Summary ---
         tsv.append("Inventory Report Summary").append(NL);
-        InventoryReportData.InventorySummaryData summary = data.getSummary();
         tsv.append("Report Generated At").append(TAB).append(summary.getReportGeneratedAt().format(ZONED_DATE_TIME_FORMATTER)).append(NL);
-        tsv.append("Total Product SKUs").append(TAB).append(summary.getTotalProductSkus()).append(NL);
-        tsv.append("Total Inventory Quantity").append(TAB).append(summary.getTotalInventoryQuantity()).append(NL);
-        tsv.append("Total Inventory Value").append(TAB).append(summary.getTotalInventoryValue()).append(NL);
-        tsv.append("Out of Stock Items").append(TAB).append(summary.getOutOfStockItems()).append(NL);
-        tsv.append("Low Stock Items (<10)").append(TAB).append(summary.getLowStockItems()).append(NL);
+        tsv.append("Total Product SKUs").append(TAB).append(String.valueOf(summary.getTotalProductSkus())).append(NL);
+        tsv.append("Total Inventory Quantity").append(TAB).append(String.valueOf(summary.getTotalInventoryQuantity())).append(NL);
+        tsv.append("Total Inventory Value").append(TAB).append(String.valueOf(summary.getTotalInventoryValue())).append(NL);
+        tsv.append("Out of Stock Items").append(TAB).append(String.valueOf(summary.getOutOfStockItems())).append(NL);
+        tsv.append("Low Stock Items (<10)").append(TAB).append(String.valueOf(summary.getLowStockItems())).append(NL);
 
         // --- Section 2: Inventory Items ---
         tsv.append(NL).append("Inventory Items").append(NL);
@@ -231,17 +247,14 @@ public class TsvUtil {
                 .append("Quantity").append(TAB)
                 .append("Total Value").append(TAB)
                 .append("Status").append(NL);
+    }
 
-        // Data Rows for items
-        for (InventoryReportData.InventoryItemData item : data.getItems()) {
-            tsv.append(escapeTsvField(item.getProductId())).append(TAB);
-            tsv.append(escapeTsvField(item.getProductName())).append(TAB);
-            tsv.append(escapeTsvField(item.getQuantity())).append(TAB);
-            tsv.append(escapeTsvField(item.getTotalValue())).append(TAB);
-            tsv.append(escapeTsvField(item.getStatus())).append(NL);
-        }
-
-        return tsv.toString().getBytes(StandardCharsets.UTF_8);
+    public static void writeInventoryReportItem(Writer tsv, InventoryReportData.InventoryItemData item) throws IOException {
+        tsv.append(escapeTsvField(item.getProductId())).append(TAB);
+        tsv.append(escapeTsvField(item.getProductName())).append(TAB);
+        tsv.append(escapeTsvField(item.getQuantity())).append(TAB);
+        tsv.append(escapeTsvField(item.getTotalValue())).append(TAB);
+        tsv.append(escapeTsvField(item.getStatus())).append(NL);
     }
 
 
@@ -0,0 +1,354 @@
+package com.increff.pos.advisor;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.increff.pos.config.TestDbConfig;
+import com.increff.pos.dao.ClientDao;
+import com.increff.pos.dao.InventoryDao;
+import com.increff.pos.dao.InvoiceDao;
+import com.increff.pos.dao.OrderArchiveDao;
+import com.increff.pos.dao.OrderDao;
+import com.increff.pos.dao.OrderItemDao;
+import com.increff.pos.dao.ProductDao;
+import com.increff.pos.dao.ProductListingDao;
+import com.increff.pos.dao.UserDao;
+import com.increff.pos.datasource.QueryExplainer;
+import com.increff.pos.datasource.QueryFingerprintStats;
+import com.increff.pos.datasource.QueryStatsRegistry;
+import com.increff.pos.entity.Client;
+import com.increff.pos.entity.Inventory;
+import com.increff.pos.entity.Order;
+import com.increff.pos.entity.OrderItem;
+import com.increff.pos.entity.Product;
+import com.increff.pos.factory.ClientFactory;
+import com.increff.pos.factory.InventoryFactory;
+import com.increff.pos.factory.OrderFactory;
+import com.increff.pos.factory.OrderItemFactory;
+import com.increff.pos.factory.ProductFactory;
+import com.increff.pos.model.enums.OrderStatus;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.File;
+import java.io.IOException;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Query plan advisor: runs every DAO query shape with representative parameters against a seeded
+ * schema, EXPLAINs each statement it issued and flags full scans, filesorts, temporary tables and
+ * join buffers per DAO method.
+ *
+ * Not picked up by the default surefire includes; run it explicitly:
+ * mvn -pl server test -Dtest=QueryPlanAdvisor
+ *
+ * The full report goes to target/query-plan-report.json. Flags are compared with the committed
+ * baseline (src/test/resources/query-plan-baseline.json) and any new flag fails the run. Accept a
+ * changed plan with -DqueryPlan.updateBaseline=true. A missing baseline fails the run rather than
+ * being written silently, so it is only ever created on purpose with the same flag. The baseline must
+ * come from such a run against the real MySQL schema, never be written by hand: a hand-written one
+ * can accept the very plans this is meant to catch.
+ *
+ * The slow-query threshold is forced to 0 so QueryStatsRegistry keeps the SQL and binds of every
+ * statement, which is what gets EXPLAINed. The seed is committed because EXPLAIN runs on its own
+ * connection; hbm2ddl create-drop removes it when the context closes.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {TestDbConfig.class, QueryExplainer.class})
+@TestPropertySource(locations = "classpath:test.properties", properties = "db.slow_query.threshold_ms=0")
+public class QueryPlanAdvisor {
+
+    private static final File BASELINE = new File("src/test/resources/query-plan-baseline.json");
+    private static final File REPORT = new File("target/query-plan-report.json");
+    private static final String UPDATE_BASELINE = "queryPlan.updateBaseline";
+
+    private static final int CLIENTS = 200;
+    // -DqueryPlan.productsPerClient=5000 seeds 1M products, for plans at production catalogue size
+    private static final int PRODUCTS_PER_CLIENT = Integer.getInteger("queryPlan.productsPerClient", 25);
+    private static final int ORDERS = 3_000;
+    private static final int ITEMS_PER_ORDER = 3;
+    private static final int HISTORY_DAYS = 365;
+    private static final String[] CATEGORIES = {"grocery", "dairy", "bakery", "household", "personal"};
+    private static final OrderStatus[] STATUSES = {OrderStatus.CREATED, OrderStatus.INVOICED, OrderStatus.CANCELLED};
+
+    private final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    @Autowired
+    private ClientDao clientDao;
+    @Autowired
+    private ProductDao productDao;
+    @Autowired
+    private ProductListingDao productListingDao;
+    @Autowired
+    private InventoryDao inventoryDao;
+    @Autowired
+    private OrderDao orderDao;
+    @Autowired
+    private OrderItemDao orderItemDao;
+    @Autowired
+    private OrderArchiveDao orderArchiveDao;
+    @Autowired
+    private InvoiceDao invoiceDao;
+    @Autowired
+    private UserDao userDao;
+    @Autowired
+    private QueryStatsRegistry queryStatsRegistry;
+    @Autowired
+    private QueryExplainer queryExplainer;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private TransactionTemplate transactionTemplate;
+    private List<Integer> productIds;
+    private List<Integer> orderIds;
+
+    @Before
+    public void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.execute(status -> {
+            seed();
+            return null;
+        });
+        // Fresh index statistics, so the optimizer plans against the seed rather than empty tables
+        transactionTemplate.execute(status -> em.createNativeQuery(
+                "ANALYZE TABLE clients, products, inventory, product_listings, orders, order_items").getResultList());
+    }
+
+    @Test
+    public void adviseQueryPlans() throws IOException {
+        Map<String, Map<String, Object>> report = new TreeMap<>();
+        for (Map.Entry<String, Runnable> queryShape : queryShapes().entrySet()) {
+            report.put(queryShape.getKey(), explain(queryShape.getValue()));
+        }
+
+        REPORT.getParentFile().mkdirs();
+        objectMapper.writeValue(REPORT, report);
+        report.forEach((method, entry) -> System.out.printf("%-48s %s%n", method, entry.get("flags")));
+
+        if (Boolean.getBoolean(UPDATE_BASELINE)) {
+            objectMapper.writeValue(BASELINE, report);
+            System.out.println("Query plan baseline written to " + BASELINE.getPath());
+            return;
+        }
+        assertTrue("No query plan baseline at " + BASELINE.getPath() + "; create it with -D" + UPDATE_BASELINE + "=true",
+                BASELINE.exists());
+
+        List<String> regressions = compareWithBaseline(report);
+        assertTrue("Query plans regressed against " + BASELINE.getPath() + ":\n" + String.join("\n", regressions),
+                regressions.isEmpty());
+    }
+
+    /**
+     * One entry per DAO method (or per distinct shape of a Criteria method), with the parameters a
+     * typical screen or report would pass.
+     */
+    private Map<String, Runnable> queryShapes() {
+        ZonedDateTime now = ZonedDateTime.now();
+        ZonedDateTime lastWeek = now.minusDays(7);
+        Pageable firstPage = PageRequest.of(0, 20);
+        Pageable deepPage = PageRequest.of(50, 20);
+        Pageable byIdDesc = PageRequest.of(0, 20, Sort.by("id").descending());
+        Pageable byCreatedAtDesc = PageRequest.of(0, 20, Sort.by("createdAt").descending());
+        Integer productId = productIds.get(productIds.size() / 2);
+        Integer orderId = orderIds.get(orderIds.size() / 2);
+        List<Integer> someProductIds = productIds.subList(0, 100);
+        List<Integer> someOrderIds = orderIds.subList(0, 100);
+
+        Map<String, Runnable> shapes = new LinkedHashMap<>();
+        shapes.put("ClientDao.selectByName", () -> clientDao.selectByName("advisor-client-17"));
+        shapes.put("ClientDao.selectByNames", () -> clientDao.selectByNames(
+                Arrays.asList("advisor-client-1", "advisor-client-2", "advisor-client-3")));
+        shapes.put("ClientDao.selectWithFilters(prefix)", () -> clientDao.selectWithFilters("advisor-client-1", firstPage));
+        shapes.put("ClientDao.selectWithFilters(deepOffset)", () -> clientDao.selectWithFilters(null, PageRequest.of(5, 20)));
+        shapes.put("ClientDao.selectWithFilters(keyset)", () -> clientDao.selectWithFilters(null, CLIENTS / 2, firstPage));
+        shapes.put("ClientDao.countWithFilters", () -> clientDao.countWithFilters("advisor-client-1"));
+
+        shapes.put("ProductDao.selectByBarcode", () -> productDao.selectByBarcode(barcode(7, 3)));
+        shapes.put("ProductDao.selectMapByBarcodes", () -> productDao.selectMapByBarcodes(
+                Arrays.asList(barcode(1, 1), barcode(2, 2), barcode(3, 3))));
+        shapes.put("ProductDao.selectMapByIds", () -> productDao.selectMapByIds(someProductIds));
+
+        shapes.put("ProductListingDao.selectWithFilters(search)", () -> productListingDao.selectWithFilters(
+                "ADV-00", null, null, null, null, null, firstPage));
+        shapes.put("ProductListingDao.selectWithFilters(clientCategoryMrp)", () -> productListingDao.selectWithFilters(
+                null, "advisor-client-3", CATEGORIES[1], 10.0, 500.0, null, firstPage));
+        shapes.put("ProductListingDao.selectWithFilters(deepOffset)", () -> productListingDao.selectWithFilters(
+                null, null, null, null, null, null, deepPage));
+        shapes.put("ProductListingDao.countWithFilters", () -> productListingDao.countWithFilters(
+                null, "advisor-client-3", CATEGORIES[1], null, null));
+        shapes.put("ProductListingDao.selectByBarcode", () -> productListingDao.selectByBarcode(barcode(7, 3)));
+
+        shapes.put("InventoryDao.findInventoryReportData", () -> inventoryDao.findInventoryReportData());
+        shapes.put("InventoryDao.selectByProductId", () -> inventoryDao.selectByProductId(productId));
+        shapes.put("InventoryDao.selectMapByProductIds", () -> inventoryDao.selectMapByProductIds(someProductIds));
+        shapes.put("InventoryDao.selectLowStockItems", () -> inventoryDao.selectLowStockItems(10));
+
+        shapes.put("OrderDao.selectAllByDateRange", () -> orderDao.selectAllByDateRange(lastWeek, now));
+        shapes.put("OrderDao.findWithFilters(dateRangeStatus)", () -> orderDao.findWithFilters(
+                null, lastWeek, now, OrderStatus.INVOICED, byCreatedAtDesc));
+        shapes.put("OrderDao.findWithFilters(unfiltered)", () -> orderDao.findWithFilters(
+                null, null, null, null, byIdDesc));
+        shapes.put("OrderDao.findWithFilters(keyset)", () -> orderDao.findWithFilters(
+                null, null, null, null, orderId, byIdDesc));
+        shapes.put("OrderDao.countWithFilters", () -> orderDao.countWithFilters(null, lastWeek, now, OrderStatus.INVOICED));
+        shapes.put("OrderArchiveDao.selectArchivableOrderIds", () -> orderArchiveDao.selectArchivableOrderIds(
+                orderArchiveDao.getCutoff(), 500));
+
+        shapes.put("OrderItemDao.findTopSellingProducts", () -> orderItemDao.findTopSellingProducts(
+                now.minusDays(30), now, PageRequest.of(0, 10), OrderStatus.INVOICED));
+        shapes.put("OrderItemDao.findSalesByDate", () -> orderItemDao.findSalesByDate(
+                now.minusDays(30), now, OrderStatus.INVOICED));
+        shapes.put("OrderItemDao.findAllTimeTopSellingProducts", () -> orderItemDao.findAllTimeTopSellingProducts(
+                PageRequest.of(0, 10), OrderStatus.INVOICED));
+        shapes.put("OrderItemDao.findFirstOrderDate", () -> orderItemDao.findFirstOrderDate(OrderStatus.INVOICED));
+        shapes.put("OrderItemDao.selectByOrderId", () -> orderItemDao.selectByOrderId(orderId));
+        shapes.put("OrderItemDao.selectByOrderIds", () -> orderItemDao.selectByOrderIds(someOrderIds));
+        shapes.put("OrderItemDao.selectByOrderIdAndProductId", () -> orderItemDao.selectByOrderIdAndProductId(orderId, productId));
+
+        shapes.put("InvoiceDao.selectByOrderId", () -> invoiceDao.selectByOrderId(orderId));
+        shapes.put("UserDao.selectByEmail", () -> userDao.selectByEmail("supervisor@increff.com"));
+        return shapes;
+    }
+
+    private Map<String, Object> explain(Runnable queryShape) {
+        queryStatsRegistry.reset();
+        // Rolled back so shapes that lock (FOR UPDATE) or write leave the seed untouched
+        transactionTemplate.execute(status -> {
+            queryShape.run();
+            em.flush();
+            status.setRollbackOnly();
+            return null;
+        });
+
+        List<Map<String, Object>> statements = new ArrayList<>();
+        List<String> flags = new ArrayList<>();
+        for (QueryFingerprintStats stats : queryStatsRegistry.getAll()) {
+            String sql = stats.getLastSlowSql();
+            if (!queryExplainer.isExplainable(sql)) {
+                continue;
+            }
+            Map<String, Object> statement = new LinkedHashMap<>();
+            statement.put("fingerprint", stats.getFingerprint());
+            try {
+                List<Map<String, Object>> plan = queryExplainer.explain(sql, stats.getLastSlowBinds());
+                List<String> statementFlags = QueryPlanFlags.of(plan);
+                statement.put("flags", statementFlags);
+                statement.put("plan", plan);
+                statementFlags.stream().filter(flag -> !flags.contains(flag)).forEach(flags::add);
+            } catch (Exception e) {
+                statement.put("error", e.getMessage());
+            }
+            statements.add(statement);
+        }
+        flags.sort(null);
+
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("flags", flags);
+        entry.put("statements", statements);
+        return entry;
+    }
+
+    private List<String> compareWithBaseline(Map<String, Map<String, Object>> report) throws IOException {
+        Map<String, Map<String, Object>> baseline = objectMapper.readValue(BASELINE,
+                new TypeReference<Map<String, Map<String, Object>>>() {});
+
+        List<String> regressions = new ArrayList<>();
+        report.forEach((method, entry) -> {
+            List<String> current = flagsOf(entry);
+            List<String> previous = baseline.containsKey(method) ? flagsOf(baseline.get(method)) : new ArrayList<>();
+            List<String> added = current.stream().filter(flag -> !previous.contains(flag)).collect(Collectors.toList());
+            List<String> removed = previous.stream().filter(flag -> !current.contains(flag)).collect(Collectors.toList());
+            if (!added.isEmpty()) {
+                regressions.add(method + " now has " + added);
+            }
+            if (!removed.isEmpty()) {
+                System.out.println(method + " no longer has " + removed + " (refresh the baseline to lock this in)");
+            }
+        });
+        return regressions;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> flagsOf(Map<String, Object> entry) {
+        return (List<String>) entry.get("flags");
+    }
+
+    // --- Seed data ---
+
+    private void seed() {
+        List<Client> clients = new ArrayList<>(CLIENTS);
+        for (int c = 0; c < CLIENTS; c++) {
+            clients.add(ClientFactory.mockNewObject("advisor-client-" + c));
+        }
+        clientDao.insertAll(clients);
+
+        List<Product> products = new ArrayList<>();
+        for (int c = 0; c < CLIENTS; c++) {
+            for (int p = 0; p < PRODUCTS_PER_CLIENT; p++) {
+                Product product = ProductFactory.mockNewObject(barcode(c, p), clients.get(c).getId());
+                product.setCategory(CATEGORIES[p % CATEGORIES.length]);
+                products.add(product);
+            }
+        }
+        productDao.bulkInsert(products);
+        productIds = products.stream().map(Product::getId).collect(Collectors.toList());
+
+        List<Inventory> inventories = new ArrayList<>(products.size());
+        for (Integer id : productIds) {
+            inventories.add(InventoryFactory.mockNewObject(id));
+        }
+        inventoryDao.bulkInsert(inventories);
+        productListingDao.rebuild();
+
+        List<Order> orders = new ArrayList<>(ORDERS);
+        for (int o = 0; o < ORDERS; o++) {
+            Order order = OrderFactory.mockNewObject();
+            order.setOrderStatus(STATUSES[o % STATUSES.length]);
+            orders.add(order);
+        }
+        orderDao.insertAll(orders);
+        orderIds = orders.stream().map(Order::getId).collect(Collectors.toList());
+
+        List<OrderItem> items = new ArrayList<>(ORDERS * ITEMS_PER_ORDER);
+        for (int o = 0; o < ORDERS; o++) {
+            for (int i = 0; i < ITEMS_PER_ORDER; i++) {
+                items.add(OrderItemFactory.mockNewObject(orderIds.get(o), productIds.get((o * ITEMS_PER_ORDER + i) % productIds.size())));
+            }
+        }
+        orderItemDao.insertAll(items);
+        em.flush();
+
+        // Spread orders over a year so date-range and per-day report plans see realistic selectivity
+        em.createNativeQuery("UPDATE orders SET createdAt = DATE_SUB(createdAt, INTERVAL (id % " + HISTORY_DAYS + ") DAY)")
+                .executeUpdate();
+        em.clear();
+    }
+
+    private static String barcode(int client, int product) {
+        return String.format("ADV-%03d-%02d", client, product);
+    }
+}
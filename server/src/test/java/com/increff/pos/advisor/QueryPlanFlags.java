@@ -0,0 +1,48 @@
+package com.increff.pos.advisor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Turns EXPLAIN rows into the plan problems the advisor tracks. A flag is "table:KIND", where table
+ * is the alias EXPLAIN prints (Hibernate aliases are stable, so flags diff cleanly across runs).
+ */
+public final class QueryPlanFlags {
+
+    public static final String FULL_SCAN = "FULL_SCAN";
+    public static final String FULL_INDEX_SCAN = "FULL_INDEX_SCAN";
+    public static final String FILESORT = "FILESORT";
+    public static final String TEMPORARY = "TEMPORARY";
+    // Block nested loop / hash join: no usable index on the join, typical of an accidental cross join
+    public static final String JOIN_BUFFER = "JOIN_BUFFER";
+
+    private QueryPlanFlags() {
+    }
+
+    public static List<String> of(List<Map<String, Object>> plan) {
+        TreeSet<String> flags = new TreeSet<>();
+        for (Map<String, Object> row : plan) {
+            String table = String.valueOf(row.get("table"));
+            String type = String.valueOf(row.get("type"));
+            String extra = row.get("Extra") == null ? "" : String.valueOf(row.get("Extra"));
+
+            if ("ALL".equals(type)) {
+                flags.add(table + ":" + FULL_SCAN);
+            } else if ("index".equals(type)) {
+                flags.add(table + ":" + FULL_INDEX_SCAN);
+            }
+            if (extra.contains("Using filesort")) {
+                flags.add(table + ":" + FILESORT);
+            }
+            if (extra.contains("Using temporary")) {
+                flags.add(table + ":" + TEMPORARY);
+            }
+            if (extra.contains("Using join buffer")) {
+                flags.add(table + ":" + JOIN_BUFFER);
+            }
+        }
+        return new ArrayList<>(flags);
+    }
+}
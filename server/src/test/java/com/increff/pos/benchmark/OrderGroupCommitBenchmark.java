@@ -0,0 +1,253 @@
+package com.increff.pos.benchmark;
+
+import com.increff.pos.commons.exception.ApiException;
+import com.increff.pos.config.SpringConfig;
+import com.increff.pos.dao.ClientDao;
+import com.increff.pos.dao.InventoryDao;
+import com.increff.pos.dao.ProductDao;
+import com.increff.pos.entity.Client;
+import com.increff.pos.entity.Inventory;
+import com.increff.pos.entity.Order;
+import com.increff.pos.entity.OrderItem;
+import com.increff.pos.entity.Product;
+import com.increff.pos.factory.ClientFactory;
+import com.increff.pos.factory.InventoryFactory;
+import com.increff.pos.factory.OrderFactory;
+import com.increff.pos.factory.OrderItemFactory;
+import com.increff.pos.factory.ProductFactory;
+import com.increff.pos.flow.OrderFlow;
+import com.increff.pos.service.OrderGroupCommitter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checkout throughput and latency with and without group commit, under a synthetic terminal load.
+ *
+ * Not picked up by the default surefire includes; run it explicitly:
+ * mvn -pl server test -Dtest=OrderGroupCommitBenchmark
+ *
+ * TERMINALS threads each place ORDERS_PER_TERMINAL three-line orders back to back against a small
+ * catalogue with plenty of stock. "per-order" calls OrderFlow.insert (one transaction per order, as
+ * with group commit disabled); "grouped" goes through OrderGroupCommitter. Latency is per order as
+ * seen by the terminal, including the time spent waiting for its group. The seed and every order
+ * placed are committed, and deleted afterwards.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = SpringConfig.class)
+@WebAppConfiguration
+@TestPropertySource(locations = "classpath:test.properties", properties = {
+        "order.group_commit.enabled=true",
+        "order.group_commit.max_batch_size=32",
+        "order.group_commit.max_wait_ms=2"
+})
+public class OrderGroupCommitBenchmark {
+
+    private static final int TERMINALS = 32;
+    private static final int ORDERS_PER_TERMINAL = 50;
+    private static final int PRODUCTS = 200;
+    private static final int ITEMS_PER_ORDER = 3;
+
+    @Autowired
+    private OrderFlow orderFlow;
+    @Autowired
+    private OrderGroupCommitter orderGroupCommitter;
+    @Autowired
+    private ClientDao clientDao;
+    @Autowired
+    private ProductDao productDao;
+    @Autowired
+    private InventoryDao inventoryDao;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private Integer clientId;
+    private final List<Integer> productIds = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        new TransactionTemplate(transactionManager).execute(status -> {
+            Client client = ClientFactory.mockNewObject("bench-group-commit-" + System.currentTimeMillis());
+            clientDao.insert(client);
+            List<Product> products = new ArrayList<>(PRODUCTS);
+            for (int i = 0; i < PRODUCTS; i++) {
+                Product product = ProductFactory.mockNewObject("GC-" + i, client.getId());
+                product.setMrp(1000.0);
+                products.add(product);
+            }
+            productDao.insertAll(products);
+            List<Inventory> inventories = new ArrayList<>(PRODUCTS);
+            for (Product product : products) {
+                Inventory inventory = InventoryFactory.mockNewObject(product.getId());
+                inventory.setQuantity(1_000_000);
+                inventories.add(inventory);
+                productIds.add(product.getId());
+            }
+            inventoryDao.insertAll(inventories);
+            clientId = client.getId();
+            return null;
+        });
+    }
+
+    @After
+    public void tearDown() {
+        new TransactionTemplate(transactionManager).execute(status -> {
+            List<Integer> orderIds = em.createQuery(
+                            "SELECT DISTINCT i.orderId FROM OrderItem i WHERE i.productId IN :productIds", Integer.class)
+                    .setParameter("productIds", productIds)
+                    .getResultList();
+            em.createQuery("DELETE FROM OrderItem i WHERE i.productId IN :productIds")
+                    .setParameter("productIds", productIds)
+                    .executeUpdate();
+            if (!orderIds.isEmpty()) {
+                em.createQuery("DELETE FROM Order o WHERE o.id IN :orderIds")
+                        .setParameter("orderIds", orderIds)
+                        .executeUpdate();
+            }
+            em.createQuery("DELETE FROM Inventory i WHERE i.productId IN :productIds")
+                    .setParameter("productIds", productIds)
+                    .executeUpdate();
+            em.createQuery("DELETE FROM ProductListing l WHERE l.clientId = :clientId")
+                    .setParameter("clientId", clientId)
+                    .executeUpdate();
+            em.createQuery("DELETE FROM Product p WHERE p.clientId = :clientId")
+                    .setParameter("clientId", clientId)
+                    .executeUpdate();
+            em.createQuery("DELETE FROM Client c WHERE c.id = :clientId")
+                    .setParameter("clientId", clientId)
+                    .executeUpdate();
+            return null;
+        });
+    }
+
+    @Test
+    public void groupCommitUnderTerminalLoad() throws Exception {
+        assertTrue("order.group_commit.enabled must be on for this benchmark", orderGroupCommitter.isEnabled());
+
+        // Warm up the JIT, statement caches and the pool before measuring
+        run("warm-up", false);
+        run("warm-up", true);
+
+        Sample perOrder = run("per-order", false);
+        long groupsBefore = orderGroupCommitter.getGroups();
+        long ordersBefore = orderGroupCommitter.getOrders();
+        Sample grouped = run("grouped", true);
+        long groups = orderGroupCommitter.getGroups() - groupsBefore;
+
+        System.out.printf("Group commit: %.1fx orders/s, %,d groups of %.1f orders on average, %d groups fell back%n",
+                grouped.ordersPerSecond() / Math.max(1e-9, perOrder.ordersPerSecond()), groups,
+                (double) (orderGroupCommitter.getOrders() - ordersBefore) / Math.max(1, groups),
+                orderGroupCommitter.getFallbackGroups());
+    }
+
+    private Sample run(String label, boolean grouped) throws InterruptedException {
+        ExecutorService terminals = Executors.newFixedThreadPool(TERMINALS);
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        AtomicInteger failures = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(TERMINALS);
+
+        for (int terminal = 0; terminal < TERMINALS; terminal++) {
+            terminals.execute(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < ORDERS_PER_TERMINAL; i++) {
+                        Order order = OrderFactory.mockNewObject();
+                        List<OrderItem> orderItems = randomItems();
+                        long placedAt = System.nanoTime();
+                        try {
+                            if (grouped) {
+                                orderGroupCommitter.insert(order, orderItems);
+                            } else {
+                                orderFlow.insert(order, orderItems);
+                            }
+                            latencies.add(System.nanoTime() - placedAt);
+                        } catch (ApiException | RuntimeException e) {
+                            failures.incrementAndGet();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        long startedAt = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsedNanos = System.nanoTime() - startedAt;
+        terminals.shutdown();
+        terminals.awaitTermination(1, TimeUnit.MINUTES);
+        assertEquals(0, failures.get());
+
+        Sample sample = new Sample(latencies.size(), elapsedNanos, new ArrayList<>(latencies));
+        System.out.printf("%-9s %,5d orders from %d terminals: %,7.0f orders/s, p50 %,6.1f ms, p99 %,6.1f ms, max %,6.1f ms%n",
+                label, sample.orders, TERMINALS, sample.ordersPerSecond(),
+                sample.percentileMillis(0.50), sample.percentileMillis(0.99), sample.percentileMillis(1.0));
+        return sample;
+    }
+
+    // Distinct products per order, so an order never trips the (orderId, productId, sellingPrice) key
+    private List<OrderItem> randomItems() {
+        List<Integer> shuffled = new ArrayList<>(productIds);
+        Collections.shuffle(shuffled, ThreadLocalRandom.current());
+        List<OrderItem> orderItems = new ArrayList<>(ITEMS_PER_ORDER);
+        for (Integer productId : shuffled.subList(0, ITEMS_PER_ORDER)) {
+            orderItems.add(OrderItemFactory.mockNewObject(null, productId, 1, 10.0));
+        }
+        return orderItems;
+    }
+
+    private static class Sample {
+        private final int orders;
+        private final long elapsedNanos;
+        private final long[] latencies;
+
+        private Sample(int orders, long elapsedNanos, List<Long> latencies) {
+            this.orders = orders;
+            this.elapsedNanos = elapsedNanos;
+            this.latencies = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        }
+
+        private double ordersPerSecond() {
+            return orders / (elapsedNanos / 1e9);
+        }
+
+        private double percentileMillis(double percentile) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile * latencies.length) - 1;
+            return latencies[Math.max(0, Math.min(index, latencies.length - 1))] / 1e6;
+        }
+    }
+}
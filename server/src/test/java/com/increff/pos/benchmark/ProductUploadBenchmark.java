@@ -0,0 +1,120 @@
+package com.increff.pos.benchmark;
+
+import com.increff.pos.config.TestDbConfig;
+import com.increff.pos.dao.ClientDao;
+import com.increff.pos.dao.ProductDao;
+import com.increff.pos.entity.Client;
+import com.increff.pos.entity.Product;
+import com.increff.pos.factory.ClientFactory;
+import com.increff.pos.factory.ProductFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Throughput benchmark for a 50k-row product upload.
+ *
+ * Not picked up by the default surefire includes; run it explicitly:
+ * mvn -pl server test -Dtest=ProductUploadBenchmark
+ *
+ * "row-at-a-time" flushes after every persist, which is what IDENTITY ids forced on us
+ * (one INSERT round trip per row). "batched" is AbstractDao.insertAll on pooled ids.
+ * "bulk-engine" is AbstractDao.bulkInsert: JDBC batches without the persistence context.
+ * Every run is rolled back so the test schema stays empty.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = TestDbConfig.class)
+@TestPropertySource("classpath:test.properties")
+public class ProductUploadBenchmark {
+
+    private static final int ROWS = 50_000;
+
+    @Autowired
+    private ProductDao productDao;
+    @Autowired
+    private ClientDao clientDao;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private TransactionTemplate transactionTemplate;
+
+    @Before
+    public void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Test
+    public void uploadThroughput() {
+        // Warm up the generators, statement caches and the JIT before measuring
+        run("warm-up", 2_000, Mode.ROW_AT_A_TIME);
+        run("warm-up", 2_000, Mode.BATCHED);
+        run("warm-up", 2_000, Mode.BULK_ENGINE);
+
+        double before = run("row-at-a-time", ROWS, Mode.ROW_AT_A_TIME);
+        double batched = run("batched", ROWS, Mode.BATCHED);
+        double bulk = run("bulk-engine", ROWS, Mode.BULK_ENGINE);
+
+        System.out.printf("Product upload speed-up: batched %.1fx, bulk engine %.1fx%n", batched / before, bulk / before);
+    }
+
+    private double run(String label, int rows, Mode mode) {
+        long[] elapsed = new long[1];
+        transactionTemplate.execute(status -> {
+            Client client = ClientFactory.mockNewObject("bench-client-" + label + "-" + rows + "-" + mode);
+            clientDao.insert(client);
+            List<Product> products = createProducts(rows, client.getId(), label + mode);
+
+            long start = System.nanoTime();
+            if (mode == Mode.BULK_ENGINE) {
+                productDao.bulkInsert(products);
+            } else if (mode == Mode.BATCHED) {
+                productDao.insertAll(products);
+                em.flush();
+            } else {
+                for (Product product : products) {
+                    productDao.insert(product);
+                    em.flush();
+                    em.clear();
+                }
+            }
+            elapsed[0] = System.nanoTime() - start;
+
+            assertEquals(rows, products.stream().filter(p -> p.getId() != null).count());
+            status.setRollbackOnly();
+            return null;
+        });
+
+        double rowsPerSecond = rows / (elapsed[0] / 1_000_000_000.0);
+        System.out.printf("%-14s %,8d rows in %,6d ms -> %,10.0f rows/sec%n",
+                label, rows, elapsed[0] / 1_000_000, rowsPerSecond);
+        return rowsPerSecond;
+    }
+
+    private List<Product> createProducts(int rows, Integer clientId, String prefix) {
+        List<Product> products = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            products.add(ProductFactory.mockNewObject(prefix + "-" + i, clientId));
+        }
+        return products;
+    }
+
+    private enum Mode {
+        ROW_AT_A_TIME, BATCHED, BULK_ENGINE
+    }
+}
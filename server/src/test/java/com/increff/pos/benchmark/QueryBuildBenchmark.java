@@ -0,0 +1,180 @@
+package com.increff.pos.benchmark;
+
+import com.increff.pos.config.TestDbConfig;
+import com.increff.pos.dao.QueryShape;
+import com.increff.pos.entity.Client;
+import com.increff.pos.entity.Product;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Cost of building the product filter query: Criteria API per call vs a QueryShape.
+ *
+ * Not picked up by the default surefire includes; run it explicitly:
+ * mvn -pl server test -Dtest=QueryBuildBenchmark
+ *
+ * Only the build is measured (up to a TypedQuery with parameters bound); nothing is executed.
+ * "criteria" builds the CriteriaQuery the way the filter DAOs used to, and Hibernate renders it to
+ * JPQL on every createQuery. "shape" concatenates the JPQL, whose parsed plan Hibernate already has
+ * cached, and binds parameters, the way AbstractDao.buildShapeQuery does. Both cycle through the same filter
+ * combinations so every shape is hit.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = TestDbConfig.class)
+@TestPropertySource("classpath:test.properties")
+public class QueryBuildBenchmark {
+
+    private static final int ITERATIONS = 200_000;
+    // searchTerm, clientName, category, minMrp, maxMrp
+    private static final Object[][] FILTERS = {
+            {null, null, null, null, null},
+            {"shoe", null, null, null, null},
+            {null, "acme", null, null, null},
+            {"shoe", "acme", "footwear", null, null},
+            {null, null, "footwear", 100.0, 500.0},
+            {"shoe", "acme", "footwear", 100.0, 500.0},
+    };
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private TransactionTemplate transactionTemplate;
+
+    @Before
+    public void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+    }
+
+    @Test
+    public void queryBuildOverhead() {
+        // Warm up the JIT and Hibernate's query plan cache before measuring
+        run("warm-up", ITERATIONS / 10, false);
+        run("warm-up", ITERATIONS / 10, true);
+
+        Sample criteria = run("criteria", ITERATIONS, false);
+        Sample shape = run("shape", ITERATIONS, true);
+
+        System.out.printf("Query shape: %.1fx less CPU, %.1fx less allocation per build%n",
+                (double) criteria.cpuNanos / Math.max(1, shape.cpuNanos),
+                (double) criteria.allocatedBytes / Math.max(1, shape.allocatedBytes));
+    }
+
+    private Sample run(String label, int iterations, boolean useShape) {
+        Sample sample = new Sample();
+        transactionTemplate.execute(status -> {
+            long cpuStart = threadCpuNanos();
+            long allocatedStart = threadAllocatedBytes();
+            int built = 0;
+            for (int i = 0; i < iterations; i++) {
+                Object[] filters = FILTERS[i % FILTERS.length];
+                TypedQuery<Product> query = useShape ? buildWithShape(filters) : buildWithCriteria(filters);
+                built += query == null ? 0 : 1;
+            }
+            sample.cpuNanos = threadCpuNanos() - cpuStart;
+            sample.allocatedBytes = threadAllocatedBytes() - allocatedStart;
+            assertEquals(iterations, built);
+            return null;
+        });
+
+        System.out.printf("%-8s %,8d builds: %,6d ns/build, %,6d bytes/build%n",
+                label, iterations, sample.cpuNanos / iterations, sample.allocatedBytes / iterations);
+        return sample;
+    }
+
+    private TypedQuery<Product> buildWithCriteria(Object[] filters) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Product> cq = cb.createQuery(Product.class);
+        Root<Product> productRoot = cq.from(Product.class);
+        Root<Client> clientRoot = cq.from(Client.class);
+        cq.select(productRoot);
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (filters[0] != null) {
+            String prefixPattern = filters[0] + "%";
+            predicates.add(cb.or(
+                    cb.like(productRoot.get("name"), prefixPattern),
+                    cb.like(cb.lower(productRoot.get("barcode")), prefixPattern)));
+        }
+        if (filters[1] != null) {
+            predicates.add(cb.equal(clientRoot.get("clientName"), filters[1]));
+        }
+        if (filters[2] != null) {
+            predicates.add(cb.equal(productRoot.get("category"), filters[2]));
+        }
+        if (filters[3] != null) {
+            predicates.add(cb.greaterThanOrEqualTo(productRoot.get("mrp"), (Double) filters[3]));
+        }
+        if (filters[4] != null) {
+            predicates.add(cb.lessThanOrEqualTo(productRoot.get("mrp"), (Double) filters[4]));
+        }
+        predicates.add(cb.equal(productRoot.get("clientId"), clientRoot.get("id")));
+        cq.where(predicates.toArray(new Predicate[0]));
+        cq.orderBy(cb.asc(productRoot.get("id")));
+        return em.createQuery(cq);
+    }
+
+    private TypedQuery<Product> buildWithShape(Object[] filters) {
+        QueryShape shape = new QueryShape("SELECT p FROM Product p, Client c").where("p.clientId = c.id");
+        if (filters[0] != null) {
+            shape.where("(p.name LIKE :searchTerm OR LOWER(p.barcode) LIKE :searchTerm)", "searchTerm", filters[0] + "%");
+        }
+        if (filters[1] != null) {
+            shape.where("c.clientName = :clientName", "clientName", filters[1]);
+        }
+        if (filters[2] != null) {
+            shape.where("p.category = :category", "category", filters[2]);
+        }
+        if (filters[3] != null) {
+            shape.where("p.mrp >= :minMrp", "minMrp", filters[3]);
+        }
+        if (filters[4] != null) {
+            shape.where("p.mrp <= :maxMrp", "maxMrp", filters[4]);
+        }
+        shape.orderBy("ORDER BY p.id ASC");
+
+        TypedQuery<Product> query = em.createQuery(shape.render(), Product.class);
+        shape.getParams().forEach(query::setParameter);
+        return query;
+    }
+
+    private static long threadCpuNanos() {
+        return ManagementFactory.getThreadMXBean().getCurrentThreadCpuTime();
+    }
+
+    private static long threadAllocatedBytes() {
+        java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threadMXBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    private static class Sample {
+        private long cpuNanos;
+        private long allocatedBytes;
+    }
+}
@@ -0,0 +1,164 @@
+package com.increff.pos.benchmark;
+
+import com.increff.pos.config.TestDbConfig;
+import com.increff.pos.dao.ClientDao;
+import com.increff.pos.dao.ProductDao;
+import com.increff.pos.entity.Client;
+import com.increff.pos.entity.Product;
+import com.increff.pos.factory.ClientFactory;
+import com.increff.pos.factory.ProductFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Heap and CPU cost of loading a large page in a read-write vs a read-only transaction.
+ *
+ * Not picked up by the default surefire includes; run it explicitly:
+ * mvn -pl server test -Dtest=ReadOnlySessionBenchmark
+ *
+ * A read-write session keeps a loaded-state snapshot per entity and dirty-checks all of them on
+ * commit. A read-only transaction (readOnly = true) makes the session read-only: no snapshots,
+ * FlushMode.MANUAL, and Connection.setReadOnly on the JDBC side. "retained" is the heap still
+ * held by the persistence context right before commit; "allocated" and "cpu" cover load + commit.
+ * The seed has to be committed for both transactions to see it and is deleted afterwards.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = TestDbConfig.class)
+@TestPropertySource("classpath:test.properties")
+public class ReadOnlySessionBenchmark {
+
+    private static final int ROWS = 50_000;
+
+    @Autowired
+    private ProductDao productDao;
+    @Autowired
+    private ClientDao clientDao;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private Integer clientId;
+
+    @Before
+    public void setUp() {
+        new TransactionTemplate(transactionManager).execute(status -> {
+            Client client = ClientFactory.mockNewObject("bench-read-only-" + System.currentTimeMillis());
+            clientDao.insert(client);
+            List<Product> products = new ArrayList<>(ROWS);
+            for (int i = 0; i < ROWS; i++) {
+                products.add(ProductFactory.mockNewObject("RO-" + i, client.getId()));
+            }
+            productDao.insertAll(products);
+            clientId = client.getId();
+            return null;
+        });
+    }
+
+    @After
+    public void tearDown() {
+        new TransactionTemplate(transactionManager).execute(status -> {
+            em.createQuery("DELETE FROM Product p WHERE p.clientId = :clientId")
+                    .setParameter("clientId", clientId)
+                    .executeUpdate();
+            em.createQuery("DELETE FROM Client c WHERE c.id = :clientId")
+                    .setParameter("clientId", clientId)
+                    .executeUpdate();
+            return null;
+        });
+    }
+
+    @Test
+    public void readOnlySessionSavings() {
+        // Warm up the JIT, statement caches and the pool before measuring
+        run("warm-up", false);
+        run("warm-up", true);
+
+        Sample readWrite = run("read-write", false);
+        Sample readOnly = run("read-only", true);
+
+        System.out.printf("Read-only session: %.1fx less retained heap, %.1fx less CPU%n",
+                (double) readWrite.retainedBytes / Math.max(1, readOnly.retainedBytes),
+                (double) readWrite.cpuNanos / Math.max(1, readOnly.cpuNanos));
+    }
+
+    private Sample run(String label, boolean readOnly) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(readOnly);
+
+        Sample sample = new Sample();
+        long heapBefore = usedHeapAfterGc();
+        long cpuStart = threadCpuNanos();
+        long allocatedStart = threadAllocatedBytes();
+        long start = System.nanoTime();
+
+        int loaded = transactionTemplate.execute(status -> {
+            List<Product> products = em.createQuery("SELECT p FROM Product p WHERE p.clientId = :clientId", Product.class)
+                    .setParameter("clientId", clientId)
+                    .getResultList();
+            // Pause the clocks for the heap probe, which forces a full GC
+            long cpuPaused = threadCpuNanos();
+            long allocatedPaused = threadAllocatedBytes();
+            sample.retainedBytes = usedHeapAfterGc() - heapBefore;
+            sample.excludedCpuNanos = threadCpuNanos() - cpuPaused;
+            sample.excludedAllocatedBytes = threadAllocatedBytes() - allocatedPaused;
+            return products.size();
+        });
+
+        sample.elapsedNanos = System.nanoTime() - start;
+        sample.cpuNanos = threadCpuNanos() - cpuStart - sample.excludedCpuNanos;
+        sample.allocatedBytes = threadAllocatedBytes() - allocatedStart - sample.excludedAllocatedBytes;
+        assertEquals(ROWS, loaded);
+
+        System.out.printf("%-11s %,7d rows: retained %,7d KB, allocated %,8d KB, cpu %,6d ms, wall %,6d ms%n",
+                label, loaded, sample.retainedBytes / 1024, sample.allocatedBytes / 1024,
+                sample.cpuNanos / 1_000_000, sample.elapsedNanos / 1_000_000);
+        return sample;
+    }
+
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long threadCpuNanos() {
+        return ManagementFactory.getThreadMXBean().getCurrentThreadCpuTime();
+    }
+
+    private static long threadAllocatedBytes() {
+        java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threadMXBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    private static class Sample {
+        private long retainedBytes;
+        private long allocatedBytes;
+        private long cpuNanos;
+        private long elapsedNanos;
+        private long excludedCpuNanos;
+        private long excludedAllocatedBytes;
+    }
+}
@@ -220,4 +220,30 @@ public class ClientDaoTest {
         assertTrue(results.get(0).getClientName().contains("_aaa")); // Check sorting
         assertTrue(results.get(1).getClientName().contains("_bbb"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testFiltersKeysetWalksAllPagesAscending() {
+        // Arrange
+        String uniquePrefix = "keyset_" + System.currentTimeMillis();
+        Client first = mockNewObject(uniquePrefix + "_1");
+        Client second = mockNewObject(uniquePrefix + "_2");
+        Client third = mockNewObject(uniquePrefix + "_3");
+        clientDao.insert(first);
+        clientDao.insert(second);
+        clientDao.insert(third);
+
+        Pageable pageable = PageRequest.of(0, 2, Sort.by("id").ascending());
+
+        // Act
+        List<Client> firstPage = clientDao.selectWithFilters(uniquePrefix, null, pageable);
+        Integer lastId = firstPage.get(firstPage.size() - 1).getId();
+        List<Client> secondPage = clientDao.selectWithFilters(uniquePrefix, lastId, pageable);
+
+        // Assert
+        assertEquals(2, firstPage.size());
+        assertEquals(first.getId(), firstPage.get(0).getId());
+        assertEquals(second.getId(), firstPage.get(1).getId());
+        assertEquals(1, secondPage.size());
+        assertEquals(third.getId(), secondPage.get(0).getId());
+    }
+}
@@ -17,8 +17,14 @@ import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.increff.pos.factory.ClientFactory;
 import com.increff.pos.factory.ProductFactory;
@@ -40,6 +46,9 @@ public class InventoryDaoTest {
     @Autowired
     private ClientDao clientDao;
 
+    @PersistenceContext
+    private EntityManager em;
+
     private Client testClient;
     private Product testProduct1;
     private Product testProduct2;
@@ -187,14 +196,17 @@ public class InventoryDaoTest {
         List<Inventory> updates = Arrays.asList(i1_update, i2_update);
 
         // Act
-        inventoryDao.bulkUpdate(updates);
+        List<Integer> unmatchedProductIds = inventoryDao.bulkUpdate(updates);
 
         // Assert
+        assertTrue(unmatchedProductIds.isEmpty());
         Inventory i1_fromDb = inventoryDao.selectById(i1_db.getId());
         Inventory i2_fromDb = inventoryDao.selectById(i2_db.getId());
 
         assertEquals(5, (int) i1_fromDb.getQuantity());
         assertEquals(10, (int) i2_fromDb.getQuantity());
+        assertEquals(i1_db.getVersion() + 1, (int) i1_fromDb.getVersion());
+        assertEquals(i2_db.getVersion() + 1, (int) i2_fromDb.getVersion());
     }
 
     @Test
@@ -211,15 +223,75 @@ public class InventoryDaoTest {
         i3_update.setQuantity(20);
 
         // Act
-        // This should not throw an error, it should just do nothing for i2 and i3
-        inventoryDao.bulkUpdate(Arrays.asList(i2_update, i3_update));
+        // This should not throw an error, it should just report i2 and i3 as unmatched
+        List<Integer> unmatchedProductIds = inventoryDao.bulkUpdate(Arrays.asList(i2_update, i3_update));
 
         // Assert
+        assertEquals(Arrays.asList(testProduct2.getId(), 9999), unmatchedProductIds);
         // The original inventory item should be unchanged
         Inventory i1_fromDb = inventoryDao.selectById(i1_db.getId());
         assertEquals(100, (int) i1_fromDb.getQuantity());
     }
 
+    @Test
+    public void testDecrementQuantities() {
+        // Arrange
+        Inventory i1_db = createTestInventory(testProduct1, 10);
+        Inventory i2_db = createTestInventory(testProduct2, 3);
+
+        Map<Integer, Integer> decrements = new LinkedHashMap<>();
+        decrements.put(testProduct1.getId(), 4);
+        decrements.put(testProduct2.getId(), 5); // Only 3 in stock
+        decrements.put(9999, 1);                 // No inventory row
+
+        // Act
+        List<Integer> shortProductIds = inventoryDao.decrementQuantities(decrements);
+
+        // Assert
+        assertEquals(Arrays.asList(testProduct2.getId(), 9999), shortProductIds);
+
+        Inventory i1_fromDb = inventoryDao.selectById(i1_db.getId());
+        Inventory i2_fromDb = inventoryDao.selectById(i2_db.getId());
+        assertEquals(6, (int) i1_fromDb.getQuantity());
+        assertEquals(3, (int) i2_fromDb.getQuantity()); // Short rows are left untouched
+        assertEquals(i1_db.getVersion() + 1, (int) i1_fromDb.getVersion());
+    }
+
+    @Test
+    public void testDecrementQuantitiesEvictsOnlyUpdatedInventory() {
+        // Arrange
+        Inventory i1_db = createTestInventory(testProduct1, 10);
+        Inventory i2_db = createTestInventory(testProduct2, 10);
+
+        // Act
+        inventoryDao.decrementQuantities(Collections.singletonMap(testProduct1.getId(), 4));
+
+        // Assert: the stale row is detached, everything else the transaction loaded stays managed
+        assertFalse(em.contains(i1_db));
+        assertTrue(em.contains(i2_db));
+        assertTrue(em.contains(testProduct1));
+        assertTrue(em.contains(testClient));
+        assertEquals(6, (int) inventoryDao.selectById(i1_db.getId()).getQuantity());
+    }
+
+    @Test
+    public void testDecrementQuantitiesRunsInProductIdOrder() {
+        // Arrange: both short, passed in descending id order
+        createTestInventory(testProduct1, 1);
+        createTestInventory(testProduct2, 1);
+
+        Map<Integer, Integer> decrements = new LinkedHashMap<>();
+        decrements.put(Math.max(testProduct1.getId(), testProduct2.getId()), 5);
+        decrements.put(Math.min(testProduct1.getId(), testProduct2.getId()), 5);
+
+        // Act
+        List<Integer> shortProductIds = inventoryDao.decrementQuantities(decrements);
+
+        // Assert: updates (and so row locks) went out in ascending id order
+        assertEquals(Arrays.asList(Math.min(testProduct1.getId(), testProduct2.getId()),
+                Math.max(testProduct1.getId(), testProduct2.getId())), shortProductIds);
+    }
+
     @Test
     public void testFindInventoryReportData() {
         // Arrange
@@ -256,4 +328,42 @@ public class InventoryDaoTest {
         assertEquals(p_banana.getId(), bananaReport.getProductId());
         assertEquals(100, (int) bananaReport.getQuantity());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testStreamAll() {
+        // Arrange
+        int initialSize = inventoryDao.selectAll().size();
+        Inventory i1_db = createTestInventory(testProduct1, 10);
+        Inventory i2_db = createTestInventory(testProduct2, 20);
+
+        // Act
+        List<Integer> streamedIds = new ArrayList<>();
+        inventoryDao.streamAll(inventory -> streamedIds.add(inventory.getId()));
+
+        // Assert
+        assertEquals(initialSize + 2, streamedIds.size());
+        assertTrue(streamedIds.contains(i1_db.getId()));
+        assertTrue(streamedIds.contains(i2_db.getId()));
+        List<Integer> sortedIds = new ArrayList<>(streamedIds);
+        Collections.sort(sortedIds);
+        assertEquals(sortedIds, streamedIds); // Rows arrive in id order
+    }
+
+    @Test
+    public void testStreamInventoryReportData() {
+        // Arrange
+        createTestInventory(testProduct1, 50);
+        createTestInventory(testProduct2, 100);
+        List<InventoryReportResult> expected = inventoryDao.findInventoryReportData();
+
+        // Act
+        List<InventoryReportResult> streamed = new ArrayList<>();
+        inventoryDao.streamInventoryReportData(streamed::add);
+
+        // Assert
+        assertEquals(expected.size(), streamed.size());
+        Map<Integer, Integer> expectedQuantities = new LinkedHashMap<>();
+        expected.forEach(r -> expectedQuantities.put(r.getProductId(), r.getQuantity()));
+        streamed.forEach(r -> assertEquals(expectedQuantities.get(r.getProductId()), r.getQuantity()));
+    }
+}
@@ -1,9 +1,13 @@
 package com.increff.pos.integration.dao;
 
 import com.increff.pos.config.TestDbConfig;
+import com.increff.pos.dao.OrderArchiveDao;
 import com.increff.pos.dao.OrderDao;
+import com.increff.pos.dao.OrderItemDao;
 import com.increff.pos.entity.Order;
+import com.increff.pos.entity.OrderItem;
 import com.increff.pos.factory.OrderFactory;
+import com.increff.pos.factory.OrderItemFactory;
 import com.increff.pos.model.enums.OrderStatus;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -16,20 +20,31 @@ import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.sql.Timestamp;
 import java.time.ZonedDateTime;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static org.junit.Assert.*;
 
 @RunWith(SpringJUnit4ClassRunner.class)
 @ContextConfiguration(classes = TestDbConfig.class)
-@TestPropertySource("classpath:test.properties")
+@TestPropertySource(locations = "classpath:test.properties", properties = "order.archive.enabled=true")
 @Transactional
 public class OrderDaoTest {
 
     @Autowired
     private OrderDao orderDao;
+    @Autowired
+    private OrderItemDao orderItemDao;
+    @Autowired
+    private OrderArchiveDao orderArchiveDao;
+
+    @PersistenceContext
+    private EntityManager em;
 
     // --- Tests for AbstractDao methods ---
 
@@ -228,4 +243,78 @@ public class OrderDaoTest {
         // Verify descending order
         assertTrue(results.get(0).getId() > results.get(1).getId());
     }
+
+    @Test
+    public void testFindWithFiltersKeysetWalksAllPagesDescending() {
+        // Arrange
+        Order first = OrderFactory.mockNewObject();
+        Order second = OrderFactory.mockNewObject();
+        Order third = OrderFactory.mockNewObject();
+        orderDao.insert(first);
+        orderDao.insert(second);
+        orderDao.insert(third);
+
+        Pageable pageable = PageRequest.of(0, 2, Sort.by("id").descending());
+
+        // Act
+        List<Order> firstPage = orderDao.findWithFilters(null, null, null, null, null, pageable);
+        Integer lastId = firstPage.get(firstPage.size() - 1).getId();
+        List<Order> secondPage = orderDao.findWithFilters(null, null, null, null, lastId, pageable);
+
+        // Assert
+        assertEquals(2, firstPage.size());
+        assertEquals(third.getId(), firstPage.get(0).getId());
+        assertEquals(second.getId(), firstPage.get(1).getId());
+        assertEquals(1, secondPage.size());
+        assertEquals(first.getId(), secondPage.get(0).getId());
+    }
+
+    @Test
+    public void testArchivedOrdersAreServedFromArchiveTables() {
+        // Arrange: an invoiced order from two years ago (with one item) and a fresh order
+        Order oldOrder = OrderFactory.mockNewObject();
+        oldOrder.setOrderStatus(OrderStatus.INVOICED);
+        orderDao.insert(oldOrder);
+        orderItemDao.insert(OrderItemFactory.mockNewObject(oldOrder.getId(), 1));
+        Order recentOrder = OrderFactory.mockNewObject();
+        orderDao.insert(recentOrder);
+        em.flush();
+        em.createNativeQuery("UPDATE orders SET createdAt = :createdAt WHERE id = :id")
+                .setParameter("createdAt", Timestamp.from(ZonedDateTime.now().minusYears(2).toInstant()))
+                .setParameter("id", oldOrder.getId())
+                .executeUpdate();
+
+        // Act
+        List<Integer> archivableIds = orderArchiveDao.selectArchivableOrderIds(orderArchiveDao.getCutoff(), 10);
+        int archived = orderArchiveDao.archiveOrders(archivableIds);
+
+        // Assert: the old order left the hot table ...
+        assertEquals(Collections.singletonList(oldOrder.getId()), archivableIds);
+        assertEquals(1, archived);
+        assertNull(orderDao.selectById(oldOrder.getId()));
+
+        // ... the default listing (no start date) shows the hot table only ...
+        assertEquals(1, orderDao.findWithFilters(null, null, null, null, PageRequest.of(0, 10)).size());
+        assertEquals(1, (long) orderDao.countWithFilters(null, null, null, null));
+
+        // ... but a start date before the cutoff sees both, merged in id order
+        ZonedDateTime threeYearsAgo = ZonedDateTime.now().minusYears(3);
+        List<Order> all = orderDao.findWithFilters(null, threeYearsAgo, null, null, PageRequest.of(0, 10));
+        assertEquals(2, all.size());
+        assertEquals(recentOrder.getId(), all.get(0).getId());
+        assertEquals(oldOrder.getId(), all.get(1).getId());
+        assertEquals(2, (long) orderDao.countWithFilters(null, threeYearsAgo, null, null));
+
+        // A range that starts after the cutoff never touches the archive
+        assertEquals(1, (long) orderDao.countWithFilters(null, ZonedDateTime.now().minusDays(1), null, null));
+
+        // Items of the archived order are found through the regular lookup
+        List<OrderItem> items = orderItemDao.selectByOrderIds(Collections.singletonList(oldOrder.getId()));
+        assertEquals(1, items.size());
+        assertEquals(oldOrder.getId(), items.get(0).getOrderId());
+
+        // ... and so are the order and its items by id
+        assertEquals(oldOrder.getId(), orderDao.selectArchivedById(oldOrder.getId()).getId());
+        assertEquals(1, orderItemDao.selectByOrderId(oldOrder.getId()).size());
+    }
 }
@@ -1,26 +1,31 @@
 package com.increff.pos.integration.dao;
 
 import com.increff.pos.config.TestDbConfig;
+import com.increff.pos.dao.BulkInsertEngine;
 import com.increff.pos.dao.ClientDao;
+import com.increff.pos.dao.InventoryDao;
 import com.increff.pos.dao.ProductDao;
 import com.increff.pos.entity.Client;
+import com.increff.pos.entity.Inventory;
 import com.increff.pos.entity.Product;
 import com.increff.pos.factory.ClientFactory;
+import com.increff.pos.factory.InventoryFactory;
 import com.increff.pos.factory.ProductFactory;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.*;
 
@@ -36,6 +41,12 @@ public class ProductDaoTest {
     @Autowired
     private ClientDao clientDao;
 
+    @Autowired
+    private InventoryDao inventoryDao;
+
+    @Autowired
+    private BulkInsertEngine bulkInsertEngine;
+
     private Client testClient;
 
     @Before
@@ -166,110 +177,64 @@ public class ProductDaoTest {
         assertEquals(2, fromDb.size());
     }
 
-    // --- Tests for Filter methods ---
-
-    @Test
-    public void testFiltersNoFilter() {
-        // Arrange
-        productDao.insert(ProductFactory.mockNewObject("FILTER-1", testClient.getId()));
-        productDao.insert(ProductFactory.mockNewObject("FILTER-2", testClient.getId()));
-        Pageable pageable = PageRequest.of(0, 100);
-        
-        // Act
-        List<Product> results = productDao.selectWithFilters(null, null, null, null, null, pageable);
-        Long count = productDao.countWithFilters(null, null, null, null, null);
-        
-        // Assert
-        assertEquals(2, results.size());
-        assertEquals(2, (long) count);
-    }
-
-    @Test
-    public void testFiltersWithSearchTerm() {
-        // Arrange
-        String uniqueTerm = "SEARCH_" + System.currentTimeMillis();
-
-        Product p = ProductFactory.mockNewObject(uniqueTerm + "_BC", testClient.getId());
-        productDao.insert(p);
-        Pageable pageable = PageRequest.of(0, 100);
-        
-        // Act
-        // Search uses prefix matching on name and barcode, so uniqueTerm should match barcode starting with uniqueTerm
-        List<Product> results = productDao.selectWithFilters(uniqueTerm, null, null, null, null, pageable);
-        Long count = productDao.countWithFilters(uniqueTerm, null, null, null, null);
-        
-        // Assert
-        assertEquals(1, (long) count);
-        // With prefix matching, barcode should start with the search term (case-insensitive)
-        assertTrue(results.stream().anyMatch(prod -> 
-            prod.getBarcode().toLowerCase().startsWith(uniqueTerm.toLowerCase())
-        ));
-    }
-
     @Test
-    public void testFiltersWithClientName() {
-        // Arrange
-        String uniqueClientName = "FilterClient_" + System.currentTimeMillis();
-        Client filterClient = ClientFactory.mockNewObject(uniqueClientName);
-        clientDao.insert(filterClient);
-        
-        productDao.insert(ProductFactory.mockNewObject("BC-CLIENT", filterClient.getId()));
-        Pageable pageable = PageRequest.of(0, 100);
-        
-        // Act
-        List<Product> results = productDao.selectWithFilters(null, uniqueClientName, null, null, null, pageable);
-        Long count = productDao.countWithFilters(null, uniqueClientName, null, null, null);
-        
-        // Assert
-        assertEquals(1, (long) count);
-        assertEquals(1, results.size());
+    public void testSelectMapByBarcodesInChunks() {
+        // Arrange: a tiny chunk size so five barcodes need three IN-list queries
+        ProductDao target = AopTestUtils.getTargetObject(productDao);
+        ReflectionTestUtils.setField(target, "multiGetChunkSize", 2);
+        try {
+            for (int i = 1; i <= 5; i++) {
+                productDao.insert(ProductFactory.mockNewObject("CHUNK-" + i, testClient.getId()));
+            }
+            List<String> barcodes = Arrays.asList("CHUNK-1", "CHUNK-2", "CHUNK-3", "CHUNK-2", "CHUNK-4", "CHUNK-5", "MISSING");
+
+            // Act
+            Map<String, Product> result = productDao.selectMapByBarcodes(barcodes);
+
+            // Assert: duplicates and unknown barcodes are dropped, every match is keyed by its barcode
+            assertEquals(5, result.size());
+            for (int i = 1; i <= 5; i++) {
+                assertEquals("CHUNK-" + i, result.get("CHUNK-" + i).getBarcode());
+            }
+            assertEquals(5, productDao.selectByBarcodes(barcodes).size());
+        } finally {
+            ReflectionTestUtils.setField(target, "multiGetChunkSize", 512);
+        }
     }
 
     @Test
-    public void testFiltersWithMrpRange() {
-        // Arrange
-        Product p1 = ProductFactory.mockNewObject("MRP-150", testClient.getId());
-        p1.setMrp(150.0);
-        productDao.insert(p1);
-        
-        Product p2 = ProductFactory.mockNewObject("MRP-50", testClient.getId());
-        p2.setMrp(50.0);
-        productDao.insert(p2);
-        
-        Pageable pageable = PageRequest.of(0, 100);
-        
-        // Act
-        List<Product> results = productDao.selectWithFilters(null, null, null, 100.0, 200.0, pageable);
-        Long count = productDao.countWithFilters(null, null, null, 100.0, 200.0);
-        
-        // Assert
-        assertEquals(1, (long) count);
-        assertTrue(results.stream().anyMatch(p -> p.getMrp() == 150.0));
-        assertFalse(results.stream().anyMatch(p -> p.getMrp() == 50.0));
-    }
-
-    @Test
-    public void testFiltersPaginationAndSorting() {
-        // Arrange
-        String uniquePrefix = "SORT_" + System.currentTimeMillis();
-
-        Product p1 = ProductFactory.mockNewObject(uniquePrefix + "_CCC", testClient.getId());
-        Product p2 = ProductFactory.mockNewObject(uniquePrefix + "_AAA", testClient.getId());
-        Product p3 = ProductFactory.mockNewObject(uniquePrefix + "_BBB", testClient.getId());
-        productDao.insert(p1);
-        productDao.insert(p2);
-        productDao.insert(p3);
-        
-        Pageable pageable = PageRequest.of(0, 2, Sort.by("barcode").ascending());
-        
-        // Act
-        List<Product> results = productDao.selectWithFilters(uniquePrefix, null, null, null, null, pageable);
-        Long count = productDao.countWithFilters(uniquePrefix, null, null, null, null);
-        
-        // Assert
-        assertEquals(3, (long) count);
-        assertEquals(2, results.size()); // Page size
-        assertTrue(results.get(0).getBarcode().contains("_AAA"));
-        assertTrue(results.get(1).getBarcode().contains("_BBB"));
+    public void testBulkIngestAssignsIdsAndWritesDependentRowsPerChunk() {
+        // Arrange: chunks of two, so five products arrive in three chunks
+        ReflectionTestUtils.setField(bulkInsertEngine, "chunkSize", 2);
+        try {
+            List<Product> products = new ArrayList<>();
+            for (int i = 1; i <= 5; i++) {
+                products.add(ProductFactory.mockNewObject("BULK-" + i, testClient.getId()));
+            }
+            List<Integer> chunkSizes = new ArrayList<>();
+
+            // Act: create inventory for every chunk from the ids the engine assigned
+            productDao.bulkIngest(products, chunk -> {
+                chunkSizes.add(chunk.size());
+                List<Inventory> inventories = new ArrayList<>();
+                for (Product product : chunk) {
+                    inventories.add(InventoryFactory.mockNewObject(product.getId()));
+                }
+                inventoryDao.bulkInsert(inventories);
+            });
+
+            // Assert
+            assertEquals(Arrays.asList(2, 2, 1), chunkSizes);
+            for (Product product : products) {
+                assertNotNull(product.getId());
+                Product stored = productDao.selectByBarcode(product.getBarcode());
+                assertEquals(product.getId(), stored.getId());
+                assertEquals(Integer.valueOf(0), stored.getVersion());
+                assertNotNull(stored.getCreatedAt());
+                assertNotNull(inventoryDao.selectByProductId(product.getId()));
+            }
+        } finally {
+            ReflectionTestUtils.setField(bulkInsertEngine, "chunkSize", 1000);
+        }
     }
 }
@@ -0,0 +1,119 @@
+package com.increff.pos.integration.dao;
+
+import com.increff.pos.config.TestDbConfig;
+import com.increff.pos.dao.ClientDao;
+import com.increff.pos.dao.InventoryDao;
+import com.increff.pos.dao.ProductDao;
+import com.increff.pos.dao.ProductListingDao;
+import com.increff.pos.entity.Client;
+import com.increff.pos.entity.Inventory;
+import com.increff.pos.entity.Product;
+import com.increff.pos.factory.ClientFactory;
+import com.increff.pos.factory.InventoryFactory;
+import com.increff.pos.factory.ProductFactory;
+import com.increff.pos.model.result.ProductListingResult;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = TestDbConfig.class)
+@TestPropertySource("classpath:test.properties")
+@Transactional
+public class ProductListingDaoTest {
+
+    @Autowired
+    private ProductListingDao productListingDao;
+
+    @Autowired
+    private ProductDao productDao;
+
+    @Autowired
+    private ClientDao clientDao;
+
+    @Autowired
+    private InventoryDao inventoryDao;
+
+    private Client testClient;
+    private Product product;
+    private Inventory inventory;
+
+    @Before
+    public void setUp() {
+        testClient = ClientFactory.mockNewObject("listing-client-" + System.currentTimeMillis());
+        clientDao.insert(testClient);
+
+        product = ProductFactory.mockNewObject("listing-bc-1", testClient.getId());
+        productDao.insert(product);
+
+        inventory = InventoryFactory.mockNewObject(product.getId());
+        inventory.setQuantity(7);
+        inventoryDao.insert(inventory);
+    }
+
+    @Test
+    public void testRefreshCopiesProductClientAndQuantity() {
+        productListingDao.refresh(Collections.singletonList(product.getId()));
+
+        ProductListingResult listing = productListingDao.selectByBarcode("listing-bc-1");
+        assertNotNull(listing);
+        assertEquals(product.getId(), listing.getId());
+        assertEquals(product.getName(), listing.getName());
+        assertEquals(testClient.getClientName(), listing.getClientName());
+        assertEquals(Integer.valueOf(7), listing.getQuantity());
+    }
+
+    @Test
+    public void testRefreshQuantitiesAndClientRenameFollowTheSourceRows() {
+        productListingDao.refresh(Collections.singletonList(product.getId()));
+
+        inventory.setQuantity(3);
+        inventoryDao.update(inventory);
+        productListingDao.refreshQuantities(Collections.singletonList(product.getId()));
+        productListingDao.updateClientName(testClient.getId(), "renamed-listing-client");
+
+        ProductListingResult listing = productListingDao.selectByBarcode("listing-bc-1");
+        assertEquals(Integer.valueOf(3), listing.getQuantity());
+        assertEquals("renamed-listing-client", listing.getClientName());
+    }
+
+    @Test
+    public void testSelectWithFiltersServesFromReadModel() {
+        Product other = ProductFactory.mockNewObject("listing-bc-2", testClient.getId());
+        productDao.insert(other);
+        productListingDao.refresh(Arrays.asList(product.getId(), other.getId()));
+
+        List<ProductListingResult> results = productListingDao.selectWithFilters(
+                null, testClient.getClientName(), null, null, null, null, PageRequest.of(0, 10, Sort.by("id").ascending()));
+
+        assertEquals(2, results.size());
+        assertEquals(product.getId(), results.get(0).getId());
+        // No inventory row yet, so the listing shows 0
+        assertEquals(Integer.valueOf(0), results.get(1).getQuantity());
+        assertEquals(Long.valueOf(2), productListingDao.countWithFilters(null, testClient.getClientName(), null, null, null));
+    }
+
+    @Test
+    public void testDeleteAndRebuild() {
+        productListingDao.refresh(Collections.singletonList(product.getId()));
+        productListingDao.deleteByProductIds(Collections.singletonList(product.getId()));
+        assertNull(productListingDao.selectByBarcode("listing-bc-1"));
+
+        productListingDao.rebuild();
+
+        assertNotNull(productListingDao.selectByBarcode("listing-bc-1"));
+    }
+}
@@ -72,7 +72,7 @@ public class InventoryDtoTest {
         p.setCategory("test-cat");
 
         // Use the flow to insert the product AND its initial inventory
-        testProduct = productFlow.insert(p);
+        testProduct = productFlow.insert(p).getProduct();
 
         // Get the generated inventory record
         testInventory = inventoryApi.getCheckByProductId(testProduct.getId());
@@ -72,7 +72,7 @@ public class InvoiceDtoTest {
 
         // 2. Create Product (which also creates Inventory)
         Product p = ProductFactory.mockNewObject(c.getId(),100.0);
-        testProduct = productFlow.insert(p);
+        testProduct = productFlow.insert(p).getProduct();
 
         // 3. Manually set inventory
         Inventory inv = inventoryApi.getCheckByProductId(testProduct.getId());
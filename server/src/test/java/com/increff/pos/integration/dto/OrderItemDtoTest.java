@@ -94,7 +94,7 @@ public class OrderItemDtoTest {
         product.setMrp(mrp);
         product.setCategory("test-category");
 
-        Product insertedProduct = productFlow.insert(product);
+        Product insertedProduct = productFlow.insert(product).getProduct();
 
         Inventory inventoryUpdate = InventoryFactory.mockNewObject(insertedProduct.getId());
         inventoryUpdate.setQuantity(inventory);
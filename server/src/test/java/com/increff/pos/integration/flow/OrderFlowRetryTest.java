@@ -0,0 +1,143 @@
+package com.increff.pos.integration.flow;
+
+import com.increff.pos.api.OrderItemApi;
+import com.increff.pos.commons.exception.ApiException;
+import com.increff.pos.config.SpringConfig;
+import com.increff.pos.dao.OrderDao;
+import com.increff.pos.entity.Order;
+import com.increff.pos.entity.OrderItem;
+import com.increff.pos.factory.OrderFactory;
+import com.increff.pos.flow.OrderFlow;
+import com.increff.pos.model.enums.OrderStatus;
+import com.increff.pos.model.result.OrderResult;
+import com.increff.pos.retry.OptimisticLockRetryInterceptor;
+import com.increff.pos.retry.RetryStats;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs OrderFlow.updateById through the real proxy chain (retry advisor, then transaction
+ * interceptor) and makes another transaction change the order while the first attempt is running.
+ *
+ * Not @Transactional: the retry only kicks in when the annotated call starts its own transaction.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {SpringConfig.class, OrderFlowRetryTest.ConflictConfig.class})
+@WebAppConfiguration
+@TestPropertySource("classpath:test.properties")
+public class OrderFlowRetryTest {
+
+    @Autowired
+    private OrderFlow orderFlow;
+    @Autowired
+    private OrderDao orderDao;
+    @Autowired
+    private ConflictingOrderItemApi conflictingOrderItemApi;
+    @Autowired
+    private OptimisticLockRetryInterceptor optimisticLockRetryInterceptor;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private Integer orderId;
+
+    @Before
+    public void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        orderId = transactionTemplate.execute(status -> {
+            Order order = OrderFactory.mockNewObject();
+            order.setOrderStatus(OrderStatus.CREATED);
+            orderDao.insert(order);
+            return order.getId();
+        });
+    }
+
+    @After
+    public void tearDown() {
+        transactionTemplate.execute(status -> {
+            orderDao.deleteById(orderId);
+            return null;
+        });
+    }
+
+    @Test
+    public void updateByIdShouldRetryInNewTransactionAfterVersionConflict() throws ApiException {
+        // GIVEN: the first attempt's commit will find the order's version moved on
+        conflictingOrderItemApi.conflictOnce(orderId);
+        Order update = new Order();
+        update.setOrderStatus(OrderStatus.CREATED);
+        update.setCustomerName("retried customer");
+
+        // WHEN
+        OrderResult orderResult = orderFlow.updateById(orderId, update);
+
+        // THEN: the second attempt ran in a transaction of its own and committed
+        assertEquals("retried customer", orderResult.getOrder().getCustomerName());
+        Order fromDb = transactionTemplate.execute(status -> orderDao.selectById(orderId));
+        assertEquals("retried customer", fromDb.getCustomerName());
+        RetryStats stats = optimisticLockRetryInterceptor.getStats().get("OrderFlow.updateById");
+        assertEquals(1, stats.getRetries());
+        assertEquals(1, stats.getRecovered());
+    }
+
+    /**
+     * OrderItemApi that, once armed, bumps the order's version from a separate transaction the next
+     * time OrderFlow.updateById reads the order's items, i.e. after it has loaded and changed the order.
+     */
+    public static class ConflictingOrderItemApi extends OrderItemApi {
+
+        private volatile Integer conflictOrderId;
+
+        @PersistenceContext
+        private EntityManager em;
+
+        @Autowired
+        private PlatformTransactionManager transactionManager;
+
+        public void conflictOnce(Integer orderId) {
+            conflictOrderId = orderId;
+        }
+
+        @Override
+        public List<OrderItem> getAllByOrderId(Integer orderId) throws ApiException {
+            if (Objects.equals(conflictOrderId, orderId)) {
+                conflictOrderId = null;
+                TransactionTemplate concurrent = new TransactionTemplate(transactionManager);
+                concurrent.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+                concurrent.execute(status -> em.createNativeQuery("UPDATE orders SET version = version + 1 WHERE id = ?")
+                        .setParameter(1, orderId)
+                        .executeUpdate());
+            }
+            return super.getAllByOrderId(orderId);
+        }
+    }
+
+    // Not @Configuration, so the component scan of SpringConfig does not pick it up for other tests
+    public static class ConflictConfig {
+
+        @Bean
+        @Primary
+        public ConflictingOrderItemApi conflictingOrderItemApi() {
+            return new ConflictingOrderItemApi();
+        }
+    }
+}
@@ -3,8 +3,10 @@ package com.increff.pos.unit.api;
 import com.increff.pos.api.ClientApi;
 import com.increff.pos.commons.exception.ApiException;
 import com.increff.pos.dao.ClientDao;
+import com.increff.pos.dao.ProductListingDao;
 import com.increff.pos.entity.Client;
 import com.increff.pos.model.result.PaginatedResult;
+import com.increff.pos.shard.ShardTemplate;
 import com.increff.pos.utils.BaseUtil;
 import com.increff.pos.utils.ClientUtil; // Still need to mock this
 import org.junit.Before;
@@ -35,6 +37,12 @@ public class ClientApiTest {
     @Mock
     private ClientDao clientDao;
 
+    @Mock
+    private ProductListingDao productListingDao;
+
+    @Mock
+    private ShardTemplate shardTemplate;
+
     @InjectMocks
     private ClientApi clientApi; // The API class we are testing
 
@@ -62,6 +70,7 @@ public class ClientApiTest {
         // We only care that the method returned the object as expected.
         assertNotNull(savedClient);
         assertEquals("new-client", savedClient.getClientName());
+        verify(shardTemplate).afterCommitOnOtherShards(any(Runnable.class));
     }
 
     @Test
@@ -221,7 +230,7 @@ public class ClientApiTest {
         // Given
         List<Client> clientList = Collections.singletonList(mockPersistedObject(1, "test-client"));
         when(clientDao.countWithFilters("test")).thenReturn(10L);
-        when(clientDao.selectWithFilters("test", testPageable)).thenReturn(clientList);
+        when(clientDao.selectWithFilters("test", null, testPageable)).thenReturn(clientList);
 
         // When
         PaginatedResult<Client> result = clientApi.getFilteredClients("test", testPageable);
@@ -283,6 +292,7 @@ public class ClientApiTest {
         assertNotNull(updatedClient);
         assertEquals("updated-name", updatedClient.getClientName());
         assertEquals(existingClient, updatedClient); // Check it returns the modified object
+        verify(productListingDao).updateClientName(1, "updated-name");
     }
 
     @Test
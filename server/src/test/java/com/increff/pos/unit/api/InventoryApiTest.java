@@ -3,11 +3,14 @@ package com.increff.pos.unit.api;
 import com.increff.pos.api.InventoryApi;
 import com.increff.pos.commons.exception.ApiException;
 import com.increff.pos.dao.InventoryDao;
+import com.increff.pos.dao.ProductListingDao;
 import com.increff.pos.entity.Inventory;
 import com.increff.pos.entity.Product;
 import com.increff.pos.model.data.InventoryUploadRow;
 import com.increff.pos.model.result.InventoryReportResult;
 import com.increff.pos.model.result.InventoryUploadResult;
+import com.increff.pos.shard.ShardMap;
+import com.increff.pos.shard.ShardTemplate;
 import com.increff.pos.utils.InventoryUtil;
 import org.junit.Before;
 import org.junit.Test;
@@ -18,13 +21,17 @@ import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Supplier;
 
 import static com.increff.pos.factory.InventoryFactory.mockNewObject;
 import static com.increff.pos.factory.InventoryFactory.mockPersistedObject;
@@ -47,12 +54,24 @@ public class InventoryApiTest {
     @Mock
     private InventoryDao inventoryDao;
 
+    @Mock
+    private ProductListingDao productListingDao;
+
+    @Mock
+    private ShardTemplate shardTemplate;
+
     @InjectMocks
     private InventoryApi inventoryApi;
 
     @Before
     public void setUp() {
         MockitoAnnotations.openMocks(this);
+        // Unsharded: every inventory row is on the caller's shard
+        when(inventoryDao.groupProductIdsByShard(any())).thenAnswer(invocation -> {
+            Map<String, List<Integer>> productIdsByShard = new LinkedHashMap<>();
+            productIdsByShard.put(ShardMap.HOME, new ArrayList<>(invocation.<Collection<Integer>>getArgument(0)));
+            return productIdsByShard;
+        });
     }
 
     // ---------------------------------------------------------------------
@@ -246,7 +265,7 @@ public class InventoryApiTest {
 
         inventoryApi.initializeInventory(Arrays.asList(p1, p2));
 
-        verify(inventoryDao).insertAll(captor.capture());
+        verify(inventoryDao).bulkInsert(captor.capture());
         List<Inventory> captured = captor.getValue();
         assertEquals(2, captured.size());
         assertEquals(Integer.valueOf(1), captured.get(0).getProductId());
@@ -259,7 +278,7 @@ public class InventoryApiTest {
     public void initializeInventoryEmptyInputDoesNothing() throws ApiException {
         inventoryApi.initializeInventory(Collections.emptyList());
 
-        verify(inventoryDao, never()).insertAll(anyList());
+        verify(inventoryDao, never()).bulkInsert(anyList());
     }
 
     // ---------------------------------------------------------------------
@@ -570,6 +589,34 @@ public class InventoryApiTest {
         }
     }
 
+    @Test
+    public void uploadReportsRowsWithoutInventoryAsFailed() throws ApiException {
+        InventoryUploadRow rowMatched = new InventoryUploadRow();
+        InventoryUploadRow rowUnmatched = new InventoryUploadRow();
+        List<InventoryUploadRow> rows = Arrays.asList(rowMatched, rowUnmatched);
+        Map<String, Product> productMap = new HashMap<>();
+
+        try (MockedStatic<InventoryUtil> mockedUtil = Mockito.mockStatic(InventoryUtil.class)) {
+            Set<String> duplicates = new HashSet<>();
+            mockedUtil.when(() -> InventoryUtil.findDuplicateBarcodes(rows)).thenReturn(duplicates);
+
+            Inventory matched = mockPersistedObject(1, 25);
+            Inventory unmatched = mockPersistedObject(2, 30);
+            mockedUtil.when(() -> InventoryUtil.validateAndConvert(eq(rowMatched), eq(productMap), eq(duplicates)))
+                .thenReturn(matched);
+            mockedUtil.when(() -> InventoryUtil.validateAndConvert(eq(rowUnmatched), eq(productMap), eq(duplicates)))
+                .thenReturn(unmatched);
+            when(inventoryDao.bulkUpdate(anyList())).thenReturn(Collections.singletonList(2));
+
+            InventoryUploadResult result = inventoryApi.upload(rows, productMap);
+
+            assertEquals(Collections.singletonList(matched), result.getSuccessfullyUpdated());
+            assertEquals(1, result.getFailedRows().size());
+            assertSame(rowUnmatched, result.getFailedRows().get(0).getRow());
+            assertEquals("Inventory doesn't exist for this product", result.getFailedRows().get(0).getErrorMessage());
+        }
+    }
+
     @Test
     public void bulkUpdateInventories_validList_forwardsToDao() throws ApiException {
         List<Inventory> inventories = Arrays.asList(
@@ -596,4 +643,54 @@ public class InventoryApiTest {
 
         verify(inventoryDao, never()).bulkUpdate(anyList());
     }
+
+    @Test
+    public void decrementQuantities_validMap_returnsShortProductsFromDao() throws ApiException {
+        Map<Integer, Integer> decrements = new HashMap<>();
+        decrements.put(1, 5);
+        decrements.put(2, 3);
+        when(inventoryDao.decrementQuantities(decrements)).thenReturn(Collections.singletonList(2));
+
+        List<Integer> shortProductIds = inventoryApi.decrementQuantities(decrements);
+
+        assertEquals(Collections.singletonList(2), shortProductIds);
+        // Only the decremented product's listing quantity is refreshed
+        verify(productListingDao).refreshQuantities(Collections.singleton(1));
+    }
+
+    @Test
+    public void decrementQuantities_negativeQuantity_throwsException() {
+        Map<Integer, Integer> decrements = new HashMap<>();
+        decrements.put(1, -5);
+
+        ApiException ex = assertThrows(ApiException.class,
+            () -> inventoryApi.decrementQuantities(decrements)
+        );
+        assertEquals("Quantity cannot be negative for product with id 1", ex.getMessage());
+        verify(inventoryDao, never()).decrementQuantities(any());
+    }
+
+    @Test
+    public void decrementQuantities_productOnOtherShard_decrementsThereAndUndoesOnRollback() throws ApiException {
+        Map<Integer, Integer> decrements = new HashMap<>();
+        decrements.put(1, 5);
+        decrements.put(2, 3);
+        Map<String, List<Integer>> productIdsByShard = new LinkedHashMap<>();
+        productIdsByShard.put(ShardMap.HOME, Collections.singletonList(1));
+        productIdsByShard.put("east", Collections.singletonList(2));
+        when(inventoryDao.groupProductIdsByShard(any())).thenReturn(productIdsByShard);
+        when(shardTemplate.onShard(eq("east"), any())).thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+        when(inventoryDao.decrementQuantities(any())).thenReturn(Collections.emptyList());
+        ArgumentCaptor<Runnable> undo = ArgumentCaptor.forClass(Runnable.class);
+
+        List<Integer> shortProductIds = inventoryApi.decrementQuantities(decrements);
+
+        assertTrue(shortProductIds.isEmpty());
+        verify(inventoryDao).decrementQuantities(Collections.singletonMap(1, 5));
+        verify(inventoryDao).decrementQuantities(Collections.singletonMap(2, 3));
+        verify(shardTemplate).afterRollbackOn(eq("east"), undo.capture());
+        // The caller rolls back: the stock taken on the other shard is put back
+        undo.getValue().run();
+        verify(inventoryDao).incrementQuantities(Collections.singletonMap(2, 3));
+    }
 }
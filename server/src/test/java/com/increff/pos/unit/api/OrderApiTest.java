@@ -105,6 +105,17 @@ public class OrderApiTest {
         assertEquals("Order 404 doesn't exist", ex.getMessage());
     }
 
+    @Test
+    public void getCheckByIdIncludingArchiveArchivedOrderReturnsCopy() throws ApiException {
+        Order archived = mockPersistedObject(3, OrderStatus.INVOICED);
+        when(orderDao.selectById(3)).thenReturn(null);
+        when(orderDao.selectArchivedById(3)).thenReturn(archived);
+
+        Order result = orderApi.getCheckByIdIncludingArchive(3);
+
+        assertSame(archived, result);
+    }
+
     // ---------------------------------------------------------------------
     // updateInvoicePathById()
     // ---------------------------------------------------------------------
@@ -279,7 +290,7 @@ public class OrderApiTest {
     public void getByFiltersValidParametersDelegatesToDao() throws ApiException {
         ZonedDateTime start = ZonedDateTime.now();
         ZonedDateTime end = start.plusDays(1);
-        when(orderDao.findWithFilters(1, start, end, OrderStatus.CREATED, mockPageable))
+        when(orderDao.findWithFilters(1, start, end, OrderStatus.CREATED, null, mockPageable))
             .thenReturn(Collections.emptyList());
 
         List<Order> result = orderApi.getByFilters(1, start, end, OrderStatus.CREATED, mockPageable);
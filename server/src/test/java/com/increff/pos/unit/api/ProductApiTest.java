@@ -3,15 +3,18 @@ package com.increff.pos.unit.api;
 import com.increff.pos.api.ProductApi;
 import com.increff.pos.commons.exception.ApiException;
 import com.increff.pos.dao.ProductDao;
+import com.increff.pos.dao.ProductListingDao;
 import com.increff.pos.entity.Client;
 import com.increff.pos.entity.Product;
 import com.increff.pos.model.data.ProductUploadRow;
 import com.increff.pos.model.result.PaginatedResult;
+import com.increff.pos.model.result.ProductListingResult;
 import com.increff.pos.model.result.ProductUploadResult;
 import com.increff.pos.utils.BaseUtil;
 import com.increff.pos.utils.ProductUtil;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockedStatic;
@@ -19,6 +22,7 @@ import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 import org.springframework.data.domain.Pageable;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
@@ -26,6 +30,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import static com.increff.pos.factory.ProductFactory.mockNewObject;
 import static com.increff.pos.factory.ProductFactory.mockPersistedObject;
@@ -34,6 +39,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.ArgumentMatchers.anySet;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 /**
@@ -45,6 +51,9 @@ public class ProductApiTest {
     @Mock
     private ProductDao productDao;
 
+    @Mock
+    private ProductListingDao productListingDao;
+
     @Mock
     private Pageable mockPageable;
 
@@ -71,6 +80,7 @@ public class ProductApiTest {
         assertNotNull(savedProduct);
         verify(productDao, times(1)).selectByBarcode("barcode1");
         verify(productDao, times(1)).insert(newProduct);
+        verify(productListingDao, times(1)).refresh(Collections.singletonList(newProduct.getId()));
     }
 
     @Test
@@ -99,18 +109,18 @@ public class ProductApiTest {
         }
     }
 
-     //--- getFilteredProducts() Tests ---
+     //--- getFilteredProductListing() Tests ---
 
     @Test
-    public void getFilteredProductsWithResultsShouldReturnPaginatedResult() throws ApiException {
+    public void getFilteredProductListingWithResultsShouldReturnPaginatedResult() throws ApiException {
         // Given
-        when(productDao.countWithFilters(any(), any(), any(), any(), any())).thenReturn(10L);
-        when(productDao.selectWithFilters(any(), any(), any(), any(), any(), eq(mockPageable)))
-                .thenReturn(Arrays.asList(mockPersistedObject(1), mockPersistedObject(2)));
+        when(productListingDao.countWithFilters(any(), any(), any(), any(), any())).thenReturn(10L);
+        when(productListingDao.selectWithFilters(any(), any(), any(), any(), any(), isNull(), eq(mockPageable)))
+                .thenReturn(Arrays.asList(mockListing(1), mockListing(2)));
         when(mockPageable.getPageSize()).thenReturn(5);
 
         // When
-        PaginatedResult<Product> result = productApi.getFilteredProducts(null, null, null, null, null, mockPageable);
+        PaginatedResult<ProductListingResult> result = productApi.getFilteredProductListing(null, null, null, null, null, null, mockPageable, true);
 
         // Then
         assertEquals(10L, (long) result.getTotalElements());
@@ -119,12 +129,12 @@ public class ProductApiTest {
     }
 
     @Test
-    public void getFilteredProductsNoResultsShouldReturnEmptyResult() throws ApiException {
+    public void getFilteredProductListingNoResultsShouldReturnEmptyResult() throws ApiException {
         // --- GIVEN ---
-        when(productDao.countWithFilters(any(), any(), any(), any(), any())).thenReturn(0L);
+        when(productListingDao.countWithFilters(any(), any(), any(), any(), any())).thenReturn(0L);
 
         // Prepare the empty result
-        PaginatedResult<Product> emptyResult = new PaginatedResult<>();
+        PaginatedResult<ProductListingResult> emptyResult = new PaginatedResult<>();
         emptyResult.setResults(Collections.emptyList());
         emptyResult.setTotalElements(0L);
         emptyResult.setTotalPages(0);
@@ -136,7 +146,7 @@ public class ProductApiTest {
             mockedBase.when(BaseUtil::createEmptyResult).thenReturn(emptyResult);
 
             // --- WHEN ---
-            PaginatedResult<Product> result = productApi.getFilteredProducts(null, null, null, null, null, mockPageable);
+            PaginatedResult<ProductListingResult> result = productApi.getFilteredProductListing(null, null, null, null, null, null, mockPageable, true);
 
             // --- THEN (Asserts) ---
             assertNotNull(result);
@@ -145,15 +155,15 @@ public class ProductApiTest {
         }
 
         // --- THEN (Verify) ---
-        verify(productDao, times(1)).countWithFilters(any(), any(), any(), any(), any());
-        verify(productDao, never()).selectWithFilters(any(), any(), any(), any(), any(), any());
+        verify(productListingDao, times(1)).countWithFilters(any(), any(), any(), any(), any());
+        verify(productListingDao, never()).selectWithFilters(any(), any(), any(), any(), any(), any(), any());
     }
 
 
     @Test
-    public void getFilteredProductsNullPageableShouldThrowApiException() {
+    public void getFilteredProductListingNullPageableShouldThrowApiException() {
         try {
-            productApi.getFilteredProducts(null, null, null, null, null, null);
+            productApi.getFilteredProductListing(null, null, null, null, null, null, null, true);
             fail("Should have thrown");
         } catch (ApiException e) {
             assertEquals("Pageable object cannot be null", e.getMessage());
@@ -277,6 +287,20 @@ public class ProductApiTest {
         }
     }
 
+    @Test
+    public void getCheckByIdProductOnOtherShardShouldReturnIt() throws ApiException {
+        // Given: orders on home hold products of clients on other shards
+        Product elsewhere = mockPersistedObject(2);
+        when(productDao.selectById(2)).thenReturn(null);
+        when(productDao.selectByIdOnOtherShards(2)).thenReturn(elsewhere);
+
+        // When
+        Product result = productApi.getCheckById(2);
+
+        // Then
+        assertSame(elsewhere, result);
+    }
+
     @Test
     public void getCheckByIdsMultipleMissingProductsShouldThrowExceptionForFirst() {
         // Given
@@ -369,6 +393,7 @@ public class ProductApiTest {
 
         // Then
         verify(productDao, times(1)).update(existing);
+        verify(productListingDao, times(1)).refresh(Collections.singletonList(id));
         assertEquals("new-bc", result.getBarcode());
         assertEquals("New Name", result.getName());
     }
@@ -485,7 +510,9 @@ public class ProductApiTest {
                     .thenThrow(validationError);
 
             // 4. When
-            ProductUploadResult result = productApi.upload(candidateRows, clientMap, existingBarcodesInDb);
+            List<List<Product>> chunksSeen = new ArrayList<>();
+            Consumer<List<Product>> onChunkInserted = chunksSeen::add;
+            ProductUploadResult result = productApi.upload(candidateRows, clientMap, existingBarcodesInDb, onChunkInserted);
 
             // 5. Then
             // Assert successful part
@@ -504,9 +531,16 @@ public class ProductApiTest {
             assertTrue(result.getFailedRows().get(2).getErrorMessage().contains("Duplicate barcode"));
 
             // Verify bulk insert was called ONLY with the successful item
-            verify(productDao, times(1)).insertAll(argThat(list ->
+            ArgumentCaptor<Consumer<List<Product>>> afterChunk = ArgumentCaptor.forClass(Consumer.class);
+            verify(productDao, times(1)).bulkIngest(argThat(list ->
                     list.size() == 1 && list.contains(productSuccess)
-            ));
+            ), afterChunk.capture());
+
+            // Every inserted chunk reaches the caller first, then its listing rows are written
+            productSuccess.setId(42);
+            afterChunk.getValue().accept(Collections.singletonList(productSuccess));
+            assertEquals(1, chunksSeen.size());
+            verify(productListingDao, times(1)).refresh(Collections.singletonList(42));
         }
     }
 
@@ -523,6 +557,7 @@ public class ProductApiTest {
         // Then
         verify(productDao, times(1)).selectById(1);
         verify(productDao, times(1)).deleteById(1);
+        verify(productListingDao, times(1)).deleteByProductIds(Collections.singletonList(1));
     }
 
     @Test
@@ -538,4 +573,8 @@ public class ProductApiTest {
             assertEquals("Product 999 doesn't exist", e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    private static ProductListingResult mockListing(Integer id) {
+        return new ProductListingResult(id, "barcode" + id, "product" + id, "category", 100.0, null, 1, "client", 10);
+    }
+}
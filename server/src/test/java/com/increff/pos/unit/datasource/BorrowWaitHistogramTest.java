@@ -0,0 +1,44 @@
+package com.increff.pos.unit.datasource;
+
+import com.increff.pos.datasource.BorrowWaitHistogram;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class BorrowWaitHistogramTest {
+
+    private static final long MILLIS = 1_000_000;
+
+    @Test
+    public void recordShouldFillMatchingBucketsAndAggregates() {
+        // GIVEN
+        BorrowWaitHistogram histogram = new BorrowWaitHistogram();
+
+        // WHEN
+        histogram.record(0);
+        histogram.record(3 * MILLIS);
+        histogram.record(5 * MILLIS);
+        histogram.record(8_000 * MILLIS);
+
+        // THEN
+        Map<String, Long> buckets = histogram.getBuckets();
+        assertEquals(1L, (long) buckets.get("<=1ms"));
+        assertEquals(2L, (long) buckets.get("<=5ms"));
+        assertEquals(0L, (long) buckets.get("<=10ms"));
+        assertEquals(1L, (long) buckets.get(">5000ms"));
+        assertEquals(4, histogram.getCount());
+        assertEquals(8_000.0, histogram.getMaxMillis(), 0.001);
+        assertEquals(2_002.0, histogram.getMeanMillis(), 0.001);
+    }
+
+    @Test
+    public void emptyHistogramShouldReportZeroes() {
+        BorrowWaitHistogram histogram = new BorrowWaitHistogram();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0.0, histogram.getMeanMillis(), 0.0);
+        assertEquals(9, histogram.getBuckets().size());
+    }
+}
@@ -0,0 +1,54 @@
+package com.increff.pos.unit.datasource;
+
+import com.increff.pos.datasource.QueryFingerprintStats;
+import com.increff.pos.datasource.QueryStatsRegistry;
+import com.increff.pos.datasource.SqlFingerprint;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class QueryStatsRegistryTest {
+
+    private static final long MILLIS = 1_000_000;
+
+    @Test
+    public void fingerprintShouldIgnoreLiteralsWhitespaceAndInListLength() {
+        String a = SqlFingerprint.of("select * from products  where id in (?, ?, ?) and name = 'abc' limit 10");
+        String b = SqlFingerprint.of("SELECT * FROM products WHERE id IN (?,?) AND name = 'x''y' LIMIT 50");
+
+        assertEquals("select * from products where id in (...) and name = ? limit ?", a);
+        assertEquals(a, b);
+        assertEquals(SqlFingerprint.id(a), SqlFingerprint.id(b));
+    }
+
+    @Test
+    public void recordShouldAggregatePerFingerprintAndKeepSlowSample() {
+        // GIVEN
+        QueryStatsRegistry registry = new QueryStatsRegistry(100);
+
+        // WHEN
+        for (int i = 0; i < 99; i++) {
+            registry.record("select p from products p where p.id = ?", Collections.singletonList(i), MILLIS);
+        }
+        registry.record("select p from products p where p.id = ?", Collections.singletonList(7), 300 * MILLIS);
+        registry.record("update inventory set quantity = ?", Arrays.asList(1, 2), 2 * MILLIS);
+
+        // THEN
+        List<QueryFingerprintStats> top = registry.getTop(10, Comparator.comparingDouble(QueryFingerprintStats::getTotalMillis));
+        assertEquals(2, top.size());
+        QueryFingerprintStats select = top.get(0);
+        assertEquals(100, select.getCount());
+        assertEquals(1, select.getSlowCount());
+        assertEquals(Collections.singletonList(7), select.getLastSlowBinds());
+        assertEquals(300.0, select.getMaxMillis(), 0.001);
+        // 99 of 100 samples took 1 ms, so the p99 lands in the ~1 ms bucket
+        assertTrue(select.getP99Millis() >= 1.0 && select.getP99Millis() <= 2.1);
+        assertSame(select, registry.getById(select.getId()));
+        assertNull(top.get(1).getLastSlowSql());
+    }
+}
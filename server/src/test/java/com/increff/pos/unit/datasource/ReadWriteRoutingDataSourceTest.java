@@ -0,0 +1,82 @@
+package com.increff.pos.unit.datasource;
+
+import com.increff.pos.datasource.ReadWriteRoutingDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class ReadWriteRoutingDataSourceTest {
+
+    private DataSource primary;
+    private DataSource replica;
+    private Connection primaryConnection;
+    private Connection replicaConnection;
+
+    @Before
+    public void setUp() throws Exception {
+        primary = mock(DataSource.class);
+        replica = mock(DataSource.class);
+        primaryConnection = mock(Connection.class);
+        replicaConnection = mock(Connection.class);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(replica.getConnection()).thenReturn(replicaConnection);
+    }
+
+    @After
+    public void tearDown() {
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    public void readOnlyTransactionShouldUseReplica() throws Exception {
+        // GIVEN
+        ReadWriteRoutingDataSource dataSource = new ReadWriteRoutingDataSource(primary, replica);
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        // WHEN / THEN
+        assertSame(replicaConnection, dataSource.getConnection());
+        assertEquals(1, dataSource.getReplicaLookups());
+        assertEquals(0, dataSource.getPrimaryLookups());
+    }
+
+    @Test
+    public void readWriteTransactionShouldUsePrimary() throws Exception {
+        // GIVEN
+        ReadWriteRoutingDataSource dataSource = new ReadWriteRoutingDataSource(primary, replica);
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        // WHEN / THEN
+        assertSame(primaryConnection, dataSource.getConnection());
+        verify(replica, never()).getConnection();
+    }
+
+    @Test
+    public void noTransactionShouldUsePrimary() throws Exception {
+        // GIVEN
+        ReadWriteRoutingDataSource dataSource = new ReadWriteRoutingDataSource(primary, replica);
+
+        // WHEN / THEN
+        assertSame(primaryConnection, dataSource.getConnection());
+    }
+
+    @Test
+    public void readOnlyTransactionWithoutReplicaShouldUsePrimary() throws Exception {
+        // GIVEN
+        ReadWriteRoutingDataSource dataSource = new ReadWriteRoutingDataSource(primary, null);
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        // WHEN / THEN
+        assertFalse(dataSource.hasReplica());
+        assertSame(primaryConnection, dataSource.getConnection());
+    }
+}
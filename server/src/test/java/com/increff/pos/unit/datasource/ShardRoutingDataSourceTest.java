@@ -0,0 +1,98 @@
+package com.increff.pos.unit.datasource;
+
+import com.increff.pos.shard.ShardContext;
+import com.increff.pos.shard.ShardMap;
+import com.increff.pos.shard.ShardRoutingDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class ShardRoutingDataSourceTest {
+
+    private DataSource home;
+    private DataSource east;
+    private Connection homeConnection;
+    private Connection eastConnection;
+    private ShardRoutingDataSource dataSource;
+
+    @Before
+    public void setUp() throws Exception {
+        home = mock(DataSource.class);
+        east = mock(DataSource.class);
+        homeConnection = mock(Connection.class);
+        eastConnection = mock(Connection.class);
+        when(home.getConnection()).thenReturn(homeConnection);
+        when(east.getConnection()).thenReturn(eastConnection);
+
+        Map<String, DataSource> shards = new HashMap<>();
+        shards.put(ShardMap.HOME, home);
+        shards.put("east", east);
+        dataSource = new ShardRoutingDataSource(shards);
+    }
+
+    @After
+    public void tearDown() {
+        ShardContext.restore(null);
+    }
+
+    @Test
+    public void unboundThreadShouldUseHome() throws Exception {
+        // WHEN / THEN
+        assertSame(homeConnection, dataSource.getConnection());
+        verify(east, never()).getConnection();
+    }
+
+    @Test
+    public void boundShardShouldBeUsedUntilRestored() throws Exception {
+        // WHEN / THEN
+        Connection connection = ShardContext.callOn("east", () -> getConnection(dataSource));
+        assertSame(eastConnection, connection);
+        assertSame(homeConnection, dataSource.getConnection());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void unknownShardShouldNotFallBackToHome() throws Exception {
+        // GIVEN
+        ShardContext.bind("west");
+
+        // WHEN
+        dataSource.getConnection();
+    }
+
+    @Test
+    public void shardMapShouldKeepUnmappedClientsOnHome() {
+        // GIVEN
+        ShardMap shardMap = new ShardMap(Arrays.asList(ShardMap.HOME, "east"), Collections.singletonMap(7, "east"));
+
+        // WHEN / THEN
+        assertEquals("east", shardMap.shardOf(7));
+        assertEquals(ShardMap.HOME, shardMap.shardOf(8));
+        assertEquals(ShardMap.HOME, shardMap.shardOf(null));
+        assertEquals(1, shardMap.indexOf("east"));
+        assertTrue(shardMap.isSharded());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shardMapShouldRejectClientsOnUnknownShards() {
+        // WHEN
+        new ShardMap(Collections.singletonList(ShardMap.HOME), Collections.singletonMap(7, "east"));
+    }
+
+    private static Connection getConnection(DataSource dataSource) {
+        try {
+            return dataSource.getConnection();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
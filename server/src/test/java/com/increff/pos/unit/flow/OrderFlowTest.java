@@ -5,14 +5,13 @@ import com.increff.pos.api.OrderApi;
 import com.increff.pos.api.OrderItemApi;
 import com.increff.pos.api.ProductApi;
 import com.increff.pos.commons.exception.ApiException;
-import com.increff.pos.entity.Inventory;
 import com.increff.pos.entity.Order;
 import com.increff.pos.entity.OrderItem;
 import com.increff.pos.entity.Product;
 import com.increff.pos.flow.OrderFlow;
 import com.increff.pos.model.enums.OrderStatus;
+import com.increff.pos.model.result.OrderGroupResult;
 import com.increff.pos.model.result.OrderResult;
-import com.increff.pos.factory.InventoryFactory;
 import com.increff.pos.factory.ProductFactory;
 import org.junit.Before;
 import org.junit.Test;
@@ -21,7 +20,10 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static com.increff.pos.factory.OrderFactory.mockNewObject;
 import static com.increff.pos.factory.OrderFactory.mockPersistedObject;
@@ -49,8 +51,6 @@ public class OrderFlowTest {
 
     private Order mockOrder;
     private List<OrderItem> mockItems;
-    private Inventory mockInventory1;
-    private Inventory mockInventory2;
     private Product mockProduct1;
     private Product mockProduct2;
 
@@ -71,9 +71,6 @@ public class OrderFlowTest {
 
         mockItems = Arrays.asList(mockItem1, mockItem2);
 
-        mockInventory1 = InventoryFactory.mockPersistedObject(101, 50);
-        mockInventory2 = InventoryFactory.mockPersistedObject(102, 20);
-
         mockProduct1 = ProductFactory.mockPersistedObject(101);
         mockProduct1.setMrp(120.0);
         mockProduct2 = ProductFactory.mockPersistedObject(102);
@@ -87,22 +84,46 @@ public class OrderFlowTest {
     public void insertNotEnoughStockShouldThrowException() throws ApiException {
         // GIVEN
         when(orderApi.insert(any())).thenReturn(mockOrder);
-        mockInventory1.setQuantity(3); // Need 5, only have 3
-        when(inventoryApi.getCheckByProductIds(any())).thenReturn(Arrays.asList(mockInventory1, mockInventory2));
         when(productApi.getCheckByIds(any())).thenReturn(Arrays.asList(mockProduct1, mockProduct2));
+        // Need 5 of product 101 but the conditional decrement did not match
+        when(inventoryApi.decrementQuantities(any())).thenReturn(Collections.singletonList(101));
 
         // WHEN/THEN
         ApiException ex = assertThrows(ApiException.class,
             () -> orderFlow.insert(mockOrder, mockItems)
         );
         assertTrue(ex.getMessage().contains("Not enough stock"));
+        verify(inventoryApi, never()).getCheckByProductIds(any());
+        verify(orderItemApi, never()).insertAll(any());
+    }
+
+    @Test
+    public void insertSumsQuantitiesOfRepeatedProducts() throws ApiException {
+        // GIVEN
+        OrderItem repeatedItem = mockPersistedObject(3, 1, 101);
+        repeatedItem.setQuantity(4);
+        repeatedItem.setSellingPrice(100.0);
+        List<OrderItem> items = Arrays.asList(mockItems.get(0), mockItems.get(1), repeatedItem);
+
+        when(orderApi.insert(any())).thenReturn(mockOrder);
+        when(productApi.getCheckByIds(any())).thenReturn(Arrays.asList(mockProduct1, mockProduct2));
+        when(inventoryApi.decrementQuantities(any())).thenReturn(Collections.emptyList());
+
+        // WHEN
+        orderFlow.insert(mockOrder, items);
+
+        // THEN
+        Map<Integer, Integer> expected = new HashMap<>();
+        expected.put(101, 9);
+        expected.put(102, 2);
+        verify(inventoryApi).decrementQuantities(expected);
+        verify(orderItemApi).insertAll(items);
     }
 
     @Test
     public void insertSellingPriceExceedsMrpShouldThrowException() throws ApiException {
         // GIVEN
         when(orderApi.insert(any())).thenReturn(mockOrder);
-        when(inventoryApi.getCheckByProductIds(any())).thenReturn(Arrays.asList(mockInventory1, mockInventory2));
         mockProduct1.setMrp(90.0); // SP is 100, MRP is 90
         when(productApi.getCheckByIds(any())).thenReturn(Arrays.asList(mockProduct1, mockProduct2));
 
@@ -113,11 +134,67 @@ public class OrderFlowTest {
         assertTrue(ex.getMessage().contains("Selling price cannot be more than mrp"));
     }
 
+    @Test
+    public void insertGroupRejectsOrderThatDoesNotFitStockLeftByEarlierOrders() throws ApiException {
+        // GIVEN: 8 of product 101 in stock; both orders want 5
+        Order secondOrder = mockNewObject();
+        OrderItem secondItem = mockPersistedObject(3, 2, 101);
+        secondItem.setQuantity(5);
+        secondItem.setSellingPrice(100.0);
+
+        Map<Integer, Integer> stock = new HashMap<>();
+        stock.put(101, 8);
+        stock.put(102, 10);
+        when(productApi.getByIds(any())).thenReturn(Arrays.asList(mockProduct1, mockProduct2));
+        when(inventoryApi.getQuantitiesForUpdate(any())).thenReturn(stock);
+        when(inventoryApi.decrementQuantities(any())).thenReturn(Collections.emptyList());
+
+        // WHEN
+        List<OrderGroupResult> results = orderFlow.insertGroup(Arrays.asList(
+                orderResult(mockOrder, mockItems), orderResult(secondOrder, Collections.singletonList(secondItem))));
+
+        // THEN
+        assertNull(results.get(0).getError());
+        assertTrue(results.get(1).getError().getMessage().contains("Not enough stock"));
+        verify(orderApi).insert(mockOrder);
+        verify(orderApi, never()).insert(secondOrder);
+        Map<Integer, Integer> expected = new HashMap<>();
+        expected.put(101, 5);
+        expected.put(102, 2);
+        verify(inventoryApi).decrementQuantities(expected);
+        verify(orderItemApi).insertAll(mockItems);
+    }
+
+    @Test
+    public void insertGroupRejectsInvalidOrderWithoutFailingTheOthers() throws ApiException {
+        // GIVEN: the second order sells product 101 above its mrp
+        Order secondOrder = mockNewObject();
+        OrderItem secondItem = mockPersistedObject(3, 2, 101);
+        secondItem.setQuantity(1);
+        secondItem.setSellingPrice(500.0);
+
+        Map<Integer, Integer> stock = new HashMap<>();
+        stock.put(101, 10);
+        stock.put(102, 10);
+        when(productApi.getByIds(any())).thenReturn(Arrays.asList(mockProduct1, mockProduct2));
+        when(inventoryApi.getQuantitiesForUpdate(any())).thenReturn(stock);
+        when(inventoryApi.decrementQuantities(any())).thenReturn(Collections.emptyList());
+
+        // WHEN
+        List<OrderGroupResult> results = orderFlow.insertGroup(Arrays.asList(
+                orderResult(mockOrder, mockItems), orderResult(secondOrder, Collections.singletonList(secondItem))));
+
+        // THEN
+        assertNull(results.get(0).getError());
+        assertTrue(results.get(1).getError().getMessage().contains("Selling price cannot be more than mrp"));
+        verify(orderApi, times(1)).insert(any());
+    }
+
     @Test
     public void getByIdValidIdShouldReturnOrderResult() throws ApiException {
         // GIVEN
         Order existingOrder = mockPersistedObject(1, OrderStatus.CREATED);
-        when(orderApi.getCheckById(1)).thenReturn(existingOrder);
+        when(orderApi.getCheckByIdIncludingArchive(1)).thenReturn(existingOrder);
         when(orderItemApi.getAllByOrderId(1)).thenReturn(mockItems);
 
         // WHEN
@@ -132,7 +209,7 @@ public class OrderFlowTest {
     @Test
     public void getByIdOrderNotFoundShouldThrowException() throws ApiException {
         // GIVEN
-        when(orderApi.getCheckById(999)).thenThrow(new ApiException("Order 999 doesn't exist"));
+        when(orderApi.getCheckByIdIncludingArchive(999)).thenThrow(new ApiException("Order 999 doesn't exist"));
 
         // WHEN/THEN
         ApiException ex = assertThrows(ApiException.class,
@@ -155,8 +232,11 @@ public class OrderFlowTest {
 
         // THEN - Verify critical side effect: inventory restocked
         assertNotNull(result);
-        verify(inventoryApi).updateQuantityByProductId(101, 5, 0);
-        verify(inventoryApi).updateQuantityByProductId(102, 2, 0);
+        Map<Integer, Integer> restocked = new HashMap<>();
+        restocked.put(101, 5);
+        restocked.put(102, 2);
+        verify(inventoryApi).incrementQuantities(restocked);
+        verify(inventoryApi, never()).updateQuantityByProductId(any(Integer.class), any(Integer.class), any(Integer.class));
     }
 
     @Test
@@ -173,7 +253,28 @@ public class OrderFlowTest {
 
         // THEN - Verify NO restock
         assertNotNull(result);
-        verify(inventoryApi, never()).updateQuantityByProductId(any(Integer.class), any(Integer.class), any(Integer.class));
+        verify(inventoryApi, never()).incrementQuantities(any());
+    }
+
+    @Test
+    public void cancelByIdsShouldRestockSummedQuantitiesOnce() throws ApiException {
+        // GIVEN: two cancelled orders share product 101
+        List<Integer> cancelledIds = Arrays.asList(1, 2);
+        OrderItem sharedItem = mockPersistedObject(3, 2, 101);
+        sharedItem.setQuantity(4);
+        List<OrderItem> items = Arrays.asList(mockItems.get(0), mockItems.get(1), sharedItem);
+        when(orderApi.cancelByIds(Arrays.asList(1, 2, 3))).thenReturn(cancelledIds);
+        when(orderItemApi.getByOrderIds(cancelledIds)).thenReturn(items);
+
+        // WHEN
+        List<Integer> result = orderFlow.cancelByIds(Arrays.asList(1, 2, 3));
+
+        // THEN
+        assertEquals(cancelledIds, result);
+        Map<Integer, Integer> restocked = new HashMap<>();
+        restocked.put(101, 9);
+        restocked.put(102, 2);
+        verify(inventoryApi).incrementQuantities(restocked);
     }
 
     @Test
@@ -190,4 +291,11 @@ public class OrderFlowTest {
         );
         assertEquals("Cannot update an order that has already been invoiced", ex.getMessage());
     }
-}
\ No newline at end of file
+
+    private static OrderResult orderResult(Order order, List<OrderItem> orderItems) {
+        OrderResult orderResult = new OrderResult();
+        orderResult.setOrder(order);
+        orderResult.setOrderItems(orderItems);
+        return orderResult;
+    }
+}
@@ -16,6 +16,12 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import static com.increff.pos.factory.OrderFactory.mockPersistedObject;
 import static com.increff.pos.factory.OrderItemFactory.mockNewObject;
 import static com.increff.pos.factory.OrderItemFactory.mockPersistedObject;
@@ -188,4 +194,67 @@ public class OrderItemFlowTest {
         );
         assertEquals("Item not found", ex.getMessage());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void replaceItemsShouldApplyDiffInBatches() throws ApiException {
+        // GIVEN: 101 shrinks from 5 to 2, 102 is dropped, 103 is new
+        OrderItem droppedItem = mockPersistedObject(502, 1, 102);
+        droppedItem.setQuantity(3);
+        droppedItem.setSellingPrice(40.0);
+        Product newProduct = mockPersistedObject(103, "barcode-103", 1);
+        newProduct.setMrp(60.0);
+        OrderItem keptItem = mockNewObject(1, 101, 2, 90.0);
+        OrderItem newItem = mockNewObject(null, 103, 4, 50.0);
+
+        when(orderApi.getCheckById(1)).thenReturn(mutableOrder);
+        when(productApi.getByIds(Arrays.asList(101, 103))).thenReturn(Arrays.asList(existingProduct, newProduct));
+        when(orderItemApi.getAllByOrderId(1)).thenReturn(Arrays.asList(existingOrderItem, droppedItem));
+        when(inventoryApi.decrementQuantities(any())).thenReturn(Collections.emptyList());
+
+        // WHEN
+        List<OrderItem> result = orderItemFlow.replaceItems(1, Arrays.asList(keptItem, newItem));
+
+        // THEN
+        assertEquals(2, result.size());
+        assertEquals(Integer.valueOf(2), existingOrderItem.getQuantity());
+        assertEquals(Double.valueOf(90.0), existingOrderItem.getSellingPrice());
+        assertEquals(Integer.valueOf(1), newItem.getOrderId());
+        verify(orderItemApi).deleteAll(Collections.singletonList(droppedItem));
+        verify(orderItemApi).insertAll(Collections.singletonList(newItem));
+        verify(orderApi).updateTotalAmountById(1, 380.0);
+
+        Map<Integer, Integer> returned = new HashMap<>();
+        returned.put(101, 3);
+        returned.put(102, 3);
+        verify(inventoryApi).incrementQuantities(returned);
+        verify(inventoryApi).decrementQuantities(Collections.singletonMap(103, 4));
+        verify(inventoryApi, never()).updateQuantityByProductId(any(Integer.class), any(Integer.class), any(Integer.class));
+    }
+
+    @Test
+    public void replaceItemsSellingPriceExceedsMrpShouldThrowException() throws ApiException {
+        // GIVEN
+        OrderItem item = mockNewObject(1, 101, 1, 101.0); // MRP is 100.0
+        when(orderApi.getCheckById(1)).thenReturn(mutableOrder);
+        when(productApi.getByIds(Collections.singletonList(101))).thenReturn(Collections.singletonList(existingProduct));
+
+        // WHEN/THEN
+        ApiException ex = assertThrows(ApiException.class,
+            () -> orderItemFlow.replaceItems(1, Collections.singletonList(item))
+        );
+        assertTrue(ex.getMessage().contains("cannot be greater than its MRP"));
+        verifyNoInteractions(inventoryApi);
+    }
+
+    @Test
+    public void replaceItemsDuplicateProductShouldThrowException() throws ApiException {
+        // GIVEN
+        when(orderApi.getCheckById(1)).thenReturn(mutableOrder);
+
+        // WHEN/THEN
+        ApiException ex = assertThrows(ApiException.class,
+            () -> orderItemFlow.replaceItems(1, Arrays.asList(mockNewObject(1, 101, 1, 50.0), mockNewObject(1, 101, 2, 50.0)))
+        );
+        assertEquals("Product 101 appears more than once in the order", ex.getMessage());
+    }
+}
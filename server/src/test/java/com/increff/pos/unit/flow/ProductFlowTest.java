@@ -5,9 +5,11 @@ import com.increff.pos.api.InventoryApi;
 import com.increff.pos.api.ProductApi;
 import com.increff.pos.commons.exception.ApiException;
 import com.increff.pos.entity.Client;
+import com.increff.pos.entity.Inventory;
 import com.increff.pos.entity.Product;
 import com.increff.pos.flow.ProductFlow;
 import com.increff.pos.model.result.ConversionResult;
+import com.increff.pos.model.result.ProductResult;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.*;
@@ -70,11 +72,14 @@ public class ProductFlowTest {
         when(inventoryApi.insert(any())).thenReturn(null);
 
         // WHEN
-        Product result = productFlow.insert(newProduct);
+        ProductResult productResult = productFlow.insert(newProduct);
+        Product result = productResult.getProduct();
 
-        // THEN - Test BEHAVIOR: product persisted with ID
+        // THEN - Test BEHAVIOR: product persisted with ID, returned with its client and inventory
         assertNotNull(result.getId());
         assertEquals("BC123", result.getBarcode());
+        assertSame(mockClient, productResult.getClient());
+        assertEquals(Integer.valueOf(0), productResult.getInventory().getQuantity());
         
         // Verify critical side effect: inventory created with quantity 0
         verify(inventoryApi).insert(argThat(inv ->
@@ -109,6 +114,29 @@ public class ProductFlowTest {
         assertEquals("Duplicate barcode", ex.getMessage());
     }
 
+    // --- updateById() Tests ---
+
+    @Test
+    public void updateByIdShouldReturnProductWithClientAndInventory() throws ApiException {
+        // GIVEN
+        Product updated = mockNewObject("BC123", 1);
+        updated.setId(100);
+        Inventory inventory = new Inventory();
+        inventory.setProductId(100);
+        inventory.setQuantity(7);
+        when(productApi.updateById(100, updated)).thenReturn(updated);
+        when(clientApi.getCheckById(1)).thenReturn(mockClient);
+        when(inventoryApi.getCheckByProductId(100)).thenReturn(inventory);
+
+        // WHEN
+        ProductResult productResult = productFlow.updateById(100, updated);
+
+        // THEN
+        assertSame(updated, productResult.getProduct());
+        assertSame(mockClient, productResult.getClient());
+        assertSame(inventory, productResult.getInventory());
+    }
+
     // --- deleteById() Tests ---
 
     @Test
@@ -0,0 +1,83 @@
+package com.increff.pos.unit.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.increff.pos.commons.exception.ApiException;
+import com.increff.pos.idempotency.IdempotencyInterceptor;
+import com.increff.pos.idempotency.IdempotencyStore;
+import com.increff.pos.idempotency.Idempotent;
+import com.increff.pos.model.form.OrderForm;
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class IdempotencyInterceptorTest {
+
+    private IdempotencyInterceptor interceptor;
+    private AtomicInteger calls;
+
+    @Before
+    public void setUp() {
+        interceptor = new IdempotencyInterceptor(new IdempotencyStore(10, 60_000, 5_000), new ObjectMapper());
+        calls = new AtomicInteger();
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/orders");
+        request.addHeader(IdempotencyInterceptor.HEADER, "key-1");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    @After
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    public void testSameKeyAndBodyReplaysFirstResponse() throws Throwable {
+        assertEquals(1, interceptor.invoke(invocation(orderForm("Asha"))));
+        assertEquals(1, interceptor.invoke(invocation(orderForm("Asha"))));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testSameKeyWithAnotherBodyIsRejected() throws Throwable {
+        interceptor.invoke(invocation(orderForm("Asha")));
+
+        try {
+            interceptor.invoke(invocation(orderForm("Ravi")));
+            fail("Expected ApiException");
+        } catch (ApiException e) {
+            assertTrue(e.getMessage().startsWith("Idempotency-Key was already used for POST /orders"));
+        }
+        assertEquals(1, calls.get());
+    }
+
+    private MethodInvocation invocation(OrderForm orderForm) throws Throwable {
+        MethodInvocation invocation = mock(MethodInvocation.class);
+        when(invocation.getMethod()).thenReturn(Endpoint.class.getMethod("add", OrderForm.class));
+        when(invocation.getArguments()).thenReturn(new Object[]{orderForm});
+        when(invocation.proceed()).thenAnswer(call -> calls.incrementAndGet());
+        return invocation;
+    }
+
+    private static OrderForm orderForm(String customerName) {
+        OrderForm orderForm = new OrderForm();
+        orderForm.setCustomerName(customerName);
+        return orderForm;
+    }
+
+    public static class Endpoint {
+
+        @Idempotent("orders")
+        public Object add(OrderForm orderForm) {
+            return null;
+        }
+    }
+}
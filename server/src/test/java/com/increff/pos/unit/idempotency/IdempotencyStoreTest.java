@@ -0,0 +1,113 @@
+package com.increff.pos.unit.idempotency;
+
+import com.increff.pos.commons.exception.ApiException;
+import com.increff.pos.idempotency.IdempotencyStore;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class IdempotencyStoreTest {
+
+    private static final String FINGERPRINT = "POST /orders";
+
+    private IdempotencyStore store;
+    private AtomicInteger calls;
+
+    @Before
+    public void setUp() {
+        store = new IdempotencyStore(2, 60_000, 5_000);
+        calls = new AtomicInteger();
+    }
+
+    @Test
+    public void testRepeatedKeyReplaysFirstResponse() throws Throwable {
+        Object first = store.execute("key-1", FINGERPRINT, calls::incrementAndGet);
+        Object second = store.execute("key-1", FINGERPRINT, calls::incrementAndGet);
+
+        assertEquals(1, first);
+        assertEquals(1, second);
+        assertEquals(1, calls.get());
+        assertEquals(1, store.getReplays());
+    }
+
+    @Test
+    public void testFailureIsNotStored() throws Throwable {
+        try {
+            store.execute("key-1", FINGERPRINT, () -> {
+                calls.incrementAndGet();
+                throw new ApiException("Insufficient stock");
+            });
+            fail("Expected ApiException");
+        } catch (ApiException e) {
+            assertEquals("Insufficient stock", e.getMessage());
+        }
+
+        assertEquals(2, store.execute("key-1", FINGERPRINT, calls::incrementAndGet));
+    }
+
+    @Test(expected = ApiException.class)
+    public void testKeyReusedForAnotherRequestIsRejected() throws Throwable {
+        store.execute("key-1", "POST /invoices/1", calls::incrementAndGet);
+        store.execute("key-1", "POST /invoices/2", calls::incrementAndGet);
+    }
+
+    @Test
+    public void testOldestResponseEvictedBeyondMaxEntries() throws Throwable {
+        store.execute("key-1", FINGERPRINT, calls::incrementAndGet);
+        store.execute("key-2", FINGERPRINT, calls::incrementAndGet);
+        store.execute("key-3", FINGERPRINT, calls::incrementAndGet);
+
+        assertEquals(2, store.size());
+        // key-1 was evicted, so it runs again
+        assertEquals(4, store.execute("key-1", FINGERPRINT, calls::incrementAndGet));
+    }
+
+    @Test
+    public void testExpiredResponseRunsAgain() throws Throwable {
+        store = new IdempotencyStore(10, 0, 5_000);
+        store.execute("key-1", FINGERPRINT, calls::incrementAndGet);
+
+        assertEquals(2, store.execute("key-1", FINGERPRINT, calls::incrementAndGet));
+    }
+
+    @Test
+    public void testConcurrentDuplicateWaitsForOriginal() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Object> original = executor.submit(() -> execute("key-1", () -> {
+                started.countDown();
+                release.await();
+                return calls.incrementAndGet();
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<Object> duplicate = executor.submit(() -> execute("key-1", calls::incrementAndGet));
+
+            release.countDown();
+            assertEquals(1, original.get(5, TimeUnit.SECONDS));
+            assertEquals(1, duplicate.get(5, TimeUnit.SECONDS));
+            assertEquals(1, calls.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Object execute(String key, IdempotencyStore.Call call) throws Exception {
+        try {
+            return store.execute(key, FINGERPRINT, call);
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.increff.pos.unit.service;
+
+import com.increff.pos.commons.exception.ApiException;
+import com.increff.pos.entity.Order;
+import com.increff.pos.flow.OrderFlow;
+import com.increff.pos.model.result.OrderGroupResult;
+import com.increff.pos.model.result.OrderResult;
+import com.increff.pos.service.OrderGroupCommitter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class OrderGroupCommitterTest {
+
+    @Mock
+    private OrderFlow orderFlow;
+    @InjectMocks
+    private OrderGroupCommitter orderGroupCommitter;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(orderGroupCommitter, "enabled", true);
+        ReflectionTestUtils.setField(orderGroupCommitter, "awaitTimeoutMillis", 200L);
+        orderGroupCommitter.afterPropertiesSet();
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        orderGroupCommitter.destroy();
+    }
+
+    @Test
+    public void errorInGroupShouldFailItsOrdersAndKeepWorkerRunning() throws Exception {
+        // GIVEN: the first group throws an Error, the next one commits
+        when(orderFlow.insertGroup(any()))
+                .thenThrow(new StackOverflowError())
+                .thenAnswer(invocation -> placed(invocation.getArgument(0)));
+
+        // WHEN / THEN
+        try {
+            orderGroupCommitter.insert(new Order(), Collections.emptyList());
+            fail("Expected ApiException");
+        } catch (ApiException e) {
+            assertEquals("Order could not be placed", e.getMessage());
+        }
+        OrderResult orderResult = orderGroupCommitter.insert(new Order(), Collections.emptyList());
+        assertEquals(Integer.valueOf(1), orderResult.getOrder().getId());
+    }
+
+    @Test
+    public void stuckGroupShouldTimeOutCaller() throws Exception {
+        // GIVEN
+        CountDownLatch release = new CountDownLatch(1);
+        when(orderFlow.insertGroup(any())).thenAnswer(invocation -> {
+            release.await();
+            return placed(invocation.getArgument(0));
+        });
+
+        // WHEN / THEN
+        try {
+            orderGroupCommitter.insert(new Order(), Collections.emptyList());
+            fail("Expected ApiException");
+        } catch (ApiException e) {
+            assertEquals("Timed out waiting for the order to be placed; check the order list before retrying", e.getMessage());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void timedOutQueuedOrderShouldBeWithdrawn() throws Exception {
+        // GIVEN: the worker is stuck committing another order's group
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(orderFlow.insertGroup(any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return placed(invocation.getArgument(0));
+        });
+        Thread other = new Thread(() -> {
+            try {
+                orderGroupCommitter.insert(new Order(), Collections.emptyList());
+            } catch (ApiException e) {
+                // Times out as well; only the second order is under test
+            }
+        });
+        other.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // WHEN / THEN
+        try {
+            orderGroupCommitter.insert(new Order(), Collections.emptyList());
+            fail("Expected ApiException");
+        } catch (ApiException e) {
+            assertEquals("Order was not placed: timed out waiting for a commit group", e.getMessage());
+        } finally {
+            release.countDown();
+            other.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        verify(orderFlow, times(1)).insertGroup(any());
+    }
+
+    private static List<OrderGroupResult> placed(List<OrderResult> orderResults) {
+        List<OrderGroupResult> results = new ArrayList<>();
+        for (OrderResult orderResult : orderResults) {
+            orderResult.getOrder().setId(results.size() + 1);
+            OrderGroupResult result = new OrderGroupResult();
+            result.setOrderResult(orderResult);
+            results.add(result);
+        }
+        return results;
+    }
+}
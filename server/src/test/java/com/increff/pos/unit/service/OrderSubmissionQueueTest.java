@@ -0,0 +1,205 @@
+package com.increff.pos.unit.service;
+
+import com.increff.pos.commons.exception.ApiException;
+import com.increff.pos.commons.exception.QueueFullException;
+import com.increff.pos.entity.Order;
+import com.increff.pos.entity.OrderItem;
+import com.increff.pos.model.data.OrderQueueStatsData;
+import com.increff.pos.model.data.OrderSubmissionData;
+import com.increff.pos.model.enums.OrderSubmissionStatus;
+import com.increff.pos.model.result.OrderResult;
+import com.increff.pos.service.OrderGroupCommitter;
+import com.increff.pos.service.OrderSubmissionQueue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class OrderSubmissionQueueTest {
+
+    private static final String USER = "operator@increff.com";
+
+    @Mock
+    private OrderGroupCommitter orderGroupCommitter;
+    @InjectMocks
+    private OrderSubmissionQueue orderSubmissionQueue;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(orderSubmissionQueue, "workers", 1);
+        ReflectionTestUtils.setField(orderSubmissionQueue, "queueCapacity", 2);
+        orderSubmissionQueue.afterPropertiesSet();
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        orderSubmissionQueue.destroy();
+    }
+
+    @Test
+    public void submittedOrderShouldBePlacedAndPollable() throws Exception {
+        // GIVEN
+        when(orderGroupCommitter.insert(any(), any())).thenAnswer(invocation -> placed(invocation.getArgument(0), 42));
+
+        // WHEN
+        OrderSubmissionData submission = orderSubmissionQueue.submit(USER, "terminal-1", new Order(), Collections.emptyList());
+
+        // THEN
+        assertEquals(OrderSubmissionStatus.QUEUED, submission.getStatus());
+        OrderSubmissionData status = awaitFinished(submission.getToken());
+        assertEquals(OrderSubmissionStatus.PLACED, status.getStatus());
+        assertEquals(Integer.valueOf(42), status.getOrderId());
+        assertNull(status.getError());
+    }
+
+    @Test
+    public void rejectedOrderShouldReportError() throws Exception {
+        // GIVEN
+        when(orderGroupCommitter.insert(any(), any())).thenThrow(new ApiException("Insufficient stock"));
+
+        // WHEN
+        OrderSubmissionData submission = orderSubmissionQueue.submit(USER, "terminal-1", new Order(), Collections.emptyList());
+
+        // THEN
+        OrderSubmissionData status = awaitFinished(submission.getToken());
+        assertEquals(OrderSubmissionStatus.FAILED, status.getStatus());
+        assertEquals("Insufficient stock", status.getError());
+        assertEquals(1, orderSubmissionQueue.getStats().getFailed());
+    }
+
+    @Test
+    public void errorShouldFailItsOrderAndKeepLaneRunning() throws Exception {
+        // GIVEN: the first order throws an Error, the next one is placed
+        when(orderGroupCommitter.insert(any(), any()))
+                .thenThrow(new StackOverflowError())
+                .thenAnswer(invocation -> placed(invocation.getArgument(0), 9));
+
+        // WHEN
+        String first = orderSubmissionQueue.submit(USER, "terminal-1", new Order(), Collections.emptyList()).getToken();
+        String second = orderSubmissionQueue.submit(USER, "terminal-1", new Order(), Collections.emptyList()).getToken();
+
+        // THEN
+        OrderSubmissionData failed = awaitFinished(first);
+        assertEquals(OrderSubmissionStatus.FAILED, failed.getStatus());
+        assertEquals("Order could not be placed", failed.getError());
+        OrderSubmissionData next = awaitFinished(second);
+        assertEquals(OrderSubmissionStatus.PLACED, next.getStatus());
+        assertEquals(Integer.valueOf(9), next.getOrderId());
+    }
+
+    @Test
+    public void fullQueueShouldRejectSubmission() throws Exception {
+        // GIVEN: the worker is stuck on the first order, two more fill the queue
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(orderGroupCommitter.insert(any(), any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return placed(invocation.getArgument(0), 1);
+        });
+        orderSubmissionQueue.submit(USER, "terminal-1", new Order(), Collections.emptyList());
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        orderSubmissionQueue.submit(USER, "terminal-1", new Order(), Collections.emptyList());
+        orderSubmissionQueue.submit(USER, "terminal-1", new Order(), Collections.emptyList());
+
+        // WHEN / THEN
+        try {
+            orderSubmissionQueue.submit(USER, "terminal-1", new Order(), Collections.emptyList());
+            fail("Expected QueueFullException");
+        } catch (QueueFullException e) {
+            OrderQueueStatsData stats = orderSubmissionQueue.getStats();
+            assertEquals(2, stats.getDepth());
+            assertEquals(1, stats.getRejected());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void ordersOfOneTerminalShouldBePlacedInSubmissionOrder() throws Exception {
+        // GIVEN
+        List<Order> placedOrders = Collections.synchronizedList(new ArrayList<>());
+        when(orderGroupCommitter.insert(any(), any())).thenAnswer(invocation -> {
+            Order order = invocation.getArgument(0);
+            placedOrders.add(order);
+            return placed(order, placedOrders.size());
+        });
+        Order first = new Order();
+        Order second = new Order();
+
+        // WHEN
+        orderSubmissionQueue.submit(USER, "terminal-1", first, Collections.<OrderItem>emptyList());
+        String last = orderSubmissionQueue.submit(USER, "terminal-1", second, Collections.<OrderItem>emptyList()).getToken();
+
+        // THEN
+        awaitFinished(last);
+        assertSame(first, placedOrders.get(0));
+        assertSame(second, placedOrders.get(1));
+    }
+
+    @Test
+    public void otherUsersTokenShouldReturnNull() throws Exception {
+        // GIVEN
+        when(orderGroupCommitter.insert(any(), any())).thenAnswer(invocation -> placed(invocation.getArgument(0), 7));
+        String token = orderSubmissionQueue.submit(USER, "terminal-1", new Order(), Collections.emptyList()).getToken();
+
+        // WHEN / THEN
+        assertNull(orderSubmissionQueue.get(token, "someone-else@increff.com"));
+        assertNull(orderSubmissionQueue.get(token, null));
+        assertNotNull(orderSubmissionQueue.get(token, USER));
+    }
+
+    @Test
+    public void tokensShouldBeRandomUrlSafeSecrets() throws Exception {
+        // GIVEN
+        when(orderGroupCommitter.insert(any(), any())).thenAnswer(invocation -> placed(invocation.getArgument(0), 1));
+
+        // WHEN
+        String first = orderSubmissionQueue.submit(USER, "terminal-1", new Order(), Collections.emptyList()).getToken();
+        String second = orderSubmissionQueue.submit(USER, "terminal-1", new Order(), Collections.emptyList()).getToken();
+
+        // THEN: 32 random bytes, URL-safe Base64 without padding
+        assertTrue(first.matches("[A-Za-z0-9_-]{43}"));
+        assertNotEquals(first, second);
+    }
+
+    @Test
+    public void unknownTokenShouldReturnNull() {
+        assertNull(orderSubmissionQueue.get("no-such-token", USER));
+    }
+
+    private OrderSubmissionData awaitFinished(String token) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        OrderSubmissionData status = orderSubmissionQueue.get(token, USER);
+        while (isPending(status) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            status = orderSubmissionQueue.get(token, USER);
+        }
+        return status;
+    }
+
+    private static boolean isPending(OrderSubmissionData status) {
+        return status.getStatus() == OrderSubmissionStatus.QUEUED || status.getStatus() == OrderSubmissionStatus.PROCESSING;
+    }
+
+    private static OrderResult placed(Order order, int id) {
+        order.setId(id);
+        OrderResult orderResult = new OrderResult();
+        orderResult.setOrder(order);
+        return orderResult;
+    }
+}
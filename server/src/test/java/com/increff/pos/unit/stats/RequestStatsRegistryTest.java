@@ -0,0 +1,75 @@
+package com.increff.pos.unit.stats;
+
+import com.increff.pos.stats.RequestStatistics;
+import com.increff.pos.stats.RequestStatisticsInterceptor;
+import com.increff.pos.stats.RequestStatisticsListener;
+import com.increff.pos.stats.RequestStatsRegistry;
+import com.increff.pos.stats.RequestTypeStats;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RequestStatsRegistryTest {
+
+    private final RequestStatisticsListener listener = new RequestStatisticsListener();
+    private final RequestStatisticsInterceptor interceptor = new RequestStatisticsInterceptor();
+
+    @After
+    public void tearDown() {
+        RequestStatistics.end();
+    }
+
+    @Test
+    public void eventsOutsideARequestShouldBeIgnored() {
+        // WHEN
+        listener.jdbcExecuteStatementEnd();
+        interceptor.onLoad(new Object(), 1, null, null, null);
+
+        // THEN
+        assertNull(RequestStatistics.current());
+    }
+
+    @Test
+    public void recordShouldAggregatePerRequestType() {
+        // GIVEN
+        RequestStatsRegistry registry = new RequestStatsRegistry();
+
+        // WHEN: two heavy report requests and one light lookup
+        registry.record("GET /report/sales", simulateRequest(40, 500));
+        registry.record("GET /report/sales", simulateRequest(20, 100));
+        registry.record("GET /clients/{id}", simulateRequest(1, 1));
+
+        // THEN
+        List<RequestTypeStats> top = registry.getTop(10, Comparator.comparingLong(RequestTypeStats::getStatements));
+        assertEquals(2, top.size());
+        RequestTypeStats report = top.get(0);
+        assertEquals("GET /report/sales", report.getRequestType());
+        assertEquals(2, report.getCount());
+        assertEquals(60, report.getStatements());
+        assertEquals(30.0, report.getMeanStatements(), 0.001);
+        assertEquals(40, report.getMaxStatements());
+        assertEquals(600, report.getEntitiesLoaded());
+        assertEquals(500, report.getMaxEntitiesLoaded());
+        assertEquals(2, report.getFlushes());
+        assertEquals(4, report.getFlushedEntities());
+
+        List<RequestTypeStats> byEntities = registry.getTop(1, Comparator.comparingLong(RequestTypeStats::getEntitiesLoaded));
+        assertEquals("GET /report/sales", byEntities.get(0).getRequestType());
+    }
+
+    private RequestStatistics simulateRequest(int statements, int entities) {
+        RequestStatistics.start();
+        for (int i = 0; i < statements; i++) {
+            listener.jdbcExecuteStatementEnd();
+        }
+        for (int i = 0; i < entities; i++) {
+            interceptor.onLoad(new Object(), i, null, null, null);
+        }
+        listener.flushEnd(2, 0);
+        return RequestStatistics.end();
+    }
+}